@@ -0,0 +1,366 @@
+package org.xbib.decompound;
+
+import org.xbib.elasticsearch.index.analysis.decompound.CompactPatriciaTrie;
+import org.xbib.elasticsearch.index.analysis.decompound.DecompoundTreeLoader;
+import org.xbib.elasticsearch.index.analysis.decompound.Decompounder;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Runs the decompounder over a gold list of compounds and their expected parts, and reports split precision and
+ * recall, throughput on one and on many threads, and the bytes allocated per word.
+ *
+ * The evaluation fails if a value falls below a given minimum, or is worse than a baseline by more than the
+ * given tolerance, so it can gate the build.
+ */
+public class Evaluator {
+
+    private static final String DEFAULT_GOLD = "/decompound/gold.txt";
+
+    private final Decompounder decompounder;
+
+    private final List<String[]> gold;
+
+    private int rounds = 5;
+
+    private int threads = Runtime.getRuntime().availableProcessors();
+
+    public static void main(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 0; i < args.length; i += 2) {
+            if (!args[i].startsWith("--") || i + 1 == args.length) {
+                usage();
+                return;
+            }
+            options.put(args[i].substring(2), args[i + 1]);
+        }
+        try {
+            double threshold = Double.parseDouble(options.getOrDefault("threshold", "0.51"));
+            Decompounder decompounder = new Decompounder(
+                    load(options.getOrDefault("forward", DecompoundTreeLoader.DEFAULT_FORWARD)),
+                    load(options.getOrDefault("backward", DecompoundTreeLoader.DEFAULT_BACKWARD)),
+                    load(options.getOrDefault("reduce", DecompoundTreeLoader.DEFAULT_REDUCE)),
+                    threshold);
+            List<String[]> gold;
+            try (Reader reader = new InputStreamReader(open(options.getOrDefault("gold", DEFAULT_GOLD)),
+                    StandardCharsets.UTF_8)) {
+                gold = Compactor.readGold(reader);
+            }
+            Evaluator evaluator = new Evaluator(decompounder, gold);
+            if (options.containsKey("rounds")) {
+                evaluator.setRounds(Integer.parseInt(options.get("rounds")));
+            }
+            if (options.containsKey("threads")) {
+                evaluator.setThreads(Integer.parseInt(options.get("threads")));
+            }
+            Result result = evaluator.evaluate();
+            for (String miss : result.getMisses()) {
+                System.out.println("miss: " + miss);
+            }
+            System.out.println(result);
+            if (options.containsKey("write-baseline")) {
+                try (OutputStream out = Files.newOutputStream(Paths.get(options.get("write-baseline")))) {
+                    result.toBaseline().store(out, "decompounder evaluation baseline");
+                }
+            }
+            List<String> failures = new ArrayList<>();
+            check(failures, "precision", result.getPrecision(), options.get("min-precision"));
+            check(failures, "recall", result.getRecall(), options.get("min-recall"));
+            check(failures, "words/s", result.getWordsPerSecond(), options.get("min-words-per-second"));
+            if (options.containsKey("baseline")) {
+                Properties baseline = new Properties();
+                try (InputStream in = open(options.get("baseline"))) {
+                    baseline.load(in);
+                }
+                checkBaseline(failures, result, baseline, options);
+            }
+            if (!failures.isEmpty()) {
+                for (String failure : failures) {
+                    System.err.println("evaluation failed: " + failure);
+                }
+                System.exit(1);
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+            System.exit(1);
+        }
+    }
+
+    private static void usage() {
+        System.err.println("Evaluator");
+        System.err.println("--forward <tree>               forward tree, default " + DecompoundTreeLoader.DEFAULT_FORWARD);
+        System.err.println("--backward <tree>              backward tree, default " + DecompoundTreeLoader.DEFAULT_BACKWARD);
+        System.err.println("--reduce <tree>                base form reduction tree, default " + DecompoundTreeLoader.DEFAULT_REDUCE);
+        System.err.println("--gold <file>                  gold splits, one per line: <compound> <part> + <part> ..., default " + DEFAULT_GOLD);
+        System.err.println("--threshold <value>            classification threshold, default 0.51");
+        System.err.println("--rounds <n>                   passes over the gold list per thread, default 5");
+        System.err.println("--threads <n>                  threads for the concurrent throughput, default number of cores");
+        System.err.println("--min-precision <value>        fail if the precision is lower");
+        System.err.println("--min-recall <value>           fail if the recall is lower");
+        System.err.println("--min-words-per-second <value> fail if the single threaded throughput is lower");
+        System.err.println("--baseline <file>              fail if a baseline value is missed by more than its tolerance");
+        System.err.println("--precision-tolerance <value>  precision the baseline may be missed by, default 0.01");
+        System.err.println("--recall-tolerance <value>     recall the baseline may be missed by, default 0.01");
+        System.err.println("--allocation-tolerance <value> fraction the bytes per word may exceed the baseline, default 0.1");
+        System.err.println("--throughput-tolerance <value> fraction the words per second may fall short, default 0.1");
+        System.err.println("--write-baseline <file>        write the results as baseline properties");
+        System.err.println("Trees and gold file are read from the file system, or else from the class path.");
+        System.exit(1);
+    }
+
+    public Evaluator(Decompounder decompounder, List<String[]> gold) {
+        this.decompounder = decompounder;
+        this.gold = gold;
+    }
+
+    public void setRounds(int rounds) {
+        this.rounds = rounds;
+    }
+
+    public void setThreads(int threads) {
+        this.threads = threads;
+    }
+
+    public Result evaluate() throws InterruptedException, ExecutionException {
+        long tp = 0;
+        long predicted = 0;
+        long expected = 0;
+        List<String> misses = new ArrayList<>();
+        for (String[] entry : gold) {
+            List<String> output = decompounder.decompound(entry[0]);
+            List<String> parts = new ArrayList<>();
+            for (String part : output) {
+                parts.add(part.toLowerCase(Locale.ROOT));
+            }
+            predicted += parts.size();
+            boolean hit = parts.size() == entry.length - 1;
+            for (int i = 1; i < entry.length; i++) {
+                expected++;
+                if (parts.remove(entry[i].toLowerCase(Locale.ROOT))) {
+                    tp++;
+                } else {
+                    hit = false;
+                }
+            }
+            if (!hit) {
+                misses.add(entry[0] + " => " + output);
+            }
+        }
+        // warm up before measuring
+        run();
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        com.sun.management.ThreadMXBean allocations = bean instanceof com.sun.management.ThreadMXBean
+                && ((com.sun.management.ThreadMXBean) bean).isThreadAllocatedMemorySupported()
+                ? (com.sun.management.ThreadMXBean) bean : null;
+        long threadId = Thread.currentThread().getId();
+        long bytes = allocations != null ? allocations.getThreadAllocatedBytes(threadId) : 0L;
+        long start = System.nanoTime();
+        long words = run();
+        long nanos = Math.max(1L, System.nanoTime() - start);
+        double bytesPerWord = allocations != null
+                ? (double) (allocations.getThreadAllocatedBytes(threadId) - bytes) / words : -1.0;
+        double wordsPerSecond = words * 1e9 / nanos;
+        return new Result(predicted > 0 ? (double) tp / predicted : 0.0, expected > 0 ? (double) tp / expected : 0.0,
+                wordsPerSecond, runConcurrently(), threads, bytesPerWord, misses);
+    }
+
+    private long run() {
+        long words = 0;
+        for (int r = 0; r < rounds; r++) {
+            for (String[] entry : gold) {
+                decompounder.decompound(entry[0]);
+                words++;
+            }
+        }
+        return words;
+    }
+
+    private double runConcurrently() throws InterruptedException, ExecutionException {
+        final CountDownLatch latch = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Long>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                futures.add(executor.submit(() -> {
+                    latch.await();
+                    return run();
+                }));
+            }
+            long start = System.nanoTime();
+            latch.countDown();
+            long words = 0;
+            for (Future<Long> future : futures) {
+                words += future.get();
+            }
+            long nanos = Math.max(1L, System.nanoTime() - start);
+            return words * 1e9 / nanos;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static void check(List<String> failures, String name, double value, String min) {
+        if (min != null && value < Double.parseDouble(min)) {
+            failures.add(String.format(Locale.ROOT, "%s %.4f is below %s", name, value, min));
+        }
+    }
+
+    /**
+     * Compares the result with the baseline. Precision and recall may be missed by an absolute tolerance, bytes
+     * per word and words per second by a fraction of the baseline. Values missing from the baseline, and bytes per
+     * word on a JVM that does not count allocations, are not checked.
+     */
+    private static void checkBaseline(List<String> failures, Result result, Properties baseline,
+                                      Map<String, String> options) {
+        String precision = baseline.getProperty("precision");
+        if (precision != null) {
+            double tolerance = Double.parseDouble(options.getOrDefault("precision-tolerance", "0.01"));
+            check(failures, "precision", result.getPrecision(),
+                    Double.toString(Double.parseDouble(precision) - tolerance));
+        }
+        String recall = baseline.getProperty("recall");
+        if (recall != null) {
+            double tolerance = Double.parseDouble(options.getOrDefault("recall-tolerance", "0.01"));
+            check(failures, "recall", result.getRecall(), Double.toString(Double.parseDouble(recall) - tolerance));
+        }
+        String wordsPerSecond = baseline.getProperty("words-per-second");
+        if (wordsPerSecond != null) {
+            double tolerance = Double.parseDouble(options.getOrDefault("throughput-tolerance", "0.1"));
+            check(failures, "words/s", result.getWordsPerSecond(),
+                    Double.toString(Double.parseDouble(wordsPerSecond) * (1.0 - tolerance)));
+        }
+        String bytesPerWord = baseline.getProperty("bytes-per-word");
+        if (bytesPerWord != null && result.getBytesPerWord() >= 0) {
+            double tolerance = Double.parseDouble(options.getOrDefault("allocation-tolerance", "0.1"));
+            double max = Double.parseDouble(bytesPerWord) * (1.0 + tolerance);
+            if (result.getBytesPerWord() > max) {
+                failures.add(String.format(Locale.ROOT, "bytes/word %.0f is above %.0f", result.getBytesPerWord(), max));
+            }
+        }
+    }
+
+    private static CompactPatriciaTrie load(String name) throws IOException {
+        CompactPatriciaTrie trie = new CompactPatriciaTrie();
+        try (InputStream in = open(name)) {
+            trie.load(in);
+        }
+        trie.setIgnoreCase(true);
+        return trie;
+    }
+
+    private static InputStream open(String name) throws IOException {
+        Path path = Paths.get(name);
+        if (Files.isRegularFile(path)) {
+            return Files.newInputStream(path);
+        }
+        InputStream in = Evaluator.class.getResourceAsStream(name);
+        if (in == null) {
+            throw new IOException("not found: " + name);
+        }
+        return in;
+    }
+
+    /**
+     * Accuracy, throughput and allocation of the decompounder.
+     */
+    public static class Result {
+
+        private final double precision;
+
+        private final double recall;
+
+        private final double wordsPerSecond;
+
+        private final double concurrentWordsPerSecond;
+
+        private final int threads;
+
+        private final double bytesPerWord;
+
+        private final List<String> misses;
+
+        Result(double precision, double recall, double wordsPerSecond, double concurrentWordsPerSecond,
+               int threads, double bytesPerWord, List<String> misses) {
+            this.precision = precision;
+            this.recall = recall;
+            this.wordsPerSecond = wordsPerSecond;
+            this.concurrentWordsPerSecond = concurrentWordsPerSecond;
+            this.threads = threads;
+            this.bytesPerWord = bytesPerWord;
+            this.misses = misses;
+        }
+
+        public double getPrecision() {
+            return precision;
+        }
+
+        public double getRecall() {
+            return recall;
+        }
+
+        public double getF1() {
+            return precision + recall > 0 ? 2 * precision * recall / (precision + recall) : 0.0;
+        }
+
+        public double getWordsPerSecond() {
+            return wordsPerSecond;
+        }
+
+        public double getConcurrentWordsPerSecond() {
+            return concurrentWordsPerSecond;
+        }
+
+        /**
+         * @return the bytes allocated per word on one thread, or -1 if the JVM does not count allocations
+         */
+        public double getBytesPerWord() {
+            return bytesPerWord;
+        }
+
+        public List<String> getMisses() {
+            return misses;
+        }
+
+        /**
+         * @return the values the {@code --baseline} option reads
+         */
+        public Properties toBaseline() {
+            Properties baseline = new Properties();
+            baseline.setProperty("precision", Double.toString(precision));
+            baseline.setProperty("recall", Double.toString(recall));
+            baseline.setProperty("words-per-second", String.format(Locale.ROOT, "%.0f", wordsPerSecond));
+            if (bytesPerWord >= 0) {
+                baseline.setProperty("bytes-per-word", String.format(Locale.ROOT, "%.0f", bytesPerWord));
+            }
+            return baseline;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT,
+                    "precision=%.4f recall=%.4f f1=%.4f words/s=%.0f words/s(%d threads)=%.0f bytes/word=%.0f",
+                    precision, recall, getF1(), wordsPerSecond, threads, concurrentWordsPerSecond, bytesPerWord);
+        }
+    }
+}
@@ -0,0 +1,263 @@
+package de.pansoft.lucene.search;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.analysis.tokenattributes.PayloadAttribute;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MultiTermQuery;
+import org.apache.lucene.search.PhraseQuery;
+import org.apache.lucene.search.PrefixQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.spans.SpanMultiTermQueryWrapper;
+import org.apache.lucene.search.spans.SpanTermQuery;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.apache.lucene.store.Directory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.xbib.elasticsearch.index.analysis.decompound.BenchmarkData;
+
+import de.pansoft.lucene.index.query.frequency.MinFrequencyPrefixQuery;
+import de.pansoft.lucene.index.query.frequency.MinFrequencyTermQuery;
+import de.pansoft.lucene.index.query.term.ExactBoostTermQuery;
+import de.pansoft.lucene.index.query.term.ExactTermQuery;
+import de.pansoft.lucene.search.spans.SpanEmptyPayloadCheckQuery;
+import de.pansoft.lucene.search.spans.SpanMinFrequencyFilterQuery;
+import de.pansoft.lucene.search.traversal.ExactPhraseQueryHandler;
+import de.pansoft.lucene.search.traversal.TraverserContext;
+
+/**
+ * Runs the exact and min frequency queries against a synthetic decompounded index, next to the plain Lucene
+ * query they replace. Documents are drawn from a Zipfian distribution over a German word sample and analyzed with
+ * the decompound token filter, so decompound tokens carry their payload.
+ *
+ * The exact queries are built like the exact phrase handlers build them for a tokenized field:
+ * <ul>
+ * <li>{@code phrase}: a phrase, as rewritten by {@code exact_phrase}</li>
+ * <li>{@code all_query_types}: terms and a phrase, as rewritten with {@code all_query_types}</li>
+ * <li>{@code boostExactTokens}: terms and a phrase, as rewritten with {@code boostExactTokens}</li>
+ * <li>{@code min_frequency_term}, {@code min_frequency_prefix}: {@code term#N} and {@code term*#N}</li>
+ * <li>{@code exact_min_frequency_term}, {@code exact_min_frequency_prefix}: the same within {@code all_query_types}</li>
+ * </ul>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ExactQueryBenchmark {
+
+	private static final String FIELD = "text";
+
+	private static final double ZIPF_EXPONENT = 1.0;
+
+	private static final int MIN_FREQUENCY = 2;
+
+	private static final float BOOST_EXACT_TOKENS = 2.0f;
+
+	@Param({ "phrase", "all_query_types", "boostExactTokens", "min_frequency_term", "min_frequency_prefix",
+			"exact_min_frequency_term", "exact_min_frequency_prefix" })
+	public String mode;
+
+	@Param({ "20000" })
+	public int docs;
+
+	@Param({ "100" })
+	public int words;
+
+	private Directory directory;
+
+	private IndexReader reader;
+
+	private IndexSearcher searcher;
+
+	private Query exact;
+
+	private Query plain;
+
+	@Setup
+	public void setup() throws IOException {
+		String[] vocabulary = BenchmarkData.words();
+		Analyzer analyzer = BenchmarkData.analyzer(BenchmarkData.decompounder());
+		directory = new ByteBuffersDirectory();
+		try (IndexWriter writer = new IndexWriter(directory, new IndexWriterConfig(analyzer))) {
+			double[] cumulative = zipf(vocabulary.length);
+			Random random = new Random(42L);
+			StringBuilder sb = new StringBuilder();
+			for (int i = 0; i < docs; i++) {
+				sb.setLength(0);
+				int length = 1 + random.nextInt(2 * words);
+				for (int j = 0; j < length; j++) {
+					sb.append(vocabulary[sample(cumulative, random.nextDouble())]).append(' ');
+				}
+				Document document = new Document();
+				document.add(new TextField(FIELD, sb.toString(), Field.Store.NO));
+				writer.addDocument(document);
+			}
+		}
+		reader = DirectoryReader.open(directory);
+		searcher = new IndexSearcher(reader);
+		// the most frequent words of the sample, and a decompound token of the first one
+		String first = original(analyzer, vocabulary[0]);
+		String second = original(analyzer, vocabulary[1]);
+		String third = original(analyzer, vocabulary[2]);
+		String part = decompound(analyzer, vocabulary[0]);
+		PhraseQuery phrase = new PhraseQuery(FIELD, first, second);
+		Query exactPhrase = new ExactPhraseQueryHandler().handleQuery(TraverserContext.getContext(), null, phrase, null);
+		switch (mode) {
+			case "phrase":
+				plain = phrase;
+				exact = exactPhrase;
+				break;
+			case "all_query_types":
+				plain = or(phrase, new TermQuery(new Term(FIELD, third)), new TermQuery(new Term(FIELD, part)));
+				exact = or(exactPhrase, exactTerm(third), exactTerm(part));
+				break;
+			case "boostExactTokens":
+				plain = or(phrase, new TermQuery(new Term(FIELD, third)), new TermQuery(new Term(FIELD, part)));
+				exact = or(exactPhrase,
+						new ExactBoostTermQuery(new Term(FIELD, third), BOOST_EXACT_TOKENS),
+						new ExactBoostTermQuery(new Term(FIELD, part), BOOST_EXACT_TOKENS));
+				break;
+			case "min_frequency_term":
+				plain = new TermQuery(new Term(FIELD, part));
+				exact = new MinFrequencyTermQuery(new Term(FIELD, part), MIN_FREQUENCY);
+				break;
+			case "min_frequency_prefix":
+				plain = new PrefixQuery(new Term(FIELD, prefix(part)));
+				exact = new MinFrequencyPrefixQuery(new Term(FIELD, prefix(part)), MIN_FREQUENCY);
+				break;
+			case "exact_min_frequency_term":
+				plain = new TermQuery(new Term(FIELD, part));
+				exact = new SpanMinFrequencyFilterQuery(new SpanEmptyPayloadCheckQuery(
+						new SpanTermQuery(new Term(FIELD, part))), MIN_FREQUENCY);
+				break;
+			case "exact_min_frequency_prefix":
+				plain = new PrefixQuery(new Term(FIELD, prefix(part)));
+				exact = new SpanMinFrequencyFilterQuery(new SpanEmptyPayloadCheckQuery(
+						new SpanMultiTermQueryWrapper<MultiTermQuery>(
+								new MinFrequencyPrefixQuery(new Term(FIELD, prefix(part)), MIN_FREQUENCY))),
+						MIN_FREQUENCY);
+				break;
+			default:
+				throw new IllegalArgumentException("unknown mode: " + mode);
+		}
+	}
+
+	@TearDown
+	public void tearDown() throws IOException {
+		reader.close();
+		directory.close();
+	}
+
+	@Benchmark
+	public TopDocs exact() throws IOException {
+		return searcher.search(exact, 10);
+	}
+
+	@Benchmark
+	public TopDocs plain() throws IOException {
+		return searcher.search(plain, 10);
+	}
+
+	private static Query exactTerm(String text) {
+		return new ExactTermQuery(new Term(FIELD, text));
+	}
+
+	private static Query or(Query... queries) {
+		BooleanQuery.Builder builder = new BooleanQuery.Builder();
+		for (Query query : queries) {
+			builder.add(query, BooleanClause.Occur.SHOULD);
+		}
+		return builder.build();
+	}
+
+	private static String prefix(String text) {
+		return text.substring(0, Math.min(3, text.length()));
+	}
+
+	private static double[] zipf(int n) {
+		double[] cumulative = new double[n];
+		double sum = 0.0;
+		for (int i = 0; i < n; i++) {
+			sum += 1.0 / Math.pow(i + 1, ZIPF_EXPONENT);
+			cumulative[i] = sum;
+		}
+		for (int i = 0; i < n; i++) {
+			cumulative[i] /= sum;
+		}
+		return cumulative;
+	}
+
+	private static int sample(double[] cumulative, double value) {
+		int low = 0;
+		int high = cumulative.length - 1;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (cumulative[mid] < value) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+
+	private static String original(Analyzer analyzer, String word) throws IOException {
+		return tokens(analyzer, word, false).get(0);
+	}
+
+	/**
+	 * Returns the last decompound token of a word, or the word itself if it is not decompounded.
+	 */
+	private static String decompound(Analyzer analyzer, String word) throws IOException {
+		List<String> parts = tokens(analyzer, word, true);
+		return parts.isEmpty() ? original(analyzer, word) : parts.get(parts.size() - 1);
+	}
+
+	private static List<String> tokens(Analyzer analyzer, String word, boolean decompounded) throws IOException {
+		List<String> tokens = new ArrayList<>();
+		try (TokenStream stream = analyzer.tokenStream(FIELD, word)) {
+			CharTermAttribute term = stream.addAttribute(CharTermAttribute.class);
+			PayloadAttribute payload = stream.addAttribute(PayloadAttribute.class);
+			stream.reset();
+			while (stream.incrementToken()) {
+				boolean part = payload.getPayload() != null && payload.getPayload().length > 0;
+				if (part == decompounded) {
+					tokens.add(term.toString());
+				}
+			}
+			stream.end();
+		}
+		return tokens;
+	}
+}
@@ -0,0 +1,91 @@
+package org.xbib.elasticsearch.index.analysis.decompound;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.LowerCaseFilter;
+import org.apache.lucene.analysis.Tokenizer;
+import org.apache.lucene.analysis.core.WhitespaceTokenizer;
+
+/**
+ * Trees, text samples and analysis shared by the benchmarks.
+ */
+public final class BenchmarkData {
+
+    private static final long MAX_CACHE_SIZE = 8388608L;
+
+    private BenchmarkData() {
+    }
+
+    /**
+     * @return a decompounder over the default trees
+     * @throws IOException if a tree can not be read
+     */
+    public static Decompounder decompounder() throws IOException {
+        return new Decompounder(tree(DecompoundTreeLoader.DEFAULT_FORWARD).snapshot(),
+                tree(DecompoundTreeLoader.DEFAULT_BACKWARD).snapshot(),
+                tree(DecompoundTreeLoader.DEFAULT_REDUCE).snapshot());
+    }
+
+    /**
+     * Returns an analyzer that splits on whitespace, decompounds and lower cases, like a decompound index would.
+     *
+     * @param decompounder the decompounder
+     * @return the analyzer
+     */
+    public static Analyzer analyzer(final Decompounder decompounder) {
+        return new Analyzer() {
+            @Override
+            protected TokenStreamComponents createComponents(String fieldName) {
+                Tokenizer tokenizer = new WhitespaceTokenizer();
+                return new TokenStreamComponents(tokenizer, new LowerCaseFilter(
+                        new DecompoundTokenFilter(tokenizer, decompounder, false, false, MAX_CACHE_SIZE)));
+            }
+        };
+    }
+
+    static CompactPatriciaTrie tree(String name) throws IOException {
+        try (InputStream in = BenchmarkData.class.getResourceAsStream(name)) {
+            if (in == null) {
+                throw new IOException("decompound tree not found: " + name);
+            }
+            CompactPatriciaTrie trie = new CompactPatriciaTrie();
+            trie.load(in);
+            trie.setIgnoreCase(true);
+            trie.setThreshold(0.51);
+            return trie;
+        }
+    }
+
+    public static String[] words() throws IOException {
+        List<String> words = new ArrayList<>();
+        for (String line : lines("/decompound/words.txt")) {
+            if (!line.isEmpty()) {
+                words.add(line);
+            }
+        }
+        return words.toArray(new String[words.size()]);
+    }
+
+    static String text() throws IOException {
+        return String.join("\n", lines("/decompound/text.txt"));
+    }
+
+    private static List<String> lines(String name) throws IOException {
+        List<String> lines = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                BenchmarkData.class.getResourceAsStream(name), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lines.add(line.trim());
+            }
+        }
+        return lines;
+    }
+}
@@ -0,0 +1,100 @@
+package org.xbib.elasticsearch.index.analysis.decompound;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Classifies a word sample with each tree the way the decompounder does: the forward tree with
+ * {@code classify(word + "<")}, the backward tree with {@code classifyBackward(word, "<")} and the reduction
+ * tree with {@code classifyBackward(word)}. One operation is one word.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CompactPatriciaTrieBenchmark {
+
+    private static final int WORDS = 125;
+
+    @Param({ "forward", "backward", "reduce" })
+    public String tree;
+
+    private CompactPatriciaTrie trie;
+
+    private CompactPatriciaTrieSnapshot snapshot;
+
+    private String[] words;
+
+    @Setup
+    public void setup() throws IOException {
+        switch (tree) {
+            case "forward":
+                trie = BenchmarkData.tree(DecompoundTreeLoader.DEFAULT_FORWARD);
+                break;
+            case "backward":
+                trie = BenchmarkData.tree(DecompoundTreeLoader.DEFAULT_BACKWARD);
+                break;
+            default:
+                trie = BenchmarkData.tree(DecompoundTreeLoader.DEFAULT_REDUCE);
+                break;
+        }
+        snapshot = trie.snapshot();
+        String[] sample = BenchmarkData.words();
+        words = new String[WORDS];
+        for (int i = 0; i < WORDS; i++) {
+            words[i] = sample[i % sample.length];
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(WORDS)
+    public void classify(Blackhole bh) {
+        for (String word : words) {
+            switch (tree) {
+                case "forward":
+                    bh.consume(trie.classify(word + "<"));
+                    break;
+                case "backward":
+                    bh.consume(trie.classifyBackward(word, "<"));
+                    break;
+                default:
+                    bh.consume(trie.classifyBackward(word));
+                    break;
+            }
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(WORDS)
+    public void classifySnapshot(Blackhole bh) {
+        for (String word : words) {
+            switch (tree) {
+                case "forward":
+                    bh.consume(snapshot.classify(word + "<"));
+                    break;
+                case "backward":
+                    bh.consume(snapshot.classifyBackward(word, "<"));
+                    break;
+                default:
+                    bh.consume(snapshot.classifyBackward(word));
+                    break;
+            }
+        }
+    }
+}
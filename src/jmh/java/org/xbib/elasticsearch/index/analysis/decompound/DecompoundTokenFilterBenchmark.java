@@ -0,0 +1,73 @@
+package org.xbib.elasticsearch.index.analysis.decompound;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.core.WhitespaceTokenizer;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Analyzes a German text with a whitespace tokenizer and the decompound token filter. One operation is one pass
+ * over the text. With a cold cache the term cache is dropped before every pass, with a warm cache it keeps the
+ * terms of earlier passes, and with the cache disabled every term is decompounded.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DecompoundTokenFilterBenchmark {
+
+    private static final long MAX_CACHE_SIZE = 8388608L;
+
+    @Param({ "cold", "warm", "disabled" })
+    public String cache;
+
+    private Decompounder decompounder;
+
+    private String text;
+
+    @Setup
+    public void setup() throws IOException {
+        decompounder = BenchmarkData.decompounder();
+        text = BenchmarkData.text();
+    }
+
+    @Setup(Level.Invocation)
+    public void invalidate() {
+        if ("cold".equals(cache)) {
+            DecompoundTokenFilter.invalidateCache();
+        }
+    }
+
+    @Benchmark
+    public void analyze(Blackhole bh) throws IOException {
+        WhitespaceTokenizer tokenizer = new WhitespaceTokenizer();
+        tokenizer.setReader(new StringReader(text));
+        try (TokenStream stream = new DecompoundTokenFilter(tokenizer, decompounder, false, false,
+                "disabled".equals(cache) ? 0L : MAX_CACHE_SIZE)) {
+            CharTermAttribute term = stream.addAttribute(CharTermAttribute.class);
+            stream.reset();
+            while (stream.incrementToken()) {
+                bh.consume(term.length());
+            }
+            stream.end();
+        }
+    }
+}
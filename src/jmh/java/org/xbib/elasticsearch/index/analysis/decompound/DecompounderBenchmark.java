@@ -0,0 +1,53 @@
+package org.xbib.elasticsearch.index.analysis.decompound;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Decompounds a sample of German compounds and simple words with the default trees. One operation is one word.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DecompounderBenchmark {
+
+    private static final int WORDS = 125;
+
+    private Decompounder decompounder;
+
+    private String[] words;
+
+    @Setup
+    public void setup() throws IOException {
+        decompounder = BenchmarkData.decompounder();
+        String[] sample = BenchmarkData.words();
+        words = new String[WORDS];
+        for (int i = 0; i < WORDS; i++) {
+            words[i] = sample[i % sample.length];
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(WORDS)
+    public void decompound(Blackhole bh) {
+        for (String word : words) {
+            bh.consume(decompounder.decompound(word));
+        }
+    }
+}
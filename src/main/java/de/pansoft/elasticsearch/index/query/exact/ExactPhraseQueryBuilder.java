@@ -3,8 +3,12 @@ package de.pansoft.elasticsearch.index.query.exact;
 import java.io.IOException;
 import java.util.Objects;
 
+import de.pansoft.lucene.index.query.term.ExactTermDocSetCache;
 import de.pansoft.lucene.index.query.term.MarkedTermQuery;
+import de.pansoft.lucene.search.spans.SpanBoundedMultiTermQueryWrapper;
 import de.pansoft.lucene.search.traversal.*;
+import org.apache.lucene.queries.BlendedTermQuery;
+import org.apache.lucene.search.BooleanQuery;
 import org.apache.lucene.search.Query;
 import org.elasticsearch.xcontent.ParseField;
 import org.elasticsearch.common.ParsingException;
@@ -16,6 +20,7 @@ import org.elasticsearch.index.query.AbstractQueryBuilder;
 import org.elasticsearch.index.query.QueryBuilder;
 import org.elasticsearch.index.query.QueryRewriteContext;
 import org.elasticsearch.index.query.SearchExecutionContext;
+import org.elasticsearch.index.query.functionscore.FunctionScoreQueryBuilder;
 
 public class ExactPhraseQueryBuilder extends AbstractQueryBuilder<ExactPhraseQueryBuilder> {
 
@@ -23,58 +28,120 @@ public class ExactPhraseQueryBuilder extends AbstractQueryBuilder<ExactPhraseQue
     private static final ParseField QUERY_FIELD = new ParseField("query");
     private static final ParseField BOOST_EXACT_TOKENS_FIELD = new ParseField("boostExactTokens");
     private static final ParseField ALL_QUERY_TYPES_FIELD = new ParseField("all_query_types");
-    private static final QueryTraverser PHRASE_QUERY_TRAVERSER = new QueryTraverser(
-    		new CloneOnChangeBooleanQueryHandler(),
-    		new CloneOnChangeBoostQueryHandler(),
-    		new CloneOnChangeDisjunctionMaxQueryHandler(),
-    		new CloneOnChangeConstantScoreQueryHandler(),
+    private static final ParseField EXACT_PREFIX_FIELD = new ParseField("exact_prefix");
+    private static final ParseField MAX_EXPANSIONS_FIELD = new ParseField("max_expansions");
+    private static final ParseField FAIL_ON_MAX_EXPANSIONS_FIELD = new ParseField("fail_on_max_expansions");
+    private static final QueryTraverser PHRASE_QUERY_TRAVERSER = QueryTraverser.withCompositeQueries(
     		new ExactMarkedTermQueryHandler(MarkedTermQuery.Context.PHRASE),
-    		new ExactPhraseQueryHandler()
+    		new ExactPhraseQueryHandler(),
+    		new ExactMinFrequencyPhraseQueryHandler(),
+    		new ExactSpanTermQueryHandler(),
+    		new LayzTraverserQueryHandler(BlendedTermQuery.class),
+    		new UnsupportedScoreQueryHandler()
     );
-    private static final QueryTraverser FULL_QUERY_TRAVERSER = new QueryTraverser(
-    		new CloneOnChangeBooleanQueryHandler(),
-    		new CloneOnChangeBoostQueryHandler(),
-    		new CloneOnChangeDisjunctionMaxQueryHandler(),
-    		new CloneOnChangeConstantScoreQueryHandler(),
+    private static final QueryTraverser FULL_QUERY_TRAVERSER = QueryTraverser.withCompositeQueries(
     		new ExactPhraseQueryHandler(),
     		new ExactTermQueryHandler(),
     		new ExactMinFrequencyPrefixQueryHandler(),
     		new ExactMultiTermQueryHandler(),
-    		new ExactMinFrequencyTermQuery()
+    		new ExactMinFrequencyTermQuery(),
+    		new ExactMinFrequencyPhraseQueryHandler(),
+    		new ExactSpanTermQueryHandler(),
+    		new ExactSynonymQueryHandler(),
+    		new LayzTraverserQueryHandler(BlendedTermQuery.class),
+    		new UnsupportedScoreQueryHandler()
     );
-    private static final QueryTraverser BOOST_QUERY_TRAVERSER = new QueryTraverser(
-            new CloneOnChangeBooleanQueryHandler(),
-            new CloneOnChangeBoostQueryHandler(),
-            new CloneOnChangeDisjunctionMaxQueryHandler(),
-            new CloneOnChangeConstantScoreQueryHandler(),
+    private static final QueryTraverser BOOST_QUERY_TRAVERSER = QueryTraverser.withCompositeQueries(
             new ExactPhraseQueryHandler(),
             new ExactTermQueryHandler(),
-            new LayzTraverserQueryHandler(
-                    org.apache.lucene.queries.BlendedTermQuery.class
-            )
+            new LayzTraverserQueryHandler(BlendedTermQuery.class),
+            new UnsupportedScoreQueryHandler()
     );
 
     private final QueryBuilder query;
     private final boolean allQueryTypes;
     private final Float boostExactTokens;
+    private final String exactPrefix;
+    private int maxExpansions = SpanBoundedMultiTermQueryWrapper.DEFAULT_MAX_EXPANSIONS;
+    private boolean failOnMaxExpansions = false;
+    private ExactTermDocSetCache exactTermDocSetCache;
 
     public ExactPhraseQueryBuilder(QueryBuilder query, boolean allQueryTypes) {
-        this.query = query;
-        this.allQueryTypes = allQueryTypes;
-        this.boostExactTokens = null;
+        this(query, allQueryTypes, null);
     }
 
     public ExactPhraseQueryBuilder(QueryBuilder query, boolean allQueryTypes, Float boostExactTokens) {
+        this(query, allQueryTypes, boostExactTokens, null);
+    }
+
+    /**
+     * @param exactPrefix the {@code exact_prefix} of the decompound filter, the exact queries then match the
+     *                    prefixed original tokens instead of checking the payloads
+     */
+    public ExactPhraseQueryBuilder(QueryBuilder query, boolean allQueryTypes, Float boostExactTokens,
+                                   String exactPrefix) {
     	this.query = query;
     	this.allQueryTypes = allQueryTypes;
     	this.boostExactTokens = boostExactTokens;
+    	this.exactPrefix = exactPrefix;
     }
 
+    // the wire format is not versioned, all nodes must run the same plugin build
     public ExactPhraseQueryBuilder(StreamInput in) throws IOException {
         super(in);
         this.query = in.readNamedWriteable(QueryBuilder.class);
         this.allQueryTypes = in.readBoolean();
         this.boostExactTokens = in.readOptionalFloat();
+        this.exactPrefix = in.readOptionalString();
+        this.maxExpansions = in.readVInt();
+        this.failOnMaxExpansions = in.readBoolean();
+    }
+
+    /**
+     * Sets the maximum number of terms an exact wildcard, prefix, fuzzy or regexp query expands to, at most the
+     * maximum clause count of a boolean query.
+     */
+    public ExactPhraseQueryBuilder maxExpansions(int maxExpansions) {
+        if (maxExpansions <= 0) {
+            throw new IllegalArgumentException("[" + MAX_EXPANSIONS_FIELD.getPreferredName() + "] must be positive.");
+        }
+        if (maxExpansions > BooleanQuery.getMaxClauseCount()) {
+            throw new IllegalArgumentException("[" + MAX_EXPANSIONS_FIELD.getPreferredName() + "] must not be greater than "
+                    + "the maximum clause count [" + BooleanQuery.getMaxClauseCount() + "].");
+        }
+        this.maxExpansions = maxExpansions;
+        return this;
+    }
+
+    public int maxExpansions() {
+        return maxExpansions;
+    }
+
+    /**
+     * Sets whether an exact multi term query matching more than {@code max_expansions} terms fails, by default
+     * only the top terms are used.
+     */
+    public ExactPhraseQueryBuilder failOnMaxExpansions(boolean failOnMaxExpansions) {
+        this.failOnMaxExpansions = failOnMaxExpansions;
+        return this;
+    }
+
+    public boolean failOnMaxExpansions() {
+        return failOnMaxExpansions;
+    }
+
+    /**
+     * Sets the cache the exact term queries take the documents of frequent terms from when no scores are needed.
+     * The plugin sets its node's cache on the builders it parses and reads, it is neither serialized nor part of
+     * {@link #equals}.
+     */
+    public ExactPhraseQueryBuilder exactTermDocSetCache(ExactTermDocSetCache exactTermDocSetCache) {
+        this.exactTermDocSetCache = exactTermDocSetCache;
+        return this;
+    }
+
+    public ExactTermDocSetCache exactTermDocSetCache() {
+        return exactTermDocSetCache;
     }
 
 	@Override
@@ -87,6 +154,9 @@ public class ExactPhraseQueryBuilder extends AbstractQueryBuilder<ExactPhraseQue
         out.writeNamedWriteable(this.query);
         out.writeBoolean(this.allQueryTypes);
         out.writeOptionalFloat(this.boostExactTokens);
+        out.writeOptionalString(this.exactPrefix);
+        out.writeVInt(this.maxExpansions);
+        out.writeBoolean(this.failOnMaxExpansions);
 	}
 
 	@Override
@@ -98,13 +168,19 @@ public class ExactPhraseQueryBuilder extends AbstractQueryBuilder<ExactPhraseQue
         if (this.boostExactTokens != null) {
             builder.field(BOOST_EXACT_TOKENS_FIELD.getPreferredName(), this.boostExactTokens);
         }
+        if (this.exactPrefix != null) {
+            builder.field(EXACT_PREFIX_FIELD.getPreferredName(), this.exactPrefix);
+        }
+        builder.field(MAX_EXPANSIONS_FIELD.getPreferredName(), this.maxExpansions);
+        builder.field(FAIL_ON_MAX_EXPANSIONS_FIELD.getPreferredName(), this.failOnMaxExpansions);
         printBoostAndQueryName(builder);
         builder.endObject();
 	}
 
 	@Override
 	protected Query doToQuery(SearchExecutionContext context) throws IOException {
-        TraverserContext traverserContext = TraverserContext.getContext(this.boostExactTokens);
+        TraverserContext traverserContext = TraverserContext.getContext(this.boostExactTokens, this.exactPrefix,
+                this.maxExpansions, this.failOnMaxExpansions).withExactTermDocSetCache(this.exactTermDocSetCache);
         QueryTraverser traverser = null;
         if (this.boostExactTokens != null) traverser = BOOST_QUERY_TRAVERSER;
         else if (this.allQueryTypes) traverser = FULL_QUERY_TRAVERSER;
@@ -116,17 +192,51 @@ public class ExactPhraseQueryBuilder extends AbstractQueryBuilder<ExactPhraseQue
 	@Override
     protected QueryBuilder doRewrite(QueryRewriteContext queryRewriteContext) throws IOException {
         QueryBuilder rewrittenQuery = query.rewrite(queryRewriteContext);
+        if (rewrittenQuery instanceof FunctionScoreQueryBuilder) {
+            return pushIntoFunctionScore((FunctionScoreQueryBuilder) rewrittenQuery);
+        }
         if (rewrittenQuery != query) {
-        	ExactPhraseQueryBuilder exactPhraseQuery = new ExactPhraseQueryBuilder(rewrittenQuery,
-                    this.allQueryTypes, this.boostExactTokens);
-            return exactPhraseQuery;
+            return withQuery(rewrittenQuery);
         }
         return this;
     }
 
+    /**
+     * Returns a copy of this query with another nested query.
+     */
+    private ExactPhraseQueryBuilder withQuery(QueryBuilder query) {
+        return new ExactPhraseQueryBuilder(query, this.allQueryTypes, this.boostExactTokens, this.exactPrefix)
+                .maxExpansions(this.maxExpansions)
+                .failOnMaxExpansions(this.failOnMaxExpansions)
+                .exactTermDocSetCache(this.exactTermDocSetCache);
+    }
+
+    /**
+     * The Lucene function score query of Elasticsearch hides its score mode and max boost, so the builder is rebuilt
+     * with this query around its inner query. The boost of this query is applied to the function score query, the
+     * name stays with the exact inner query.
+     */
+    private QueryBuilder pushIntoFunctionScore(FunctionScoreQueryBuilder functionScoreQuery) {
+        FunctionScoreQueryBuilder exactFunctionScoreQuery = new FunctionScoreQueryBuilder(
+                withQuery(functionScoreQuery.query()).queryName(queryName()),
+                functionScoreQuery.filterFunctionBuilders())
+                .scoreMode(functionScoreQuery.scoreMode())
+                .boostMode(functionScoreQuery.boostMode())
+                .maxBoost(functionScoreQuery.maxBoost())
+                .queryName(functionScoreQuery.queryName())
+                .boost(functionScoreQuery.boost() * boost());
+        if (functionScoreQuery.getMinScore() != null) {
+            exactFunctionScoreQuery.setMinScore(functionScoreQuery.getMinScore());
+        }
+        return exactFunctionScoreQuery;
+    }
+
     public static ExactPhraseQueryBuilder fromXContent(XContentParser parser) throws IOException {
         float boost = AbstractQueryBuilder.DEFAULT_BOOST;
         Float boostExactTokens = null;
+        String exactPrefix = null;
+        int maxExpansions = SpanBoundedMultiTermQueryWrapper.DEFAULT_MAX_EXPANSIONS;
+        boolean failOnMaxExpansions = false;
         String queryName = null;
         QueryBuilder query = null;
         boolean allQueryTypes = false;
@@ -150,12 +260,20 @@ public class ExactPhraseQueryBuilder extends AbstractQueryBuilder<ExactPhraseQue
                     allQueryTypes = parser.booleanValue();
                 } else if (BOOST_EXACT_TOKENS_FIELD.match(currentFieldName, parser.getDeprecationHandler())) {
                     boostExactTokens = parser.floatValue();
+                } else if (EXACT_PREFIX_FIELD.match(currentFieldName, parser.getDeprecationHandler())) {
+                    exactPrefix = parser.text();
+                } else if (MAX_EXPANSIONS_FIELD.match(currentFieldName, parser.getDeprecationHandler())) {
+                    maxExpansions = parser.intValue();
+                } else if (FAIL_ON_MAX_EXPANSIONS_FIELD.match(currentFieldName, parser.getDeprecationHandler())) {
+                    failOnMaxExpansions = parser.booleanValue();
                 } else {
                     throw new ParsingException(parser.getTokenLocation(), "[nested] query does not support [" + currentFieldName + "]");
                 }
             }
         }
-        ExactPhraseQueryBuilder queryBuilder =  new ExactPhraseQueryBuilder(query, allQueryTypes, boostExactTokens)
+        ExactPhraseQueryBuilder queryBuilder =  new ExactPhraseQueryBuilder(query, allQueryTypes, boostExactTokens, exactPrefix)
+            .maxExpansions(maxExpansions)
+            .failOnMaxExpansions(failOnMaxExpansions)
             .queryName(queryName)
             .boost(boost);
         return queryBuilder;
@@ -163,12 +281,14 @@ public class ExactPhraseQueryBuilder extends AbstractQueryBuilder<ExactPhraseQue
 
 	@Override
 	protected boolean doEquals(ExactPhraseQueryBuilder that) {
-        return Objects.equals(query, that.query);
+        return Objects.equals(query, that.query) && allQueryTypes == that.allQueryTypes
+                && Objects.equals(boostExactTokens, that.boostExactTokens) && Objects.equals(exactPrefix, that.exactPrefix)
+                && maxExpansions == that.maxExpansions && failOnMaxExpansions == that.failOnMaxExpansions;
 	}
 
 	@Override
 	protected int doHashCode() {
-        return Objects.hash(query);
+        return Objects.hash(query, allQueryTypes, boostExactTokens, exactPrefix, maxExpansions, failOnMaxExpansions);
 	}
 
     /**
@@ -7,6 +7,7 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Objects;
 
 import org.apache.lucene.search.BoostQuery;
 import org.apache.lucene.search.Query;
@@ -14,6 +15,7 @@ import org.elasticsearch.Version;
 import org.elasticsearch.xcontent.ParseField;
 import org.elasticsearch.common.ParsingException;
 import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.lucene.search.Queries;
 import org.elasticsearch.common.regex.Regex;
 import org.elasticsearch.common.unit.Fuzziness;
@@ -29,6 +31,7 @@ import org.elasticsearch.index.query.SearchExecutionContext;
 import org.elasticsearch.index.query.QueryShardException;
 import org.elasticsearch.index.query.support.QueryParsers;
 import de.pansoft.elasticsearch.index.search.QueryParserHelper;
+import de.pansoft.lucene.index.query.frequency.MinFrequencyPrefixQuery;
 
 public class GeniosQueryStringQueryBuilder extends QueryStringQueryBuilder {
 	
@@ -60,13 +63,40 @@ public class GeniosQueryStringQueryBuilder extends QueryStringQueryBuilder {
     private static final ParseField TYPE_FIELD = new ParseField("type");
     private static final ParseField GENERATE_SYNONYMS_PHRASE_QUERY = new ParseField("auto_generate_synonyms_phrase_query");
     private static final ParseField FUZZY_TRANSPOSITIONS_FIELD = new ParseField("fuzzy_transpositions");
+    private static final ParseField FREQUENCY_MAX_EXPANSIONS_FIELD = new ParseField("frequency_max_expansions");
+
+    private int frequencyMaxExpansions = MinFrequencyPrefixQuery.DEFAULT_MAX_EXPANSIONS;
 
     public GeniosQueryStringQueryBuilder(String queryString) throws IOException {
 		super(queryString);
 	}
 
+	// the wire format is not versioned, all nodes must run the same plugin build
 	public GeniosQueryStringQueryBuilder(StreamInput in) throws IOException {
 	    super(in);
+	    frequencyMaxExpansions = in.readVInt();
+    }
+
+    @Override
+    protected void doWriteTo(StreamOutput out) throws IOException {
+        super.doWriteTo(out);
+        out.writeVInt(this.frequencyMaxExpansions);
+    }
+
+    /**
+     * Sets the maximum number of terms a {@code prefix*#N} query expands to per segment. If a prefix has more
+     * terms, only the terms with the highest total term frequency are used. Must be positive.
+     */
+    public GeniosQueryStringQueryBuilder frequencyMaxExpansions(int frequencyMaxExpansions) {
+        if (frequencyMaxExpansions <= 0) {
+            throw new IllegalArgumentException("[" + FREQUENCY_MAX_EXPANSIONS_FIELD.getPreferredName() + "] must be positive.");
+        }
+        this.frequencyMaxExpansions = frequencyMaxExpansions;
+        return this;
+    }
+
+    public int frequencyMaxExpansions() {
+        return frequencyMaxExpansions;
     }
 
 	@Override
@@ -109,6 +139,7 @@ public class GeniosQueryStringQueryBuilder extends QueryStringQueryBuilder {
         this.fuzziness().toXContent(builder, params);
         builder.field(FUZZY_PREFIX_LENGTH_FIELD.getPreferredName(), this.fuzzyPrefixLength());
         builder.field(FUZZY_MAX_EXPANSIONS_FIELD.getPreferredName(), this.fuzzyMaxExpansions());
+        builder.field(FREQUENCY_MAX_EXPANSIONS_FIELD.getPreferredName(), this.frequencyMaxExpansions);
         if (this.fuzzyRewrite() != null) {
             builder.field(FUZZY_REWRITE_FIELD.getPreferredName(), this.fuzzyRewrite());
         }
@@ -153,6 +184,7 @@ public class GeniosQueryStringQueryBuilder extends QueryStringQueryBuilder {
         boolean escape = QueryStringQueryBuilder.DEFAULT_ESCAPE;
         int fuzzyPrefixLength = QueryStringQueryBuilder.DEFAULT_FUZZY_PREFIX_LENGTH;
         int fuzzyMaxExpansions = QueryStringQueryBuilder.DEFAULT_FUZZY_MAX_EXPANSIONS;
+        int frequencyMaxExpansions = MinFrequencyPrefixQuery.DEFAULT_MAX_EXPANSIONS;
         int phraseSlop = QueryStringQueryBuilder.DEFAULT_PHRASE_SLOP;
         MultiMatchQueryBuilder.Type type = DEFAULT_TYPE;
         Float tieBreaker = null;
@@ -207,6 +239,8 @@ public class GeniosQueryStringQueryBuilder extends QueryStringQueryBuilder {
                     fuzzyPrefixLength = parser.intValue();
                 } else if (FUZZY_MAX_EXPANSIONS_FIELD.match(currentFieldName, parser.getDeprecationHandler())) {
                     fuzzyMaxExpansions = parser.intValue();
+                } else if (FREQUENCY_MAX_EXPANSIONS_FIELD.match(currentFieldName, parser.getDeprecationHandler())) {
+                    frequencyMaxExpansions = parser.intValue();
                 } else if (FUZZY_REWRITE_FIELD.match(currentFieldName, parser.getDeprecationHandler())) {
                     fuzzyRewrite = parser.textOrNull();
                 } else if (PHRASE_SLOP_FIELD.match(currentFieldName, parser.getDeprecationHandler())) {
@@ -271,6 +305,7 @@ public class GeniosQueryStringQueryBuilder extends QueryStringQueryBuilder {
         queryStringQuery.escape(escape);
         queryStringQuery.fuzzyPrefixLength(fuzzyPrefixLength);
         queryStringQuery.fuzzyMaxExpansions(fuzzyMaxExpansions);
+        queryStringQuery.frequencyMaxExpansions(frequencyMaxExpansions);
         queryStringQuery.fuzzyRewrite(fuzzyRewrite);
         queryStringQuery.phraseSlop(phraseSlop);
         queryStringQuery.fuzziness(fuzziness);
@@ -356,6 +391,7 @@ public class GeniosQueryStringQueryBuilder extends QueryStringQueryBuilder {
         queryParser.setFuzziness(fuzziness());
         queryParser.setFuzzyPrefixLength(fuzzyPrefixLength());
         queryParser.setFuzzyMaxExpansions(fuzzyMaxExpansions());
+        queryParser.setFrequencyMaxExpansions(frequencyMaxExpansions);
         queryParser.setFuzzyRewriteMethod(QueryParsers.parseRewriteMethod(this.fuzzyRewrite(), LoggingDeprecationHandler.INSTANCE));
         queryParser.setMultiTermRewriteMethod(QueryParsers.parseRewriteMethod(this.rewrite(), LoggingDeprecationHandler.INSTANCE));
         queryParser.setTimeZone(timeZone());
@@ -393,4 +429,15 @@ public class GeniosQueryStringQueryBuilder extends QueryStringQueryBuilder {
         return query;
     }
 
+    @Override
+    protected boolean doEquals(QueryStringQueryBuilder other) {
+        return super.doEquals(other) &&
+                Objects.equals(frequencyMaxExpansions, ((GeniosQueryStringQueryBuilder) other).frequencyMaxExpansions);
+    }
+
+    @Override
+    protected int doHashCode() {
+        return Objects.hash(super.doHashCode(), frequencyMaxExpansions);
+    }
+
 }
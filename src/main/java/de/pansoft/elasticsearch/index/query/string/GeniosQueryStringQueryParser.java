@@ -1,6 +1,7 @@
 package de.pansoft.elasticsearch.index.query.string;
 
 import de.pansoft.elasticsearch.index.search.QueryStringQueryParser;
+import de.pansoft.lucene.index.query.frequency.MinFrequencyPrefixQuery;
 import de.pansoft.lucene.index.query.term.MarkedTermQuery;
 import de.pansoft.lucene.search.traversal.*;
 import org.apache.lucene.queryparser.classic.ParseException;
@@ -11,20 +12,29 @@ import java.util.Map;
 
 public class GeniosQueryStringQueryParser extends QueryStringQueryParser {
 
-	private static final QueryTraverser CONTAINER_QUERY_TRAVERSER = new QueryTraverser(
-			new CloneOnChangeBooleanQueryHandler(),
-			new CloneOnChangeBoostQueryHandler(),
-			new CloneOnChangeDisjunctionMaxQueryHandler(),
-			new CloneOnChangeConstantScoreQueryHandler()
-	);
+	private static final QueryTraverser CONTAINER_QUERY_TRAVERSER = QueryTraverser.withCompositeQueries();
 
     private static final QueryTraverser MARK_TERM_QUERY_TRAVERSER =
             CONTAINER_QUERY_TRAVERSER.add(
     		new MarkTermQueryHandler(MarkedTermQuery.Context.PHRASE)
     );
 
+	// the minimum frequency is passed in the traverser context, so the traversers are shared by all parsers
+	private static final QueryTraverser TERM_FREQUENCY_QUERY_TRAVERSER = CONTAINER_QUERY_TRAVERSER.add(
+			new TransformTermQueryToMinFrequencyTermQueryHandler());
+
+	private static final QueryTraverser PREFIX_FREQUENCY_QUERY_TRAVERSER = CONTAINER_QUERY_TRAVERSER.add(
+			new TransformPrefixQueryToMinFrequencyPrefixQueryHandler());
+
+	// a phrase of a single token is a term query
+	private static final QueryTraverser PHRASE_FREQUENCY_QUERY_TRAVERSER = CONTAINER_QUERY_TRAVERSER.add(
+			new TransformPhraseQueryToMinFrequencyPhraseQueryHandler())
+			.add(new TransformTermQueryToMinFrequencyTermQueryHandler());
+
 	private final SearchExecutionContext context;
 
+	private int frequencyMaxExpansions = MinFrequencyPrefixQuery.DEFAULT_MAX_EXPANSIONS;
+
 	public GeniosQueryStringQueryParser(SearchExecutionContext context, boolean lenient) {
 		super(context, lenient);
 		this.context = context;
@@ -40,6 +50,10 @@ public class GeniosQueryStringQueryParser extends QueryStringQueryParser {
 		super(context, resolvedFields, isLenient);
 		this.context = context;
 	}
+
+	public void setFrequencyMaxExpansions(int frequencyMaxExpansions) {
+		this.frequencyMaxExpansions = frequencyMaxExpansions;
+	}
 	
     @Override
     protected Query getFieldQuery(String field, String queryText, int slop) throws ParseException {
@@ -49,15 +63,21 @@ public class GeniosQueryStringQueryParser extends QueryStringQueryParser {
 
 	@Override
 	protected Query transformTermToFrequencyQuery(Query query, int minFrequency) {
-		return CONTAINER_QUERY_TRAVERSER.add(new TransformTermQueryToMinFrequencyTermQueryHandler(minFrequency))
-				.traverse(TraverserContext.getContext(), this.context, query);
+		return TERM_FREQUENCY_QUERY_TRAVERSER.traverse(frequencyContext(minFrequency), this.context, query);
 	}
 
 	@Override
 	protected Query transformPrefixToFrequencyPrefixQuery(Query query, int minFrequency) {
-		throw new IllegalStateException("PrefixFrequencyQueries are temporary disabled!");
-//		return CONTAINER_QUERY_TRAVERSER.add(new TransformPrefixQueryToMinFrequencyPrefixQueryHandler(minFrequency))
-//				.traverse(this.context, query);
+		return PREFIX_FREQUENCY_QUERY_TRAVERSER.traverse(frequencyContext(minFrequency), this.context, query);
+	}
+
+	@Override
+	protected Query transformPhraseToFrequencyPhraseQuery(Query query, int minFrequency) {
+		return PHRASE_FREQUENCY_QUERY_TRAVERSER.traverse(frequencyContext(minFrequency), this.context, query);
+	}
+
+	private TraverserContext frequencyContext(int minFrequency) {
+		return TraverserContext.getContext(null, null, frequencyMaxExpansions, false).withMinFrequency(minFrequency);
 	}
 
 }
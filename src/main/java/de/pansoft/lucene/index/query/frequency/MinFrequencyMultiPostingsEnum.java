@@ -2,68 +2,107 @@ package de.pansoft.lucene.index.query.frequency;
 
 import java.io.IOException;
 import java.util.Arrays;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.Comparator;
+import java.util.PriorityQueue;
 
 import org.apache.lucene.index.PostingsEnum;
+import org.apache.lucene.index.TermState;
+import org.apache.lucene.index.Terms;
 import org.apache.lucene.index.TermsEnum;
 import org.apache.lucene.util.BytesRef;
 
+/**
+ * The union of the postings of several terms, returning only documents where the frequencies of the terms add
+ * up to at least {@code minFrequency}.
+ *
+ * The postings are kept in a heap ordered by document, like Lucene's {@code DisiPriorityQueue}, so only the
+ * postings positioned on a candidate document are visited to sum up its frequency.
+ */
 public final class MinFrequencyMultiPostingsEnum extends PostingsEnum {
 
 	private static final class TermStats {
-		private final String term;
+		private final BytesRef term;
 		private final int docFreq;
 		private final long totalTermFreq;
+		private final TermState termState;
 
-		TermStats(BytesRef term, int docFreq, long totalTermFreq) {
-			this.term = term.utf8ToString();
+		TermStats(BytesRef term, int docFreq, long totalTermFreq, TermState termState) {
+			this.term = BytesRef.deepCopyOf(term);
 			this.docFreq = docFreq;
 			this.totalTermFreq = totalTermFreq;
+			this.termState = termState;
 		}
 		
 		@Override
 		public String toString() {
 			StringBuilder builder = new StringBuilder();
-			builder.append(term).append('(').append(docFreq).append(',').append(totalTermFreq).append(')');
+			builder.append(term.utf8ToString()).append('(').append(docFreq).append(',').append(totalTermFreq).append(')');
 			return builder.toString();
 		}
 	}
 
 	private final int minFrequency;
-	private final PostingsEnum[] postingsEnums;
+	private final PostingsEnum[] heap;
+	private final int size;
 	private final TermStats[] termStats;
+	private final long cost;
+	private final int[] stack;
 
 	int doc = -1;
-
-	public MinFrequencyMultiPostingsEnum(TermsEnum termsEnum, int minFrequency) throws IOException {
+	private int freq;
+
+	/**
+	 * Expands the terms of {@code termsEnum}. If there are more than {@code maxExpansions} terms, only the
+	 * {@code maxExpansions} terms with the highest total term frequency are used.
+	 *
+	 * @param terms the terms of the field, used to pull the postings of the chosen terms
+	 * @param termsEnum the terms to expand
+	 * @param minFrequency the frequency a document must reach
+	 * @param maxExpansions the maximum number of terms to expand
+	 */
+	public MinFrequencyMultiPostingsEnum(Terms terms, TermsEnum termsEnum, int minFrequency, int maxExpansions)
+			throws IOException {
 		this.minFrequency = minFrequency;
-		Map<TermStats, PostingsEnum> postingsMap = new HashMap<>();
+		PriorityQueue<TermStats> queue = new PriorityQueue<>(
+				Comparator.comparingLong((TermStats stats) -> stats.totalTermFreq));
+		long totalTermFreq = 0;
 		while (termsEnum.next() != null) {
-			if (termsEnum.docFreq() > 0) {
-				postingsMap.put(new TermStats(termsEnum.term(), termsEnum.docFreq(), termsEnum.totalTermFreq()),
-						termsEnum.postings(null, PostingsEnum.FREQS));
+			int docFreq = termsEnum.docFreq();
+			if (docFreq > 0) {
+				long termFreq = termsEnum.totalTermFreq();
+				if (queue.size() == maxExpansions) {
+					if (termFreq <= queue.peek().totalTermFreq) {
+						continue;
+					}
+					totalTermFreq -= queue.poll().totalTermFreq;
+				}
+				queue.add(new TermStats(termsEnum.term(), docFreq, termFreq, termsEnum.termState()));
+				totalTermFreq += termFreq;
+			}
+		}
+		if (totalTermFreq < minFrequency) {
+			// no document can reach the minimum frequency, don't pull any postings
+			queue.clear();
+		}
+		this.termStats = queue.toArray(new TermStats[queue.size()]);
+		Arrays.sort(termStats, Comparator.comparing((TermStats stats) -> stats.term));
+		this.heap = new PostingsEnum[termStats.length];
+		long cost = 0;
+		if (termStats.length > 0) {
+			TermsEnum postingsTermsEnum = terms.iterator();
+			for (int i = 0; i < termStats.length; i++) {
+				postingsTermsEnum.seekExact(termStats[i].term, termStats[i].termState);
+				heap[i] = postingsTermsEnum.postings(null, PostingsEnum.FREQS);
+				cost += heap[i].cost();
 			}
 		}
-		final List<TermStats> termStatsList = postingsMap.keySet().stream()
-				.sorted((s, t) -> Integer.compare(t.docFreq, s.docFreq)).collect(Collectors.toList());
-		this.termStats = termStatsList.toArray(new TermStats[termStatsList.size()]);
-		this.postingsEnums = termStatsList.stream().map((t) -> postingsMap.get(t)).collect(Collectors.toList()).toArray(new PostingsEnum[termStatsList.size()]);
+		this.size = heap.length;
+		this.stack = new int[size];
+		this.cost = cost;
 	}
 
 	@Override
 	public int freq() throws IOException {
-		int freq = 0;
-		for (PostingsEnum postingsEnum : postingsEnums) {
-			if (postingsEnum.docID() < doc) {
-				postingsEnum.advance(doc);
-			}
-			if (postingsEnum.docID() == doc) {
-				freq += postingsEnum.freq();
-			}
-		}
 		return freq;
 	}
 
@@ -74,67 +113,73 @@ public final class MinFrequencyMultiPostingsEnum extends PostingsEnum {
 
 	@Override
 	public int advance(int target) throws IOException {
-		int doc = this.doc;
-		do {
-			int nextMinDoc = NO_MORE_DOCS;
-			for (PostingsEnum postingsEnum : postingsEnums) {
-				if (postingsEnum.docID() < target) {
-					postingsEnum.advance(target);
-				}
-				if (postingsEnum.docID() < nextMinDoc) {
-					nextMinDoc = postingsEnum.docID();
-				}
-				if (nextMinDoc == target) {
-					break;
-				}
+		if (size == 0) {
+			return doc = NO_MORE_DOCS;
+		}
+		int next = target;
+		while (true) {
+			PostingsEnum top = heap[0];
+			while (top.docID() < next) {
+				top.advance(next);
+				top = updateTop();
+			}
+			int candidate = top.docID();
+			if (candidate == NO_MORE_DOCS) {
+				return doc = NO_MORE_DOCS;
+			}
+			int f = sumFrequencies(candidate);
+			if (f >= minFrequency) {
+				freq = f;
+				return doc = candidate;
 			}
-			doc = nextMinDoc;
-		} while (!assertMinFrequency(doc));
-		this.doc = doc;
-		return this.doc;
+			next = candidate + 1;
+		}
 	}
 
 	@Override
 	public int nextDoc() throws IOException {
-		int doc = this.doc;
-		do {
-			int nextMinDoc = NO_MORE_DOCS;
-			for (PostingsEnum postingsEnum : postingsEnums) {
-				if (postingsEnum.docID() < doc) {
-					postingsEnum.advance(doc + 1);
-				} else if (postingsEnum.docID() == doc) {
-					postingsEnum.nextDoc();
-				}
-				if (postingsEnum.docID() < nextMinDoc) {
-					nextMinDoc = postingsEnum.docID();
-				}
-				if (nextMinDoc == doc + 1) {
-					break;
+		return advance(doc + 1);
+	}
+
+	/**
+	 * Sums up the frequencies of all postings on the top document. These form a subtree at the root of the heap.
+	 */
+	private int sumFrequencies(int candidate) throws IOException {
+		int f = heap[0].freq();
+		int depth = 0;
+		stack[depth++] = 0;
+		while (depth > 0) {
+			int i = stack[--depth];
+			for (int child = 2 * i + 1; child <= 2 * i + 2 && child < size; child++) {
+				if (heap[child].docID() == candidate) {
+					f += heap[child].freq();
+					stack[depth++] = child;
 				}
 			}
-			doc = nextMinDoc;
-		} while (!assertMinFrequency(doc));
-		this.doc = doc;
-		return this.doc;
+		}
+		return f;
 	}
 
-	private boolean assertMinFrequency(int nextMinDoc) throws IOException {
-		if (nextMinDoc == NO_MORE_DOCS) {
-			return true;
-		}
-		int freq = 0;
-		for (PostingsEnum postingsEnum : postingsEnums) {
-			if (postingsEnum.docID() < nextMinDoc) {
-				postingsEnum.advance(nextMinDoc);
+	private PostingsEnum updateTop() {
+		PostingsEnum node = heap[0];
+		int docID = node.docID();
+		int i = 0;
+		while (true) {
+			int child = 2 * i + 1;
+			if (child >= size) {
+				break;
 			}
-			if (postingsEnum.docID() == nextMinDoc) {
-				freq += postingsEnum.freq();
-				if (freq >= minFrequency) {
-					return true;
-				}
+			if (child + 1 < size && heap[child + 1].docID() < heap[child].docID()) {
+				child++;
+			}
+			if (heap[child].docID() >= docID) {
+				break;
 			}
+			heap[i] = heap[child];
+			i = child;
 		}
-		return false;
+		heap[i] = node;
+		return heap[0];
 	}
 
 	@Override
@@ -159,19 +204,6 @@ public final class MinFrequencyMultiPostingsEnum extends PostingsEnum {
 
 	@Override
 	public long cost() {
-		long cost = 0;
-		for (PostingsEnum postingsEnum : postingsEnums) {
-			if (postingsEnum.docID() < doc) {
-				try {
-					postingsEnum.advance(doc);
-				} catch (IOException e) {
-					throw new RuntimeException(e);
-				}
-			}
-			if (postingsEnum.docID() == doc) {
-				cost += postingsEnum.cost();
-			}
-		}
 		return cost;
 	}
 
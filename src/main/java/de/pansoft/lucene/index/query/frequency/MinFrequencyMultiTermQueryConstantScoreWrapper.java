@@ -8,7 +8,6 @@ import org.apache.lucene.index.Terms;
 import org.apache.lucene.index.TermsEnum;
 import org.apache.lucene.search.*;
 import org.apache.lucene.util.AttributeSource;
-import org.apache.lucene.util.DocIdSetBuilder;
 
 final class MinFrequencyMultiTermQueryConstantScoreWrapper<Q extends MinFrequencyPrefixQuery> extends Query {
 
@@ -52,7 +51,8 @@ final class MinFrequencyMultiTermQueryConstantScoreWrapper<Q extends MinFrequenc
 	public Weight createWeight(IndexSearcher searcher, ScoreMode scoreMode, float boost) throws IOException {
 		return new ConstantScoreWeight(this, boost) {
 
-			private DocIdSet rewrite(LeafReaderContext context) throws IOException {
+			@Override
+			public Scorer scorer(LeafReaderContext context) throws IOException {
 				final Terms terms = context.reader().terms(query.getField());
 				if (terms == null) {
 					return null;
@@ -61,35 +61,14 @@ final class MinFrequencyMultiTermQueryConstantScoreWrapper<Q extends MinFrequenc
 				final TermsEnum termsEnum = query.getTermsEnum(terms, new AttributeSource());
 				assert termsEnum != null;
 
-				PostingsEnum docs = new MinFrequencyMultiPostingsEnum(termsEnum, minFrequency);
-				DocIdSetBuilder builder = new DocIdSetBuilder(context.reader().maxDoc(), terms);
-				builder.add(docs);
-				return builder.build();
-			}
-
-			private Scorer scorer(DocIdSet set) throws IOException {
-				if (set == null) {
+				// the postings are consumed lazily by the collector, so the search timeout and cancellation
+				// checks of the searcher apply to them like to the terms enumeration
+				PostingsEnum docs = new MinFrequencyMultiPostingsEnum(terms, termsEnum, minFrequency,
+						query.getMaxExpansions());
+				if (docs.cost() == 0) {
 					return null;
 				}
-				final DocIdSetIterator disi = set.iterator();
-				if (disi == null) {
-					return null;
-				}
-				return new ConstantScoreScorer(this, score(), scoreMode, disi);
-			}
-
-			@Override
-			public BulkScorer bulkScorer(LeafReaderContext context) throws IOException {
-				final Scorer scorer = scorer(rewrite(context));
-				if (scorer == null) {
-					return null;
-				}
-				return new DefaultBulkScorer(scorer);
-			}
-
-			@Override
-			public Scorer scorer(LeafReaderContext context) throws IOException {
-				return scorer(rewrite(context));
+				return new ConstantScoreScorer(this, score(), scoreMode, docs);
 			}
 
 			@Override
@@ -0,0 +1,235 @@
+package de.pansoft.lucene.index.query.frequency;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexReaderContext;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.PostingsEnum;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.index.TermState;
+import org.apache.lucene.index.TermStates;
+import org.apache.lucene.index.Terms;
+import org.apache.lucene.index.TermsEnum;
+import org.apache.lucene.search.*;
+import org.apache.lucene.search.similarities.Similarity;
+import org.apache.lucene.search.spans.SpanNearQuery;
+import org.apache.lucene.search.spans.SpanQuery;
+import org.apache.lucene.search.spans.SpanTermQuery;
+
+import de.pansoft.lucene.search.spans.SpanMinFrequencyFilterQuery;
+
+/**
+ * Matches documents where a phrase occurs at least {@code minFrequency} times.
+ *
+ * Exact phrases are counted by {@link MinFrequencyPhraseScorer} on the positions of the terms, sloppy phrases
+ * are rewritten to a {@link SpanMinFrequencyFilterQuery} over a {@link SpanNearQuery}.
+ */
+public class MinFrequencyPhraseQuery extends Query {
+
+	private final PhraseQuery phraseQuery;
+	private final int minFrequency;
+
+	final class MinFrequencyPhraseWeight extends Weight {
+		private final Similarity similarity;
+		private final Similarity.SimScorer stats;
+		private final TermStates[] termStates;
+		private final ScoreMode scoreMode;
+
+		MinFrequencyPhraseWeight(IndexSearcher searcher, ScoreMode scoreMode, float boost) throws IOException {
+			super(MinFrequencyPhraseQuery.this);
+			this.scoreMode = scoreMode;
+			this.similarity = searcher.getSimilarity();
+			final IndexReaderContext context = searcher.getTopReaderContext();
+			final Term[] terms = phraseQuery.getTerms();
+			this.termStates = new TermStates[terms.length];
+			final List<TermStatistics> termStats = new ArrayList<>();
+			for (int i = 0; i < terms.length; i++) {
+				termStates[i] = TermStates.build(context, terms[i], scoreMode.needsScores());
+				if (scoreMode.needsScores() && termStates[i].docFreq() > 0) {
+					termStats.add(searcher.termStatistics(terms[i], termStates[i].docFreq(),
+							termStates[i].totalTermFreq()));
+				}
+			}
+			if (scoreMode.needsScores() == false) {
+				// we do not need the actual stats, use fake stats with docFreq=maxDoc=ttf=1
+				this.stats = similarity.scorer(boost, new CollectionStatistics(getField(), 1, 1, 1, 1),
+						new TermStatistics(terms[0].bytes(), 1, 1));
+			} else if (termStats.size() < terms.length) {
+				this.stats = null; // a term doesn't exist in any segment, the phrase can't match
+			} else {
+				this.stats = similarity.scorer(boost, searcher.collectionStatistics(getField()),
+						termStats.toArray(new TermStatistics[termStats.size()]));
+			}
+		}
+
+		@Override
+		public void extractTerms(Set<Term> terms) {
+			for (Term term : phraseQuery.getTerms()) {
+				terms.add(term);
+			}
+		}
+
+		@Override
+		public String toString() {
+			return "weight(" + MinFrequencyPhraseQuery.this + ")";
+		}
+
+		@Override
+		public Scorer scorer(LeafReaderContext context) throws IOException {
+			if (stats == null) {
+				return null;
+			}
+			final Terms fieldTerms = context.reader().terms(getField());
+			if (fieldTerms == null) {
+				return null;
+			}
+			if (fieldTerms.hasPositions() == false) {
+				throw new IllegalStateException("field \"" + getField()
+						+ "\" was indexed without position data; cannot run MinFrequencyPhraseQuery (phrase="
+						+ getQuery() + ")");
+			}
+			final Term[] terms = phraseQuery.getTerms();
+			final int[] positions = phraseQuery.getPositions();
+			final MinFrequencyPostingsEnum[] postings = new MinFrequencyPostingsEnum[terms.length];
+			final TermsEnum termsEnum = fieldTerms.iterator();
+			float matchCost = 0;
+			for (int i = 0; i < terms.length; i++) {
+				final TermState state = termStates[i].get(context);
+				if (state == null) {
+					// a term is not present in that reader
+					return null;
+				}
+				termsEnum.seekExact(terms[i].bytes(), state);
+				// a document needs every term at least as often as the phrase
+				postings[i] = new MinFrequencyPostingsEnum(termsEnum.impacts(PostingsEnum.POSITIONS), minFrequency);
+				matchCost += (float) termsEnum.totalTermFreq() / termsEnum.docFreq();
+			}
+			LeafSimScorer docScorer = new LeafSimScorer(stats, context.reader(), getField(), scoreMode.needsScores());
+			return new MinFrequencyPhraseScorer(this, postings, positions, minFrequency, false,
+					scoreMode.needsScores(), docScorer, matchCost);
+		}
+
+		@Override
+		public boolean isCacheable(LeafReaderContext ctx) {
+			return true;
+		}
+
+		@Override
+		public Explanation explain(LeafReaderContext context, int doc) throws IOException {
+			MinFrequencyPhraseScorer scorer = (MinFrequencyPhraseScorer) scorer(context);
+			if (scorer != null) {
+				TwoPhaseIterator twoPhase = scorer.twoPhaseIterator();
+				if (twoPhase.approximation().advance(doc) == doc && twoPhase.matches()) {
+					float freq = scorer.freq();
+					LeafSimScorer docScorer = new LeafSimScorer(this.stats, context.reader(), getField(), true);
+					Explanation freqExplanation = Explanation.match(freq, "phraseFreq=" + freq);
+					Explanation scoreExplanation = docScorer.explain(doc, freqExplanation);
+					return Explanation.match(scoreExplanation.getValue(), "weight(" + getQuery() + " in " + doc + ") ["
+							+ similarity.getClass().getSimpleName() + "], result of:", scoreExplanation);
+				}
+			}
+			return Explanation.noMatch("no matching phrase");
+		}
+	}
+
+	public MinFrequencyPhraseQuery(PhraseQuery phraseQuery, int minFrequency) {
+		this.phraseQuery = Objects.requireNonNull(phraseQuery);
+		this.minFrequency = minFrequency;
+	}
+
+	@Override
+	public Query rewrite(IndexReader reader) throws IOException {
+		final Term[] terms = phraseQuery.getTerms();
+		if (terms.length == 0) {
+			return new MatchNoDocsQuery("empty MinFrequencyPhraseQuery");
+		} else if (terms.length == 1) {
+			return new MinFrequencyTermQuery(terms[0], minFrequency);
+		} else if (phraseQuery.getSlop() != 0) {
+			return new SpanMinFrequencyFilterQuery(toSpanQuery(phraseQuery, SpanTermQuery::new), minFrequency);
+		}
+		return super.rewrite(reader);
+	}
+
+	/**
+	 * Returns a phrase as a {@link SpanNearQuery} over the span queries of its terms, keeping the position gaps
+	 * of the phrase, e.g. of removed stop words. An exact phrase becomes an ordered span near query with gaps.
+	 * A sloppy phrase becomes an unordered one, which can not hold gaps, so the gaps widen its slop instead.
+	 *
+	 * @param phraseQuery the phrase
+	 * @param clause the span query of a term
+	 * @return the span near query
+	 */
+	public static SpanQuery toSpanQuery(PhraseQuery phraseQuery, Function<Term, SpanQuery> clause) {
+		final boolean ordered = phraseQuery.getSlop() == 0;
+		final Term[] terms = phraseQuery.getTerms();
+		final int[] positions = phraseQuery.getPositions();
+		SpanNearQuery.Builder builder = new SpanNearQuery.Builder(phraseQuery.getField(), ordered);
+		int slop = phraseQuery.getSlop();
+		for (int i = 0; i < terms.length; i++) {
+			if (i > 0) {
+				int gap = (positions[i] - positions[i - 1]) - 1;
+				if (gap > 0) {
+					if (ordered) {
+						builder.addGap(gap);
+					} else {
+						slop += gap;
+					}
+				}
+			}
+			builder.addClause(clause.apply(terms[i]));
+		}
+		return builder.setSlop(slop).build();
+	}
+
+	@Override
+	public Weight createWeight(IndexSearcher searcher, ScoreMode scoreMode, float boost) throws IOException {
+		return new MinFrequencyPhraseWeight(searcher, scoreMode, boost);
+	}
+
+	@Override
+	public void visit(QueryVisitor visitor) {
+		if (visitor.acceptField(getField()) == false) {
+			return;
+		}
+		QueryVisitor v = visitor.getSubVisitor(BooleanClause.Occur.MUST, this);
+		v.consumeTerms(this, phraseQuery.getTerms());
+	}
+
+	@Override
+	public String toString(String field) {
+		StringBuilder buffer = new StringBuilder();
+		buffer.append(phraseQuery.toString(field));
+		buffer.append("/a").append(minFrequency);
+		return buffer.toString();
+	}
+
+	@Override
+	public boolean equals(Object other) {
+		return sameClassAs(other) && phraseQuery.equals(((MinFrequencyPhraseQuery) other).phraseQuery)
+				&& minFrequency == ((MinFrequencyPhraseQuery) other).minFrequency;
+	}
+
+	@Override
+	public int hashCode() {
+		return classHash() ^ phraseQuery.hashCode() + minFrequency;
+	}
+
+	public PhraseQuery getPhraseQuery() {
+		return phraseQuery;
+	}
+
+	public String getField() {
+		return phraseQuery.getField();
+	}
+
+	public int getMinFrequency() {
+		return minFrequency;
+	}
+
+}
@@ -0,0 +1,182 @@
+package de.pansoft.lucene.index.query.frequency;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.lucene.index.PostingsEnum;
+import org.apache.lucene.search.ConjunctionDISI;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.search.LeafSimScorer;
+import org.apache.lucene.search.Scorer;
+import org.apache.lucene.search.TwoPhaseIterator;
+import org.apache.lucene.search.Weight;
+import org.apache.lucene.util.BytesRef;
+
+/**
+ * Scores the documents where an exact phrase occurs at least {@code minFrequency} times.
+ *
+ * The approximation is the conjunction of the postings of the terms, for a minimum frequency above one these are
+ * {@link MinFrequencyPostingsEnum}s that only return documents where a term occurs often enough. The phrase
+ * occurrences are then counted on the positions the same way as Lucene's {@code ExactPhraseMatcher} does. With
+ * {@code emptyPayloadsOnly}, positions with a payload are skipped while the postings are moved forward, so only
+ * phrases of original tokens are counted. If no scores are needed, counting stops as soon as the minimum frequency
+ * is reached.
+ */
+public final class MinFrequencyPhraseScorer extends Scorer {
+
+	private static final class PostingsAndPosition {
+		private final PostingsEnum postings;
+		private final int offset;
+		private final boolean emptyPayloadsOnly;
+		private int freq, upTo, pos;
+
+		PostingsAndPosition(PostingsEnum postings, int offset, boolean emptyPayloadsOnly) {
+			this.postings = postings;
+			this.offset = offset;
+			this.emptyPayloadsOnly = emptyPayloadsOnly;
+		}
+
+		/**
+		 * Moves to the next position, or with {@code emptyPayloadsOnly} to the next position with an empty
+		 * payload, returns false if there is none.
+		 */
+		boolean nextPosition() throws IOException {
+			while (upTo < freq) {
+				pos = postings.nextPosition();
+				upTo++;
+				if (emptyPayloadsOnly == false) {
+					return true;
+				}
+				BytesRef payload = postings.getPayload();
+				if (payload == null || payload.length == 0) {
+					return true;
+				}
+			}
+			return false;
+		}
+	}
+
+	private final PostingsAndPosition[] postings;
+	private final DocIdSetIterator approximation;
+	private final TwoPhaseIterator twoPhase;
+	private final int minFrequency;
+	private final LeafSimScorer docScorer;
+	private int freq;
+
+	public MinFrequencyPhraseScorer(Weight weight, PostingsEnum[] postings, int[] positions, int minFrequency,
+			boolean emptyPayloadsOnly, boolean needsScores, LeafSimScorer docScorer, float matchCost) {
+		super(weight);
+		this.postings = new PostingsAndPosition[postings.length];
+		List<DocIdSetIterator> iterators = new ArrayList<>();
+		for (int i = 0; i < postings.length; i++) {
+			this.postings[i] = new PostingsAndPosition(postings[i], positions[i], emptyPayloadsOnly);
+			iterators.add(postings[i]);
+		}
+		this.approximation = ConjunctionDISI.intersectIterators(iterators);
+		this.minFrequency = Math.max(1, minFrequency);
+		this.docScorer = docScorer;
+		this.twoPhase = new TwoPhaseIterator(approximation) {
+
+			@Override
+			public boolean matches() throws IOException {
+				freq = countPhrases(needsScores ? Integer.MAX_VALUE : MinFrequencyPhraseScorer.this.minFrequency);
+				return freq >= MinFrequencyPhraseScorer.this.minFrequency;
+			}
+
+			@Override
+			public float matchCost() {
+				return matchCost;
+			}
+		};
+	}
+
+	/**
+	 * Counts the phrase occurrences in the current document, stopping at {@code limit}.
+	 */
+	private int countPhrases(int limit) throws IOException {
+		for (PostingsAndPosition posting : postings) {
+			posting.freq = posting.postings.freq();
+			posting.pos = -1;
+			posting.upTo = 0;
+		}
+		final PostingsAndPosition lead = postings[0];
+		int count = 0;
+		while (count < limit && lead.nextPosition()) {
+			if (nextMatch(lead) == false) {
+				break;
+			}
+			count++;
+		}
+		return count;
+	}
+
+	/**
+	 * Aligns the other positions with the lead, moving the lead forward where they are ahead.
+	 */
+	private boolean nextMatch(PostingsAndPosition lead) throws IOException {
+		advanceHead:
+		while (true) {
+			final int phrasePos = lead.pos - lead.offset;
+			for (int j = 1; j < postings.length; j++) {
+				final PostingsAndPosition posting = postings[j];
+				final int expectedPos = phrasePos + posting.offset;
+				if (advancePosition(posting, expectedPos) == false) {
+					return false;
+				}
+				if (posting.pos != expectedPos) {
+					// advanced too far, move the lead to where the phrase could start now
+					if (advancePosition(lead, posting.pos - posting.offset + lead.offset)) {
+						continue advanceHead;
+					}
+					return false;
+				}
+			}
+			return true;
+		}
+	}
+
+	private static boolean advancePosition(PostingsAndPosition posting, int target) throws IOException {
+		while (posting.pos < target) {
+			if (posting.nextPosition() == false) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public int docID() {
+		return approximation.docID();
+	}
+
+	public int freq() {
+		return freq;
+	}
+
+	@Override
+	public DocIdSetIterator iterator() {
+		return TwoPhaseIterator.asDocIdSetIterator(twoPhase);
+	}
+
+	@Override
+	public TwoPhaseIterator twoPhaseIterator() {
+		return twoPhase;
+	}
+
+	@Override
+	public float score() throws IOException {
+		assert docID() != DocIdSetIterator.NO_MORE_DOCS;
+		return docScorer.score(docID(), freq);
+	}
+
+	@Override
+	public float getMaxScore(int upTo) throws IOException {
+		return docScorer.getSimScorer().score(Float.MAX_VALUE, 1L);
+	}
+
+	@Override
+	public String toString() {
+		return "scorer(" + weight + ")[" + super.toString() + "]";
+	}
+}
@@ -1,18 +1,38 @@
 package de.pansoft.lucene.index.query.frequency;
 
 import java.io.IOException;
+import java.util.List;
 import java.util.Objects;
 
+import org.apache.lucene.index.Impact;
+import org.apache.lucene.index.Impacts;
+import org.apache.lucene.index.ImpactsEnum;
 import org.apache.lucene.index.PostingsEnum;
-import org.apache.lucene.util.AttributeSource;
+import org.apache.lucene.index.SlowImpactsEnum;
 import org.apache.lucene.util.BytesRef;
 
-public class MinFrequencyPostingsEnum extends PostingsEnum {
+/**
+ * Returns only the documents of a postings list where the term occurs at least {@code minFrequency} times.
+ *
+ * The impacts of the postings hold the maximum term frequency of every block, so blocks where no document
+ * reaches the minimum frequency are skipped without decoding them.
+ */
+public class MinFrequencyPostingsEnum extends ImpactsEnum {
 
-	final PostingsEnum td;
+	final ImpactsEnum td;
 	final int minFrequency;
 
+	/** last document of the current block that has a document with the minimum frequency, -1 for none */
+	private int upTo = -1;
+
+	private int doc = -1;
+
 	public MinFrequencyPostingsEnum(PostingsEnum td, int minFrequency) {
+		this(td instanceof ImpactsEnum ? (ImpactsEnum) td : new SlowImpactsEnum(Objects.requireNonNull(td)),
+				minFrequency);
+	}
+
+	public MinFrequencyPostingsEnum(ImpactsEnum td, int minFrequency) {
 		this.td = Objects.requireNonNull(td);
 		this.minFrequency = minFrequency;
 	}
@@ -44,25 +64,74 @@ public class MinFrequencyPostingsEnum extends PostingsEnum {
 
 	@Override
 	public int docID() {
-		return td.docID();
+		return doc;
 	}
 
 	@Override
 	public int nextDoc() throws IOException {
-		int docId = NO_MORE_DOCS;
-		do {
-			docId = td.nextDoc();
-		} while (docId != NO_MORE_DOCS && freq() < minFrequency);
-		return docId;
+		return advance(doc + 1);
 	}
 
 	@Override
 	public int advance(int target) throws IOException {
-		int docId = td.advance(target);
-		if (docId != NO_MORE_DOCS && freq() < minFrequency) {
-			docId = nextDoc();
+		int next = target;
+		while (true) {
+			next = skip(next);
+			if (next == NO_MORE_DOCS) {
+				return doc = NO_MORE_DOCS;
+			}
+			int docId = td.docID() < next ? td.advance(next) : td.docID();
+			if (docId == NO_MORE_DOCS) {
+				return doc = NO_MORE_DOCS;
+			}
+			if (docId > upTo) {
+				// moved into a block that has not been checked yet
+				next = docId;
+				continue;
+			}
+			if (td.freq() >= minFrequency) {
+				return doc = docId;
+			}
+			next = docId + 1;
+		}
+	}
+
+	/**
+	 * Returns the first document from target on that lies in a block with the minimum frequency.
+	 */
+	private int skip(int target) throws IOException {
+		int next = target;
+		while (next > upTo) {
+			td.advanceShallow(next);
+			Impacts impacts = td.getImpacts();
+			int docIdUpTo = impacts.getDocIdUpTo(0);
+			if (maxFreq(impacts.getImpacts(0)) >= minFrequency) {
+				upTo = docIdUpTo;
+			} else if (docIdUpTo == NO_MORE_DOCS) {
+				return NO_MORE_DOCS;
+			} else {
+				next = docIdUpTo + 1;
+			}
+		}
+		return next;
+	}
+
+	private static int maxFreq(List<Impact> impacts) {
+		int max = 0;
+		for (Impact impact : impacts) {
+			max = Math.max(max, impact.freq);
 		}
-		return docId;
+		return max;
+	}
+
+	@Override
+	public void advanceShallow(int target) throws IOException {
+		td.advanceShallow(target);
+	}
+
+	@Override
+	public Impacts getImpacts() throws IOException {
+		return td.getImpacts();
 	}
 
 	@Override
@@ -13,11 +13,31 @@ import org.apache.lucene.util.AttributeSource;
 
 public class MinFrequencyPrefixQuery extends PrefixQuery {
 
+	/**
+	 * The default maximum number of terms a prefix expands to per segment.
+	 */
+	public static final int DEFAULT_MAX_EXPANSIONS = 1024;
+
 	final int minFrequency;
+	final int maxExpansions;
 	
 	public MinFrequencyPrefixQuery(Term prefix, int minFrequency) {
+		this(prefix, minFrequency, DEFAULT_MAX_EXPANSIONS);
+	}
+
+	/**
+	 * @param prefix the prefix
+	 * @param minFrequency the number of times the terms with the prefix must occur in a document
+	 * @param maxExpansions the maximum number of terms to expand to per segment, if there are more only the
+	 *        terms with the highest total term frequency are used
+	 */
+	public MinFrequencyPrefixQuery(Term prefix, int minFrequency, int maxExpansions) {
 		super(prefix);
+		if (maxExpansions <= 0) {
+			throw new IllegalArgumentException("maxExpansions must be positive.");
+		}
 		this.minFrequency = minFrequency;
+		this.maxExpansions = maxExpansions;
 		this.rewriteMethod = new RewriteMethod() {
 			@SuppressWarnings({ "unchecked", "rawtypes" })
 			@Override
@@ -32,11 +52,26 @@ public class MinFrequencyPrefixQuery extends PrefixQuery {
 		return minFrequency;
 	}
 
+	public int getMaxExpansions() {
+		return maxExpansions;
+	}
+
 	@Override
 	public TermsEnum getTermsEnum(Terms terms, AttributeSource atts) throws IOException {
 		return super.getTermsEnum(terms, atts);
 	}
 	
+	@Override
+	public boolean equals(Object other) {
+		return super.equals(other) && minFrequency == ((MinFrequencyPrefixQuery) other).minFrequency
+				&& maxExpansions == ((MinFrequencyPrefixQuery) other).maxExpansions;
+	}
+
+	@Override
+	public int hashCode() {
+		return 31 * (31 * super.hashCode() + minFrequency) + maxExpansions;
+	}
+
 	@Override
 	public String toString(String field) {
 		StringBuilder builder = new StringBuilder();
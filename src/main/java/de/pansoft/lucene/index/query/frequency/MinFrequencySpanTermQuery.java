@@ -113,7 +113,7 @@ public class MinFrequencySpanTermQuery extends SpanQuery {
       final TermsEnum termsEnum = terms.iterator();
       termsEnum.seekExact(term.bytes(), state);
 
-      final PostingsEnum postings = new MinFrequencyPostingsEnum(termsEnum.postings(null, requiredPostings.getRequiredPostings()), minFrequency);
+      final PostingsEnum postings = new MinFrequencyPostingsEnum(termsEnum.impacts(requiredPostings.getRequiredPostings()), minFrequency);
       float positionsCost = termPositionsCost(termsEnum) * PHRASE_TO_SPAN_TERM_POSITIONS_COST;
       return new TermSpans(getSimScorer(context), postings, term, positionsCost);
     }
@@ -15,7 +15,6 @@ import org.apache.lucene.index.TermState;
 import org.apache.lucene.index.TermsEnum;
 import org.apache.lucene.search.*;
 import org.apache.lucene.search.similarities.Similarity;
-import org.apache.lucene.search.similarities.Similarity.SimScorer;
 
 public class MinFrequencyTermQuery extends Query {
 
@@ -27,19 +26,33 @@ public class MinFrequencyTermQuery extends Query {
 		private final Similarity similarity;
 		private final Similarity.SimScorer stats;
 		private final TermStates termStates;
+		private final ScoreMode scoreMode;
 
 		public MinFrequencyTermWeight(IndexSearcher searcher, ScoreMode scoreMode, float boost, TermStates termStates)
 				throws IOException {
 			super(MinFrequencyTermQuery.this);
 			this.termStates = Objects.requireNonNull(termStates);
+			this.scoreMode = scoreMode;
 			this.similarity = searcher.getSimilarity();
 
 			final CollectionStatistics collectionStats;
 			final TermStatistics termStats;
-			collectionStats = searcher.collectionStatistics(term.field());
-			termStats = searcher.termStatistics(term, termStates);
+			if (scoreMode.needsScores()) {
+				collectionStats = searcher.collectionStatistics(term.field());
+				termStats = termStates.docFreq() > 0
+						? searcher.termStatistics(term, termStates.docFreq(), termStates.totalTermFreq())
+						: null;
+			} else {
+				// we do not need the actual stats, use fake stats with docFreq=maxDoc=ttf=1
+				collectionStats = new CollectionStatistics(term.field(), 1, 1, 1, 1);
+				termStats = new TermStatistics(term.bytes(), 1, 1);
+			}
 
-			this.stats = similarity.scorer(boost, collectionStats, termStats);
+			if (termStats == null) {
+				this.stats = null; // term doesn't exist in any segment, we won't use similarity at all
+			} else {
+				this.stats = similarity.scorer(boost, collectionStats, termStats);
+			}
 		}
 
 		@Override
@@ -61,8 +74,9 @@ public class MinFrequencyTermQuery extends Query {
 			if (termsEnum == null) {
 				return null;
 			}
-			PostingsEnum docs = new MinFrequencyPostingsEnum(termsEnum.postings(null, PostingsEnum.FREQS), MinFrequencyTermQuery.this.minFrequency);
-			return new MinFrequencyTermScorer(this, docs, this.stats);
+			MinFrequencyPostingsEnum docs = new MinFrequencyPostingsEnum(termsEnum.impacts(PostingsEnum.FREQS), MinFrequencyTermQuery.this.minFrequency);
+			LeafSimScorer docScorer = new LeafSimScorer(this.stats, context.reader(), term.field(), scoreMode.needsScores());
+			return new MinFrequencyTermScorer(this, docs, docScorer);
 		}
 
 		@Override
@@ -101,9 +115,9 @@ public class MinFrequencyTermQuery extends Query {
 				int newDoc = scorer.iterator().advance(doc);
 				if (newDoc == doc) {
 					float freq = scorer.freq();
-					SimScorer docScorer = this.stats;
+					LeafSimScorer docScorer = new LeafSimScorer(this.stats, context.reader(), term.field(), true);
 					Explanation freqExplanation = Explanation.match(freq, "termFreq=" + freq);
-					Explanation scoreExplanation = docScorer.explain(freqExplanation, 1);
+					Explanation scoreExplanation = docScorer.explain(doc, freqExplanation);
 					return Explanation.match(scoreExplanation.getValue(), "weight(" + getQuery() + " in " + doc + ") ["
 							+ similarity.getClass().getSimpleName() + "], result of:", scoreExplanation);
 				}
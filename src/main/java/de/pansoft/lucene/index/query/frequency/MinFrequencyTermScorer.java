@@ -2,15 +2,16 @@ package de.pansoft.lucene.index.query.frequency;
 
 import java.io.IOException;
 
-import org.apache.lucene.index.PostingsEnum;
 import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.search.ImpactsDISI;
+import org.apache.lucene.search.LeafSimScorer;
 import org.apache.lucene.search.Scorer;
 import org.apache.lucene.search.Weight;
-import org.apache.lucene.search.similarities.Similarity;
 
 final class MinFrequencyTermScorer extends Scorer {
-	private final PostingsEnum postingsEnum;
-	private final Similarity.SimScorer docScorer;
+	private final MinFrequencyPostingsEnum postingsEnum;
+	private final ImpactsDISI impactsDisi;
+	private final LeafSimScorer docScorer;
 	
 
 	/**
@@ -18,14 +19,15 @@ final class MinFrequencyTermScorer extends Scorer {
 	 *
 	 * @param weight    The weight of the <code>Term</code> in the query.
 	 * @param td        An iterator over the documents matching the
-	 *                  <code>Term</code>.
-	 * @param docScorer The <code>Similarity.SimScorer</code> implementation to be
+	 *                  <code>Term</code> at least the minimum number of times.
+	 * @param docScorer The <code>LeafSimScorer</code> implementation to be
 	 *                  used for score computations.
 	 */
-	MinFrequencyTermScorer(Weight weight, PostingsEnum td, Similarity.SimScorer docScorer) {
+	MinFrequencyTermScorer(Weight weight, MinFrequencyPostingsEnum td, LeafSimScorer docScorer) {
 		super(weight);
 		this.docScorer = docScorer;
 		this.postingsEnum = td;
+		this.impactsDisi = new ImpactsDISI(td, td, docScorer.getSimScorer());
 	}
 
 	@Override
@@ -39,7 +41,7 @@ final class MinFrequencyTermScorer extends Scorer {
 
 	@Override
 	public DocIdSetIterator iterator() {
-		return postingsEnum;
+		return impactsDisi;
 	}
 
 	@Override
@@ -48,9 +50,19 @@ final class MinFrequencyTermScorer extends Scorer {
 		return docScorer.score(postingsEnum.docID(), postingsEnum.freq());
 	}
 
+	@Override
+	public int advanceShallow(int target) throws IOException {
+		return impactsDisi.advanceShallow(target);
+	}
+
 	@Override
 	public float getMaxScore(int upTo) throws IOException {
-		return Float.POSITIVE_INFINITY;
+		return impactsDisi.getMaxScore(upTo);
+	}
+
+	@Override
+	public void setMinCompetitiveScore(float minScore) {
+		impactsDisi.setMinCompetitiveScore(minScore);
 	}
 
 	/** Returns a string representation of this <code>TermScorer</code>. */
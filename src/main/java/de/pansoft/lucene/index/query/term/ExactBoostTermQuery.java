@@ -0,0 +1,177 @@
+package de.pansoft.lucene.index.query.term;
+
+import java.io.IOException;
+import java.util.Objects;
+import java.util.Set;
+
+import org.apache.lucene.index.IndexReaderContext;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.PostingsEnum;
+import org.apache.lucene.index.ReaderUtil;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.index.TermState;
+import org.apache.lucene.index.TermStates;
+import org.apache.lucene.index.TermsEnum;
+import org.apache.lucene.search.*;
+import org.apache.lucene.search.similarities.Similarity;
+
+/**
+ * Matches the documents containing a term and scores them like a {@link TermQuery}, plus the score of an
+ * {@link ExactTermQuery} boosted by {@code exactBoost} for the occurrences with an empty payload.
+ *
+ * This scores like a disjunction of the boosted {@link ExactTermQuery} and the {@link TermQuery}, but the postings
+ * of the term are only read once.
+ */
+public class ExactBoostTermQuery extends Query {
+
+	private final Term term;
+	private final float exactBoost;
+
+	final class ExactBoostTermWeight extends Weight {
+		private final Similarity similarity;
+		private final Similarity.SimScorer stats;
+		private final Similarity.SimScorer exactStats;
+		private final TermStates termStates;
+		private final ScoreMode scoreMode;
+
+		ExactBoostTermWeight(IndexSearcher searcher, ScoreMode scoreMode, float boost, TermStates termStates)
+				throws IOException {
+			super(ExactBoostTermQuery.this);
+			this.termStates = Objects.requireNonNull(termStates);
+			this.scoreMode = scoreMode;
+			this.similarity = searcher.getSimilarity();
+
+			final CollectionStatistics collectionStats;
+			final TermStatistics termStats;
+			if (scoreMode.needsScores()) {
+				collectionStats = searcher.collectionStatistics(term.field());
+				termStats = termStates.docFreq() > 0
+						? searcher.termStatistics(term, termStates.docFreq(), termStates.totalTermFreq())
+						: null;
+			} else {
+				// we do not need the actual stats, use fake stats with docFreq=maxDoc=ttf=1
+				collectionStats = new CollectionStatistics(term.field(), 1, 1, 1, 1);
+				termStats = new TermStatistics(term.bytes(), 1, 1);
+			}
+
+			if (termStats == null) {
+				this.stats = null; // term doesn't exist in any segment, we won't use similarity at all
+				this.exactStats = null;
+			} else {
+				this.stats = similarity.scorer(boost, collectionStats, termStats);
+				this.exactStats = similarity.scorer(boost * exactBoost, collectionStats, termStats);
+			}
+		}
+
+		@Override
+		public void extractTerms(Set<Term> terms) {
+			terms.add(getTerm());
+		}
+
+		@Override
+		public String toString() {
+			return "weight(" + ExactBoostTermQuery.this + ")";
+		}
+
+		@Override
+		public Scorer scorer(LeafReaderContext context) throws IOException {
+			assert termStates.wasBuiltFor(ReaderUtil.getTopLevelContext(
+					context)) : "The top-reader used to create Weight is not the same as the current reader's top-reader ("
+							+ ReaderUtil.getTopLevelContext(context);
+			if (stats == null) {
+				return null;
+			}
+			final TermState state = termStates.get(context);
+			if (state == null) { // term is not present in that reader
+				return null;
+			}
+			final TermsEnum termsEnum = context.reader().terms(term.field()).iterator();
+			termsEnum.seekExact(term.bytes(), state);
+			// without scores this matches like the term query, the payloads are not needed
+			final int flags = scoreMode.needsScores() ? PostingsEnum.PAYLOADS : PostingsEnum.FREQS;
+			return new ExactBoostTermScorer(this, termsEnum.impacts(flags), stats, exactStats,
+					context.reader().getNormValues(term.field()), scoreMode.needsScores());
+		}
+
+		@Override
+		public boolean isCacheable(LeafReaderContext ctx) {
+			return true;
+		}
+
+		@Override
+		public Explanation explain(LeafReaderContext context, int doc) throws IOException {
+			Scorer scorer = scorer(context);
+			if (scorer instanceof ExactBoostTermScorer && scorer.iterator().advance(doc) == doc) {
+				ExactBoostTermScorer exactBoostScorer = (ExactBoostTermScorer) scorer;
+				exactBoostScorer.score();
+				float freq = exactBoostScorer.freq();
+				float exactFreq = exactBoostScorer.exactFreq();
+				LeafSimScorer docScorer = new LeafSimScorer(this.stats, context.reader(), term.field(), true);
+				Explanation termExplanation = docScorer.explain(doc, Explanation.match(freq, "termFreq=" + freq));
+				if (exactFreq == 0) {
+					return Explanation.match(termExplanation.getValue(), "weight(" + getQuery() + " in " + doc + ") ["
+							+ similarity.getClass().getSimpleName() + "], result of:", termExplanation);
+				}
+				LeafSimScorer exactScorer = new LeafSimScorer(this.exactStats, context.reader(), term.field(), true);
+				Explanation exactExplanation = exactScorer.explain(doc,
+						Explanation.match(exactFreq, "exactFreq=" + exactFreq));
+				return Explanation.match(termExplanation.getValue().floatValue()
+						+ exactExplanation.getValue().floatValue(), "weight(" + getQuery() + " in " + doc + ") ["
+						+ similarity.getClass().getSimpleName() + "], sum of:", termExplanation, exactExplanation);
+			}
+			return Explanation.noMatch("no matching term");
+		}
+	}
+
+	public ExactBoostTermQuery(Term term, float exactBoost) {
+		this.term = Objects.requireNonNull(term);
+		this.exactBoost = exactBoost;
+	}
+
+	@Override
+	public Weight createWeight(IndexSearcher searcher, ScoreMode scoreMode, float boost) throws IOException {
+		final IndexReaderContext context = searcher.getTopReaderContext();
+		return new ExactBoostTermWeight(searcher, scoreMode, boost,
+				TermStates.build(context, term, scoreMode.needsScores()));
+	}
+
+	@Override
+	public void visit(QueryVisitor visitor) {
+		if (visitor.acceptField(term.field())) {
+			visitor.consumeTerms(this, term);
+		}
+	}
+
+	@Override
+	public String toString(String field) {
+		StringBuilder buffer = new StringBuilder();
+		buffer.append("ExactBoostTermQuery(");
+		if (!term.field().equals(field)) {
+			buffer.append(term.field());
+			buffer.append(":");
+		}
+		buffer.append(term.text());
+		buffer.append(")^").append(exactBoost);
+		return buffer.toString();
+	}
+
+	@Override
+	public boolean equals(Object other) {
+		return sameClassAs(other) && term.equals(((ExactBoostTermQuery) other).term)
+				&& Float.compare(exactBoost, ((ExactBoostTermQuery) other).exactBoost) == 0;
+	}
+
+	@Override
+	public int hashCode() {
+		return classHash() ^ term.hashCode() + Float.floatToIntBits(exactBoost);
+	}
+
+	public Term getTerm() {
+		return term;
+	}
+
+	public float getExactBoost() {
+		return exactBoost;
+	}
+
+}
@@ -0,0 +1,125 @@
+package de.pansoft.lucene.index.query.term;
+
+import java.io.IOException;
+
+import org.apache.lucene.index.ImpactsEnum;
+import org.apache.lucene.index.NumericDocValues;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.search.ImpactsDISI;
+import org.apache.lucene.search.Scorer;
+import org.apache.lucene.search.Weight;
+import org.apache.lucene.search.similarities.Similarity;
+import org.apache.lucene.util.BytesRef;
+
+/**
+ * Scores a term with the term frequency, and adds the boosted score of the occurrences with an empty payload.
+ *
+ * The positions are read in {@link #score()}, on the same postings the documents are iterated with. The exact
+ * occurrences are never more than the term frequency, so the sum of both scores at the term frequency is an upper
+ * bound for the impacts.
+ */
+final class ExactBoostTermScorer extends Scorer {
+	private final ImpactsEnum postingsEnum;
+	private final ImpactsDISI impactsDisi;
+	private final Similarity.SimScorer simScorer;
+	private final Similarity.SimScorer exactSimScorer;
+	private final NumericDocValues norms;
+	private final boolean needsScores;
+	private int exactDoc = -1;
+	private int exactFreq;
+
+	ExactBoostTermScorer(Weight weight, ImpactsEnum postingsEnum, Similarity.SimScorer simScorer,
+			Similarity.SimScorer exactSimScorer, NumericDocValues norms, boolean needsScores) {
+		super(weight);
+		this.postingsEnum = postingsEnum;
+		this.simScorer = simScorer;
+		this.exactSimScorer = exactSimScorer;
+		this.norms = norms;
+		this.needsScores = needsScores;
+		this.impactsDisi = new ImpactsDISI(postingsEnum, postingsEnum, new Similarity.SimScorer() {
+			@Override
+			public float score(float freq, long norm) {
+				return simScorer.score(freq, norm) + exactSimScorer.score(freq, norm);
+			}
+		});
+	}
+
+	@Override
+	public int docID() {
+		return postingsEnum.docID();
+	}
+
+	final int freq() throws IOException {
+		return postingsEnum.freq();
+	}
+
+	/**
+	 * Returns the number of positions with an empty payload in the current document, reading them on first use.
+	 */
+	final int exactFreq() throws IOException {
+		final int doc = postingsEnum.docID();
+		if (exactDoc != doc) {
+			exactDoc = doc;
+			exactFreq = 0;
+			if (needsScores) {
+				final int termFreq = postingsEnum.freq();
+				for (int i = 0; i < termFreq; i++) {
+					postingsEnum.nextPosition();
+					BytesRef payload = postingsEnum.getPayload();
+					if (payload == null || payload.length == 0) {
+						exactFreq++;
+					}
+				}
+			}
+		}
+		return exactFreq;
+	}
+
+	private long norm(int doc) throws IOException {
+		if (norms == null) {
+			return 1L;
+		} else if (norms.advanceExact(doc)) {
+			return norms.longValue();
+		} else {
+			return 0L;
+		}
+	}
+
+	@Override
+	public DocIdSetIterator iterator() {
+		return impactsDisi;
+	}
+
+	@Override
+	public float score() throws IOException {
+		final int doc = docID();
+		assert doc != DocIdSetIterator.NO_MORE_DOCS;
+		final long norm = norm(doc);
+		float score = simScorer.score(postingsEnum.freq(), norm);
+		final int exactFreq = exactFreq();
+		if (exactFreq > 0) {
+			score += exactSimScorer.score(exactFreq, norm);
+		}
+		return score;
+	}
+
+	@Override
+	public int advanceShallow(int target) throws IOException {
+		return impactsDisi.advanceShallow(target);
+	}
+
+	@Override
+	public float getMaxScore(int upTo) throws IOException {
+		return impactsDisi.getMaxScore(upTo);
+	}
+
+	@Override
+	public void setMinCompetitiveScore(float minScore) {
+		impactsDisi.setMinCompetitiveScore(minScore);
+	}
+
+	@Override
+	public String toString() {
+		return "scorer(" + weight + ")[" + super.toString() + "]";
+	}
+}
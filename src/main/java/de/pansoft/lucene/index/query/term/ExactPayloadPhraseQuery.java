@@ -0,0 +1,243 @@
+package de.pansoft.lucene.index.query.term;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexReaderContext;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.PostingsEnum;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.index.TermState;
+import org.apache.lucene.index.TermStates;
+import org.apache.lucene.index.Terms;
+import org.apache.lucene.index.TermsEnum;
+import org.apache.lucene.search.*;
+import org.apache.lucene.search.similarities.Similarity;
+import org.apache.lucene.search.spans.SpanNearQuery;
+import org.apache.lucene.search.spans.SpanQuery;
+import org.apache.lucene.search.spans.SpanTermQuery;
+
+import de.pansoft.lucene.index.query.frequency.MinFrequencyPhraseQuery;
+import de.pansoft.lucene.index.query.frequency.MinFrequencyPhraseScorer;
+import de.pansoft.lucene.index.query.frequency.MinFrequencyPostingsEnum;
+import de.pansoft.lucene.search.spans.SpanEmptyPayloadCheckQuery;
+import de.pansoft.lucene.search.spans.SpanMinFrequencyFilterQuery;
+
+/**
+ * Matches documents where a phrase occurs at least {@code minFrequency} times with an empty payload at every
+ * position, i.e. made of original tokens only.
+ *
+ * Exact phrases are matched by {@link MinFrequencyPhraseScorer} like a {@link PhraseQuery}, sloppy phrases are
+ * rewritten to a {@link SpanNearQuery} over {@link SpanEmptyPayloadCheckQuery}s.
+ */
+public class ExactPayloadPhraseQuery extends Query {
+
+	/** Reading a position and its payload, see the costs of the PhraseQuery. */
+	private static final int TERM_POSNS_SEEK_OPS_PER_DOC = 128;
+	private static final int TERM_OPS_PER_POS = 7;
+
+	private final PhraseQuery phraseQuery;
+	private final int minFrequency;
+	private final ExactTermDocSetCache docSetCache;
+
+	final class ExactPayloadPhraseWeight extends Weight {
+		private final Similarity similarity;
+		private final Similarity.SimScorer stats;
+		private final TermStates[] termStates;
+		private final ScoreMode scoreMode;
+
+		ExactPayloadPhraseWeight(IndexSearcher searcher, ScoreMode scoreMode, float boost) throws IOException {
+			super(ExactPayloadPhraseQuery.this);
+			this.scoreMode = scoreMode;
+			this.similarity = searcher.getSimilarity();
+			final IndexReaderContext context = searcher.getTopReaderContext();
+			final Term[] terms = phraseQuery.getTerms();
+			this.termStates = new TermStates[terms.length];
+			final List<TermStatistics> termStats = new ArrayList<>();
+			for (int i = 0; i < terms.length; i++) {
+				termStates[i] = TermStates.build(context, terms[i], scoreMode.needsScores());
+				if (scoreMode.needsScores() && termStates[i].docFreq() > 0) {
+					termStats.add(searcher.termStatistics(terms[i], termStates[i].docFreq(),
+							termStates[i].totalTermFreq()));
+				}
+			}
+			if (scoreMode.needsScores() == false) {
+				// we do not need the actual stats, use fake stats with docFreq=maxDoc=ttf=1
+				this.stats = similarity.scorer(boost, new CollectionStatistics(getField(), 1, 1, 1, 1),
+						new TermStatistics(terms[0].bytes(), 1, 1));
+			} else if (termStats.size() < terms.length) {
+				this.stats = null; // a term doesn't exist in any segment, the phrase can't match
+			} else {
+				this.stats = similarity.scorer(boost, searcher.collectionStatistics(getField()),
+						termStats.toArray(new TermStatistics[termStats.size()]));
+			}
+		}
+
+		@Override
+		public void extractTerms(Set<Term> terms) {
+			for (Term term : phraseQuery.getTerms()) {
+				terms.add(term);
+			}
+		}
+
+		@Override
+		public String toString() {
+			return "weight(" + ExactPayloadPhraseQuery.this + ")";
+		}
+
+		@Override
+		public Scorer scorer(LeafReaderContext context) throws IOException {
+			if (stats == null) {
+				return null;
+			}
+			final Terms fieldTerms = context.reader().terms(getField());
+			if (fieldTerms == null) {
+				return null;
+			}
+			if (fieldTerms.hasPositions() == false) {
+				throw new IllegalStateException("field \"" + getField()
+						+ "\" was indexed without position data; cannot run ExactPayloadPhraseQuery (phrase="
+						+ getQuery() + ")");
+			}
+			final Term[] terms = phraseQuery.getTerms();
+			final PostingsEnum[] postings = new PostingsEnum[terms.length];
+			final TermsEnum termsEnum = fieldTerms.iterator();
+			float matchCost = 0;
+			for (int i = 0; i < terms.length; i++) {
+				final TermState state = termStates[i].get(context);
+				if (state == null) {
+					// a term is not present in that reader
+					return null;
+				}
+				termsEnum.seekExact(terms[i].bytes(), state);
+				if (minFrequency > 1) {
+					// a document needs every term at least as often as the phrase
+					postings[i] = new MinFrequencyPostingsEnum(termsEnum.impacts(PostingsEnum.PAYLOADS), minFrequency);
+				} else {
+					postings[i] = termsEnum.postings(null, PostingsEnum.PAYLOADS);
+				}
+				matchCost += TERM_POSNS_SEEK_OPS_PER_DOC
+						+ (float) termsEnum.totalTermFreq() / termsEnum.docFreq() * TERM_OPS_PER_POS;
+			}
+			LeafSimScorer docScorer = new LeafSimScorer(stats, context.reader(), getField(), scoreMode.needsScores());
+			return new MinFrequencyPhraseScorer(this, postings, phraseQuery.getPositions(), minFrequency, true,
+					scoreMode.needsScores(), docScorer, matchCost);
+		}
+
+		@Override
+		public boolean isCacheable(LeafReaderContext ctx) {
+			return true;
+		}
+
+		@Override
+		public Explanation explain(LeafReaderContext context, int doc) throws IOException {
+			MinFrequencyPhraseScorer scorer = (MinFrequencyPhraseScorer) scorer(context);
+			if (scorer != null) {
+				TwoPhaseIterator twoPhase = scorer.twoPhaseIterator();
+				if (twoPhase.approximation().advance(doc) == doc && twoPhase.matches()) {
+					float freq = scorer.freq();
+					LeafSimScorer docScorer = new LeafSimScorer(this.stats, context.reader(), getField(), true);
+					Explanation freqExplanation = Explanation.match(freq, "phraseFreq=" + freq);
+					Explanation scoreExplanation = docScorer.explain(doc, freqExplanation);
+					return Explanation.match(scoreExplanation.getValue(), "weight(" + getQuery() + " in " + doc + ") ["
+							+ similarity.getClass().getSimpleName() + "], result of:", scoreExplanation);
+				}
+			}
+			return Explanation.noMatch("no matching phrase");
+		}
+	}
+
+	public ExactPayloadPhraseQuery(PhraseQuery phraseQuery) {
+		this(phraseQuery, 1);
+	}
+
+	public ExactPayloadPhraseQuery(PhraseQuery phraseQuery, int minFrequency) {
+		this(phraseQuery, minFrequency, null);
+	}
+
+	/**
+	 * @param docSetCache the cache the {@link ExactTermQuery} a phrase of one term is rewritten to uses, it is not
+	 *                    part of {@link #equals}
+	 */
+	public ExactPayloadPhraseQuery(PhraseQuery phraseQuery, int minFrequency, ExactTermDocSetCache docSetCache) {
+		this.phraseQuery = Objects.requireNonNull(phraseQuery);
+		this.minFrequency = minFrequency;
+		this.docSetCache = docSetCache;
+	}
+
+	@Override
+	public Query rewrite(IndexReader reader) throws IOException {
+		final Term[] terms = phraseQuery.getTerms();
+		if (terms.length == 0) {
+			return new MatchNoDocsQuery("empty ExactPayloadPhraseQuery");
+		} else if (terms.length == 1) {
+			return new ExactTermQuery(terms[0], minFrequency, docSetCache);
+		} else if (phraseQuery.getSlop() != 0) {
+			return minFrequency > 1 ? new SpanMinFrequencyFilterQuery(toSpanQuery(), minFrequency) : toSpanQuery();
+		}
+		return super.rewrite(reader);
+	}
+
+	/**
+	 * Returns the phrase as a {@link SpanNearQuery} over {@link SpanEmptyPayloadCheckQuery}s, without the minimum
+	 * frequency.
+	 */
+	public SpanQuery toSpanQuery() {
+		return MinFrequencyPhraseQuery.toSpanQuery(phraseQuery,
+				term -> new SpanEmptyPayloadCheckQuery(new SpanTermQuery(term)));
+	}
+
+	@Override
+	public Weight createWeight(IndexSearcher searcher, ScoreMode scoreMode, float boost) throws IOException {
+		return new ExactPayloadPhraseWeight(searcher, scoreMode, boost);
+	}
+
+	@Override
+	public void visit(QueryVisitor visitor) {
+		if (visitor.acceptField(getField()) == false) {
+			return;
+		}
+		QueryVisitor v = visitor.getSubVisitor(BooleanClause.Occur.MUST, this);
+		v.consumeTerms(this, phraseQuery.getTerms());
+	}
+
+	@Override
+	public String toString(String field) {
+		StringBuilder buffer = new StringBuilder();
+		buffer.append("ExactPayloadPhraseQuery(");
+		buffer.append(phraseQuery.toString(field));
+		buffer.append(")");
+		if (minFrequency > 1) {
+			buffer.append("/a").append(minFrequency);
+		}
+		return buffer.toString();
+	}
+
+	@Override
+	public boolean equals(Object other) {
+		return sameClassAs(other) && phraseQuery.equals(((ExactPayloadPhraseQuery) other).phraseQuery)
+				&& minFrequency == ((ExactPayloadPhraseQuery) other).minFrequency;
+	}
+
+	@Override
+	public int hashCode() {
+		return classHash() ^ phraseQuery.hashCode() + minFrequency;
+	}
+
+	public PhraseQuery getPhraseQuery() {
+		return phraseQuery;
+	}
+
+	public String getField() {
+		return phraseQuery.getField();
+	}
+
+	public int getMinFrequency() {
+		return minFrequency;
+	}
+
+}
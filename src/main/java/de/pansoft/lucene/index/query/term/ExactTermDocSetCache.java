@@ -0,0 +1,286 @@
+package de.pansoft.lucene.index.query.term;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.PostingsEnum;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.index.TermState;
+import org.apache.lucene.index.Terms;
+import org.apache.lucene.index.TermsEnum;
+import org.apache.lucene.search.DocIdSet;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.RamUsageEstimator;
+import org.apache.lucene.util.RoaringDocIdSet;
+
+/**
+ * Caches per segment the documents where a term occurs at least {@code minFrequency} times as an original token,
+ * i.e. with an empty payload.
+ *
+ * Only terms with a document frequency of at least {@code minDocFreq} in a segment are cached, the others are
+ * cheap enough to read again. Like Lucene's {@code UsageTrackingQueryCachingPolicy}, a doc set is only built once
+ * the term has been used by {@code minUsage} filters, and like the {@code LRUQueryCache}, only if the segment is
+ * iterated and not just probed by a much rarer lead of a conjunction. Entries are evicted in least recently used
+ * order once the doc sets take more than {@code maxRamBytes}, and all entries of a segment are dropped when its
+ * core is closed.
+ *
+ * The plugin owns one cache per node and hands it to the exact term queries it builds, a closed cache caches
+ * nothing.
+ */
+public final class ExactTermDocSetCache implements Closeable {
+
+	public static final long DEFAULT_MAX_RAM_BYTES = 32L * 1024 * 1024;
+
+	public static final int DEFAULT_MIN_DOC_FREQ = 512;
+
+	public static final int DEFAULT_MIN_USAGE = 2;
+
+	/** A doc set is not built if its term has this many times more documents than the lead of the conjunction. */
+	private static final int SKIP_CACHE_FACTOR = 10;
+
+	/** The number of terms whose usage is tracked. */
+	private static final int MAX_TRACKED_USAGES = 256;
+
+	private final long maxRamBytes;
+
+	private final int minDocFreq;
+
+	private final int minUsage;
+
+	private final LinkedHashMap<Key, Integer> usages = new LinkedHashMap<Key, Integer>(16, 0.75f, true) {
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Key, Integer> eldest) {
+			return size() > MAX_TRACKED_USAGES;
+		}
+	};
+
+	private final LinkedHashMap<Key, DocIdSet> cache = new LinkedHashMap<>(16, 0.75f, true);
+
+	private final Map<IndexReader.CacheKey, Set<Key>> keysByCore = new HashMap<>();
+
+	/** The cores with a closed listener of this cache, a listener is added once and stays until the core closes. */
+	private final Set<IndexReader.CacheKey> listenedCores = new HashSet<>();
+
+	private volatile boolean closed;
+
+	private long ramBytesUsed;
+
+	private long hitCount;
+
+	private long missCount;
+
+	private long evictionCount;
+
+	public ExactTermDocSetCache(long maxRamBytes, int minDocFreq, int minUsage) {
+		if (maxRamBytes < 0) {
+			throw new IllegalArgumentException("maxRamBytes must not be negative.");
+		}
+		this.maxRamBytes = maxRamBytes;
+		this.minDocFreq = minDocFreq;
+		this.minUsage = minUsage;
+	}
+
+	/**
+	 * Records that a filter uses the doc sets of a term, once per query and not per segment.
+	 */
+	public synchronized void onUse(Term term, int minFrequency) {
+		if (maxRamBytes == 0 || closed) {
+			return;
+		}
+		usages.merge(new Key(null, term, minFrequency), 1, Integer::sum);
+	}
+
+	/**
+	 * Returns the cached doc set of a term in a segment, builds it if the term is frequent and used enough, or
+	 * returns {@code null} if the term is not cached and should be read from the postings.
+	 *
+	 * @param leadCost the cost of the lead iterator of the conjunction the term is part of, {@link Long#MAX_VALUE}
+	 *                 if the term is iterated on its own
+	 */
+	public DocIdSet get(LeafReader reader, Term term, int minFrequency, TermState state, long leadCost)
+			throws IOException {
+		final IndexReader.CacheHelper cacheHelper = reader.getCoreCacheHelper();
+		if (maxRamBytes == 0 || closed || cacheHelper == null) {
+			return null;
+		}
+		final Key key = new Key(cacheHelper.getKey(), term, minFrequency);
+		synchronized (this) {
+			DocIdSet docIdSet = cache.get(key);
+			if (docIdSet != null) {
+				hitCount++;
+				return docIdSet;
+			}
+			final Integer usage = usages.get(new Key(null, term, minFrequency));
+			if (usage == null || usage < minUsage) {
+				return null;
+			}
+		}
+		final Terms terms = reader.terms(term.field());
+		final TermsEnum termsEnum = terms.iterator();
+		termsEnum.seekExact(term.bytes(), state);
+		if (termsEnum.docFreq() < minDocFreq || termsEnum.docFreq() / SKIP_CACHE_FACTOR > leadCost) {
+			return null;
+		}
+		final DocIdSet docIdSet = build(reader, termsEnum.postings(null, PostingsEnum.PAYLOADS), minFrequency);
+		put(cacheHelper, key, docIdSet);
+		return docIdSet;
+	}
+
+	private static DocIdSet build(LeafReader reader, PostingsEnum postings, int minFrequency) throws IOException {
+		RoaringDocIdSet.Builder builder = new RoaringDocIdSet.Builder(reader.maxDoc());
+		for (int doc = postings.nextDoc(); doc != DocIdSetIterator.NO_MORE_DOCS; doc = postings.nextDoc()) {
+			final int termFreq = postings.freq();
+			if (termFreq < minFrequency) {
+				continue;
+			}
+			int count = 0;
+			for (int i = 0; i < termFreq && count < minFrequency; i++) {
+				postings.nextPosition();
+				BytesRef payload = postings.getPayload();
+				if (payload == null || payload.length == 0) {
+					count++;
+				}
+			}
+			if (count >= minFrequency) {
+				builder.add(doc);
+			}
+		}
+		return builder.build();
+	}
+
+	private synchronized void put(IndexReader.CacheHelper cacheHelper, Key key, DocIdSet docIdSet) {
+		missCount++;
+		final long bytes = ramBytesUsed(key, docIdSet);
+		if (closed || bytes > maxRamBytes || cache.containsKey(key)) {
+			return;
+		}
+		keysByCore.computeIfAbsent(key.core, core -> new HashSet<>()).add(key);
+		listen(cacheHelper);
+		cache.put(key, docIdSet);
+		ramBytesUsed += bytes;
+		evictIfNecessary();
+	}
+
+	private void evictIfNecessary() {
+		final Iterator<Map.Entry<Key, DocIdSet>> iterator = cache.entrySet().iterator();
+		while (ramBytesUsed > maxRamBytes && iterator.hasNext()) {
+			final Map.Entry<Key, DocIdSet> entry = iterator.next();
+			iterator.remove();
+			ramBytesUsed -= ramBytesUsed(entry.getKey(), entry.getValue());
+			final Set<Key> keys = keysByCore.get(entry.getKey().core);
+			keys.remove(entry.getKey());
+			if (keys.isEmpty()) {
+				keysByCore.remove(entry.getKey().core);
+			}
+			evictionCount++;
+		}
+	}
+
+	/**
+	 * Adds a closed listener to a core unless it has one.
+	 */
+	private void listen(IndexReader.CacheHelper cacheHelper) {
+		if (listenedCores.add(cacheHelper.getKey())) {
+			cacheHelper.addClosedListener(this::coreClosed);
+		}
+	}
+
+	private synchronized void coreClosed(IndexReader.CacheKey core) {
+		listenedCores.remove(core);
+		final Set<Key> keys = keysByCore.remove(core);
+		if (keys != null) {
+			for (Key key : keys) {
+				ramBytesUsed -= ramBytesUsed(key, cache.remove(key));
+			}
+		}
+	}
+
+	private static long ramBytesUsed(Key key, DocIdSet docIdSet) {
+		return key.ramBytesUsed() + docIdSet.ramBytesUsed();
+	}
+
+	/**
+	 * Drops all entries and usages, the statistics are kept.
+	 */
+	public synchronized void clear() {
+		cache.clear();
+		keysByCore.clear();
+		usages.clear();
+		ramBytesUsed = 0;
+	}
+
+	/**
+	 * Drops all entries, later queries read the postings.
+	 */
+	@Override
+	public void close() {
+		closed = true;
+		clear();
+	}
+
+	public synchronized int getCacheSize() {
+		return cache.size();
+	}
+
+	public synchronized long getRamBytesUsed() {
+		return ramBytesUsed;
+	}
+
+	public long getMaxRamBytes() {
+		return maxRamBytes;
+	}
+
+	public synchronized long getHitCount() {
+		return hitCount;
+	}
+
+	public synchronized long getMissCount() {
+		return missCount;
+	}
+
+	public synchronized long getEvictionCount() {
+		return evictionCount;
+	}
+
+	private static final class Key {
+
+		private final IndexReader.CacheKey core;
+		private final Term term;
+		private final int minFrequency;
+
+		/**
+		 * @param core the core of the segment, {@code null} for the usage of a term in all segments
+		 */
+		Key(IndexReader.CacheKey core, Term term, int minFrequency) {
+			this.core = core;
+			this.term = term;
+			this.minFrequency = minFrequency;
+		}
+
+		long ramBytesUsed() {
+			return RamUsageEstimator.NUM_BYTES_OBJECT_HEADER + RamUsageEstimator.sizeOf(term.field())
+					+ RamUsageEstimator.sizeOf(term.bytes().bytes);
+		}
+
+		@Override
+		public boolean equals(Object other) {
+			return other instanceof Key && core == ((Key) other).core && term.equals(((Key) other).term)
+					&& minFrequency == ((Key) other).minFrequency;
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(core, term, minFrequency);
+		}
+	}
+}
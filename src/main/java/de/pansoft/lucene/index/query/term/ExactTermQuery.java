@@ -0,0 +1,250 @@
+package de.pansoft.lucene.index.query.term;
+
+import java.io.IOException;
+import java.util.Objects;
+import java.util.Set;
+
+import org.apache.lucene.index.ImpactsEnum;
+import org.apache.lucene.index.IndexReaderContext;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.PostingsEnum;
+import org.apache.lucene.index.ReaderUtil;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.index.TermState;
+import org.apache.lucene.index.TermStates;
+import org.apache.lucene.index.Terms;
+import org.apache.lucene.index.TermsEnum;
+import org.apache.lucene.search.*;
+import org.apache.lucene.search.similarities.Similarity;
+
+import de.pansoft.lucene.index.query.frequency.MinFrequencyPostingsEnum;
+
+/**
+ * Matches the documents where a term occurs at least {@code minFrequency} times with an empty payload, i.e. as an
+ * original token and not as a decompound token.
+ *
+ * Unlike a {@code SpanEmptyPayloadCheckQuery} over a {@code SpanTermQuery}, the payloads are only read in the
+ * match phase of a {@link TwoPhaseIterator} over the postings of the term, and the document is scored like a
+ * {@link TermQuery} with the number of exact occurrences as the term frequency. Without scores, the documents of
+ * frequent terms are taken from the {@link ExactTermDocSetCache} the query was built with, if any.
+ */
+public class ExactTermQuery extends Query {
+
+	/** Reading a position and its payload, see the costs of the PhraseQuery. */
+	private static final int TERM_POSNS_SEEK_OPS_PER_DOC = 128;
+	private static final int TERM_OPS_PER_POS = 7;
+
+	private final Term term;
+	private final int minFrequency;
+	private final ExactTermDocSetCache docSetCache;
+
+	final class ExactTermWeight extends Weight {
+		private final Similarity similarity;
+		private final Similarity.SimScorer stats;
+		private final TermStates termStates;
+		private final ScoreMode scoreMode;
+
+		ExactTermWeight(IndexSearcher searcher, ScoreMode scoreMode, float boost, TermStates termStates)
+				throws IOException {
+			super(ExactTermQuery.this);
+			this.termStates = Objects.requireNonNull(termStates);
+			this.scoreMode = scoreMode;
+			this.similarity = searcher.getSimilarity();
+
+			final CollectionStatistics collectionStats;
+			final TermStatistics termStats;
+			if (scoreMode.needsScores()) {
+				collectionStats = searcher.collectionStatistics(term.field());
+				termStats = termStates.docFreq() > 0
+						? searcher.termStatistics(term, termStates.docFreq(), termStates.totalTermFreq())
+						: null;
+			} else {
+				// we do not need the actual stats, use fake stats with docFreq=maxDoc=ttf=1
+				collectionStats = new CollectionStatistics(term.field(), 1, 1, 1, 1);
+				termStats = new TermStatistics(term.bytes(), 1, 1);
+			}
+
+			if (termStats == null) {
+				this.stats = null; // term doesn't exist in any segment, we won't use similarity at all
+			} else {
+				this.stats = similarity.scorer(boost, collectionStats, termStats);
+			}
+			if (scoreMode.needsScores() == false && docSetCache != null) {
+				docSetCache.onUse(term, minFrequency);
+			}
+		}
+
+		@Override
+		public void extractTerms(Set<Term> terms) {
+			terms.add(getTerm());
+		}
+
+		@Override
+		public String toString() {
+			return "weight(" + ExactTermQuery.this + ")";
+		}
+
+		@Override
+		public ScorerSupplier scorerSupplier(LeafReaderContext context) throws IOException {
+			final TermState state = stats == null ? null : termStates.get(context);
+			if (state == null) {
+				return null;
+			}
+			final TermsEnum termsEnum = context.reader().terms(term.field()).iterator();
+			termsEnum.seekExact(term.bytes(), state);
+			final long cost = termsEnum.docFreq();
+			return new ScorerSupplier() {
+
+				@Override
+				public Scorer get(long leadCost) throws IOException {
+					return scorer(context, leadCost);
+				}
+
+				@Override
+				public long cost() {
+					return cost;
+				}
+			};
+		}
+
+		@Override
+		public Scorer scorer(LeafReaderContext context) throws IOException {
+			return scorer(context, Long.MAX_VALUE);
+		}
+
+		/**
+		 * @param leadCost the cost of the lead of the conjunction, the cached doc set is only built if the term
+		 *                 is not a lot more frequent than the lead
+		 */
+		private Scorer scorer(LeafReaderContext context, long leadCost) throws IOException {
+			assert termStates.wasBuiltFor(ReaderUtil.getTopLevelContext(
+					context)) : "The top-reader used to create Weight is not the same as the current reader's top-reader ("
+							+ ReaderUtil.getTopLevelContext(context);
+			if (stats == null) {
+				return null;
+			}
+			final TermState state = termStates.get(context);
+			if (state == null) { // term is not present in that reader
+				return null;
+			}
+			final Terms terms = context.reader().terms(term.field());
+			if (terms.hasPositions() == false) {
+				throw new IllegalStateException("field \"" + term.field()
+						+ "\" was indexed without position data; cannot run ExactTermQuery (term=" + term.text() + ")");
+			}
+			if (scoreMode.needsScores() == false && docSetCache != null) {
+				final DocIdSet docIdSet = docSetCache.get(context.reader(), term, minFrequency, state, leadCost);
+				if (docIdSet != null) {
+					final DocIdSetIterator iterator = docIdSet.iterator();
+					return new ConstantScoreScorer(this, 0f, scoreMode,
+							iterator == null ? DocIdSetIterator.empty() : iterator);
+				}
+			}
+			final TermsEnum termsEnum = terms.iterator();
+			termsEnum.seekExact(term.bytes(), state);
+			final ImpactsEnum impactsEnum = minFrequency > 1
+					? new MinFrequencyPostingsEnum(termsEnum.impacts(PostingsEnum.FREQS), minFrequency)
+					: termsEnum.impacts(PostingsEnum.FREQS);
+			final float matchCost = TERM_POSNS_SEEK_OPS_PER_DOC
+					+ (float) termsEnum.totalTermFreq() / termsEnum.docFreq() * TERM_OPS_PER_POS;
+			LeafSimScorer docScorer = new LeafSimScorer(this.stats, context.reader(), term.field(), scoreMode.needsScores());
+			return new ExactTermScorer(this, impactsEnum, termsEnum.postings(null, PostingsEnum.PAYLOADS), docScorer,
+					scoreMode.needsScores(), minFrequency, matchCost);
+		}
+
+		@Override
+		public boolean isCacheable(LeafReaderContext ctx) {
+			return true;
+		}
+
+		@Override
+		public Explanation explain(LeafReaderContext context, int doc) throws IOException {
+			Scorer scorer = scorer(context);
+			if (scorer instanceof ExactTermScorer) {
+				TwoPhaseIterator twoPhase = scorer.twoPhaseIterator();
+				if (twoPhase.approximation().advance(doc) == doc && twoPhase.matches()) {
+					float freq = ((ExactTermScorer) scorer).freq();
+					LeafSimScorer docScorer = new LeafSimScorer(this.stats, context.reader(), term.field(), true);
+					Explanation freqExplanation = Explanation.match(freq, "exactFreq=" + freq);
+					Explanation scoreExplanation = docScorer.explain(doc, freqExplanation);
+					return Explanation.match(scoreExplanation.getValue(), "weight(" + getQuery() + " in " + doc + ") ["
+							+ similarity.getClass().getSimpleName() + "], result of:", scoreExplanation);
+				}
+			} else if (scorer != null && scorer.iterator().advance(doc) == doc) {
+				return Explanation.match(0f, "weight(" + getQuery() + " in " + doc + "), cached doc set");
+			}
+			return Explanation.noMatch("no matching term");
+		}
+	}
+
+	public ExactTermQuery(Term term) {
+		this(term, 1);
+	}
+
+	public ExactTermQuery(Term term, int minFrequency) {
+		this(term, minFrequency, null);
+	}
+
+	/**
+	 * @param docSetCache the cache of the documents of frequent terms, {@code null} to always read the postings.
+	 *                    The cache does not change the matches and is not part of {@link #equals}.
+	 */
+	public ExactTermQuery(Term term, int minFrequency, ExactTermDocSetCache docSetCache) {
+		this.term = Objects.requireNonNull(term);
+		this.minFrequency = minFrequency;
+		this.docSetCache = docSetCache;
+	}
+
+	@Override
+	public Weight createWeight(IndexSearcher searcher, ScoreMode scoreMode, float boost) throws IOException {
+		final IndexReaderContext context = searcher.getTopReaderContext();
+		return new ExactTermWeight(searcher, scoreMode, boost, TermStates.build(context, term, scoreMode.needsScores()));
+	}
+
+	@Override
+	public void visit(QueryVisitor visitor) {
+		if (visitor.acceptField(term.field())) {
+			visitor.consumeTerms(this, term);
+		}
+	}
+
+	@Override
+	public String toString(String field) {
+		StringBuilder buffer = new StringBuilder();
+		buffer.append("ExactTermQuery(");
+		if (!term.field().equals(field)) {
+			buffer.append(term.field());
+			buffer.append(":");
+		}
+		buffer.append(term.text());
+		buffer.append(")");
+		if (minFrequency > 1) {
+			buffer.append("/a").append(minFrequency);
+		}
+		return buffer.toString();
+	}
+
+	@Override
+	public boolean equals(Object other) {
+		return sameClassAs(other) && term.equals(((ExactTermQuery) other).term)
+				&& minFrequency == ((ExactTermQuery) other).minFrequency;
+	}
+
+	@Override
+	public int hashCode() {
+		return classHash() ^ term.hashCode() + minFrequency;
+	}
+
+	public Term getTerm() {
+		return term;
+	}
+
+	public int getMinFrequency() {
+		return minFrequency;
+	}
+
+	public ExactTermDocSetCache getDocSetCache() {
+		return docSetCache;
+	}
+
+}
@@ -0,0 +1,116 @@
+package de.pansoft.lucene.index.query.term;
+
+import java.io.IOException;
+
+import org.apache.lucene.index.ImpactsEnum;
+import org.apache.lucene.index.PostingsEnum;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.search.ImpactsDISI;
+import org.apache.lucene.search.LeafSimScorer;
+import org.apache.lucene.search.Scorer;
+import org.apache.lucene.search.TwoPhaseIterator;
+import org.apache.lucene.search.Weight;
+import org.apache.lucene.util.BytesRef;
+
+/**
+ * Scores the documents where a term has at least {@code minFrequency} positions with an empty payload.
+ *
+ * The approximation walks the impacts of the term without positions. The exact occurrences are never more than
+ * the term frequency and share the norm, so the impacts are upper bounds for the scores as well and blocks can be
+ * skipped. Only the documents that are left are advanced to on the postings with payloads.
+ */
+final class ExactTermScorer extends Scorer {
+	private final ImpactsEnum impactsEnum;
+	private final PostingsEnum postingsEnum;
+	private final ImpactsDISI impactsDisi;
+	private final TwoPhaseIterator twoPhase;
+	private final LeafSimScorer docScorer;
+	private int freq;
+
+	ExactTermScorer(Weight weight, ImpactsEnum impactsEnum, PostingsEnum postingsEnum, LeafSimScorer docScorer,
+			boolean needsScores, int minFrequency, float matchCost) {
+		super(weight);
+		this.impactsEnum = impactsEnum;
+		this.postingsEnum = postingsEnum;
+		this.docScorer = docScorer;
+		this.impactsDisi = new ImpactsDISI(impactsEnum, impactsEnum, docScorer.getSimScorer());
+		this.twoPhase = new TwoPhaseIterator(impactsDisi) {
+
+			@Override
+			public boolean matches() throws IOException {
+				freq = countExact(needsScores ? Integer.MAX_VALUE : minFrequency);
+				return freq >= minFrequency;
+			}
+
+			@Override
+			public float matchCost() {
+				return matchCost;
+			}
+		};
+	}
+
+	/**
+	 * Counts the positions with an empty payload in the current document, stopping at {@code limit}.
+	 */
+	private int countExact(int limit) throws IOException {
+		if (postingsEnum.docID() < impactsEnum.docID()) {
+			postingsEnum.advance(impactsEnum.docID());
+		}
+		assert postingsEnum.docID() == impactsEnum.docID();
+		final int termFreq = postingsEnum.freq();
+		int count = 0;
+		for (int i = 0; i < termFreq && count < limit; i++) {
+			postingsEnum.nextPosition();
+			BytesRef payload = postingsEnum.getPayload();
+			if (payload == null || payload.length == 0) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	@Override
+	public int docID() {
+		return impactsEnum.docID();
+	}
+
+	final int freq() {
+		return freq;
+	}
+
+	@Override
+	public DocIdSetIterator iterator() {
+		return TwoPhaseIterator.asDocIdSetIterator(twoPhase);
+	}
+
+	@Override
+	public TwoPhaseIterator twoPhaseIterator() {
+		return twoPhase;
+	}
+
+	@Override
+	public float score() throws IOException {
+		assert docID() != DocIdSetIterator.NO_MORE_DOCS;
+		return docScorer.score(impactsEnum.docID(), freq);
+	}
+
+	@Override
+	public int advanceShallow(int target) throws IOException {
+		return impactsDisi.advanceShallow(target);
+	}
+
+	@Override
+	public float getMaxScore(int upTo) throws IOException {
+		return impactsDisi.getMaxScore(upTo);
+	}
+
+	@Override
+	public void setMinCompetitiveScore(float minScore) {
+		impactsDisi.setMinCompetitiveScore(minScore);
+	}
+
+	@Override
+	public String toString() {
+		return "scorer(" + weight + ")[" + super.toString() + "]";
+	}
+}
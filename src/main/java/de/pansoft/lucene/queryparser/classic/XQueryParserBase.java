@@ -27,16 +27,14 @@ public abstract class XQueryParserBase extends QueryParserBase {
       if (!hasFrequency) {
          return super.handleBareTokenQuery(qfield, term, fuzzySlop, prefix, wildcard, fuzzy, regexp);
       } else {
-         int minFrequency = 2;
-         if (frequency != null && !frequency.image.isEmpty()) {
-            minFrequency = Integer.parseInt(frequency.image);
-         }
+         int minFrequency = minFrequency(frequency);
          if (!prefix) {
             Token newTerm = Token.newToken(0, term.image.substring(0, term.image.length()-1));
             Query query = super.handleBareTokenQuery(qfield, newTerm, fuzzySlop, false, wildcard, fuzzy, regexp);
             return transformTermToFrequencyQuery(query, minFrequency);
          } else {
-            Token newTerm = Token.newToken(0, term.image.substring(0, term.image.length()-2));
+            // keep the trailing "*", the prefix handling strips it
+            Token newTerm = Token.newToken(0, term.image.substring(0, term.image.length()-1));
             Query query = super.handleBareTokenQuery(qfield, newTerm, fuzzySlop, true, wildcard, fuzzy, regexp);
             return transformPrefixToFrequencyPrefixQuery(query, minFrequency);
          }
@@ -47,6 +45,29 @@ public abstract class XQueryParserBase extends QueryParserBase {
       return super.handleQuotedTerm(qfield, term, fuzzySlop);
    }
 
+   /**
+    * Handles {@code "a b"#N}, {@code "a b"#N~S} and {@code "a b"~S#N}, the "#" ends either the quoted term or the slop.
+    */
+   protected Query handleQuotedFrequencyTerm(String qfield, Token term, Token fuzzySlop, Token frequency) throws ParseException {
+      Query query = super.handleQuotedTerm(qfield, stripFrequencyMark(term), stripFrequencyMark(fuzzySlop));
+      return transformPhraseToFrequencyPhraseQuery(query, minFrequency(frequency));
+   }
+
+   private static Token stripFrequencyMark(Token token) {
+      if (token == null || !token.image.endsWith("#")) {
+         return token;
+      }
+      return Token.newToken(0, token.image.substring(0, token.image.length()-1));
+   }
+
+   private static int minFrequency(Token frequency) {
+      int minFrequency = 2;
+      if (frequency != null && !frequency.image.isEmpty()) {
+         minFrequency = Integer.parseInt(frequency.image);
+      }
+      return minFrequency;
+   }
+
    protected Query handleBareFuzzy(String qfield, Token fuzzySlop, String termImage) throws ParseException {
       return super.handleBareFuzzy(qfield, fuzzySlop, termImage);
    }
@@ -59,4 +80,8 @@ public abstract class XQueryParserBase extends QueryParserBase {
    protected Query transformPrefixToFrequencyPrefixQuery(Query query, int minFrequency) {
       return query;
    }
+
+   protected Query transformPhraseToFrequencyPhraseQuery(Query query, int minFrequency) {
+      return query;
+   }
 }
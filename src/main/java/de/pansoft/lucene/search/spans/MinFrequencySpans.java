@@ -1,25 +1,46 @@
 package de.pansoft.lucene.search.spans;
 
 import java.io.IOException;
-import java.util.LinkedList;
+import java.util.Arrays;
 import java.util.Objects;
-import java.util.Queue;
 
 import org.apache.lucene.search.TwoPhaseIterator;
 import org.apache.lucene.search.spans.SpanCollector;
 import org.apache.lucene.search.spans.Spans;
-
+import org.apache.lucene.util.ArrayUtil;
+
+/**
+ * Returns only the documents where the wrapped spans have at least {@code minFrequency} positions.
+ *
+ * To check a document its first {@code minFrequency} positions are read and kept in int arrays, so they can
+ * still be returned afterwards. What the wrapped spans pass to a {@link SpanCollector} for these positions is
+ * only recorded if {@code recordCollector} is set, i.e. if the caller asked for payloads or offsets.
+ */
 public class MinFrequencySpans extends Spans {
 
 	protected final Spans in;
 	protected final int minFrequency;
-
-	private final Queue<Position> positionsInCurrentDoc = new LinkedList<>();
-	private Position currentPositionInCurrentDoc = null;
+	private final boolean recordCollector;
+
+	private int[] starts = new int[0];
+	private int[] ends = new int[0];
+	private int[] widths = new int[0];
+	private SpanCollectorRecorder[] recorders = new SpanCollectorRecorder[0];
+	/** number of positions read ahead in the current document */
+	private int count = 0;
+	/** index of the next position read ahead that was not returned yet */
+	private int next = 0;
+	/** index of the current position if it was read ahead, -1 otherwise */
+	private int current = -1;
 
 	protected MinFrequencySpans(Spans in, int minFrequency) {
+		this(in, minFrequency, true);
+	}
+
+	protected MinFrequencySpans(Spans in, int minFrequency, boolean recordCollector) {
 		this.in = Objects.requireNonNull(in);
 		this.minFrequency = minFrequency;
+		this.recordCollector = recordCollector;
 	}
 
 	@Override
@@ -54,36 +75,36 @@ public class MinFrequencySpans extends Spans {
 
 	@Override
 	public final int nextStartPosition() throws IOException {
-		if (!positionsInCurrentDoc.isEmpty()) {
-			currentPositionInCurrentDoc = positionsInCurrentDoc.poll();
-			return currentPositionInCurrentDoc.start;
+		if (next < count) {
+			current = next++;
+			return starts[current];
 		} else {
-			currentPositionInCurrentDoc = null;
+			current = -1;
 			return in.nextStartPosition();
 		}
 	}
 
 	@Override
 	public final int startPosition() {
-		return currentPositionInCurrentDoc != null ? currentPositionInCurrentDoc.start : (positionsInCurrentDoc.isEmpty()) ? in.startPosition() : -1;
+		return current >= 0 ? starts[current] : next < count ? -1 : in.startPosition();
 	}
 
 	@Override
 	public final int endPosition() {
-		return currentPositionInCurrentDoc != null ? currentPositionInCurrentDoc.end : (positionsInCurrentDoc.isEmpty()) ? in.endPosition() : -1;
+		return current >= 0 ? ends[current] : next < count ? -1 : in.endPosition();
 	}
 
 	@Override
 	public int width() {
-		return currentPositionInCurrentDoc != null ? currentPositionInCurrentDoc.width : (positionsInCurrentDoc.isEmpty()) ? in.width() : -1;
+		return current >= 0 ? widths[current] : next < count ? -1 : in.width();
 	}
 
 	@Override
 	public void collect(SpanCollector collector) throws IOException {
-		if (currentPositionInCurrentDoc != null) {
-			currentPositionInCurrentDoc.collect(collector);
-		} else {
+		if (current < 0) {
 			in.collect(collector);
+		} else if (recordCollector) {
+			recorders[current].collect(collector);
 		}
 	}
 
@@ -148,35 +169,44 @@ public class MinFrequencySpans extends Spans {
 	}
 
 	private final boolean twoPhaseCurrentDocMatches() throws IOException {
-		if (!positionsInCurrentDoc.isEmpty()) {
-			positionsInCurrentDoc.clear();
-		}
+		count = 0;
+		next = 0;
+		current = -1;
 		for (;;) {
 			int startPos = in.nextStartPosition();
 			if (startPos != NO_MORE_POSITIONS) {
-				Position postition = new Position(startPos, in.endPosition(), in.width());
-				in.collect(postition);
-				positionsInCurrentDoc.add(postition);
-				if (positionsInCurrentDoc.size() >= minFrequency) {
+				if (count == starts.length) {
+					grow();
+				}
+				starts[count] = startPos;
+				ends[count] = in.endPosition();
+				widths[count] = in.width();
+				if (recordCollector) {
+					recorders[count].clear();
+					in.collect(recorders[count]);
+				}
+				count++;
+				if (count >= minFrequency) {
 					return true;
 				}
 			} else {
 				break;
 			}
 		}
-		positionsInCurrentDoc.clear();
+		count = 0;
 		return false;
 	}
 
-	private static class Position extends SpanCollectorRecorder {
-		private final int start;
-		private final int end;
-		private final int width;
-
-		Position(int start, int end, int width) {
-			this.start = start;
-			this.end = end;
-			this.width = width;
+	private void grow() {
+		int size = Math.min(ArrayUtil.oversize(count + 1, Integer.BYTES), Math.max(minFrequency, 1));
+		starts = Arrays.copyOf(starts, size);
+		ends = Arrays.copyOf(ends, size);
+		widths = Arrays.copyOf(widths, size);
+		if (recordCollector) {
+			recorders = Arrays.copyOf(recorders, size);
+			for (int i = count; i < size; i++) {
+				recorders[i] = new SpanCollectorRecorder();
+			}
 		}
 	}
 }
@@ -32,7 +32,9 @@ public class PostingsEnumSnapshot extends PostingsEnum {
 			// ignore
 		}
 		try {
-			this.payload = postings.getPayload();
+			// the postings may reuse the payload for the next position
+			BytesRef payload = postings.getPayload();
+			this.payload = payload == null ? null : BytesRef.deepCopyOf(payload);
 		} catch (Exception e) {
 			// ignore
 		}
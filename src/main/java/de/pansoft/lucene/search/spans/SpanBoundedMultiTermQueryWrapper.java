@@ -0,0 +1,178 @@
+package de.pansoft.lucene.search.spans;
+
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Objects;
+import java.util.Set;
+
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.Terms;
+import org.apache.lucene.index.TermsEnum;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MultiTermQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.QueryVisitor;
+import org.apache.lucene.search.ScoreMode;
+import org.apache.lucene.search.spans.SpanMultiTermQueryWrapper;
+import org.apache.lucene.search.spans.SpanQuery;
+import org.apache.lucene.search.spans.SpanWeight;
+import org.apache.lucene.util.BytesRef;
+
+/**
+ * Wraps a {@link MultiTermQuery} as a {@link SpanQuery} that expands to at most {@code maxExpansions} terms.
+ *
+ * The distinct terms of the query are counted before any span is built, counting stops after
+ * {@code maxExpansions} terms. If there are more, the query either fails or is rewritten with
+ * {@link SpanMultiTermQueryWrapper.TopTermsSpanBooleanQueryRewrite}. The rewritten query keeps this wrapper, so
+ * the limit and whether it was hit show up in its description, e.g. in the profile API.
+ */
+public final class SpanBoundedMultiTermQueryWrapper extends SpanQuery {
+
+	/**
+	 * The default maximum number of terms an exact multi term query expands to.
+	 */
+	public static final int DEFAULT_MAX_EXPANSIONS = 1024;
+
+	private final MultiTermQuery query;
+	private final int maxExpansions;
+	private final boolean failOnMaxExpansions;
+	private final SpanQuery expanded;
+	private final boolean limited;
+
+	/**
+	 * @param query the query to wrap
+	 * @param maxExpansions the maximum number of terms to expand to
+	 * @param failOnMaxExpansions whether to fail if the query matches more terms, otherwise only the top
+	 *        {@code maxExpansions} terms are used
+	 */
+	public SpanBoundedMultiTermQueryWrapper(MultiTermQuery query, int maxExpansions, boolean failOnMaxExpansions) {
+		this(query, maxExpansions, failOnMaxExpansions, null, false);
+	}
+
+	private SpanBoundedMultiTermQueryWrapper(MultiTermQuery query, int maxExpansions, boolean failOnMaxExpansions,
+			SpanQuery expanded, boolean limited) {
+		if (maxExpansions <= 0) {
+			throw new IllegalArgumentException("maxExpansions must be positive.");
+		}
+		this.query = Objects.requireNonNull(query);
+		this.maxExpansions = maxExpansions;
+		this.failOnMaxExpansions = failOnMaxExpansions;
+		this.expanded = expanded;
+		this.limited = limited;
+	}
+
+	@Override
+	public Query rewrite(IndexReader reader) throws IOException {
+		if (expanded != null) {
+			final Query rewritten = expanded.rewrite(reader);
+			if (rewritten != expanded) {
+				return new SpanBoundedMultiTermQueryWrapper(query, maxExpansions, failOnMaxExpansions,
+						(SpanQuery) rewritten, limited);
+			}
+			return this;
+		}
+		if (countTerms(reader, query, maxExpansions) <= maxExpansions) {
+			return new SpanBoundedMultiTermQueryWrapper(query, maxExpansions, failOnMaxExpansions,
+					SpanMultiTermQueryWrapper.SCORING_SPAN_QUERY_REWRITE.rewrite(reader, query), false);
+		}
+		if (failOnMaxExpansions) {
+			throw new IllegalArgumentException("exact query [" + query.toString() + "] expands to more than "
+					+ maxExpansions + " terms, use a more selective pattern or raise max_expansions.");
+		}
+		return new SpanBoundedMultiTermQueryWrapper(query, maxExpansions, failOnMaxExpansions,
+				new SpanMultiTermQueryWrapper.TopTermsSpanBooleanQueryRewrite(maxExpansions).rewrite(reader, query),
+				true);
+	}
+
+	@Override
+	public SpanWeight createWeight(IndexSearcher searcher, ScoreMode scoreMode, float boost) throws IOException {
+		if (expanded == null) {
+			throw new IllegalArgumentException("Rewrite first!");
+		}
+		return expanded.createWeight(searcher, scoreMode, boost);
+	}
+
+	@Override
+	public String getField() {
+		return query.getField();
+	}
+
+	@Override
+	public void visit(QueryVisitor visitor) {
+		if (visitor.acceptField(query.getField())) {
+			query.visit(visitor.getSubVisitor(BooleanClause.Occur.MUST, this));
+		}
+	}
+
+	@Override
+	public String toString(String field) {
+		StringBuilder buffer = new StringBuilder();
+		buffer.append("SpanBoundedMultiTermQueryWrapper(");
+		buffer.append(query.toString(field));
+		buffer.append(", max_expansions=").append(maxExpansions);
+		if (limited) {
+			buffer.append(", top_terms");
+		}
+		buffer.append(")");
+		return buffer.toString();
+	}
+
+	@Override
+	public boolean equals(Object other) {
+		return sameClassAs(other) && query.equals(((SpanBoundedMultiTermQueryWrapper) other).query)
+				&& maxExpansions == ((SpanBoundedMultiTermQueryWrapper) other).maxExpansions
+				&& failOnMaxExpansions == ((SpanBoundedMultiTermQueryWrapper) other).failOnMaxExpansions
+				&& Objects.equals(expanded, ((SpanBoundedMultiTermQueryWrapper) other).expanded);
+	}
+
+	@Override
+	public int hashCode() {
+		return classHash() ^ Objects.hash(query, maxExpansions, failOnMaxExpansions, expanded);
+	}
+
+	public MultiTermQuery getWrappedQuery() {
+		return query;
+	}
+
+	public int getMaxExpansions() {
+		return maxExpansions;
+	}
+
+	public boolean isFailOnMaxExpansions() {
+		return failOnMaxExpansions;
+	}
+
+	/**
+	 * Returns whether the query matched more than {@code maxExpansions} terms and was limited to the top terms.
+	 */
+	public boolean isLimited() {
+		return limited;
+	}
+
+	/**
+	 * Returns the number of distinct terms a multi term query matches, or {@code limit + 1} if there are more than
+	 * {@code limit}.
+	 */
+	private static int countTerms(IndexReader reader, MultiTermQuery query, int limit) throws IOException {
+		final Set<BytesRef> seen = new HashSet<>();
+		for (LeafReaderContext context : reader.leaves()) {
+			final Terms terms = context.reader().terms(query.getField());
+			if (terms == null) {
+				continue;
+			}
+			final TermsEnum termsEnum = query.getTermsEnum(terms);
+			BytesRef bytes;
+			while ((bytes = termsEnum.next()) != null) {
+				if (seen.contains(bytes) == false) {
+					seen.add(BytesRef.deepCopyOf(bytes));
+					if (seen.size() > limit) {
+						return seen.size();
+					}
+				}
+			}
+		}
+		return seen.size();
+	}
+}
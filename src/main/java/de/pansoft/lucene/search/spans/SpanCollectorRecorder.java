@@ -1,8 +1,8 @@
 package de.pansoft.lucene.search.spans;
 
 import java.io.IOException;
-import java.util.LinkedList;
-import java.util.Queue;
+import java.util.ArrayList;
+import java.util.List;
 
 import org.apache.lucene.index.PostingsEnum;
 import org.apache.lucene.index.Term;
@@ -12,28 +12,29 @@ public class SpanCollectorRecorder implements SpanCollector {
 
 	private static final SpanCollectorCall RESET_CALL = new SpanCollectorResetCall();
 	
-	private Queue<SpanCollectorCall> calls = null;
+	private final List<SpanCollectorCall> calls = new ArrayList<>();
 
 	@Override
 	public void collectLeaf(PostingsEnum postings, int position, Term term) throws IOException {
-		if (calls == null) {
-			calls = new LinkedList<SpanCollectorCall>();
-		}
 		calls.add(new SpanCollectorCollectLeafCall(postings, position, term));
 	}
 
 	@Override
 	public void reset() {
-		if (calls == null) {
-			calls = new LinkedList<SpanCollectorCall>();
-		}
 		calls.add(RESET_CALL);
 	}
+
+	/**
+	 * Forgets the recorded calls so the recorder can be reused.
+	 */
+	public void clear() {
+		calls.clear();
+	}
 	
 	public void collect(SpanCollector collector) throws IOException {
-		while (calls != null && !calls.isEmpty()) {
-			SpanCollectorCall call = calls.poll();
+		for (SpanCollectorCall call : calls) {
 			call.call(collector);
 		}
+		calls.clear();
 	}
 }
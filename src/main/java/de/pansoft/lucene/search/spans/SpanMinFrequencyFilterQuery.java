@@ -37,8 +37,10 @@ public class SpanMinFrequencyFilterQuery extends SpanQuery implements Cloneable
 
 	@Override
 	public SpanWeight createWeight(IndexSearcher searcher, ScoreMode scoreMode, float boost) throws IOException {
-		SpanWeight matchWeight = match.createWeight(searcher, ScoreMode.COMPLETE, boost);
-		return new MinFrequencySpanCountingCheckWeight(matchWeight, searcher, getTermStates(matchWeight), boost);
+		SpanWeight matchWeight = match.createWeight(searcher, scoreMode, boost);
+		// without scores there is no need for term statistics and a similarity
+		return new MinFrequencySpanCountingCheckWeight(matchWeight, searcher,
+				scoreMode.needsScores() ? getTermStates(matchWeight) : null, boost);
 	}
 
 	public class MinFrequencySpanCountingCheckWeight extends SpanWeight {
@@ -69,7 +71,9 @@ public class SpanMinFrequencyFilterQuery extends SpanQuery implements Cloneable
 		@Override
 		public Spans getSpans(final LeafReaderContext context, Postings requiredPostings) throws IOException {
 			Spans matchSpans = matchWeight.getSpans(context, requiredPostings);
-			return (matchSpans == null) ? null : new MinFrequencySpans(matchSpans, minFrequency);
+			// collector data of the positions read ahead is only needed for payloads and offsets
+			return (matchSpans == null) ? null
+					: new MinFrequencySpans(matchSpans, minFrequency, requiredPostings != Postings.POSITIONS);
 		}
 
 	}
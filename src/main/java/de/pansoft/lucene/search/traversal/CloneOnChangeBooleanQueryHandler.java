@@ -5,7 +5,7 @@ import org.apache.lucene.search.BooleanQuery;
 import org.apache.lucene.search.Query;
 import org.elasticsearch.index.query.SearchExecutionContext;
 
-public class CloneOnChangeBooleanQueryHandler implements QueryHandler {
+public class CloneOnChangeBooleanQueryHandler implements CompositeQueryHandler {
 
 	@Override
 	public Query handleQuery(final TraverserContext traverserContext, final SearchExecutionContext context,
@@ -31,8 +31,8 @@ public class CloneOnChangeBooleanQueryHandler implements QueryHandler {
 	}
 
 	@Override
-	public boolean acceptQuery(final TraverserContext traverserContext, final SearchExecutionContext context, Query query) {
-		return query != null && query instanceof BooleanQuery;
+	public boolean acceptQueryClass(final Class<? extends Query> queryClass) {
+		return BooleanQuery.class.isAssignableFrom(queryClass);
 	}
 
 }
@@ -4,7 +4,7 @@ import org.apache.lucene.search.BoostQuery;
 import org.apache.lucene.search.Query;
 import org.elasticsearch.index.query.SearchExecutionContext;
 
-public class CloneOnChangeBoostQueryHandler implements QueryHandler {
+public class CloneOnChangeBoostQueryHandler implements CompositeQueryHandler {
 
 	@Override
 	public Query handleQuery(final TraverserContext traverserContext, final SearchExecutionContext context,
@@ -18,7 +18,7 @@ public class CloneOnChangeBoostQueryHandler implements QueryHandler {
 	}
 
 	@Override
-	public boolean acceptQuery(final TraverserContext traverserContext, final SearchExecutionContext context, Query query) {
-		return query != null && query instanceof BoostQuery;
+	public boolean acceptQueryClass(final Class<? extends Query> queryClass) {
+		return BoostQuery.class.isAssignableFrom(queryClass);
 	}
 }
@@ -4,7 +4,7 @@ import org.apache.lucene.search.ConstantScoreQuery;
 import org.apache.lucene.search.Query;
 import org.elasticsearch.index.query.SearchExecutionContext;
 
-public class CloneOnChangeConstantScoreQueryHandler implements QueryHandler {
+public class CloneOnChangeConstantScoreQueryHandler implements CompositeQueryHandler {
 
 	@Override
 	public Query handleQuery(final TraverserContext traverserContext, final SearchExecutionContext context,
@@ -19,6 +19,6 @@ public class CloneOnChangeConstantScoreQueryHandler implements QueryHandler {
 	}
 
 	@Override
-	public boolean acceptQuery(final TraverserContext traverserContext, final SearchExecutionContext context, Query query) {
-		return query != null && query instanceof ConstantScoreQuery;
+	public boolean acceptQueryClass(final Class<? extends Query> queryClass) {
+		return ConstantScoreQuery.class.isAssignableFrom(queryClass);
 	}}
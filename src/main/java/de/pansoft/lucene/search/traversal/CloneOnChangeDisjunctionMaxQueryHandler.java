@@ -6,7 +6,7 @@ import org.apache.lucene.search.DisjunctionMaxQuery;
 import org.apache.lucene.search.Query;
 import org.elasticsearch.index.query.SearchExecutionContext;
 
-public class CloneOnChangeDisjunctionMaxQueryHandler implements QueryHandler {
+public class CloneOnChangeDisjunctionMaxQueryHandler implements CompositeQueryHandler {
 
 	@Override
 	public Query handleQuery(final TraverserContext traverserContext, final SearchExecutionContext context,
@@ -30,8 +30,8 @@ public class CloneOnChangeDisjunctionMaxQueryHandler implements QueryHandler {
 	}
 
 	@Override
-	public boolean acceptQuery(final TraverserContext traverserContext, final SearchExecutionContext context, Query query) {
-		return query != null && query instanceof DisjunctionMaxQuery;
+	public boolean acceptQueryClass(final Class<? extends Query> queryClass) {
+		return DisjunctionMaxQuery.class.isAssignableFrom(queryClass);
 	}
 
 }
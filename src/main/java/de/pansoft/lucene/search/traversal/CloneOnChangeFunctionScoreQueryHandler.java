@@ -0,0 +1,25 @@
+package de.pansoft.lucene.search.traversal;
+
+import org.apache.lucene.queries.function.FunctionScoreQuery;
+import org.apache.lucene.search.Query;
+import org.elasticsearch.index.query.SearchExecutionContext;
+
+public class CloneOnChangeFunctionScoreQueryHandler implements CompositeQueryHandler {
+
+	@Override
+	public Query handleQuery(final TraverserContext traverserContext, final SearchExecutionContext context,
+							 final Query query, final QueryTraverser queryTraverser) {
+		final FunctionScoreQuery functionScoreQuery = (FunctionScoreQuery) query;
+		final Query newWrappedQuery = queryTraverser.traverse(traverserContext, context,
+				functionScoreQuery.getWrappedQuery());
+		if (newWrappedQuery != functionScoreQuery.getWrappedQuery()) {
+			return new FunctionScoreQuery(newWrappedQuery, functionScoreQuery.getSource());
+		}
+		return query;
+	}
+
+	@Override
+	public boolean acceptQueryClass(final Class<? extends Query> queryClass) {
+		return FunctionScoreQuery.class.isAssignableFrom(queryClass);
+	}
+}
@@ -0,0 +1,39 @@
+package de.pansoft.lucene.search.traversal;
+
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.join.BitSetProducer;
+import org.elasticsearch.common.lucene.search.Queries;
+import org.elasticsearch.index.mapper.NestedObjectMapper;
+import org.elasticsearch.index.query.SearchExecutionContext;
+import org.elasticsearch.index.search.ESToParentBlockJoinQuery;
+
+public class CloneOnChangeNestedQueryHandler implements CompositeQueryHandler {
+
+	@Override
+	public Query handleQuery(final TraverserContext traverserContext, final SearchExecutionContext context,
+							 final Query query, final QueryTraverser queryTraverser) {
+		final ESToParentBlockJoinQuery nestedQuery = (ESToParentBlockJoinQuery) query;
+		final Query newChildQuery = queryTraverser.traverse(traverserContext, context, nestedQuery.getChildQuery());
+		if (newChildQuery != nestedQuery.getChildQuery()) {
+			return new ESToParentBlockJoinQuery(newChildQuery, parentFilter(context, nestedQuery.getPath()),
+					nestedQuery.getScoreMode(), nestedQuery.getPath());
+		}
+		return query;
+	}
+
+	/**
+	 * The parent filter is not exposed by the query, build it the way the nested query builder does.
+	 */
+	private static BitSetProducer parentFilter(final SearchExecutionContext context, final String path) {
+		final String parentPath = context.getNestedParent(path);
+		if (parentPath == null) {
+			return context.bitsetFilter(Queries.newNonNestedFilter(context.indexVersionCreated()));
+		}
+		return context.bitsetFilter(((NestedObjectMapper) context.getObjectMapper(parentPath)).nestedTypeFilter());
+	}
+
+	@Override
+	public boolean acceptQueryClass(final Class<? extends Query> queryClass) {
+		return ESToParentBlockJoinQuery.class.isAssignableFrom(queryClass);
+	}
+}
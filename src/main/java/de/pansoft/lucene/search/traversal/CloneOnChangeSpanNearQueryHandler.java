@@ -0,0 +1,35 @@
+package de.pansoft.lucene.search.traversal;
+
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.spans.SpanNearQuery;
+import org.apache.lucene.search.spans.SpanQuery;
+import org.elasticsearch.index.query.SearchExecutionContext;
+
+public class CloneOnChangeSpanNearQueryHandler implements CompositeQueryHandler {
+
+	@Override
+	public Query handleQuery(final TraverserContext traverserContext, final SearchExecutionContext context,
+							 final Query query, final QueryTraverser queryTraverser) {
+		final SpanNearQuery spanNearQuery = (SpanNearQuery) query;
+		final SpanQuery[] clauses = spanNearQuery.getClauses();
+		boolean changed = false;
+		for (int i = 0; i < clauses.length; i++) {
+			final Query newClause = queryTraverser.traverse(traverserContext, context, clauses[i]);
+			// gaps are span queries too and stay untouched, a clause that is no span query any more can't be kept
+			if (newClause != clauses[i] && newClause instanceof SpanQuery) {
+				changed = true;
+				clauses[i] = (SpanQuery) newClause;
+			}
+		}
+		if (changed) {
+			return new SpanNearQuery(clauses, spanNearQuery.getSlop(), spanNearQuery.isInOrder());
+		}
+		return query;
+	}
+
+	@Override
+	public boolean acceptQueryClass(final Class<? extends Query> queryClass) {
+		return SpanNearQuery.class.isAssignableFrom(queryClass);
+	}
+
+}
@@ -0,0 +1,34 @@
+package de.pansoft.lucene.search.traversal;
+
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.spans.SpanOrQuery;
+import org.apache.lucene.search.spans.SpanQuery;
+import org.elasticsearch.index.query.SearchExecutionContext;
+
+public class CloneOnChangeSpanOrQueryHandler implements CompositeQueryHandler {
+
+	@Override
+	public Query handleQuery(final TraverserContext traverserContext, final SearchExecutionContext context,
+							 final Query query, final QueryTraverser queryTraverser) {
+		final SpanOrQuery spanOrQuery = (SpanOrQuery) query;
+		final SpanQuery[] clauses = spanOrQuery.getClauses();
+		boolean changed = false;
+		for (int i = 0; i < clauses.length; i++) {
+			final Query newClause = queryTraverser.traverse(traverserContext, context, clauses[i]);
+			if (newClause != clauses[i] && newClause instanceof SpanQuery) {
+				changed = true;
+				clauses[i] = (SpanQuery) newClause;
+			}
+		}
+		if (changed) {
+			return new SpanOrQuery(clauses);
+		}
+		return query;
+	}
+
+	@Override
+	public boolean acceptQueryClass(final Class<? extends Query> queryClass) {
+		return SpanOrQuery.class.isAssignableFrom(queryClass);
+	}
+
+}
@@ -0,0 +1,11 @@
+package de.pansoft.lucene.search.traversal;
+
+/**
+ * A handler that only descends into the children of a composite query, and copies the query if a child changed.
+ *
+ * The {@link QueryTraverser} offers a query to these handlers after all other handlers, so a handler for a
+ * composite query class always wins over descending into it.
+ */
+public interface CompositeQueryHandler extends QueryHandler {
+
+}
@@ -1,10 +1,9 @@
 package de.pansoft.lucene.search.traversal;
 
+import de.pansoft.lucene.index.query.term.ExactTermQuery;
 import de.pansoft.lucene.index.query.term.MarkedTermQuery;
-import de.pansoft.lucene.search.spans.SpanEmptyPayloadCheckQuery;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.search.TermQuery;
-import org.apache.lucene.search.spans.SpanTermQuery;
 import org.elasticsearch.index.mapper.MappedFieldType;
 import org.elasticsearch.index.query.SearchExecutionContext ;
 
@@ -23,15 +22,18 @@ public class ExactMarkedTermQueryHandler implements QueryHandler {
 		if (termQuery.getContext() == this.context) {
 			MappedFieldType fieldType = context.getFieldType(termQuery.getTerm().field());
 			if (fieldType != null && fieldType.getTextSearchInfo().isTokenized()) {
-				return new SpanEmptyPayloadCheckQuery(new SpanTermQuery(termQuery.getTerm()));
+				if (traverserContext.getExactPrefix() != null) {
+					return new TermQuery(traverserContext.exactTerm(termQuery.getTerm()));
+				}
+				return new ExactTermQuery(termQuery.getTerm(), 1, traverserContext.getExactTermDocSetCache());
 			}
 		}
 		return termQuery;
 	}
 
 	@Override
-	public boolean acceptQuery(final TraverserContext traverserContext, final SearchExecutionContext context, Query query) {
-		return query != null && query instanceof MarkedTermQuery;
+	public boolean acceptQueryClass(final Class<? extends Query> queryClass) {
+		return MarkedTermQuery.class.isAssignableFrom(queryClass);
 	}
 
 }
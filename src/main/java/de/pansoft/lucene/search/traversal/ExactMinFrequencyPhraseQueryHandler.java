@@ -0,0 +1,32 @@
+package de.pansoft.lucene.search.traversal;
+
+import org.apache.lucene.search.PhraseQuery;
+import org.apache.lucene.search.Query;
+import org.elasticsearch.index.query.SearchExecutionContext;
+
+import de.pansoft.lucene.index.query.frequency.MinFrequencyPhraseQuery;
+import de.pansoft.lucene.index.query.term.ExactPayloadPhraseQuery;
+
+public class ExactMinFrequencyPhraseQueryHandler implements QueryHandler {
+
+	private static final ExactPhraseQueryHandler EXACT_PHRASE_QUERY_HANDLER = new ExactPhraseQueryHandler();
+
+	@Override
+	public Query handleQuery(final TraverserContext traverserContext, final SearchExecutionContext context,
+							 final Query query, QueryTraverser queryTraverser) {
+		final MinFrequencyPhraseQuery minFrequencyPhraseQuery = (MinFrequencyPhraseQuery) query;
+		Query exactQuery = EXACT_PHRASE_QUERY_HANDLER.handleQuery(traverserContext, context,
+				minFrequencyPhraseQuery.getPhraseQuery(), queryTraverser);
+		if (exactQuery instanceof PhraseQuery) {
+			return new MinFrequencyPhraseQuery((PhraseQuery) exactQuery, minFrequencyPhraseQuery.getMinFrequency());
+		}
+		return new ExactPayloadPhraseQuery(((ExactPayloadPhraseQuery) exactQuery).getPhraseQuery(),
+				minFrequencyPhraseQuery.getMinFrequency(), traverserContext.getExactTermDocSetCache());
+	}
+
+	@Override
+	public boolean acceptQueryClass(final Class<? extends Query> queryClass) {
+		return MinFrequencyPhraseQuery.class.isAssignableFrom(queryClass);
+	}
+
+}
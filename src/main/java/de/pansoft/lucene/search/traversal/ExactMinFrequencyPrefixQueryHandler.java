@@ -18,16 +18,22 @@ public class ExactMinFrequencyPrefixQueryHandler implements QueryHandler {
 		final MinFrequencyPrefixQuery multiTermQuery = (MinFrequencyPrefixQuery) query;
 		MappedFieldType fieldType = context.getFieldType(multiTermQuery.getField());
 		if (fieldType != null && fieldType.getTextSearchInfo().isTokenized()) {
-			return new SpanMinFrequencyFilterQuery(
-					new SpanEmptyPayloadCheckQuery(new SpanMultiTermQueryWrapper<MultiTermQuery>(multiTermQuery)),
+			if (traverserContext.getExactPrefix() != null) {
+				return new MinFrequencyPrefixQuery(traverserContext.exactTerm(multiTermQuery.getPrefix()),
+						multiTermQuery.getMinFrequency(), multiTermQuery.getMaxExpansions());
+			}
+			SpanMultiTermQueryWrapper<MultiTermQuery> spanQuery = new SpanMultiTermQueryWrapper<>(multiTermQuery);
+			spanQuery.setRewriteMethod(
+					new SpanMultiTermQueryWrapper.TopTermsSpanBooleanQueryRewrite(multiTermQuery.getMaxExpansions()));
+			return new SpanMinFrequencyFilterQuery(new SpanEmptyPayloadCheckQuery(spanQuery),
 					multiTermQuery.getMinFrequency());
 		}
 		return multiTermQuery;
 	}
 
 	@Override
-	public boolean acceptQuery(final TraverserContext traverserContext, final SearchExecutionContext context, Query query) {
-		return query != null && query instanceof MinFrequencyPrefixQuery;
+	public boolean acceptQueryClass(final Class<? extends Query> queryClass) {
+		return MinFrequencyPrefixQuery.class.isAssignableFrom(queryClass);
 	}
 
 }
@@ -1,13 +1,11 @@
 package de.pansoft.lucene.search.traversal;
 
 import org.apache.lucene.search.Query;
-import org.apache.lucene.search.spans.SpanTermQuery;
 import org.elasticsearch.index.mapper.MappedFieldType;
 import org.elasticsearch.index.query.SearchExecutionContext;
 
 import de.pansoft.lucene.index.query.frequency.MinFrequencyTermQuery;
-import de.pansoft.lucene.search.spans.SpanEmptyPayloadCheckQuery;
-import de.pansoft.lucene.search.spans.SpanMinFrequencyFilterQuery;
+import de.pansoft.lucene.index.query.term.ExactTermQuery;
 
 public class ExactMinFrequencyTermQuery implements QueryHandler {
 
@@ -17,15 +15,19 @@ public class ExactMinFrequencyTermQuery implements QueryHandler {
 		final MinFrequencyTermQuery minFrequencyTermQuery = (MinFrequencyTermQuery) query;
 		MappedFieldType fieldType = context.getFieldType(minFrequencyTermQuery.getTerm().field());
 		if (fieldType != null && fieldType.getTextSearchInfo().isTokenized()) {
-			return new SpanMinFrequencyFilterQuery(new SpanEmptyPayloadCheckQuery(new SpanTermQuery((minFrequencyTermQuery).getTerm())), minFrequencyTermQuery.getMinFrequency());
+			if (traverserContext.getExactPrefix() != null) {
+				return new MinFrequencyTermQuery(traverserContext.exactTerm(minFrequencyTermQuery.getTerm()),
+						minFrequencyTermQuery.getMinFrequency());
+			}
+			return new ExactTermQuery(minFrequencyTermQuery.getTerm(), minFrequencyTermQuery.getMinFrequency(),
+					traverserContext.getExactTermDocSetCache());
 		}
 		return minFrequencyTermQuery;
 	}
 
 	@Override
-	public boolean acceptQuery(final TraverserContext traverserContext, SearchExecutionContext context,
-							   Query query) {
-		return query != null && query instanceof MinFrequencyTermQuery;
+	public boolean acceptQueryClass(final Class<? extends Query> queryClass) {
+		return MinFrequencyTermQuery.class.isAssignableFrom(queryClass);
 	}
 
 }
@@ -1,12 +1,13 @@
 package de.pansoft.lucene.search.traversal;
 
 import org.apache.lucene.search.MultiTermQuery;
+import org.apache.lucene.search.PrefixQuery;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.search.TermRangeQuery;
-import org.apache.lucene.search.spans.SpanMultiTermQueryWrapper;
 import org.elasticsearch.index.mapper.MappedFieldType;
 import org.elasticsearch.index.query.SearchExecutionContext;
 
+import de.pansoft.lucene.search.spans.SpanBoundedMultiTermQueryWrapper;
 import de.pansoft.lucene.search.spans.SpanEmptyPayloadCheckQuery;
 
 public class ExactMultiTermQueryHandler implements QueryHandler {
@@ -17,14 +18,18 @@ public class ExactMultiTermQueryHandler implements QueryHandler {
 		final MultiTermQuery multiTermQuery = (MultiTermQuery) query;
 		MappedFieldType fieldType = context.getFieldType(multiTermQuery.getField());
 		if (fieldType != null && fieldType.getTextSearchInfo().isTokenized()) {
-			return new SpanEmptyPayloadCheckQuery(new SpanMultiTermQueryWrapper<MultiTermQuery>(multiTermQuery));
+			if (traverserContext.getExactPrefix() != null && multiTermQuery instanceof PrefixQuery) {
+				return new PrefixQuery(traverserContext.exactTerm(((PrefixQuery) multiTermQuery).getPrefix()));
+			}
+			return new SpanEmptyPayloadCheckQuery(new SpanBoundedMultiTermQueryWrapper(multiTermQuery,
+					traverserContext.getMaxExpansions(), traverserContext.isFailOnMaxExpansions()));
 		}
 		return multiTermQuery;
 	}
 
 	@Override
-	public boolean acceptQuery(final TraverserContext traverserContext, final SearchExecutionContext context, Query query) {
-		return query != null && query instanceof MultiTermQuery && !(query instanceof TermRangeQuery);
+	public boolean acceptQueryClass(final Class<? extends Query> queryClass) {
+		return MultiTermQuery.class.isAssignableFrom(queryClass) && !TermRangeQuery.class.isAssignableFrom(queryClass);
 	}
 
 }
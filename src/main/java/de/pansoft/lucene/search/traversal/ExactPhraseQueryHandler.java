@@ -1,13 +1,10 @@
 package de.pansoft.lucene.search.traversal;
 
-import org.apache.lucene.index.Term;
 import org.apache.lucene.search.PhraseQuery;
 import org.apache.lucene.search.Query;
-import org.apache.lucene.search.spans.SpanNearQuery;
-import org.apache.lucene.search.spans.SpanTermQuery;
 import org.elasticsearch.index.query.SearchExecutionContext;
 
-import de.pansoft.lucene.search.spans.SpanEmptyPayloadCheckQuery;
+import de.pansoft.lucene.index.query.term.ExactPayloadPhraseQuery;
 
 public class ExactPhraseQueryHandler implements QueryHandler {
 	
@@ -15,26 +12,19 @@ public class ExactPhraseQueryHandler implements QueryHandler {
 	public Query handleQuery(final TraverserContext traverserContext, final SearchExecutionContext context,
 							 final Query query, QueryTraverser queryTraverser) {
 		final PhraseQuery phraseQuery = (PhraseQuery) query;
-		SpanNearQuery.Builder builder = new SpanNearQuery.Builder(phraseQuery.getTerms()[0].field(), phraseQuery.getSlop() == 0);
-		int i = 0;
-		int position = -1;
-		for(Term term: phraseQuery.getTerms()) {
-			if (i > 0) {
-				int gap = (phraseQuery.getPositions()[i] - position) - 1;
-				if (gap > 0) {
-					builder.addGap(gap);
-				}
+		if (traverserContext.getExactPrefix() != null) {
+			PhraseQuery.Builder builder = new PhraseQuery.Builder();
+			for (int i = 0; i < phraseQuery.getTerms().length; i++) {
+				builder.add(traverserContext.exactTerm(phraseQuery.getTerms()[i]), phraseQuery.getPositions()[i]);
 			}
-			position = phraseQuery.getPositions()[i];
-			builder.addClause(new SpanEmptyPayloadCheckQuery(new SpanTermQuery(term)));
-			i++;
+			return builder.setSlop(phraseQuery.getSlop()).build();
 		}
-		return builder.setSlop(phraseQuery.getSlop()).build();
+		return new ExactPayloadPhraseQuery(phraseQuery, 1, traverserContext.getExactTermDocSetCache());
 	}
 
 	@Override
-	public boolean acceptQuery(final TraverserContext traverserContext, final SearchExecutionContext context, Query query) {
-		return query != null && query instanceof PhraseQuery;
+	public boolean acceptQueryClass(final Class<? extends Query> queryClass) {
+		return PhraseQuery.class.isAssignableFrom(queryClass);
 	}
 
 }
@@ -0,0 +1,31 @@
+package de.pansoft.lucene.search.traversal;
+
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.spans.SpanTermQuery;
+import org.elasticsearch.index.mapper.MappedFieldType;
+import org.elasticsearch.index.query.SearchExecutionContext;
+
+import de.pansoft.lucene.search.spans.SpanEmptyPayloadCheckQuery;
+
+public class ExactSpanTermQueryHandler implements QueryHandler {
+
+	@Override
+	public Query handleQuery(final TraverserContext traverserContext, final SearchExecutionContext context,
+							 final Query query, QueryTraverser queryTraverser) {
+		final SpanTermQuery spanTermQuery = (SpanTermQuery) query;
+		MappedFieldType fieldType = context.getFieldType(spanTermQuery.getTerm().field());
+		if (fieldType != null && fieldType.getTextSearchInfo().isTokenized()) {
+			if (traverserContext.getExactPrefix() != null) {
+				return new SpanTermQuery(traverserContext.exactTerm(spanTermQuery.getTerm()));
+			}
+			return new SpanEmptyPayloadCheckQuery(spanTermQuery);
+		}
+		return spanTermQuery;
+	}
+
+	@Override
+	public boolean acceptQueryClass(final Class<? extends Query> queryClass) {
+		return SpanTermQuery.class.isAssignableFrom(queryClass);
+	}
+
+}
@@ -0,0 +1,50 @@
+package de.pansoft.lucene.search.traversal;
+
+import java.util.List;
+
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.SynonymQuery;
+import org.apache.lucene.search.spans.SpanOrQuery;
+import org.apache.lucene.search.spans.SpanQuery;
+import org.apache.lucene.search.spans.SpanTermQuery;
+import org.elasticsearch.index.mapper.MappedFieldType;
+import org.elasticsearch.index.query.SearchExecutionContext;
+
+import de.pansoft.lucene.search.spans.SpanEmptyPayloadCheckQuery;
+
+public class ExactSynonymQueryHandler implements QueryHandler {
+
+	@Override
+	public Query handleQuery(final TraverserContext traverserContext, final SearchExecutionContext context,
+							 final Query query, QueryTraverser queryTraverser) {
+		final SynonymQuery synonymQuery = (SynonymQuery) query;
+		final List<Term> terms = synonymQuery.getTerms();
+		if (terms.isEmpty()) {
+			return synonymQuery;
+		}
+		MappedFieldType fieldType = context.getFieldType(terms.get(0).field());
+		if (fieldType != null && fieldType.getTextSearchInfo().isTokenized()) {
+			if (traverserContext.getExactPrefix() != null) {
+				SynonymQuery.Builder builder = new SynonymQuery.Builder(terms.get(0).field());
+				for (Term term : terms) {
+					builder.addTerm(traverserContext.exactTerm(term));
+				}
+				return builder.build();
+			}
+			// the synonyms are counted as one term, like the synonym query does
+			SpanQuery[] clauses = new SpanQuery[terms.size()];
+			for (int i = 0; i < clauses.length; i++) {
+				clauses[i] = new SpanTermQuery(terms.get(i));
+			}
+			return new SpanEmptyPayloadCheckQuery(new SpanOrQuery(clauses));
+		}
+		return synonymQuery;
+	}
+
+	@Override
+	public boolean acceptQueryClass(final Class<? extends Query> queryClass) {
+		return SynonymQuery.class.isAssignableFrom(queryClass);
+	}
+
+}
@@ -1,14 +1,13 @@
 package de.pansoft.lucene.search.traversal;
 
+import de.pansoft.lucene.index.query.term.ExactBoostTermQuery;
+import de.pansoft.lucene.index.query.term.ExactTermQuery;
 import de.pansoft.lucene.index.query.term.MarkedTermQuery;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.search.TermQuery;
-import org.apache.lucene.search.spans.SpanTermQuery;
 import org.elasticsearch.index.mapper.MappedFieldType;
 import org.elasticsearch.index.query.SearchExecutionContext;
 
-import de.pansoft.lucene.search.spans.SpanEmptyPayloadCheckQuery;
-
 public class ExactTermQueryHandler implements QueryHandler {
 
 	@Override
@@ -17,13 +16,19 @@ public class ExactTermQueryHandler implements QueryHandler {
 		final TermQuery termQuery = (TermQuery) query;
 		MappedFieldType fieldType = context.getFieldType(termQuery.getTerm().field());
 		if (fieldType != null && fieldType.getTextSearchInfo().isTokenized()) {
+			final Query exactQuery = traverserContext.getExactPrefix() != null
+					? new TermQuery(traverserContext.exactTerm(termQuery.getTerm()))
+					: new ExactTermQuery(termQuery.getTerm(), 1, traverserContext.getExactTermDocSetCache());
 			if ((termQuery instanceof MarkedTermQuery
 						&& ((MarkedTermQuery)termQuery).getContext() == MarkedTermQuery.Context.PHRASE)
 					|| traverserContext.getBoostExactTokens() == null) {
-				return new SpanEmptyPayloadCheckQuery(new SpanTermQuery((termQuery).getTerm()));
-			} else if (traverserContext.getBoostExactTokens() != null) {
+				return exactQuery;
+			} else if (traverserContext.getExactPrefix() == null) {
+				// the term and its exact occurrences are scored on the same postings
+				return new ExactBoostTermQuery(termQuery.getTerm(), traverserContext.getBoostExactTokens());
+			} else {
 				return ExactQueryPartBooster.query(
-						new SpanEmptyPayloadCheckQuery(new SpanTermQuery((termQuery).getTerm())),
+						exactQuery,
 						termQuery,
 						traverserContext.getBoostExactTokens());
 			}
@@ -32,9 +37,8 @@ public class ExactTermQueryHandler implements QueryHandler {
 	}
 
 	@Override
-	public boolean acceptQuery(final TraverserContext traverserContext, final SearchExecutionContext context,
-							   Query query) {
-		return query != null && query instanceof TermQuery;
+	public boolean acceptQueryClass(final Class<? extends Query> queryClass) {
+		return TermQuery.class.isAssignableFrom(queryClass);
 	}
 
 }
@@ -28,16 +28,20 @@ public class LayzTraverserQueryHandler implements QueryHandler {
 	}
 
 	@Override
-	public boolean acceptQuery(final TraverserContext traverserContext, final SearchExecutionContext context,
-							   Query query) {
-		if (traverserContext.getTraversalPhase() == TraversalPhase.BUILD_PHASE) {
-		    for (Class<? extends Query> clazz: this.queryClasses) {
-		    	if (clazz.isAssignableFrom(query.getClass())) {
-		    		return true;
-				}
+	public boolean acceptQueryClass(final Class<? extends Query> queryClass) {
+		for (Class<? extends Query> clazz: this.queryClasses) {
+			if (clazz.isAssignableFrom(queryClass)) {
+				return true;
 			}
 		}
 		return false;
 	}
 
+	@Override
+	public boolean acceptQuery(final TraverserContext traverserContext, final SearchExecutionContext context,
+							   Query query) {
+		return traverserContext.getTraversalPhase() == TraversalPhase.BUILD_PHASE
+				&& QueryHandler.super.acceptQuery(traverserContext, context, query);
+	}
+
 }
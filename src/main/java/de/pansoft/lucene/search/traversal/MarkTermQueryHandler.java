@@ -26,9 +26,8 @@ public class MarkTermQueryHandler implements QueryHandler {
 	}
 
 	@Override
-	public boolean acceptQuery(final TraverserContext traverserContext, final SearchExecutionContext context,
-							   Query query) {
-		return query != null && query instanceof TermQuery;
+	public boolean acceptQueryClass(final Class<? extends Query> queryClass) {
+		return TermQuery.class.isAssignableFrom(queryClass);
 	}
 
 }
@@ -8,6 +8,18 @@ public interface QueryHandler {
     Query handleQuery(final TraverserContext traverserContext, final SearchExecutionContext context,
                       Query query, QueryTraverser queryTraverser);
 
-    boolean acceptQuery(final TraverserContext traverserContext, final SearchExecutionContext context, Query query);
+    /**
+     * Returns whether the handler handles queries of the given class. The {@link QueryTraverser} asks this once per
+     * query class and only offers queries to the handlers that accept their class.
+     */
+    boolean acceptQueryClass(final Class<? extends Query> queryClass);
+
+    /**
+     * Returns whether the handler handles the query in the given context, by default whether it accepts its class.
+     */
+    default boolean acceptQuery(final TraverserContext traverserContext, final SearchExecutionContext context,
+                                Query query) {
+        return query != null && acceptQueryClass(query.getClass());
+    }
 
 }
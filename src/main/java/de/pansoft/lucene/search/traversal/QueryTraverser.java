@@ -1,15 +1,84 @@
 package de.pansoft.lucene.search.traversal;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause;
 import org.apache.lucene.search.Query;
+import org.apache.lucene.search.QueryVisitor;
+import org.apache.lucene.util.automaton.ByteRunAutomaton;
 import org.elasticsearch.index.query.SearchExecutionContext;
 
+/**
+ * Offers each query of a tree to the first handler that accepts it.
+ *
+ * The handlers that accept a query class are looked up once per class, {@link CompositeQueryHandler}s come last.
+ * Before a tree is traversed, a {@link QueryVisitor} checks whether any of its queries is handled by another than
+ * a composite handler, trees without such a query are returned as they are. Within one traversal, equal subtrees
+ * are only handled once, which pays off for the repeated clauses of multi field expansions.
+ */
 public class QueryTraverser {
 
+	/**
+	 * The handlers of {@link #withCompositeQueries(QueryHandler...)}, descending into every composite query that
+	 * can be copied with new children.
+	 */
+	public static final List<CompositeQueryHandler> COMPOSITE_QUERY_HANDLERS = Collections.unmodifiableList(
+			Arrays.asList(
+					new CloneOnChangeBooleanQueryHandler(),
+					new CloneOnChangeBoostQueryHandler(),
+					new CloneOnChangeDisjunctionMaxQueryHandler(),
+					new CloneOnChangeConstantScoreQueryHandler(),
+					new CloneOnChangeFunctionScoreQueryHandler(),
+					new CloneOnChangeNestedQueryHandler(),
+					new CloneOnChangeSpanNearQueryHandler(),
+					new CloneOnChangeSpanOrQueryHandler()
+			));
+
 	private final QueryHandler[] queryHandlers;
+	private final ClassValue<QueryHandler[]> handlersByClass;
 
 	@SafeVarargs
 	public QueryTraverser(final QueryHandler ...queryHandlers) {
 		this.queryHandlers = queryHandlers;
+		this.handlersByClass = new ClassValue<QueryHandler[]>() {
+			@Override
+			protected QueryHandler[] computeValue(Class<?> type) {
+				final Class<? extends Query> queryClass = type.asSubclass(Query.class);
+				final List<QueryHandler> handlers = new ArrayList<>();
+				final List<QueryHandler> compositeHandlers = new ArrayList<>();
+				for (QueryHandler queryHandler : queryHandlers) {
+					if (queryHandler.acceptQueryClass(queryClass)) {
+						(queryHandler instanceof CompositeQueryHandler ? compositeHandlers : handlers).add(queryHandler);
+					}
+				}
+				handlers.addAll(compositeHandlers);
+				return handlers.toArray(new QueryHandler[handlers.size()]);
+			}
+		};
+	}
+
+	private QueryTraverser(final QueryTraverser queryTraverser) {
+		this.queryHandlers = queryTraverser.queryHandlers;
+		this.handlersByClass = queryTraverser.handlersByClass;
+	}
+
+	/**
+	 * Returns a traverser with the given handlers that descends into all {@link #COMPOSITE_QUERY_HANDLERS}.
+	 */
+	public static QueryTraverser withCompositeQueries(final QueryHandler ...queryHandlers) {
+		QueryHandler[] allQueryHandlers = new QueryHandler[queryHandlers.length + COMPOSITE_QUERY_HANDLERS.size()];
+		System.arraycopy(queryHandlers, 0, allQueryHandlers, 0, queryHandlers.length);
+		for (int i = 0; i < COMPOSITE_QUERY_HANDLERS.size(); i++) {
+			allQueryHandlers[queryHandlers.length + i] = COMPOSITE_QUERY_HANDLERS.get(i);
+		}
+		return new QueryTraverser(allQueryHandlers);
 	}
 
 	public QueryTraverser add(final QueryHandler queryHandler) {
@@ -20,11 +89,105 @@ public class QueryTraverser {
 	}
 
 	public Query traverse(final TraverserContext traverserContext, final SearchExecutionContext context, final Query query) {
-		for (QueryHandler queryHandler : queryHandlers) {
+		if (query == null || handlesAny(query) == false) {
+			return query;
+		}
+		return new Traversal(this, traverserContext, context).traverse(traverserContext, context, query);
+	}
+
+	private boolean handlesAny(final Query query) {
+		final HandledQueryVisitor visitor = new HandledQueryVisitor();
+		visitor.check(query);
+		query.visit(visitor);
+		return visitor.handled;
+	}
+
+	private boolean handles(final Class<? extends Query> queryClass) {
+		final QueryHandler[] handlers = handlersByClass.get(queryClass);
+		return handlers.length > 0 && handlers[0] instanceof CompositeQueryHandler == false;
+	}
+
+	final Query handle(final TraverserContext traverserContext, final SearchExecutionContext context,
+					   final Query query, final QueryTraverser queryTraverser) {
+		for (QueryHandler queryHandler : handlersByClass.get(query.getClass())) {
 			if (queryHandler.acceptQuery(traverserContext, context, query)) {
-				return queryHandler.handleQuery(traverserContext, context, query, this);
+				return queryHandler.handleQuery(traverserContext, context, query, queryTraverser);
 			}
 		}
 		return query;
 	}
+
+	/**
+	 * Looks for a query, leaf or parent, that a handler other than a composite handler accepts.
+	 */
+	private final class HandledQueryVisitor extends QueryVisitor {
+
+		private boolean handled;
+
+		void check(final Query query) {
+			handled = handled || handles(query.getClass());
+		}
+
+		@Override
+		public void consumeTerms(final Query query, final Term... terms) {
+			check(query);
+		}
+
+		@Override
+		public void consumeTermsMatching(final Query query, final String field,
+										 final Supplier<ByteRunAutomaton> automaton) {
+			check(query);
+		}
+
+		@Override
+		public void visitLeaf(final Query query) {
+			// a composite query that does not visit its children must be traversed to be sure
+			handled = handled || handlersByClass.get(query.getClass()).length > 0;
+		}
+
+		@Override
+		public QueryVisitor getSubVisitor(final BooleanClause.Occur occur, final Query parent) {
+			check(parent);
+			return this;
+		}
+	}
+
+	/**
+	 * One traversal of a query tree, remembers the results of the subtrees handled in its contexts.
+	 */
+	private static final class Traversal extends QueryTraverser {
+
+		private final QueryTraverser root;
+		private final TraverserContext traverserContext;
+		private final SearchExecutionContext context;
+		private Map<Query, Query> results;
+
+		Traversal(final QueryTraverser root, final TraverserContext traverserContext,
+				  final SearchExecutionContext context) {
+			super(root);
+			this.root = root;
+			this.traverserContext = traverserContext;
+			this.context = context;
+		}
+
+		@Override
+		public Query traverse(final TraverserContext traverserContext, final SearchExecutionContext context,
+							  final Query query) {
+			if (traverserContext != this.traverserContext || context != this.context) {
+				return root.traverse(traverserContext, context, query);
+			}
+			if (query == null) {
+				return null;
+			}
+			if (results == null) {
+				results = new HashMap<>();
+			}
+			Query result = results.get(query);
+			if (result == null) {
+				result = handle(traverserContext, context, query, this);
+				results.put(query, result);
+			}
+			return result;
+		}
+	}
 }
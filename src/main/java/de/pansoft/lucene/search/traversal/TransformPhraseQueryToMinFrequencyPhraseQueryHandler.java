@@ -0,0 +1,28 @@
+package de.pansoft.lucene.search.traversal;
+
+import de.pansoft.lucene.index.query.frequency.MinFrequencyPhraseQuery;
+import de.pansoft.lucene.search.spans.SpanMinFrequencyFilterQuery;
+import org.apache.lucene.search.PhraseQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.spans.SpanQuery;
+import org.elasticsearch.index.query.SearchExecutionContext;
+
+public class TransformPhraseQueryToMinFrequencyPhraseQueryHandler implements QueryHandler {
+
+	@Override
+	public Query handleQuery(final TraverserContext traverserContext, final SearchExecutionContext context,
+							 final Query query, QueryTraverser queryTraverser) {
+		final int minFrequency = traverserContext.getMinFrequency();
+		if (query instanceof SpanQuery) {
+			// phrases with multi term synonyms are built as span queries
+			return new SpanMinFrequencyFilterQuery((SpanQuery) query, minFrequency);
+		}
+		return new MinFrequencyPhraseQuery((PhraseQuery) query, minFrequency);
+	}
+
+	@Override
+	public boolean acceptQueryClass(final Class<? extends Query> queryClass) {
+		return PhraseQuery.class.isAssignableFrom(queryClass) || SpanQuery.class.isAssignableFrom(queryClass);
+	}
+
+}
@@ -9,23 +9,17 @@ import org.elasticsearch.index.query.SearchExecutionContext;
 
 public class TransformPrefixQueryToMinFrequencyPrefixQueryHandler implements QueryHandler {
 
-	private final int minFrequency;
-
-	public TransformPrefixQueryToMinFrequencyPrefixQueryHandler(int minFrequency) {
-		this.minFrequency = minFrequency;
-	}
-
 	@Override
 	public Query handleQuery(final TraverserContext traverserContext, final SearchExecutionContext context,
 							 final Query query, QueryTraverser queryTraverser) {
 		final PrefixQuery prefixQuery = (PrefixQuery) query;
-		return new MinFrequencyPrefixQuery(prefixQuery.getPrefix(), minFrequency);
+		return new MinFrequencyPrefixQuery(prefixQuery.getPrefix(), traverserContext.getMinFrequency(),
+				traverserContext.getMaxExpansions());
 	}
 
 	@Override
-	public boolean acceptQuery(final TraverserContext traverserContext, final SearchExecutionContext context,
-							   Query query) {
-		return query != null && query instanceof PrefixQuery;
+	public boolean acceptQueryClass(final Class<? extends Query> queryClass) {
+		return PrefixQuery.class.isAssignableFrom(queryClass);
 	}
 
 }
@@ -12,15 +12,10 @@ import org.elasticsearch.index.query.SearchExecutionContext;
 
 public class TransformTermQueryToMinFrequencyTermQueryHandler implements QueryHandler {
 
-	private final int minFrequency;
-
-	public TransformTermQueryToMinFrequencyTermQueryHandler(int minFrequency) {
-		this.minFrequency = minFrequency;
-	}
-
 	@Override
 	public Query handleQuery(final TraverserContext traverserContext, final SearchExecutionContext context,
 							 final Query query, QueryTraverser queryTraverser) {
+		final int minFrequency = traverserContext.getMinFrequency();
 		final TermQuery termQuery = (TermQuery) query;
 
 		MappedFieldType fieldType = context.getFieldType(termQuery.getTerm().field());
@@ -31,9 +26,8 @@ public class TransformTermQueryToMinFrequencyTermQueryHandler implements QueryHa
 	}
 
 	@Override
-	public boolean acceptQuery(final TraverserContext traverserContext, final SearchExecutionContext context,
-							   Query query) {
-		return query != null && query instanceof TermQuery;
+	public boolean acceptQueryClass(final Class<? extends Query> queryClass) {
+		return TermQuery.class.isAssignableFrom(queryClass);
 	}
 
 }
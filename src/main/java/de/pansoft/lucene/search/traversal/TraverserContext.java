@@ -1,12 +1,30 @@
 package de.pansoft.lucene.search.traversal;
 
+import org.apache.lucene.index.Term;
+import org.apache.lucene.util.BytesRefBuilder;
+
+import de.pansoft.lucene.index.query.term.ExactTermDocSetCache;
+import de.pansoft.lucene.search.spans.SpanBoundedMultiTermQueryWrapper;
+
 public class TraverserContext {
 
     private final Float boostExactTokens;
+    private final String exactPrefix;
+    private final int maxExpansions;
+    private final boolean failOnMaxExpansions;
+    private final int minFrequency;
+    private final ExactTermDocSetCache exactTermDocSetCache;
     private final TraversalPhase traversalPhase;
 
-    private TraverserContext(final Float boostExactTokens, final TraversalPhase traversalPhase) {
+    private TraverserContext(final Float boostExactTokens, final String exactPrefix, final int maxExpansions,
+                             final boolean failOnMaxExpansions, final int minFrequency,
+                             final ExactTermDocSetCache exactTermDocSetCache, final TraversalPhase traversalPhase) {
         this.boostExactTokens = boostExactTokens;
+        this.exactPrefix = exactPrefix;
+        this.maxExpansions = maxExpansions;
+        this.failOnMaxExpansions = failOnMaxExpansions;
+        this.minFrequency = minFrequency;
+        this.exactTermDocSetCache = exactTermDocSetCache;
         this.traversalPhase = traversalPhase;
     }
 
@@ -14,19 +32,89 @@ public class TraverserContext {
         return boostExactTokens;
     }
 
+    /**
+     * The prefix the decompound filter put in front of the original tokens, or {@code null} if exact tokens are
+     * only marked by their payload.
+     */
+    public String getExactPrefix() {
+        return exactPrefix;
+    }
+
+    /**
+     * Returns the term an original token was indexed under with the exact prefix.
+     */
+    public Term exactTerm(final Term term) {
+        BytesRefBuilder bytes = new BytesRefBuilder();
+        bytes.copyChars(exactPrefix);
+        bytes.append(term.bytes());
+        return new Term(term.field(), bytes.toBytesRef());
+    }
+
+    /**
+     * The maximum number of terms an exact or a min frequency multi term query expands to.
+     */
+    public int getMaxExpansions() {
+        return maxExpansions;
+    }
+
+    /**
+     * Whether an exact multi term query matching more than {@link #getMaxExpansions()} terms fails, instead of
+     * using only the top terms.
+     */
+    public boolean isFailOnMaxExpansions() {
+        return failOnMaxExpansions;
+    }
+
+    /**
+     * The minimum frequency of the {@code #N} queries a traversal builds, 1 outside of such a traversal.
+     */
+    public int getMinFrequency() {
+        return minFrequency;
+    }
+
+    public TraverserContext withMinFrequency(int minFrequency) {
+        return new TraverserContext(this.boostExactTokens, this.exactPrefix, this.maxExpansions,
+                this.failOnMaxExpansions, minFrequency, this.exactTermDocSetCache, this.traversalPhase);
+    }
+
+    /**
+     * The cache the exact term queries a traversal builds take the documents of frequent terms from, or
+     * {@code null} if they read the postings.
+     */
+    public ExactTermDocSetCache getExactTermDocSetCache() {
+        return exactTermDocSetCache;
+    }
+
+    public TraverserContext withExactTermDocSetCache(ExactTermDocSetCache exactTermDocSetCache) {
+        return new TraverserContext(this.boostExactTokens, this.exactPrefix, this.maxExpansions,
+                this.failOnMaxExpansions, this.minFrequency, exactTermDocSetCache, this.traversalPhase);
+    }
+
     public TraversalPhase getTraversalPhase() {
         return traversalPhase;
     }
 
     public TraverserContext inTraversalPhase(TraversalPhase traversalPhase) {
-        return new TraverserContext(this.boostExactTokens, traversalPhase);
+        return new TraverserContext(this.boostExactTokens, this.exactPrefix, this.maxExpansions,
+                this.failOnMaxExpansions, this.minFrequency, this.exactTermDocSetCache, traversalPhase);
+    }
+
+    public static TraverserContext getContext(final Float boostExactTokens, final String exactPrefix,
+                                              final int maxExpansions, final boolean failOnMaxExpansions) {
+        return new TraverserContext(boostExactTokens, exactPrefix, maxExpansions, failOnMaxExpansions, 1, null,
+                TraversalPhase.BUILD_PHASE);
+    }
+
+    public static TraverserContext getContext(final Float boostExactTokens, final String exactPrefix) {
+        return getContext(boostExactTokens, exactPrefix, SpanBoundedMultiTermQueryWrapper.DEFAULT_MAX_EXPANSIONS,
+                false);
     }
 
     public static TraverserContext getContext(final Float boostExactTokens) {
-        return new TraverserContext(boostExactTokens, TraversalPhase.BUILD_PHASE);
+        return getContext(boostExactTokens, null);
     }
 
     public static TraverserContext getContext() {
-        return new TraverserContext(null, TraversalPhase.BUILD_PHASE);
+        return getContext(null, null);
     }
 }
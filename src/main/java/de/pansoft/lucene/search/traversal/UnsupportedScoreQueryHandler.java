@@ -0,0 +1,28 @@
+package de.pansoft.lucene.search.traversal;
+
+import org.apache.lucene.search.Query;
+import org.elasticsearch.common.lucene.search.function.FunctionScoreQuery;
+import org.elasticsearch.common.lucene.search.function.ScriptScoreQuery;
+import org.elasticsearch.index.query.SearchExecutionContext;
+
+/**
+ * Rejects Elasticsearch's function and script score queries, they can't be rebuilt with an exact inner query.
+ * {@code exact_phrase} pushes itself into a {@code function_score} query it directly wraps, all other score queries
+ * need {@code exact_phrase} inside them.
+ */
+public class UnsupportedScoreQueryHandler implements QueryHandler {
+
+	@Override
+	public Query handleQuery(final TraverserContext traverserContext, final SearchExecutionContext context,
+							 final Query query, final QueryTraverser queryTraverser) {
+		final String name = query instanceof ScriptScoreQuery ? "script_score" : "function_score";
+		throw new IllegalArgumentException("exact_phrase can't descend into the [" + name + "] query [" + query
+				+ "], put exact_phrase inside it or directly around a function_score query.");
+	}
+
+	@Override
+	public boolean acceptQueryClass(final Class<? extends Query> queryClass) {
+		return FunctionScoreQuery.class.isAssignableFrom(queryClass)
+				|| ScriptScoreQuery.class.isAssignableFrom(queryClass);
+	}
+}
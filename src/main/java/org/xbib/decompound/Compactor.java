@@ -0,0 +1,325 @@
+package org.xbib.decompound;
+
+import org.xbib.elasticsearch.index.analysis.decompound.CompactPatriciaTrie;
+import org.xbib.elasticsearch.index.analysis.decompound.Decompounder;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Compacts one of the decompound trees by pruning, dropping rare classes and quantizing class counts, and
+ * measures what every variant costs in size, lookup throughput, and precision and recall on a gold split list.
+ */
+public class Compactor {
+
+    /**
+     * The tree to compact.
+     */
+    public enum Target {
+        FORWARD, BACKWARD, REDUCE
+    }
+
+    private final CompactPatriciaTrie forward;
+
+    private final CompactPatriciaTrie backward;
+
+    private final CompactPatriciaTrie reduce;
+
+    private final Target target;
+
+    private final double threshold;
+
+    private final List<String[]> gold;
+
+    private int rounds = 3;
+
+    public static void main(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 0; i < args.length; i += 2) {
+            if (!args[i].startsWith("--") || i + 1 == args.length) {
+                usage();
+                return;
+            }
+            options.put(args[i].substring(2), args[i + 1]);
+        }
+        if (!options.containsKey("forward") || !options.containsKey("backward") || !options.containsKey("reduce")
+                || !options.containsKey("gold") || !options.containsKey("target")) {
+            usage();
+            return;
+        }
+        try {
+            double threshold = Double.parseDouble(options.getOrDefault("threshold", "0.51"));
+            List<String[]> gold;
+            try (Reader reader = Files.newBufferedReader(Paths.get(options.get("gold")), StandardCharsets.UTF_8)) {
+                gold = readGold(reader);
+            }
+            Compactor compactor = new Compactor(load(options.get("forward")), load(options.get("backward")),
+                    load(options.get("reduce")), Target.valueOf(options.get("target").toUpperCase(Locale.ROOT)),
+                    threshold, gold);
+            if (options.containsKey("rounds")) {
+                compactor.setRounds(Integer.parseInt(options.get("rounds")));
+            }
+            int[] minCounts = ints(options.getOrDefault("min-counts", "1,2,5"));
+            int[] maxCounts = ints(options.getOrDefault("max-counts", "0,255,15"));
+            double maxLoss = Double.parseDouble(options.getOrDefault("max-loss", "0.0"));
+            Result original = compactor.evaluate("original", compactor.original());
+            System.out.println(Result.HEADER);
+            System.out.println(original);
+            Result best = original;
+            CompactPatriciaTrie bestTrie = null;
+            for (boolean prune : new boolean[] { false, true }) {
+                for (int minCount : minCounts) {
+                    for (int maxCount : maxCounts) {
+                        if (!prune && minCount <= 1 && maxCount <= 0) {
+                            continue;
+                        }
+                        CompactPatriciaTrie trie = compactor.compact(prune, minCount, maxCount);
+                        Result result = compactor.evaluate("prune=" + prune + ",min-count=" + minCount
+                                + ",max-count=" + maxCount, trie);
+                        System.out.println(result);
+                        if (result.getF1() >= original.getF1() - maxLoss
+                                && result.getSerializedBytes() < best.getSerializedBytes()) {
+                            best = result;
+                            bestTrie = trie;
+                        }
+                    }
+                }
+            }
+            System.out.println("smallest within loss " + maxLoss + ": " + best.getName());
+            if (options.containsKey("output") && bestTrie != null) {
+                try (OutputStream out = Files.newOutputStream(Paths.get(options.get("output")))) {
+                    bestTrie.save(out);
+                }
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+            System.exit(1);
+        }
+    }
+
+    private static void usage() {
+        System.err.println("Compactor");
+        System.err.println("--forward <file>       forward tree");
+        System.err.println("--backward <file>      backward tree");
+        System.err.println("--reduce <file>        base form reduction tree");
+        System.err.println("--target <tree>        tree to compact: forward, backward or reduce");
+        System.err.println("--gold <file>          gold splits, one per line: <compound> <part> + <part> ...");
+        System.err.println("--threshold <value>    classification threshold, default 0.51");
+        System.err.println("--min-counts <n,...>   minimum class counts to try, default 1,2,5");
+        System.err.println("--max-counts <n,...>   maximum counts to quantize to, 0 for none, default 0,255,15");
+        System.err.println("--max-loss <value>     allowed loss of F1 for the chosen variant, default 0.0");
+        System.err.println("--rounds <n>           lookup rounds for the throughput, default 3");
+        System.err.println("--output <file>        where to write the chosen variant");
+        System.exit(1);
+    }
+
+    public Compactor(CompactPatriciaTrie forward, CompactPatriciaTrie backward, CompactPatriciaTrie reduce,
+                     Target target, double threshold, List<String[]> gold) {
+        this.forward = forward;
+        this.backward = backward;
+        this.reduce = reduce;
+        this.target = target;
+        this.threshold = threshold;
+        this.gold = gold;
+    }
+
+    public void setRounds(int rounds) {
+        this.rounds = rounds;
+    }
+
+    public CompactPatriciaTrie original() {
+        switch (target) {
+            case FORWARD:
+                return forward;
+            case BACKWARD:
+                return backward;
+            default:
+                return reduce;
+        }
+    }
+
+    /**
+     * Returns a compacted copy of the target tree.
+     *
+     * @param prune whether to prune subtrees that vote like their parent
+     * @param minCount the minimum class count to keep
+     * @param maxCount the largest class count after quantization, or 0 to keep the counts
+     * @return the compacted tree
+     */
+    public CompactPatriciaTrie compact(boolean prune, int minCount, int maxCount) {
+        CompactPatriciaTrie trie = original().copy();
+        trie.setThreshold(threshold);
+        if (minCount > 1) {
+            trie.dropClasses(minCount);
+        }
+        if (maxCount > 0) {
+            trie.quantize(maxCount);
+        }
+        if (prune) {
+            trie.prune();
+        }
+        return trie;
+    }
+
+    /**
+     * Evaluates a variant of the target tree against the gold splits.
+     *
+     * @param name the name of the variant
+     * @param trie the variant
+     * @return the result
+     * @throws IOException if the tree can not be serialized
+     */
+    public Result evaluate(String name, CompactPatriciaTrie trie) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        trie.save(out);
+        Decompounder decompounder = new Decompounder(
+                (target == Target.FORWARD ? trie : forward).snapshot().withThreshold(threshold),
+                (target == Target.BACKWARD ? trie : backward).snapshot().withThreshold(threshold),
+                (target == Target.REDUCE ? trie : reduce).snapshot().withThreshold(threshold));
+        long tp = 0;
+        long predicted = 0;
+        long expected = 0;
+        for (String[] entry : gold) {
+            List<String> parts = new ArrayList<>();
+            for (String part : decompounder.decompound(entry[0])) {
+                parts.add(part.toLowerCase(Locale.ROOT));
+            }
+            predicted += parts.size();
+            for (int i = 1; i < entry.length; i++) {
+                expected++;
+                if (parts.remove(entry[i].toLowerCase(Locale.ROOT))) {
+                    tp++;
+                }
+            }
+        }
+        long lookups = 0;
+        long start = System.nanoTime();
+        for (int r = 0; r < rounds; r++) {
+            for (String[] entry : gold) {
+                decompounder.decompound(entry[0]);
+                lookups++;
+            }
+        }
+        long nanos = Math.max(1L, System.nanoTime() - start);
+        return new Result(name, out.size(), trie.snapshot().size(), lookups * 1e9 / nanos,
+                predicted > 0 ? (double) tp / predicted : 0.0, expected > 0 ? (double) tp / expected : 0.0);
+    }
+
+    public static List<String[]> readGold(Reader reader) throws IOException {
+        List<String[]> gold = new ArrayList<>();
+        BufferedReader br = new BufferedReader(reader);
+        String line;
+        while ((line = br.readLine()) != null) {
+            if (line.startsWith("#")) {
+                continue;
+            }
+            int pos = line.indexOf(" ");
+            if (pos < 0) {
+                continue;
+            }
+            String[] parts = line.substring(pos + 1).trim().split(" \\+ ");
+            String[] entry = new String[parts.length + 1];
+            entry[0] = line.substring(0, pos);
+            for (int i = 0; i < parts.length; i++) {
+                entry[i + 1] = parts[i].trim();
+            }
+            gold.add(entry);
+        }
+        return gold;
+    }
+
+    private static CompactPatriciaTrie load(String path) throws IOException {
+        CompactPatriciaTrie trie = new CompactPatriciaTrie();
+        try (InputStream in = Files.newInputStream(Paths.get(path))) {
+            trie.load(in);
+        }
+        trie.setIgnoreCase(true);
+        return trie;
+    }
+
+    private static int[] ints(String s) {
+        String[] values = s.split(",");
+        int[] ints = new int[values.length];
+        for (int i = 0; i < values.length; i++) {
+            ints[i] = Integer.parseInt(values[i].trim());
+        }
+        return ints;
+    }
+
+    /**
+     * Size, throughput and accuracy of a tree variant.
+     */
+    public static class Result {
+
+        static final String HEADER = String.format(Locale.ROOT, "%-40s %12s %12s %12s %9s %9s %9s",
+                "variant", "file bytes", "heap bytes", "words/s", "precision", "recall", "f1");
+
+        private final String name;
+
+        private final long serializedBytes;
+
+        private final long heapBytes;
+
+        private final double wordsPerSecond;
+
+        private final double precision;
+
+        private final double recall;
+
+        Result(String name, long serializedBytes, long heapBytes, double wordsPerSecond,
+               double precision, double recall) {
+            this.name = name;
+            this.serializedBytes = serializedBytes;
+            this.heapBytes = heapBytes;
+            this.wordsPerSecond = wordsPerSecond;
+            this.precision = precision;
+            this.recall = recall;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getSerializedBytes() {
+            return serializedBytes;
+        }
+
+        public long getHeapBytes() {
+            return heapBytes;
+        }
+
+        public double getWordsPerSecond() {
+            return wordsPerSecond;
+        }
+
+        public double getPrecision() {
+            return precision;
+        }
+
+        public double getRecall() {
+            return recall;
+        }
+
+        public double getF1() {
+            return precision + recall > 0 ? 2 * precision * recall / (precision + recall) : 0.0;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "%-40s %12d %12d %12.0f %9.4f %9.4f %9.4f",
+                    name, serializedBytes, heapBytes, wordsPerSecond, precision, recall, getF1());
+        }
+    }
+}
@@ -0,0 +1,441 @@
+package org.xbib.decompound;
+
+import org.xbib.elasticsearch.index.analysis.decompound.CompactPatriciaTrie;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+
+/**
+ * Trains the base form reduction tree and the forward and backward compound trees.
+ *
+ * The corpus is split into shards that are trained into partial tries on a fork-join pool. Partial tries are
+ * merged by adding the class counts of shared nodes, so training scales with the number of cores.
+ */
+public class Trainer {
+
+    private static final int DEFAULT_SHARD_SIZE = 10000;
+
+    private final ForkJoinPool pool;
+
+    private int shardSize = DEFAULT_SHARD_SIZE;
+
+    private CompactPatriciaTrie reduce;
+
+    private CompactPatriciaTrie forward;
+
+    private CompactPatriciaTrie backward;
+
+    public static void main(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 0; i < args.length; i += 2) {
+            if (!args[i].startsWith("--") || i + 1 == args.length) {
+                usage();
+                return;
+            }
+            options.put(args[i].substring(2), args[i + 1]);
+        }
+        if (!options.containsKey("compounds") || !options.containsKey("forward") || !options.containsKey("backward")
+                || !options.containsKey("reduce")) {
+            usage();
+            return;
+        }
+        double threshold = Double.parseDouble(options.getOrDefault("threshold", "0.51"));
+        int threads = Integer.parseInt(options.getOrDefault("threads",
+                Integer.toString(Runtime.getRuntime().availableProcessors())));
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            Trainer trainer = new Trainer(pool);
+            if (options.containsKey("shard-size")) {
+                trainer.setShardSize(Integer.parseInt(options.get("shard-size")));
+            }
+            String baseforms = options.get("baseforms");
+            if (baseforms != null) {
+                try (Reader reader = Files.newBufferedReader(Paths.get(baseforms), StandardCharsets.UTF_8)) {
+                    trainer.trainReduce(reader, threshold);
+                }
+            } else {
+                try (InputStream in = Files.newInputStream(Paths.get(options.get("reduce")))) {
+                    trainer.loadReduce(in, threshold);
+                }
+            }
+            try (Reader reader = Files.newBufferedReader(Paths.get(options.get("compounds")), StandardCharsets.UTF_8)) {
+                trainer.trainCompounds(reader,
+                        Files.newOutputStream(Paths.get(options.get("forward"))),
+                        Files.newOutputStream(Paths.get(options.get("backward"))),
+                        threshold);
+            }
+            if (baseforms != null) {
+                try (OutputStream out = Files.newOutputStream(Paths.get(options.get("reduce")))) {
+                    trainer.getReduce().save(out);
+                }
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+            System.exit(1);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static void usage() {
+        System.err.println("Trainer");
+        System.err.println("--compounds <file>   compounds, one per line: <compound> <part> + <part> ...");
+        System.err.println("--forward <file>     forward tree to write");
+        System.err.println("--backward <file>    backward tree to write");
+        System.err.println("--reduce <file>      base form reduction tree, written if --baseforms is given, else read");
+        System.err.println("--baseforms <file>   base forms, one per line: <fullform> <baseform>");
+        System.err.println("--threshold <value>  classification threshold, default 0.51");
+        System.err.println("--threads <n>        training threads, default number of cores");
+        System.err.println("--shard-size <n>     lines per shard, default " + DEFAULT_SHARD_SIZE);
+        System.exit(1);
+    }
+
+    public Trainer() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    public Trainer(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    public void setShardSize(int shardSize) {
+        if (shardSize < 1) {
+            throw new IllegalArgumentException("shard size must be positive");
+        }
+        this.shardSize = shardSize;
+    }
+
+    public Trainer loadReduce(InputStream in, double threshold) throws IOException {
+        reduce = new CompactPatriciaTrie();
+        reduce.setIgnoreCase(true);
+        reduce.setReverse(true);
+        reduce.setThreshold(threshold);
+        reduce.load(in);
+        return this;
+    }
+
+    public CompactPatriciaTrie getForward() {
+        return forward;
+    }
+
+    public CompactPatriciaTrie getBackward() {
+        return backward;
+    }
+
+    public CompactPatriciaTrie getReduce() {
+        return reduce;
+    }
+
+    public void trainReduce(Reader reader, double threshold) throws IOException {
+        List<String> lines = readLines(reader);
+        Tries tries = pool.invoke(new TrainTask(lines, 0, lines.size(), () -> {
+            Tries t = new Tries();
+            t.reduce = newTrie(false);
+            return t;
+        }, (line, t) -> {
+            String[] forms = line.split(" ");
+            if (forms.length == 2) {
+                // <fullform> <baseform>
+                String wclass = createRule(forms[0], forms[1]);
+                t.reduce.train(forms[0], wclass);
+            }
+        }));
+        reduce = tries.reduce;
+        reduce.setThreshold(threshold);
+    }
+
+    /**
+     * Train compound words.
+     *
+     * Format per line:
+     *
+     * # <comp> " " <decomp1> " + " <decomp2> ...
+     *
+     * Every shard classifies the parts with its own copy of the reduction tree, which learns from the shard's
+     * words as it goes. The reduction training of all shards is merged into the reduction tree at the end.
+     *
+     * @param reader
+     * @throws IOException
+     */
+    public void trainCompounds(Reader reader, OutputStream forw, OutputStream backw, double threshold) throws IOException {
+        List<String> lines = readLines(reader);
+        boolean reduceReverse = reduce.getReverse();
+        boolean reduceIgnoreCase = reduce.getIgnoreCase();
+        Tries tries = pool.invoke(new TrainTask(lines, 0, lines.size(), () -> {
+            Tries t = new Tries();
+            t.forward = newTrie(false);
+            t.backward = newTrie(false);
+            t.reduce = new CompactPatriciaTrie();
+            t.reduce.setIgnoreCase(reduceIgnoreCase);
+            t.reduce.setReverse(reduceReverse);
+            t.classifier = reduce.copy();
+            return t;
+        }, (line, t) -> {
+            String comp = line;
+            String parts = line;
+            int pos = line.indexOf(" ");
+            if (pos >= 0) {
+                comp = line.substring(0, pos);
+                parts = line.substring(pos + 1);
+            }
+            String[] decompArr = parts.split(" \\+ ");
+            trainTrees(decompArr, comp, t);
+        }));
+        forward = tries.forward;
+        forward.setThreshold(threshold);
+        backward = tries.backward;
+        backward.setThreshold(threshold);
+        reduce.merge(tries.reduce);
+        if (forw != null) {
+            forward.save(forw);
+            forw.close();
+        }
+        if (backw != null) {
+            backward.save(backw);
+            backw.close();
+        }
+    }
+
+    private static CompactPatriciaTrie newTrie(boolean reverse) {
+        CompactPatriciaTrie trie = new CompactPatriciaTrie();
+        trie.setIgnoreCase(true);
+        trie.setReverse(reverse);
+        return trie;
+    }
+
+    private static List<String> readLines(Reader reader) throws IOException {
+        List<String> lines = new ArrayList<>();
+        BufferedReader br = new BufferedReader(reader);
+        String line;
+        while ((line = br.readLine()) != null) {
+            if (!line.startsWith("#")) {
+                lines.add(line);
+            }
+        }
+        br.close();
+        return lines;
+    }
+
+    private void trainTrees(String[] decomp, String compound, Tries tries) {
+        if (compound == null) {
+            return;
+        }
+        for (int i = 0; i < decomp.length; i++) {
+            String s = decomp[i];
+            String cl = tries.classifier.classify(s);
+            tries.classifier.train(s, cl);
+            tries.reduce.train(s, cl);
+            String baseform = applyRule(s, cl);
+            decomp[i] = baseform;
+        }
+        if (decomp.length > 1) {
+            String compoundpart = compound;
+            String currentcompound;
+            for (int i = 0; i < decomp.length - 1; i++) {
+                if (i > 0) {
+                    compoundpart = compoundpart.substring(decomp[i - 1].length());
+                }
+                StringBuilder decomppart = new StringBuilder(decomp[i]);
+                for (int j = i + 1; j < decomp.length; j++) {
+                    decomppart.append(" ").append(decomp[j]);
+                    currentcompound = compound.substring(compound.indexOf(decomp[i]), compound.indexOf(decomp[j]) + decomp[j].length());
+                    String forwardRule = createForwardRule(decomppart.toString(), compoundpart);
+                    String backwardRule = createBackwardRule(decomppart.toString());
+                    tries.forward.train(currentcompound, forwardRule);
+                    tries.backward.train(currentcompound, backwardRule);
+                }
+            }
+        }
+    }
+
+    private String createForwardRule(String decomp, String compound) {
+        String[] s = decomp.split("[ \\-/,;]");
+        if (s.length < 2) {
+            return "";
+        }
+        int occur1 = compound.indexOf(s[0]);
+        int occur2 = compound.indexOf(s[1]);
+        if (occur1 + s[0].length() == occur2) {
+            return Integer.toString(s[0].length());
+        } else {
+            try {
+                return Integer.toString(s[0].length()) + compound.substring(occur1 + s[0].length(), occur2);
+            } catch (StringIndexOutOfBoundsException e) {
+                return "";
+            }
+        }
+    }
+
+    private String createBackwardRule(String decomp) {
+        String[] s = decomp.split("[ \\-/]");
+        return Integer.toString(s[s.length - 1].length());
+    }
+
+    public String createRule(String fullform, String baseform) {
+        String rule = "";
+        String part;
+        int bestlength = -1;
+        int start;
+        int end;
+        int occur1;
+        int occur2;
+        int length = fullform.length();
+        for (int i = 0; i < length; i++) {
+            for (int j = length; j > i; j--) {
+                part = fullform.substring(i, j);
+                occur1 = baseform.indexOf(part);
+                occur2 = fullform.indexOf(part);
+                if ((part.length() > bestlength) && occur1 == 0) {
+                    bestlength = part.length();
+                    start = i;
+                    end = j;
+                    rule = "";
+                    if (occur2 != 0) {
+                        rule = fullform.substring(0, start) + "#";
+                    }
+                    rule = rule + (fullform.length() - end) + baseform.substring(part.length(), baseform.length());
+                }
+            }
+        }
+        if (rule.equals("")) {
+            rule = fullform.length() + baseform;
+        }
+        return rule;
+    }
+
+    public String applyRule(String fullform, String wordClass) {
+        String baseform = "fehlende Behandlung in applyRule";
+        String pattern1 = "[0-9][0-9].*";
+        String pattern2 = "[0-9].*";
+        int temp;
+        if ("undecided".equals(wordClass)) {
+            baseform = "undecided";
+        } else if (wordClass.substring(0, 1).equals("‰")) {
+            temp = Integer.parseInt(wordClass.substring(1, 2));
+            baseform = fullform.substring(0, fullform.length() - temp);
+            baseform = substitute(baseform);
+        } else {
+            int i = wordClass.indexOf("#");
+            if (i != -1) {
+                baseform = fullform.substring(i);
+                if (wordClass.substring(i + 1).matches(pattern1)) {
+                    temp = Integer.parseInt(wordClass.substring(i + 1, i + 3));
+                    baseform = baseform.substring(0, baseform.length() - temp) + wordClass.substring(i + 3);
+                } else if (wordClass.substring(i + 1).matches(pattern2)) {
+                    temp = Integer.parseInt(wordClass.substring(i + 1, i + 2));
+                    baseform = baseform.substring(0, baseform.length() - temp) + wordClass.substring(i + 2);
+                }
+            } else {
+                if (wordClass.matches(pattern1)) {
+                    temp = Integer.parseInt(wordClass.substring(0, 2));
+                    baseform = fullform.substring(0, fullform.length() - temp) + wordClass.substring(2);
+                } else if (wordClass.substring(i + 1).matches(pattern2)) {
+                    temp = Integer.parseInt(wordClass.substring(0, 1));
+                    if (temp == 0) {
+                        baseform = fullform;
+                    } else {
+                        temp = Integer.parseInt(wordClass.substring(0, 1));
+                        baseform = fullform.length() > temp
+                                ? fullform.substring(0, fullform.length() - temp) + wordClass.substring(1)
+                                : fullform;
+                    }
+                }
+            }
+        }
+        return baseform;
+    }
+
+    private String substitute(String word) {
+        return word.replace('‰', 'a')
+                .replace('ƒ', 'A')
+                .replace('¸', 'u')
+                .replace('‹', 'U')
+                .replace('ˆ', 'o')
+                .replace('÷', 'O');
+    }
+
+    /**
+     * The partial tries of a shard.
+     */
+    private static class Tries {
+
+        private CompactPatriciaTrie reduce;
+
+        private CompactPatriciaTrie forward;
+
+        private CompactPatriciaTrie backward;
+
+        private CompactPatriciaTrie classifier;
+
+        private Tries merge(Tries other) {
+            if (reduce != null) {
+                reduce.merge(other.reduce);
+            }
+            if (forward != null) {
+                forward.merge(other.forward);
+            }
+            if (backward != null) {
+                backward.merge(other.backward);
+            }
+            return this;
+        }
+    }
+
+    /**
+     * Trains a range of lines, splitting it in halves down to the shard size. Results are merged left to right,
+     * so the outcome does not depend on the number of threads.
+     */
+    private class TrainTask extends RecursiveTask<Tries> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final List<String> lines;
+
+        private final int from;
+
+        private final int to;
+
+        private final Supplier<Tries> factory;
+
+        private final BiConsumer<String, Tries> consumer;
+
+        TrainTask(List<String> lines, int from, int to, Supplier<Tries> factory, BiConsumer<String, Tries> consumer) {
+            this.lines = lines;
+            this.from = from;
+            this.to = to;
+            this.factory = factory;
+            this.consumer = consumer;
+        }
+
+        @Override
+        protected Tries compute() {
+            if (to - from <= shardSize) {
+                Tries tries = factory.get();
+                for (int i = from; i < to; i++) {
+                    consumer.accept(lines.get(i), tries);
+                }
+                return tries;
+            }
+            int mid = (from + to) >>> 1;
+            TrainTask left = new TrainTask(lines, from, mid, factory, consumer);
+            TrainTask right = new TrainTask(lines, mid, to, factory, consumer);
+            left.fork();
+            Tries rightTries = right.compute();
+            return left.join().merge(rightTries);
+        }
+    }
+}
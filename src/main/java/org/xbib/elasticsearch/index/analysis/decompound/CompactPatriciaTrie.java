@@ -1,25 +1,31 @@
 package org.xbib.elasticsearch.index.analysis.decompound;
 
+import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.io.ObjectStreamConstants;
 import java.io.OutputStream;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
 import java.util.StringTokenizer;
+import java.util.TreeMap;
 
 /**
+ * A compact patricia trie for training, loading and saving classification trees.
  *
+ * This class is mutable and not thread safe. Concurrent readers should use a {@link CompactPatriciaTrieSnapshot}
+ * obtained by {@link #snapshot()}.
  */
 public class CompactPatriciaTrie {
 
-    private static final int EXACT = 0;
-
-    private static final int LOWER = 2;
+    private static final char MAX_SYMBOL = 0xFF;
 
     private static final String TAB = "\t";
 
@@ -33,7 +39,11 @@ public class CompactPatriciaTrie {
 
     private Node root;
 
-    private char[] stringtree;
+    /**
+     * The compact tree. All symbols of the compact format fit into ISO-8859-1, so the tree is held
+     * one byte per symbol instead of as a UTF-16 {@code char[]}.
+     */
+    private byte[] stringtree;
 
     private int offset;
 
@@ -66,6 +76,11 @@ public class CompactPatriciaTrie {
 
     public CompactPatriciaTrie(int sc, int ec, int az, int ak, int eow, boolean rv,
                                boolean ic, char[] stringtree) {
+        this(sc, ec, az, ak, eow, rv, ic, pack(stringtree));
+    }
+
+    CompactPatriciaTrie(int sc, int ec, int az, int ak, int eow, boolean rv,
+                        boolean ic, byte[] stringtree) {
         this.root = null;
         this.stringtree = stringtree;
         this.startchar = sc;
@@ -84,15 +99,26 @@ public class CompactPatriciaTrie {
         train(word, classify, 1);
     }
 
+    /**
+     * Train a word with a class. The compact tree holds one byte per symbol, so words and classes
+     * must consist of ISO-8859-1 characters only.
+     *
+     * @param trainWord the word
+     * @param classify the class
+     * @param nr the count
+     * @throws IllegalArgumentException if the word or the class has a character outside of ISO-8859-1
+     */
     public void train(String trainWord, String classify, int nr) {
         String word = trainWord;
+        if (ignorecase) {
+            word = word.toLowerCase();
+        }
+        checkSymbols(word);
+        checkSymbols(classify);
         if (root == null) {
             root = getObjectTree(stringtree);
         }
         stringtree = null;
-        if (ignorecase) {
-            word = word.toLowerCase();
-        }
         if (reverse) {
             word = reverse(word);
         }
@@ -103,10 +129,63 @@ public class CompactPatriciaTrie {
     }
 
     public String classify(String word) {
+        return classify(word, false, "");
+    }
+
+    /**
+     * Classify a word as if it was given reversed, i.e. as {@code classify(reverse(word))}.
+     * The word is read from right to left while walking the tree, no reversed copy is built.
+     *
+     * @param word the word
+     * @return the voted class
+     */
+    public String classifyBackward(String word) {
+        return classify(word, true, "");
+    }
+
+    /**
+     * Classify a word as if it was given reversed and followed by a suffix,
+     * i.e. as {@code classify(reverse(word) + suffix)}.
+     *
+     * @param word the word, read from right to left
+     * @param suffix the suffix appended after the reversed word
+     * @return the voted class
+     */
+    public String classifyBackward(String word, String suffix) {
+        return classify(word, true, suffix);
+    }
+
+    private String classify(String s, boolean backward, String suffix) {
         if (root == null) {
-            return classifyString(word);
+            CompactPatriciaTrieSnapshot snapshot = snapshot();
+            return backward ? snapshot.classifyBackward(s, suffix) : snapshot.classify(s);
+        }
+        String word = s;
+        if (ignorecase) {
+            word = word.toLowerCase();
+        }
+        if (backward) {
+            word = reverse(word) + suffix;
         }
-        return classifyObject(word);
+        if (reverse) {
+            word = reverse(word);
+        }
+        Node k = find(word + endOfWordChar);
+        return voted(k.classes());
+    }
+
+    /**
+     * Create a read-only snapshot of the current state of this trie. The snapshot shares the compact tree
+     * with this trie, later training or setter calls on this trie do not affect it.
+     *
+     * @return the snapshot
+     */
+    public CompactPatriciaTrieSnapshot snapshot() {
+        if (stringtree == null) {
+            stringtree = packTree(root);
+        }
+        return new CompactPatriciaTrieSnapshot(stringtree, startchar, endchar, attentionNumber, attentionNode,
+                endOfWordChar, reverse, ignorecase, thresh);
     }
 
     public void setStartChar(int c) {
@@ -128,6 +207,8 @@ public class CompactPatriciaTrie {
         if (c < 0) {
             throw new IllegalArgumentException(
                     "Character number must be greater than 0");
+        } else if (c > MAX_SYMBOL) {
+            throw new IllegalArgumentException("Character number must not be greater than " + (int) MAX_SYMBOL);
         } else {
             if (this.root == null) {
                 this.root = getObjectTree(this.stringtree);
@@ -144,6 +225,8 @@ public class CompactPatriciaTrie {
     public void setAttentionNumber(int c) {
         if (c < 0) {
             throw new IllegalArgumentException("Character number must be greater than 0");
+        } else if (c > MAX_SYMBOL) {
+            throw new IllegalArgumentException("Character number must not be greater than " + (int) MAX_SYMBOL);
         } else {
             if (this.root == null) {
                 this.root = getObjectTree(this.stringtree);
@@ -156,6 +239,8 @@ public class CompactPatriciaTrie {
     public void setAttentionNode(int c) {
         if (c < 0) {
             throw new IllegalArgumentException("Character number must be greater than 0");
+        } else if (c > MAX_SYMBOL) {
+            throw new IllegalArgumentException("Character number must not be greater than " + (int) MAX_SYMBOL);
         } else {
             if (this.root == null) {
                 this.root = getObjectTree(this.stringtree);
@@ -170,6 +255,8 @@ public class CompactPatriciaTrie {
         if (c < 0) {
             throw new IllegalArgumentException(
                     "Character number must be greater than 0");
+        } else if (c > MAX_SYMBOL) {
+            throw new IllegalArgumentException("Character number must not be greater than " + (int) MAX_SYMBOL);
         } else {
             this.endOfWordChar = (char) c;
         }
@@ -248,41 +335,16 @@ public class CompactPatriciaTrie {
     }
 
     private String voted(List<String> classes) {
-        if (classes == null) {
-            return null;
-        }
-        int sum = 0;
-        int maxval = 0;
-        int actval;
-        String maxclass = "undecided";
-        String actclass;
-        for (String cl : classes) {
-            StringTokenizer st = new StringTokenizer(cl, "=");
-            actclass = st.nextToken();
-            if (st.hasMoreTokens()) {
-                actval = new Integer(st.nextToken());
-            } else {
-                actval = 0;
-            }
-            sum += actval;
-            if (actval > maxval) {
-                maxval = actval;
-                maxclass = actclass;
-            }
-            if ((actval == maxval) && !actclass.equals(maxclass) && !actclass.isEmpty()) {
-                maxclass = new StringBuilder().append(maxclass).append(";").append(actclass).toString();
-            }
-        }
-        if (((double) maxval / (double) sum) >= this.thresh) {
-            return maxclass;
-        } else {
-            return "undecided";
-        }
+        return CompactPatriciaTrieSnapshot.voted(classes, this.thresh);
     }
 
+    /**
+     * Adds the class counts of two nodes. The result is ordered by class name, so the class order of a trained
+     * node, and the order of tied classes in a vote, does not depend on the training order.
+     */
     private List<String> add(List<String> one, List<String> two) {
         List<String> list = new ArrayList<>();
-        Map<String, Object> hash = new HashMap<>();
+        Map<String, Object> hash = new TreeMap<>();
         String clas;
         String snr;
         int nr;
@@ -291,7 +353,7 @@ public class CompactPatriciaTrie {
         for (String s : one) {
             StringTokenizer st = new StringTokenizer(s, "=");
             clas = st.nextToken();
-            snr = st.nextToken();
+            snr = st.hasMoreTokens() ? st.nextToken() : "0";
             hash.put(clas, snr);
         }
         for (String s : two) {
@@ -411,6 +473,98 @@ public class CompactPatriciaTrie {
         return k;
     }
 
+    /**
+     * Returns an independent copy of this trie with the same settings.
+     *
+     * @return the copy
+     */
+    public CompactPatriciaTrie copy() {
+        CompactPatriciaTrie trie = new CompactPatriciaTrie(startchar, endchar, attentionNumber, attentionNode,
+                endOfWordChar, reverse, ignorecase, stringtree);
+        trie.thresh = thresh;
+        if (root != null) {
+            trie.root = copy(root);
+        }
+        return trie;
+    }
+
+    private Node copy(Node node) {
+        Node n = new Node(node.getContent());
+        n.classes(new ArrayList<>(node.classes()));
+        for (Node child : node.children()) {
+            n.children().add(copy(child));
+        }
+        return n;
+    }
+
+    /**
+     * Merges another trie into this one by adding the class counts of shared nodes, as if all words trained into
+     * the other trie had been trained into this trie. Both tries must use the same symbol settings, and the nodes of
+     * the other trie are taken over, so it must not be used afterwards.
+     *
+     * @param other the trie to merge
+     */
+    public void merge(CompactPatriciaTrie other) {
+        if (other.endOfWordChar != this.endOfWordChar || other.reverse != this.reverse
+                || other.ignorecase != this.ignorecase) {
+            throw new IllegalArgumentException("tries with different settings can not be merged");
+        }
+        if (root == null) {
+            root = getObjectTree(stringtree);
+        }
+        stringtree = null;
+        Node otherRoot = other.root != null ? other.root : other.getObjectTree(other.stringtree);
+        root.classes(add(root.classes(), otherRoot.classes()));
+        for (Node child : otherRoot.children()) {
+            mergeChild(root, child);
+        }
+    }
+
+    private void mergeChild(Node parent, Node k) {
+        Node gpos = getChild(parent, k.getContent());
+        if (gpos == null) {
+            parent.children().add(k);
+        } else {
+            parent.children().set(parent.children().indexOf(gpos), merge(gpos, k));
+        }
+    }
+
+    private Node merge(Node k1, Node k2) {
+        String c1 = k1.getContent();
+        String c2 = k2.getContent();
+        int min = Math.min(c1.length(), c2.length());
+        int pos = 0;
+        while (pos < min && c1.charAt(pos) == c2.charAt(pos)) {
+            pos++;
+        }
+        if (pos == c1.length() && pos == c2.length()) {
+            k1.classes(add(k1.classes(), k2.classes()));
+            for (Node child : k2.children()) {
+                mergeChild(k1, child);
+            }
+            return k1;
+        }
+        if (pos == c1.length()) {
+            k2.setContent(c2.substring(pos));
+            k1.classes(add(k1.classes(), k2.classes()));
+            mergeChild(k1, k2);
+            return k1;
+        }
+        if (pos == c2.length()) {
+            k1.setContent(c1.substring(pos));
+            k2.classes(add(k2.classes(), k1.classes()));
+            mergeChild(k2, k1);
+            return k2;
+        }
+        Node h = new Node(c1.substring(0, pos));
+        k1.setContent(c1.substring(pos));
+        k2.setContent(c2.substring(pos));
+        h.children().add(k1);
+        h.children().add(k2);
+        h.classes(add(k1.classes(), k2.classes()));
+        return h;
+    }
+
     public void prune() {
         if (root == null) {
             root = getObjectTree(stringtree);
@@ -451,28 +605,80 @@ public class CompactPatriciaTrie {
         return node;
     }
 
-    private String classifyString(String s) {
-        String word = s;
-        if (ignorecase) {
-            word = word.toLowerCase();
+    /**
+     * Removes classes seen less than the given number of times, and all nodes left without a class.
+     *
+     * @param minCount the minimum class count to keep
+     */
+    public void dropClasses(int minCount) {
+        if (root == null) {
+            root = getObjectTree(stringtree);
         }
-        if (reverse) {
-            word = reverse(word);
+        stringtree = null;
+        dropClasses(root, minCount);
+    }
+
+    private void dropClasses(Node node, int minCount) {
+        List<String> classes = new ArrayList<>();
+        for (String s : node.classes()) {
+            if (count(s) >= minCount) {
+                classes.add(s);
+            }
         }
-        Node k = getNearest(word + endOfWordChar);
-        return voted(k.classes());
+        node.classes(classes);
+        List<Node> children = new ArrayList<>();
+        for (Node child : node.children()) {
+            dropClasses(child, minCount);
+            if (!child.classes().isEmpty()) {
+                children.add(child);
+            }
+        }
+        node.children(children);
     }
 
-    private String classifyObject(String s) {
-        String word = s;
-        if (ignorecase) {
-            word = word.toLowerCase();
+    /**
+     * Scales the class counts of every node with a count above the given maximum down to the range from 1 to
+     * the maximum. The proportions of a node, which decide its vote, are kept as far as the range allows.
+     *
+     * @param maxCount the largest count after quantization
+     */
+    public void quantize(int maxCount) {
+        if (maxCount < 1) {
+            throw new IllegalArgumentException("maximum count must be positive");
         }
-        if (reverse) {
-            word = reverse(word);
+        if (root == null) {
+            root = getObjectTree(stringtree);
         }
-        Node k = find(word + endOfWordChar);
-        return voted(k.classes());
+        stringtree = null;
+        quantize(root, maxCount);
+    }
+
+    private void quantize(Node node, int maxCount) {
+        int max = 0;
+        for (String s : node.classes()) {
+            max = Math.max(max, count(s));
+        }
+        if (max > maxCount) {
+            List<String> classes = new ArrayList<>();
+            for (String s : node.classes()) {
+                int c = count(s);
+                if (c == 0) {
+                    classes.add(s);
+                } else {
+                    long q = Math.max(1L, Math.round((double) c * maxCount / max));
+                    classes.add(s.substring(0, s.lastIndexOf('=') + 1) + q);
+                }
+            }
+            node.classes(classes);
+        }
+        for (Node child : node.children()) {
+            quantize(child, maxCount);
+        }
+    }
+
+    private static int count(String s) {
+        int pos = s.lastIndexOf('=');
+        return pos >= 0 && pos < s.length() - 1 ? Integer.parseInt(s.substring(pos + 1)) : 0;
     }
 
     public double getProbabilityForClass(String string, String cla) {
@@ -508,146 +714,7 @@ public class CompactPatriciaTrie {
     }
 
     public double getProbabilityForClassString(String string, String cla) {
-        String word = string;
-        double ret = 0;
-        if (this.ignorecase) {
-            word = word.toLowerCase();
-        }
-        if (this.reverse) {
-            word = reverse(word);
-        }
-        Node k = getNearest(word + "<");
-        double valsum = 0;
-        double goalval = 0;
-        String actclass;
-        int actval;
-        for (String s : k.classes()) {
-            StringTokenizer st = new StringTokenizer(s, "=");
-            actclass = st.nextToken();
-            actval = Integer.parseInt(st.nextToken());
-            valsum += actval;
-            if (actclass.equals(cla)) {
-                goalval = actval;
-            }
-        }
-        if (valsum > 0) {
-            ret = goalval / valsum;
-        }
-        return ret;
-    }
-
-    private Node getNearest(String word) {
-        return get(word, LOWER);
-    }
-
-    private Node get(String word, int mode) {
-        String currentWord = word;
-        int i = 0;
-        StringBuilder currentLabel;
-        StringBuilder exlabel = new StringBuilder();
-        List<String> currentClasses;
-        while (stringtree[i] != attentionNode) {
-            exlabel.append(Character.toString(stringtree[i]));
-            i++;
-        }
-        while (true) {
-            currentClasses = new ArrayList<>();
-            currentLabel = new StringBuilder();
-            i++;
-            i++;
-            while (stringtree[i] != ']') {
-                StringBuilder currentClass = new StringBuilder();
-                while ((stringtree[i] != ';') && (stringtree[i] != ']')) {
-                    currentClass.append(stringtree[i]);
-                    i++;
-                }
-                if (stringtree[i] != ']') {
-                    i++;
-                }
-                currentClasses.add(currentClass.toString());
-            }
-            if (currentWord.length() == 0) {
-                break;
-            }
-            if ((i + 1) == stringtree.length) {
-                if (mode == EXACT) {
-                    exlabel .setLength(0);
-                    currentClasses = null;
-                }
-                break;
-            }
-            i++;
-            while (stringtree[i] != currentWord.charAt(0)) {
-                if (stringtree[i] == attentionNode) {
-                    if (mode == EXACT) {
-                        exlabel.setLength(0);
-                        currentClasses = null;
-                    }
-                    break;
-                }
-                while (stringtree[i] != attentionNumber) {
-                    i++;
-                }
-                i++;
-                i += offset;
-            }
-            if (stringtree[i] == attentionNode) {
-                break;
-            }
-            while (stringtree[i] != attentionNumber) {
-                currentLabel.append(stringtree[i]);
-                i++;
-            }
-            i++;
-            if (currentLabel.length() > currentWord.length()) {
-                if (mode == EXACT) {
-                    exlabel.setLength(0);
-                    currentClasses = null;
-                } else if (mode == LOWER) {
-                    exlabel = currentLabel;
-                    currentClasses = getClassesAt(string2int(new String(stringtree, i, offset)));
-                }
-                break;
-            }
-            String w1 = currentWord.substring(0, currentLabel.length());
-            String w2 = currentWord.substring(currentLabel.length());
-            if (!(w1.equals(currentLabel.toString()))) {
-                if (mode == EXACT) {
-                    exlabel.setLength(0);
-                    currentClasses = null;
-                } else if (mode == LOWER) {
-                    exlabel = currentLabel;
-                    currentClasses = getClassesAt(string2int(new String(stringtree, i, offset)));
-                }
-                break;
-            }
-            int o = string2int(new String(stringtree, i, offset));
-            currentWord = w2;
-            i = o;
-            exlabel = currentLabel;
-        }
-        Node k = new Node(exlabel.toString());
-        k.classes(currentClasses);
-        return k;
-    }
-
-    private List<String> getClassesAt(int pos) {
-        int i = pos;
-        List<String> retClasses = new ArrayList<>();
-        i++;
-        i++;
-        while (stringtree[i] != ']') {
-            StringBuilder sb = new StringBuilder();
-            while ((stringtree[i] != ';') && (stringtree[i] != ']')) {
-                sb.append(stringtree[i]);
-                i++;
-            }
-            if (stringtree[i] != ']') {
-                i++;
-            }
-            retClasses.add(sb.toString());
-        }
-        return retClasses;
+        return snapshot().getProbabilityForClass(string, cla);
     }
 
     private void insert(Node k) {
@@ -678,148 +745,72 @@ public class CompactPatriciaTrie {
         }
     }
 
-    private void addStringToMap(Map<String, String> m, char[] treestring, int pos,
-                                StringBuilder content) {
-        int i = pos;
-        i++;
-        i++;
-        StringBuilder sb = new StringBuilder();
-        sb.append('[');
-        while (treestring[i] != ']') {
-            sb.append(treestring[i]);
-            i++;
-        }
-        sb.append(']');
-        i++;
-        m.put(content.toString(), sb.toString());
-        if (i < treestring.length) {
-            while (treestring[i] != this.attentionNode) {
-                StringBuilder childContent = new StringBuilder(content);
-                StringBuilder childOffset = new StringBuilder();
-                while (treestring[i] != this.attentionNumber) {
-                    childContent.append(treestring[i]);
-                    i++;
-                }
-                i++;
-                for (int j = 0; j < this.offset; j++) {
-                    childOffset.append(treestring[i]);
-                    i++;
-                }
-                addStringToMap(m, treestring, string2int(childOffset.toString()), childContent);
-            }
-        }
-    }
-
-    private void addObjectToMap(Map<String, String> m, Node node, StringBuilder content) {
-        content.append(node.getContent());
-        m.put(content.toString(), formatClasses(node).toString());
-        for (Node child : node.children()) {
-            addObjectToMap(m, child, new StringBuilder(content.toString()));
-        }
+    /**
+     * Returns a lazy iterator over the {@code (key, classes)} entries of this trie in depth first order.
+     * The trie must not be modified while iterating.
+     *
+     * @return the entry iterator
+     */
+    public Iterator<Map.Entry<String, List<String>>> entryIterator() {
+        return Spliterators.iterator(entrySpliterator());
     }
 
-    private void addStringToKeySet(Set<String> s, char[] treestring, int pos,
-                                   StringBuilder currentContent) {
-        int i = pos;
-        i++;
-        i++;
-        while (treestring[i] != ']') {
-            i++;
-        }
-        i++;
-        s.add(currentContent.toString());
-        if (i < treestring.length) {
-            while (treestring[i] != this.attentionNode) {
-                StringBuilder aktKindInhalt = new StringBuilder(currentContent);
-                StringBuilder aktKindOffset = new StringBuilder();
-                while (treestring[i] != this.attentionNumber) {
-                    aktKindInhalt.append(treestring[i]);
-                    i++;
-                }
-                i++;
-                for (int j = 0; j < this.offset; j++) {
-                    aktKindOffset.append(treestring[i]);
-                    i++;
-                }
-                addStringToKeySet(s, treestring, string2int(aktKindOffset
-                        .toString()), aktKindInhalt);
-            }
-        }
-    }
-
-    private void addObjectToKeySet(Set<String> s, Node node,
-                                   StringBuilder content) {
-        content.append(node.getContent());
-        s.add(content.toString());
-        for (Node aktKind : node.children()) {
-            addObjectToKeySet(s, aktKind,
-                    new StringBuilder(content.toString()));
+    /**
+     * Returns a lazy spliterator over the {@code (key, classes)} entries of this trie in depth first order,
+     * splitting by subtrees for parallel processing. The trie must not be modified while traversing.
+     *
+     * @return the entry spliterator
+     */
+    public Spliterator<Map.Entry<String, List<String>>> entrySpliterator() {
+        if (this.root != null) {
+            return new TrieEntrySpliterator(this.root);
         }
+        return new TrieEntrySpliterator(this.stringtree, this.attentionNode, this.attentionNumber,
+                this.startchar, this.basis, this.offset);
     }
 
     public String getAllEntriesString() {
         StringBuilder ret = new StringBuilder();
-        if (this.root != null) {
-            addObjectNodesEntriesString(ret, this.root, new StringBuilder());
-        } else {
-            addStringNodesEntriesString(ret, this.stringtree, 0,
-                    new StringBuilder());
+        try {
+            writeAllEntries(ret);
+        } catch (IOException e) {
+            // can't happen, StringBuilder does not throw
+            throw new IllegalStateException(e);
         }
         return ret.toString();
     }
 
-    private void addStringNodesEntriesString(StringBuilder s, char[] treestring,
-                                             int pos, StringBuilder content) {
-        int i = pos;
-        i++;
-        i++;
-        s.append(content);
-        s.append(TAB);
-        s.append('[');
-        while (treestring[i] != ']') {
-            s.append(treestring[i]);
-            i++;
-        }
-        s.append(']');
-        i++;
-        s.append(NL);
-        if (i < treestring.length) {
-            while (treestring[i] != this.attentionNode) {
-                StringBuilder aktKindInhalt = new StringBuilder(content);
-                StringBuilder aktKindOffset = new StringBuilder();
-                while (treestring[i] != this.attentionNumber) {
-                    aktKindInhalt.append(treestring[i]);
-                    i++;
-                }
-                i++;
-                for (int j = 0; j < this.offset; j++) {
-                    aktKindOffset.append(treestring[i]);
-                    i++;
+    /**
+     * Writes all entries as lines of key, tab and classes.
+     *
+     * @param out the target
+     * @throws IOException if writing fails
+     */
+    public void writeAllEntries(Appendable out) throws IOException {
+        Iterator<Map.Entry<String, List<String>>> it = entryIterator();
+        while (it.hasNext()) {
+            Map.Entry<String, List<String>> entry = it.next();
+            out.append(entry.getKey());
+            out.append(TAB);
+            out.append('[');
+            int k = 0;
+            for (String s : entry.getValue()) {
+                if (k++ > 0) {
+                    out.append(';');
                 }
-                addStringNodesEntriesString(s, treestring,
-                        string2int(aktKindOffset.toString()), aktKindInhalt);
+                out.append(s);
             }
+            out.append(']');
+            out.append(NL);
         }
     }
 
-    private void addObjectNodesEntriesString(StringBuilder s, Node node,
-                                             StringBuilder content) {
-        content.append(node.getContent());
-        s.append(content);
-        s.append(TAB);
-        s.append(formatClasses(node));
-        s.append(NL);
-        for (Node aktKind : node.children()) {
-            addObjectNodesEntriesString(s, aktKind, new StringBuilder(content.toString()));
-        }
-    }
-
-    private Node getObjectTree(char[] treestring) {
+    private Node getObjectTree(byte[] treestring) {
         Node w = new Node("");
         int i = 0;
         StringBuilder tmp = new StringBuilder();
-        while (treestring[i] != this.attentionNode) {
-            tmp.append(treestring[i]);
+        while (charAt(treestring, i) != this.attentionNode) {
+            tmp.append(charAt(treestring, i));
             i++;
         }
         if (tmp.length() > 0) {
@@ -828,13 +819,13 @@ public class CompactPatriciaTrie {
         List<String> aktclasses = new ArrayList<>();
         i++;
         i++;
-        while (treestring[i] != ']') {
+        while (charAt(treestring, i) != ']') {
             StringBuilder aktclass = new StringBuilder();
-            while ((treestring[i] != ';') && (treestring[i] != ']')) {
-                aktclass.append(treestring[i]);
+            while ((charAt(treestring, i) != ';') && (charAt(treestring, i) != ']')) {
+                aktclass.append(charAt(treestring, i));
                 i++;
             }
-            if (treestring[i] != ']') {
+            if (charAt(treestring, i) != ']') {
                 i++;
             }
             aktclasses.add(aktclass.toString());
@@ -845,16 +836,16 @@ public class CompactPatriciaTrie {
         if (i >= treestring.length) {
             return w;
         }
-        while (treestring[i] != this.attentionNode) {
+        while (charAt(treestring, i) != this.attentionNode) {
             StringBuilder aktInhalt = new StringBuilder();
             StringBuilder aktOffset = new StringBuilder();
-            while (treestring[i] != this.attentionNumber) {
-                aktInhalt.append(treestring[i]);
+            while (charAt(treestring, i) != this.attentionNumber) {
+                aktInhalt.append(charAt(treestring, i));
                 i++;
             }
             i++;
             for (int j = 0; j < this.offset; j++) {
-                aktOffset.append(treestring[i]);
+                aktOffset.append(charAt(treestring, i));
                 i++;
             }
             Node aktKind = string2tree(treestring,
@@ -865,19 +856,19 @@ public class CompactPatriciaTrie {
         return w;
     }
 
-    private Node string2tree(char[] treestring, int pos) {
+    private Node string2tree(byte[] treestring, int pos) {
         Node w = new Node("");
         int i = pos;
         List<String> aktclasses = new ArrayList<>();
         i++;
         i++;
-        while (treestring[i] != ']') {
+        while (charAt(treestring, i) != ']') {
             StringBuilder aktclass = new StringBuilder();
-            while ((treestring[i] != ';') && (treestring[i] != ']')) {
-                aktclass.append(treestring[i]);
+            while ((charAt(treestring, i) != ';') && (charAt(treestring, i) != ']')) {
+                aktclass.append(charAt(treestring, i));
                 i++;
             }
-            if (treestring[i] != ']') {
+            if (charAt(treestring, i) != ']') {
                 i++;
             }
             aktclasses.add(aktclass.toString());
@@ -888,16 +879,16 @@ public class CompactPatriciaTrie {
         if (i >= treestring.length) {
             return w;
         }
-        while (treestring[i] != this.attentionNode) {
+        while (charAt(treestring, i) != this.attentionNode) {
             StringBuilder aktInhalt = new StringBuilder();
             StringBuilder aktOffset = new StringBuilder();
-            while (treestring[i] != this.attentionNumber) {
-                aktInhalt.append(treestring[i]);
+            while (charAt(treestring, i) != this.attentionNumber) {
+                aktInhalt.append(charAt(treestring, i));
                 i++;
             }
             i++;
             for (int j = 0; j < this.offset; j++) {
-                aktOffset.append(treestring[i]);
+                aktOffset.append(charAt(treestring, i));
                 i++;
             }
             Node aktKind = string2tree(treestring,
@@ -908,18 +899,8 @@ public class CompactPatriciaTrie {
         return w;
     }
 
-    private char[] getStringTree(Node w) {
-        StringBuilder ret = new StringBuilder();
-        ret.append(w.getContent());
-        ret.append(tree2string(w, ret.length()));
-        return ret.toString().toCharArray();
-    }
-
     public void save(OutputStream out) throws IOException {
         ObjectOutputStream oos2 = new ObjectOutputStream(out);
-        if (this.stringtree == null) {
-            this.stringtree = getStringTree(this.root);
-        }
         oos2.writeObject("Pretree");
         oos2.writeObject("Stringformat char[]");
         oos2.writeObject("version=1.3");
@@ -930,73 +911,117 @@ public class CompactPatriciaTrie {
         oos2.writeObject((int) this.endOfWordChar);
         oos2.writeObject(this.reverse);
         oos2.writeObject(this.ignorecase);
-        oos2.writeObject(this.stringtree);
+        oos2.flush();
+        // the serialized format stays a char[], so existing tree files remain readable, but the array
+        // is streamed node by node instead of being built in memory first
+        DataOutputStream dos = new DataOutputStream(out);
+        int length = this.stringtree != null ? this.stringtree.length : measure(this.root);
+        dos.writeByte(ObjectStreamConstants.TC_ARRAY);
+        dos.writeByte(ObjectStreamConstants.TC_CLASSDESC);
+        dos.writeUTF("[C");
+        dos.writeLong(ObjectStreamClass.lookup(char[].class).getSerialVersionUID());
+        dos.writeByte(ObjectStreamConstants.SC_SERIALIZABLE);
+        dos.writeShort(0);
+        dos.writeByte(ObjectStreamConstants.TC_ENDBLOCKDATA);
+        dos.writeByte(ObjectStreamConstants.TC_NULL);
+        dos.writeInt(length);
+        if (this.stringtree != null) {
+            for (int i = 0; i < this.stringtree.length; i++) {
+                dos.writeChar(charAt(this.stringtree, i));
+            }
+        } else {
+            writeTree(this.root, dos::writeChar);
+        }
+        dos.flush();
         oos2.close();
     }
 
-    private StringBuilder tree2string(Node aktKnoten, int startPos) {
-        StringBuilder ret = new StringBuilder();
-        ret.append(this.attentionNode);
-        int relPos = 1;
-        StringBuilder tmp;
-        tmp = formatClasses(aktKnoten);
-        relPos += tmp.length();
-        ret.append(tmp);
-        tmp = formatChildrenContents(aktKnoten, relPos);
-        relPos += tmp.length();
-        ret.append(tmp);
-        int vorigerTeilbaum = 0;
-        for (Node aktKind : aktKnoten.children()) {
-            relPos += vorigerTeilbaum;
-            formatPosition(ret, aktKind.getPos(), relPos + startPos);
-            tmp = tree2string(aktKind, relPos + startPos);
-            vorigerTeilbaum = tmp.length();
-            ret.append(tmp);
+    private byte[] packTree(Node node) {
+        byte[] bytes = new byte[measure(node)];
+        int[] pos = new int[1];
+        try {
+            writeTree(node, c -> {
+                if (c > MAX_SYMBOL) {
+                    throw new IllegalArgumentException("tree symbol out of range at position " + pos[0] + ": " + (int) c);
+                }
+                bytes[pos[0]++] = (byte) c;
+            });
+        } catch (IOException e) {
+            // can't happen, we write to an array
+            throw new IllegalStateException(e);
         }
-        return ret;
+        return bytes;
     }
 
-    private StringBuilder formatClasses(Node node) {
-        StringBuilder ret = new StringBuilder("[");
-        int k = 0;
-        for (String s : node.classes()) {
-            k++;
-            if (k != 1) {
-                ret.append(";");
-            }
-            ret.append(s);
-        }
-        ret.append("]");
-        return ret;
+    /**
+     * Computes the encoded length of all subtrees and returns the length of the whole tree.
+     */
+    private int measure(Node root) {
+        return root.getContent().length() + measureNode(root);
     }
 
-    private StringBuilder formatChildrenContents(Node node, int startPos) {
-        StringBuilder ret = new StringBuilder("");
-        int relPos;
+    private int measureNode(Node node) {
+        List<String> classes = node.classes();
+        int size = 3 + Math.max(classes.size() - 1, 0);
+        for (String s : classes) {
+            size += s.length();
+        }
         for (Node child : node.children()) {
-            ret.append(child.getContent());
-            ret.append(this.attentionNumber);
-            relPos = ret.length();
-            child.setPos(relPos + startPos);
-            ret.append(int2string(0));
+            size += child.getContent().length() + 1 + this.offset + measureNode(child);
         }
-        return ret;
+        node.setSize(size);
+        return size;
     }
 
-    private void formatPosition(StringBuilder str, int pos, int offset) {
-        str.replace(pos, pos + this.offset, int2string(offset));
+    private void writeTree(Node root, CharSink sink) throws IOException {
+        String content = root.getContent();
+        for (int i = 0; i < content.length(); i++) {
+            sink.write(content.charAt(i));
+        }
+        writeNode(root, content.length(), sink);
     }
 
-    private String int2string(int i) {
-        StringBuilder ret = new StringBuilder();
+    private void writeNode(Node node, int startPos, CharSink sink) throws IOException {
+        sink.write(this.attentionNode);
+        sink.write('[');
+        int k = 0;
+        for (String s : node.classes()) {
+            if (k++ > 0) {
+                sink.write(';');
+            }
+            for (int i = 0; i < s.length(); i++) {
+                sink.write(s.charAt(i));
+            }
+        }
+        sink.write(']');
+        int header = node.getSize();
+        for (Node child : node.children()) {
+            header -= child.getSize();
+        }
+        int childPos = startPos + header;
+        for (Node child : node.children()) {
+            String content = child.getContent();
+            for (int i = 0; i < content.length(); i++) {
+                sink.write(content.charAt(i));
+            }
+            sink.write(this.attentionNumber);
+            writePosition(childPos, sink);
+            childPos += child.getSize();
+        }
+        childPos = startPos + header;
+        for (Node child : node.children()) {
+            writeNode(child, childPos, sink);
+            childPos += child.getSize();
+        }
+    }
+
+    private void writePosition(int i, CharSink sink) throws IOException {
         int rest = i;
         for (int e = this.offset - 1; e >= 0; e--) {
             int k = rest / ((int) (Math.exp(e * Math.log(this.basis))));
             rest = rest % ((int) (Math.exp(e * Math.log(this.basis))));
-            char c = (char) (this.startchar + k);
-            ret.append(c);
+            sink.write((char) (this.startchar + k));
         }
-        return ret.toString();
     }
 
     private int string2int(String s) {
@@ -1011,6 +1036,35 @@ public class CompactPatriciaTrie {
         return ret;
     }
 
+    private static void checkSymbols(String s) {
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c > MAX_SYMBOL) {
+                throw new IllegalArgumentException("character " + (int) c + " at position " + i + " of '" + s
+                        + "' is outside of ISO-8859-1 and can not be stored in the tree");
+            }
+        }
+    }
+
+    private static char charAt(byte[] treestring, int i) {
+        return (char) (treestring[i] & 0xFF);
+    }
+
+    private static byte[] pack(char[] chars) {
+        if (chars == null) {
+            return null;
+        }
+        byte[] bytes = new byte[chars.length];
+        for (int i = 0; i < chars.length; i++) {
+            char c = chars[i];
+            if (c > MAX_SYMBOL) {
+                throw new IllegalArgumentException("tree symbol out of range at position " + i + ": " + (int) c);
+            }
+            bytes[i] = (byte) c;
+        }
+        return bytes;
+    }
+
     public void load(InputStream in) throws IOException {
         load(new ObjectInputStream(in));
     }
@@ -1036,11 +1090,17 @@ public class CompactPatriciaTrie {
             setEndOfWordChar(eow);
             setReverse(rv);
             setIgnoreCase(ic);
-            this.stringtree = st;
+            this.stringtree = pack(st);
             this.root = null;
         } catch (ClassNotFoundException e) {
             // can't happen, we use only primitives
             throw new IllegalArgumentException("class not found", e);
         }
     }
+
+    @FunctionalInterface
+    private interface CharSink {
+
+        void write(char c) throws IOException;
+    }
 }
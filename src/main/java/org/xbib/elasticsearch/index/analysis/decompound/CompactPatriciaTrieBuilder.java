@@ -0,0 +1,346 @@
+package org.xbib.elasticsearch.index.analysis.decompound;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Builds a compact patricia trie from {@code (word, class)} pairs sorted by {@link #key(String)} in one pass.
+ *
+ * The result holds the same entries, with classes ordered by name, as a trie trained with
+ * {@link CompactPatriciaTrie#train(String, String)} on the same pairs, but no {@link Node} tree is built.
+ * Only the path of the last word is kept open, class counts are aggregated as primitives, and every
+ * finished subtree is written in compact form right away.
+ */
+public final class CompactPatriciaTrieBuilder {
+
+    private static final char MAX_SYMBOL = 0xFF;
+
+    private static final int STARTCHAR = 33;
+
+    private static final int ENDCHAR = 248;
+
+    private static final char ATTENTION_NUMBER = 2;
+
+    private static final char ATTENTION_NODE = 3;
+
+    private static final char END_OF_WORD_CHAR = 4;
+
+    private final int basis;
+
+    private final int offset;
+
+    private final Map<String, Integer> classIds;
+
+    private final List<String> classNames;
+
+    private final List<OpenNode> path;
+
+    private final List<String> scratch;
+
+    private boolean reverse = false;
+
+    private boolean ignorecase = false;
+
+    private String previous;
+
+    public CompactPatriciaTrieBuilder() {
+        this.basis = ENDCHAR - STARTCHAR + 1;
+        this.offset = (int) Math.ceil(Math.log(Integer.MAX_VALUE) / Math.log(this.basis));
+        this.classIds = new HashMap<>();
+        this.classNames = new ArrayList<>();
+        this.path = new ArrayList<>();
+        this.scratch = new ArrayList<>();
+        this.path.add(new OpenNode(0, 0));
+    }
+
+    public void setIgnoreCase(boolean b) {
+        checkEmpty();
+        this.ignorecase = b;
+    }
+
+    public void setReverse(boolean b) {
+        checkEmpty();
+        this.reverse = b;
+    }
+
+    /**
+     * Returns the key a word is stored under. Input must be sorted by this key.
+     *
+     * @param word the word
+     * @return the key
+     */
+    public String key(String word) {
+        String w = ignorecase ? word.toLowerCase() : word;
+        if (reverse) {
+            w = new StringBuilder(w).reverse().toString();
+        }
+        return w + END_OF_WORD_CHAR;
+    }
+
+    public void add(String word, String classify) {
+        add(word, classify, 1);
+    }
+
+    public void add(String word, String classify, int nr) {
+        String key = key(word);
+        for (int i = 0; i < key.length(); i++) {
+            checkSymbol(key.charAt(i));
+        }
+        for (int i = 0; i < classify.length(); i++) {
+            checkSymbol(classify.charAt(i));
+        }
+        int lcp = 0;
+        if (previous != null) {
+            int cmp = key.compareTo(previous);
+            if (cmp < 0) {
+                throw new IllegalArgumentException("input not sorted: " + word + " after " + previous);
+            }
+            if (cmp == 0) {
+                top().add(classId(classify), nr);
+                return;
+            }
+            int min = Math.min(key.length(), previous.length());
+            while (lcp < min && key.charAt(lcp) == previous.charAt(lcp)) {
+                lcp++;
+            }
+            while (top().start >= lcp && path.size() > 1) {
+                close();
+            }
+            OpenNode top = top();
+            if (top.end > lcp) {
+                // split the node at the common prefix, its old subtree becomes the first child
+                OpenNode split = new OpenNode(top.start, lcp);
+                path.set(path.size() - 1, split);
+                top.start = lcp;
+                path.add(top);
+                close();
+            }
+        }
+        OpenNode leaf = new OpenNode(lcp, key.length());
+        leaf.add(classId(classify), nr);
+        path.add(leaf);
+        previous = key;
+    }
+
+    /**
+     * Finishes the trie. The builder must not be used afterwards.
+     *
+     * @return the trie in compact form
+     */
+    public CompactPatriciaTrie build() {
+        while (path.size() > 1) {
+            close();
+        }
+        byte[] tree = path.get(0).encode();
+        relocate(tree);
+        path.clear();
+        return new CompactPatriciaTrie(STARTCHAR, ENDCHAR, ATTENTION_NUMBER, ATTENTION_NODE, END_OF_WORD_CHAR,
+                reverse, ignorecase, tree);
+    }
+
+    private OpenNode top() {
+        return path.get(path.size() - 1);
+    }
+
+    private void close() {
+        OpenNode node = path.remove(path.size() - 1);
+        OpenNode parent = top();
+        String label = previous.substring(node.start, node.end);
+        parent.children.add(new Child(label, node.encode()));
+        for (int i = 0; i < node.size; i++) {
+            parent.add(node.ids[i], node.counts[i]);
+        }
+    }
+
+    private int classId(String classify) {
+        Integer id = classIds.get(classify);
+        if (id == null) {
+            id = classNames.size();
+            classIds.put(classify, id);
+            classNames.add(classify);
+        }
+        return id;
+    }
+
+    private void checkSymbol(char c) {
+        if (c > MAX_SYMBOL) {
+            throw new IllegalArgumentException("tree symbol out of range: " + (int) c);
+        }
+    }
+
+    private void checkEmpty() {
+        if (previous != null) {
+            throw new IllegalStateException("builder already has input");
+        }
+    }
+
+    /**
+     * Child offsets are written relative to their parent node, turn them into absolute positions.
+     */
+    private void relocate(byte[] tree) {
+        int[] stack = new int[16];
+        int depth = 0;
+        stack[depth++] = 0;
+        while (depth > 0) {
+            int node = stack[--depth];
+            int i = node + 2;
+            while (tree[i] != ']') {
+                i++;
+            }
+            i++;
+            if (i >= tree.length) {
+                continue;
+            }
+            while (tree[i] != ATTENTION_NODE) {
+                while (tree[i] != ATTENTION_NUMBER) {
+                    i++;
+                }
+                i++;
+                int child = node + string2int(tree, i);
+                int2string(child, tree, i);
+                if (depth == stack.length) {
+                    stack = Arrays.copyOf(stack, depth * 2);
+                }
+                stack[depth++] = child;
+                i += offset;
+            }
+        }
+    }
+
+    private void int2string(int i, byte[] tree, int pos) {
+        int rest = i;
+        for (int e = this.offset - 1, j = pos; e >= 0; e--, j++) {
+            int k = rest / ((int) (Math.exp(e * Math.log(this.basis))));
+            rest = rest % ((int) (Math.exp(e * Math.log(this.basis))));
+            tree[j] = (byte) (STARTCHAR + k);
+        }
+    }
+
+    private int string2int(byte[] tree, int pos) {
+        int ret = 0;
+        for (int i = 0; i < this.offset; i++) {
+            int k = (tree[pos + i] & 0xFF) - STARTCHAR;
+            ret += k * ((int) Math.exp((this.offset - i - 1) * Math.log(this.basis)));
+        }
+        return ret;
+    }
+
+    private static final class Child {
+
+        private final String label;
+
+        private final byte[] tree;
+
+        Child(String label, byte[] tree) {
+            this.label = label;
+            this.tree = tree;
+        }
+    }
+
+    /**
+     * A node on the path of the last word, spanning the key characters from start to end.
+     */
+    private final class OpenNode {
+
+        private int start;
+
+        private final int end;
+
+        private int[] ids = new int[2];
+
+        private int[] counts = new int[2];
+
+        private int size;
+
+        private final List<Child> children = new ArrayList<>();
+
+        OpenNode(int start, int end) {
+            this.start = start;
+            this.end = end;
+        }
+
+        void add(int id, int nr) {
+            for (int i = 0; i < size; i++) {
+                if (ids[i] == id) {
+                    counts[i] += nr;
+                    return;
+                }
+            }
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+                counts = Arrays.copyOf(counts, size * 2);
+            }
+            ids[size] = id;
+            counts[size] = nr;
+            size++;
+        }
+
+        /**
+         * Writes this node and its children with child offsets relative to this node.
+         */
+        byte[] encode() {
+            scratch.clear();
+            for (int i : order()) {
+                scratch.add(classNames.get(ids[i]) + "=" + counts[i]);
+            }
+            int length = 3 + Math.max(scratch.size() - 1, 0);
+            for (String s : scratch) {
+                length += s.length();
+            }
+            for (Child child : children) {
+                length += child.label.length() + 1 + offset;
+            }
+            int header = length;
+            for (Child child : children) {
+                length += child.tree.length;
+            }
+            byte[] tree = new byte[length];
+            int pos = 0;
+            tree[pos++] = (byte) ATTENTION_NODE;
+            tree[pos++] = '[';
+            for (int k = 0; k < scratch.size(); k++) {
+                if (k > 0) {
+                    tree[pos++] = ';';
+                }
+                pos = write(scratch.get(k), tree, pos);
+            }
+            tree[pos++] = ']';
+            int childPos = header;
+            for (Child child : children) {
+                pos = write(child.label, tree, pos);
+                tree[pos++] = (byte) ATTENTION_NUMBER;
+                int2string(childPos, tree, pos);
+                pos += offset;
+                childPos += child.tree.length;
+            }
+            for (Child child : children) {
+                System.arraycopy(child.tree, 0, tree, pos, child.tree.length);
+                pos += child.tree.length;
+            }
+            return tree;
+        }
+
+        /**
+         * Classes ordered by name, the same order as a node of a trained trie.
+         */
+        private Integer[] order() {
+            Integer[] order = new Integer[size];
+            for (int i = 0; i < size; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, (a, b) -> classNames.get(ids[a]).compareTo(classNames.get(ids[b])));
+            return order;
+        }
+
+        private int write(String s, byte[] tree, int pos) {
+            int p = pos;
+            for (int i = 0; i < s.length(); i++) {
+                tree[p++] = (byte) s.charAt(i);
+            }
+            return p;
+        }
+    }
+}
@@ -0,0 +1,398 @@
+package org.xbib.elasticsearch.index.analysis.decompound;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.StringTokenizer;
+
+/**
+ * A read-only view of a compact patricia trie.
+ *
+ * All fields are final and the byte packed tree is never modified after construction, so a snapshot
+ * can be shared by any number of concurrent readers. The threshold belongs to the snapshot, a different
+ * threshold is obtained by {@link #withThreshold(double)} which shares the tree with this snapshot.
+ * Snapshots are created by {@link CompactPatriciaTrie#snapshot()}.
+ */
+public final class CompactPatriciaTrieSnapshot {
+
+    private static final int EXACT = 0;
+
+    private static final int LOWER = 2;
+
+    private static final char MAX_SYMBOL = 0xFF;
+
+    private final byte[] stringtree;
+
+    private final int startchar;
+
+    private final int basis;
+
+    private final int offset;
+
+    private final char attentionNumber;
+
+    private final char attentionNode;
+
+    private final char endOfWordChar;
+
+    private final boolean reverse;
+
+    private final boolean ignorecase;
+
+    private final double thresh;
+
+    CompactPatriciaTrieSnapshot(byte[] stringtree, int startchar, int endchar, char attentionNumber,
+                                char attentionNode, char endOfWordChar, boolean reverse, boolean ignorecase,
+                                double threshold) {
+        this.stringtree = stringtree;
+        this.startchar = startchar;
+        this.basis = endchar - startchar + 1;
+        this.offset = (int) Math.ceil(Math.log(Integer.MAX_VALUE)
+                / Math.log(this.basis));
+        this.attentionNumber = attentionNumber;
+        this.attentionNode = attentionNode;
+        this.endOfWordChar = endOfWordChar;
+        this.reverse = reverse;
+        this.ignorecase = ignorecase;
+        this.thresh = threshold;
+    }
+
+    /**
+     * Returns a snapshot sharing this tree but voting with another threshold.
+     *
+     * @param threshold the threshold
+     * @return the snapshot
+     */
+    public CompactPatriciaTrieSnapshot withThreshold(double threshold) {
+        return new CompactPatriciaTrieSnapshot(stringtree, startchar, startchar + basis - 1, attentionNumber,
+                attentionNode, endOfWordChar, reverse, ignorecase, threshold);
+    }
+
+    public double getThreshold() {
+        return thresh;
+    }
+
+    /**
+     * @return the size of the packed tree in bytes
+     */
+    public int size() {
+        return stringtree.length;
+    }
+
+    public boolean getIgnoreCase() {
+        return ignorecase;
+    }
+
+    public boolean getReverse() {
+        return reverse;
+    }
+
+    public String classify(String word) {
+        return classify(word, false, "");
+    }
+
+    /**
+     * Classify a word as if it was given reversed, i.e. as {@code classify(reverse(word))}.
+     * The word is read from right to left while walking the tree, no reversed copy is built.
+     *
+     * @param word the word
+     * @return the voted class
+     */
+    public String classifyBackward(String word) {
+        return classify(word, true, "");
+    }
+
+    /**
+     * Classify a word as if it was given reversed and followed by a suffix,
+     * i.e. as {@code classify(reverse(word) + suffix)}.
+     *
+     * @param word the word, read from right to left
+     * @param suffix the suffix appended after the reversed word
+     * @return the voted class
+     */
+    public String classifyBackward(String word, String suffix) {
+        return classify(word, true, suffix);
+    }
+
+    private String classify(String s, boolean backward, String suffix) {
+        return voted(getNearest(key(s, backward, suffix)).classes(), thresh);
+    }
+
+    public double getProbabilityForClass(String string, String cla) {
+        String word = string;
+        double ret = 0;
+        if (this.ignorecase) {
+            word = word.toLowerCase();
+        }
+        if (this.reverse) {
+            word = new StringBuilder(word).reverse().toString();
+        }
+        Node k = getNearest(word + "<");
+        double valsum = 0;
+        double goalval = 0;
+        String actclass;
+        int actval;
+        for (String s : k.classes()) {
+            StringTokenizer st = new StringTokenizer(s, "=");
+            actclass = st.nextToken();
+            actval = Integer.parseInt(st.nextToken());
+            valsum += actval;
+            if (actclass.equals(cla)) {
+                goalval = actval;
+            }
+        }
+        if (valsum > 0) {
+            ret = goalval / valsum;
+        }
+        return ret;
+    }
+
+    private CharSequence key(String s, boolean backward, String suffix) {
+        String word = s;
+        if (ignorecase) {
+            word = word.toLowerCase();
+        }
+        if (reverse) {
+            // reversing the whole input again: a backward word is read forward, the suffix moves to the front
+            return new Key(new StringBuilder(suffix).reverse().toString(), word, !backward, "");
+        }
+        return new Key("", word, backward, suffix);
+    }
+
+    static String voted(List<String> classes, double threshold) {
+        if (classes == null) {
+            return null;
+        }
+        int sum = 0;
+        int maxval = 0;
+        int actval;
+        String maxclass = "undecided";
+        String actclass;
+        for (String cl : classes) {
+            StringTokenizer st = new StringTokenizer(cl, "=");
+            actclass = st.nextToken();
+            if (st.hasMoreTokens()) {
+                actval = new Integer(st.nextToken());
+            } else {
+                actval = 0;
+            }
+            sum += actval;
+            if (actval > maxval) {
+                maxval = actval;
+                maxclass = actclass;
+            }
+            if ((actval == maxval) && !actclass.equals(maxclass) && !actclass.isEmpty()) {
+                maxclass = new StringBuilder().append(maxclass).append(";").append(actclass).toString();
+            }
+        }
+        if (((double) maxval / (double) sum) >= threshold) {
+            return maxclass;
+        } else {
+            return "undecided";
+        }
+    }
+
+    private Node getNearest(CharSequence word) {
+        return get(word, LOWER);
+    }
+
+    /**
+     * Walks the tree along the word. The class sections of the nodes on the path are skipped, only the label and
+     * the classes of the node the walk ends at are read.
+     */
+    private Node get(CharSequence word, int mode) {
+        int pos = 0;
+        int i = 0;
+        while (charAt(stringtree, i) != attentionNode) {
+            i++;
+        }
+        int labelStart = 0;
+        int labelEnd = i;
+        int classesAt;
+        while (true) {
+            classesAt = i;
+            i = skipClasses(i);
+            if (pos == word.length()) {
+                break;
+            }
+            if ((i + 1) == stringtree.length) {
+                if (mode == EXACT) {
+                    return notFound();
+                }
+                break;
+            }
+            i++;
+            char first = word.charAt(pos);
+            if (first > MAX_SYMBOL) {
+                // can not be contained in a byte packed tree, skip the children scan
+                if (mode == EXACT) {
+                    return notFound();
+                }
+                break;
+            }
+            while (charAt(stringtree, i) != first) {
+                if (charAt(stringtree, i) == attentionNode) {
+                    if (mode == EXACT) {
+                        return notFound();
+                    }
+                    break;
+                }
+                while (charAt(stringtree, i) != attentionNumber) {
+                    i++;
+                }
+                i++;
+                i += offset;
+            }
+            if (charAt(stringtree, i) == attentionNode) {
+                break;
+            }
+            final int currentStart = i;
+            while (charAt(stringtree, i) != attentionNumber) {
+                i++;
+            }
+            final int currentEnd = i;
+            i++;
+            final int child = string2int(stringtree, i);
+            if (currentEnd - currentStart > word.length() - pos
+                    || !regionMatches(word, pos, currentStart, currentEnd)) {
+                if (mode == EXACT) {
+                    return notFound();
+                } else if (mode == LOWER) {
+                    labelStart = currentStart;
+                    labelEnd = currentEnd;
+                    classesAt = child;
+                }
+                break;
+            }
+            pos += currentEnd - currentStart;
+            i = child;
+            labelStart = currentStart;
+            labelEnd = currentEnd;
+        }
+        Node k = new Node(new String(stringtree, labelStart, labelEnd - labelStart, StandardCharsets.ISO_8859_1));
+        k.classes(getClassesAt(classesAt));
+        return k;
+    }
+
+    private static Node notFound() {
+        Node k = new Node("");
+        k.classes(null);
+        return k;
+    }
+
+    /**
+     * Returns the position of the {@code ']'} that closes the class section of the node at {@code pos}.
+     */
+    private int skipClasses(int pos) {
+        int i = pos + 2;
+        while (charAt(stringtree, i) != ']') {
+            i++;
+        }
+        return i;
+    }
+
+    private boolean regionMatches(CharSequence word, int pos, int labelStart, int labelEnd) {
+        for (int j = labelStart; j < labelEnd; j++) {
+            if (word.charAt(pos + j - labelStart) != charAt(stringtree, j)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private List<String> getClassesAt(int pos) {
+        int i = pos;
+        List<String> retClasses = new ArrayList<>();
+        i++;
+        i++;
+        while (charAt(stringtree, i) != ']') {
+            StringBuilder sb = new StringBuilder();
+            while ((charAt(stringtree, i) != ';') && (charAt(stringtree, i) != ']')) {
+                sb.append(charAt(stringtree, i));
+                i++;
+            }
+            if (charAt(stringtree, i) != ']') {
+                i++;
+            }
+            retClasses.add(sb.toString());
+        }
+        return retClasses;
+    }
+
+    private int string2int(byte[] treestring, int pos) {
+        int ret = 0;
+        for (int i = 0; i < this.offset; i++) {
+            int k = charAt(treestring, pos + i) - this.startchar;
+            ret += k
+                    * ((int) Math.exp((this.offset - i - 1)
+                    * Math.log(this.basis)));
+        }
+        return ret;
+    }
+
+
+    private static char charAt(byte[] treestring, int i) {
+        return (char) (treestring[i] & 0xFF);
+    }
+
+    /**
+     * A lookup key {@code prefix + word + suffix + endOfWordChar}, where the word may be read from right to left.
+     */
+    private final class Key implements CharSequence {
+
+        private final String prefix;
+
+        private final String word;
+
+        private final boolean backward;
+
+        private final String suffix;
+
+        private final int wordEnd;
+
+        private final int length;
+
+        Key(String prefix, String word, boolean backward, String suffix) {
+            this.prefix = prefix;
+            this.word = word;
+            this.backward = backward;
+            this.suffix = suffix;
+            this.wordEnd = prefix.length() + word.length();
+            this.length = wordEnd + suffix.length() + 1;
+        }
+
+        @Override
+        public int length() {
+            return length;
+        }
+
+        @Override
+        public char charAt(int index) {
+            if (index < prefix.length()) {
+                return prefix.charAt(index);
+            }
+            if (index < wordEnd) {
+                int j = index - prefix.length();
+                return backward ? word.charAt(word.length() - 1 - j) : word.charAt(j);
+            }
+            if (index < length - 1) {
+                return suffix.charAt(index - wordEnd);
+            }
+            return endOfWordChar;
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return toString().substring(start, end);
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder(length);
+            for (int i = 0; i < length; i++) {
+                sb.append(charAt(i));
+            }
+            return sb.toString();
+        }
+    }
+}
@@ -4,6 +4,7 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Objects;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
@@ -58,15 +59,32 @@ public class DecompoundTokenFilter extends TokenFilter {
 
 	private final boolean subwordsonly;
 
+	private final boolean cached;
+
+	private final String exactPrefix;
+
 	private AttributeSource.State current;
 
+	private AttributeSource.State exact;
+
 	protected DecompoundTokenFilter(TokenStream input, Decompounder decomp, boolean respectKeywords,
 			boolean subwordsonly, long maxCacheSize) {
+		this(input, decomp, respectKeywords, subwordsonly, maxCacheSize, null);
+	}
+
+	/**
+	 * With an {@code exactPrefix}, every original token is followed by a copy of itself with the prefix at the same
+	 * position, so exact queries can match the prefixed terms without reading the payloads.
+	 */
+	protected DecompoundTokenFilter(TokenStream input, Decompounder decomp, boolean respectKeywords,
+			boolean subwordsonly, long maxCacheSize, String exactPrefix) {
 		super(input);
 		this.tokens = new LinkedList<>();
 		this.decomp = decomp;
 		this.respectKeywords = respectKeywords;
 		this.subwordsonly = subwordsonly;
+		this.cached = maxCacheSize > 0;
+		this.exactPrefix = exactPrefix;
 		if (TERM_CACHE == null) {
 			TERM_CACHE = new ConcurrentHashMap<String, String[]>();
 			MAX_CACHE_SIZE = maxCacheSize;
@@ -75,6 +93,14 @@ public class DecompoundTokenFilter extends TokenFilter {
 
 	@Override
 	public final boolean incrementToken() throws IOException {
+		if (exact != null) {
+			restoreState(exact);
+			exact = null;
+			String term = termAtt.toString();
+			termAtt.setEmpty().append(exactPrefix).append(term);
+			posIncAtt.setPositionIncrement(0);
+			return true;
+		}
 		if (!tokens.isEmpty()) {
 			assert current != null;
 			DecompoundToken token = tokens.removeFirst();
@@ -91,7 +117,7 @@ public class DecompoundTokenFilter extends TokenFilter {
 			return false;
 		}
 		if (respectKeywords && keywordAtt.isKeyword()) {
-			setPayload(ORIGINAL_TYPE);
+			setOriginal();
 			return true;
 		}
 		if (!decompound()) {
@@ -105,10 +131,17 @@ public class DecompoundTokenFilter extends TokenFilter {
 				return true;
 			}
 		}
-		setPayload(ORIGINAL_TYPE);
+		setOriginal();
 		return true;
 	}
 
+	private void setOriginal() {
+		setPayload(ORIGINAL_TYPE);
+		if (exactPrefix != null) {
+			exact = captureState();
+		}
+	}
+
 	protected boolean decompound() {
 		int start = offsetAtt.startOffset();
 		int len = termAtt.length();
@@ -116,40 +149,12 @@ public class DecompoundTokenFilter extends TokenFilter {
 		if (needsClearCache.get()) {
 			clearCache();
 		}
-		String[] cachedTerms = TERM_CACHE.computeIfAbsent(term, t -> {
+		String[] cachedTerms = cached ? TERM_CACHE.computeIfAbsent(term, t -> {
 			if (termCacheCount.incrementAndGet() > MAX_CACHE_SIZE) {
 				needsClearCache.set(true);
 			}
-			List<String> decompound = decomp.decompound(t);
-			if (decompound.isEmpty()) {
-				return NO_TERMS;
-			} else {
-				int identCount = 0;
-				List<String> filteredDecompounds = null;
-				for (int i = 0; i < decompound.size(); i++) {
-					if (term.equals(decompound.get(i))) {
-						if (identCount == 0 && i > 0) {
-							filteredDecompounds = new ArrayList<>();
-							filteredDecompounds.addAll(decompound.subList(0, i));
-						}
-						++identCount;
-					} else if (identCount > 0) {
-						if (filteredDecompounds == null) {
-							filteredDecompounds = new ArrayList<>();
-						}
-						filteredDecompounds.add(decompound.get(i));
-					}
-				}
-				if (identCount > 0) {
-					if (identCount == decompound.size()) {
-						return NO_TERMS;
-					} else {
-						return filteredDecompounds.toArray(new String[filteredDecompounds.size()]);
-					}
-				}
-			}
-			return decompound.toArray(new String[decompound.size()]);
-		});
+			return split(t);
+		}) : split(term);
 
 		for (String s : cachedTerms) {
 			tokens.add(new DecompoundToken(s, start, len));
@@ -157,6 +162,45 @@ public class DecompoundTokenFilter extends TokenFilter {
 		return tokens.isEmpty();
 	}
 
+	private String[] split(String term) {
+		List<String> decompound = decomp.decompound(term);
+		if (decompound.isEmpty()) {
+			return NO_TERMS;
+		} else {
+			int identCount = 0;
+			List<String> filteredDecompounds = null;
+			for (int i = 0; i < decompound.size(); i++) {
+				if (term.equals(decompound.get(i))) {
+					if (identCount == 0 && i > 0) {
+						filteredDecompounds = new ArrayList<>();
+						filteredDecompounds.addAll(decompound.subList(0, i));
+					}
+					++identCount;
+				} else if (identCount > 0) {
+					if (filteredDecompounds == null) {
+						filteredDecompounds = new ArrayList<>();
+					}
+					filteredDecompounds.add(decompound.get(i));
+				}
+			}
+			if (identCount > 0) {
+				if (identCount == decompound.size()) {
+					return NO_TERMS;
+				} else {
+					return filteredDecompounds.toArray(new String[filteredDecompounds.size()]);
+				}
+			}
+		}
+		return decompound.toArray(new String[decompound.size()]);
+	}
+
+	/**
+	 * Drops the term cache on the next lookup, so the next terms are decompounded again.
+	 */
+	static void invalidateCache() {
+		needsClearCache.set(true);
+	}
+
 	private void clearCache() {
 		needsClearCache.set(false);
 		final Runtime runtime = Runtime.getRuntime();
@@ -188,18 +232,21 @@ public class DecompoundTokenFilter extends TokenFilter {
 		super.reset();
 		tokens.clear();
 		current = null;
+		exact = null;
 	}
 
 	@Override
 	public boolean equals(Object object) {
 		return object instanceof DecompoundTokenFilter && tokens.equals(((DecompoundTokenFilter) object).tokens)
 				&& respectKeywords == ((DecompoundTokenFilter) object).respectKeywords
-				&& subwordsonly == ((DecompoundTokenFilter) object).subwordsonly;
+				&& subwordsonly == ((DecompoundTokenFilter) object).subwordsonly
+				&& Objects.equals(exactPrefix, ((DecompoundTokenFilter) object).exactPrefix);
 	}
 
 	@Override
 	public int hashCode() {
-		return tokens.hashCode() ^ Boolean.hashCode(respectKeywords) ^ Boolean.hashCode(subwordsonly);
+		return tokens.hashCode() ^ Boolean.hashCode(respectKeywords) ^ Boolean.hashCode(subwordsonly)
+				^ Objects.hashCode(exactPrefix);
 	}
 
 	protected class DecompoundToken {
@@ -11,15 +11,18 @@ import org.elasticsearch.indices.analysis.AnalysisModule.AnalysisProvider;
 public class DecompoundTokenFilterAnalysisProvider implements AnalysisProvider<TokenFilterFactory>{
 
 	private final long maxDecompoundEntries;
+
+	private final DecompoundTreeLoader loader;
 	
-	public DecompoundTokenFilterAnalysisProvider(long maxDecompoundEntries) {
+	public DecompoundTokenFilterAnalysisProvider(long maxDecompoundEntries, DecompoundTreeLoader loader) {
 		this.maxDecompoundEntries = maxDecompoundEntries;
+		this.loader = loader;
 	}
 	
 	@Override
 	public TokenFilterFactory get(IndexSettings indexSettings, Environment environment, String name, Settings settings)
 			throws IOException {
-		return new DecompoundTokenFilterFactory(indexSettings, name, settings, maxDecompoundEntries);
+		return new DecompoundTokenFilterFactory(indexSettings, name, settings, maxDecompoundEntries, loader);
 	}
 
 }
@@ -12,39 +12,45 @@ import org.elasticsearch.index.analysis.AbstractTokenFilterFactory;
  */
 public class DecompoundTokenFilterFactory extends AbstractTokenFilterFactory {
 
-    private final Decompounder decompounder;
+    private final DecompoundTreeLoader.Handle decompounder;
 
     private final Boolean respectKeywords;
 
     private final Boolean subwordsonly;
-    
+
+    private final String exactPrefix;
+
     private final long maxCacheSize;
 
-    public DecompoundTokenFilterFactory(IndexSettings indexSettings, @Assisted String name, @Assisted Settings settings, long maxCacheSize) {
+    public DecompoundTokenFilterFactory(IndexSettings indexSettings, @Assisted String name, @Assisted Settings settings, long maxCacheSize,
+                                        DecompoundTreeLoader loader) {
         super(indexSettings, name, settings);
-        this.decompounder = createDecompounder(settings);
+        this.decompounder = createDecompounder(settings, loader);
         this.respectKeywords = settings.getAsBoolean("respect_keywords", false);
         this.subwordsonly = settings.getAsBoolean("subwords_only", false);
+        this.exactPrefix = settings.get("exact_prefix");
+        if (exactPrefix != null && exactPrefix.isEmpty()) {
+            throw new IllegalArgumentException("exact_prefix must not be empty");
+        }
         this.maxCacheSize = maxCacheSize;
     }
 
     @Override
     public TokenStream create(TokenStream tokenStream) {
-        return new DecompoundTokenFilter(tokenStream, decompounder, respectKeywords, subwordsonly, maxCacheSize);
+        return new DecompoundTokenFilter(tokenStream, decompounder.get(), respectKeywords, subwordsonly, maxCacheSize,
+                exactPrefix);
     }
 
-    private Decompounder createDecompounder(Settings settings) {
-        try {
-            String forward = settings.get("forward", "/decompound/kompVVic.tree");
-            String backward = settings.get("backward", "/decompound/kompVHic.tree");
-            String reduce = settings.get("reduce", "/decompound/grfExt.tree");
-            double threshold = settings.getAsDouble("threshold", 0.51);
-            return new Decompounder(getClass().getResourceAsStream(forward),
-                    getClass().getResourceAsStream(backward),
-                    getClass().getResourceAsStream(reduce),
-                    threshold);
-        } catch (Exception e) {
-            throw new ElasticsearchException("decompounder resources in settings not found: " + settings, e);
+    private DecompoundTreeLoader.Handle createDecompounder(Settings settings, DecompoundTreeLoader loader) {
+        String forward = settings.get("forward", DecompoundTreeLoader.DEFAULT_FORWARD);
+        String backward = settings.get("backward", DecompoundTreeLoader.DEFAULT_BACKWARD);
+        String reduce = settings.get("reduce", DecompoundTreeLoader.DEFAULT_REDUCE);
+        double threshold = settings.getAsDouble("threshold", 0.51);
+        for (String resource : new String[] { forward, backward, reduce }) {
+            if (getClass().getResource(resource) == null) {
+                throw new ElasticsearchException("decompounder resources in settings not found: " + settings);
+            }
         }
+        return loader.decompounder(forward, backward, reduce, threshold);
     }
 }
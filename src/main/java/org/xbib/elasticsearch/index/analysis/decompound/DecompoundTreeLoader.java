@@ -0,0 +1,215 @@
+package org.xbib.elasticsearch.index.analysis.decompound;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.elasticsearch.ElasticsearchException;
+import org.elasticsearch.common.util.concurrent.EsExecutors;
+import org.elasticsearch.xcontent.ToXContentFragment;
+import org.elasticsearch.xcontent.XContentBuilder;
+
+/**
+ * Loads decompound trees on a background thread and shares the resulting snapshots
+ * between all token filter factories of a node. The default trees are scheduled when
+ * the plugin starts, so index creation and recovery do not wait for them.
+ */
+public class DecompoundTreeLoader implements ToXContentFragment, Closeable {
+
+    private static final Logger LOG = LogManager.getLogger(DecompoundTreeLoader.class);
+
+    public static final String DEFAULT_FORWARD = "/decompound/kompVVic.tree";
+
+    public static final String DEFAULT_BACKWARD = "/decompound/kompVHic.tree";
+
+    public static final String DEFAULT_REDUCE = "/decompound/grfExt.tree";
+
+    private final ConcurrentMap<String, CompletableFuture<CompactPatriciaTrieSnapshot>> trees;
+
+    private final ConcurrentMap<String, Long> loadTimes;
+
+    private final AtomicLong loaded = new AtomicLong();
+
+    private final AtomicLong failed = new AtomicLong();
+
+    private final ExecutorService executor;
+
+    private volatile boolean closed;
+
+    public DecompoundTreeLoader() {
+        this.trees = new ConcurrentHashMap<>();
+        this.loadTimes = new ConcurrentHashMap<>();
+        this.executor = Executors.newSingleThreadExecutor(EsExecutors.daemonThreadFactory("decompound_loader"));
+    }
+
+    /**
+     * Schedules loading of the default trees.
+     */
+    public void start() {
+        tree(DEFAULT_FORWARD);
+        tree(DEFAULT_BACKWARD);
+        tree(DEFAULT_REDUCE);
+    }
+
+    /**
+     * Returns a handle to a decompounder over the given trees. Loading is scheduled
+     * immediately, but only {@link Handle#get()} waits for it to complete.
+     *
+     * @param forward the forward tree resource
+     * @param backward the backward tree resource
+     * @param reduce the base form reduction tree resource
+     * @param threshold the classification threshold
+     * @return the decompounder handle
+     */
+    public Handle decompounder(String forward, String backward, String reduce, double threshold) {
+        return new Handle(tree(forward), tree(backward), tree(reduce), threshold);
+    }
+
+    /**
+     * @return true if all default trees have been loaded successfully
+     */
+    public boolean isReady() {
+        return isLoaded(DEFAULT_FORWARD) && isLoaded(DEFAULT_BACKWARD) && isLoaded(DEFAULT_REDUCE);
+    }
+
+    private boolean isLoaded(String name) {
+        CompletableFuture<CompactPatriciaTrieSnapshot> future = trees.get(name);
+        return future != null && future.isDone() && !future.isCompletedExceptionally();
+    }
+
+    private CompletableFuture<CompactPatriciaTrieSnapshot> tree(String name) {
+        if (closed) {
+            return closedFuture();
+        }
+        return trees.computeIfAbsent(name, n -> {
+            try {
+                return CompletableFuture.supplyAsync(() -> load(n), executor);
+            } catch (RejectedExecutionException e) {
+                return closedFuture();
+            }
+        });
+    }
+
+    private static CompletableFuture<CompactPatriciaTrieSnapshot> closedFuture() {
+        CompletableFuture<CompactPatriciaTrieSnapshot> future = new CompletableFuture<>();
+        future.completeExceptionally(closedException());
+        return future;
+    }
+
+    private static ElasticsearchException closedException() {
+        return new ElasticsearchException("decompound tree loader is closed");
+    }
+
+    private CompactPatriciaTrieSnapshot load(String name) {
+        long start = System.nanoTime();
+        try (InputStream in = getClass().getResourceAsStream(name)) {
+            if (in == null) {
+                throw new IOException("decompound tree not found: " + name);
+            }
+            CompactPatriciaTrie trie = new CompactPatriciaTrie();
+            trie.load(in);
+            trie.setIgnoreCase(true);
+            CompactPatriciaTrieSnapshot snapshot = trie.snapshot();
+            long millis = (System.nanoTime() - start) / 1000000L;
+            loadTimes.put(name, millis);
+            loaded.incrementAndGet();
+            LOG.info("loaded decompound tree {} in {} ms", name, millis);
+            return snapshot;
+        } catch (IOException | RuntimeException e) {
+            failed.incrementAndGet();
+            LOG.warn("failed to load decompound tree " + name, e);
+            throw new ElasticsearchException("failed to load decompound tree " + name, e);
+        }
+    }
+
+    @Override
+    public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
+        builder.startObject("decompound");
+        builder.field("ready", isReady());
+        builder.field("loaded", loaded.get());
+        builder.field("failed", failed.get());
+        long total = 0L;
+        builder.startObject("trees");
+        for (Map.Entry<String, Long> entry : loadTimes.entrySet()) {
+            builder.startObject(entry.getKey());
+            builder.field("load_time_in_millis", entry.getValue());
+            builder.endObject();
+            total += entry.getValue();
+        }
+        builder.endObject();
+        builder.field("load_time_in_millis", total);
+        builder.endObject();
+        return builder;
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        executor.shutdownNow();
+        // tasks dropped from the queue never run, so their futures are failed here instead
+        // of leaving handles waiting on them forever
+        for (CompletableFuture<CompactPatriciaTrieSnapshot> future : trees.values()) {
+            future.completeExceptionally(closedException());
+        }
+    }
+
+    /**
+     * A decompounder that becomes available once its trees are loaded.
+     */
+    public static class Handle {
+
+        private final CompletableFuture<CompactPatriciaTrieSnapshot> forward;
+
+        private final CompletableFuture<CompactPatriciaTrieSnapshot> backward;
+
+        private final CompletableFuture<CompactPatriciaTrieSnapshot> reduce;
+
+        private final double threshold;
+
+        private volatile Decompounder decompounder;
+
+        Handle(CompletableFuture<CompactPatriciaTrieSnapshot> forward,
+               CompletableFuture<CompactPatriciaTrieSnapshot> backward,
+               CompletableFuture<CompactPatriciaTrieSnapshot> reduce,
+               double threshold) {
+            this.forward = forward;
+            this.backward = backward;
+            this.reduce = reduce;
+            this.threshold = threshold;
+        }
+
+        /**
+         * Returns the decompounder, blocking on first use if the trees are still loading.
+         *
+         * @return the decompounder
+         */
+        public Decompounder get() {
+            Decompounder d = decompounder;
+            if (d == null) {
+                try {
+                    d = new Decompounder(forward.get().withThreshold(threshold),
+                            backward.get().withThreshold(threshold),
+                            reduce.get().withThreshold(threshold));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new ElasticsearchException("interrupted while loading decompound trees", e);
+                } catch (ExecutionException e) {
+                    throw new ElasticsearchException("decompound trees could not be loaded", e.getCause());
+                }
+                decompounder = d;
+            }
+            return d;
+        }
+    }
+}
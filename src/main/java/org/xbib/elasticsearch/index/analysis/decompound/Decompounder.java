@@ -7,43 +7,39 @@ import java.util.List;
 import java.util.StringTokenizer;
 
 /**
- *
+ * Splits compound words by means of a forward, a backward and a base form reduction tree.
+ * Instances only hold read-only trie snapshots and may be shared between threads.
  */
 public class Decompounder {
 
-    private CompactPatriciaTrie kompvvTree;
-    private CompactPatriciaTrie kompvhTree;
-    private CompactPatriciaTrie grfTree;
+    private final CompactPatriciaTrieSnapshot kompvvTree;
+    private final CompactPatriciaTrieSnapshot kompvhTree;
+    private final CompactPatriciaTrieSnapshot grfTree;
 
     public Decompounder(InputStream kompvv, InputStream kompvh, InputStream gfred, double threshold)
             throws IOException {
-        kompvvTree = new CompactPatriciaTrie();
-        kompvvTree.load(kompvv);
-        kompvvTree.setIgnoreCase(true);
-        kompvvTree.setThreshold(threshold);
-        kompvhTree = new CompactPatriciaTrie();
-        kompvhTree.load(kompvh);
-        kompvhTree.setIgnoreCase(true);
-        kompvhTree.setThreshold(threshold);
-        grfTree = new CompactPatriciaTrie();
-        grfTree.load(gfred);
-        grfTree.setIgnoreCase(true);
-        grfTree.setThreshold(threshold); // previous value = 0.46
+        kompvvTree = load(kompvv, threshold);
+        kompvhTree = load(kompvh, threshold);
+        grfTree = load(gfred, threshold); // previous value = 0.46
     }
 
     public Decompounder(CompactPatriciaTrie kompvv, CompactPatriciaTrie kompvh, CompactPatriciaTrie gfred, double threshold) {
+        this(kompvv.snapshot(), kompvh.snapshot(), gfred.snapshot().withThreshold(threshold)); // previous value = 0.46
+    }
+
+    public Decompounder(CompactPatriciaTrieSnapshot kompvv, CompactPatriciaTrieSnapshot kompvh,
+                        CompactPatriciaTrieSnapshot gfred) {
         kompvvTree = kompvv;
         kompvhTree = kompvh;
         grfTree = gfred;
-        grfTree.setThreshold(threshold); // previous value = 0.46
     }
 
-    private String reverse(String torev) {
-        StringBuilder ret = new StringBuilder();
-        for (int i = torev.length(); i > 0; i--) {
-            ret.append(torev.substring(i - 1, i));
-        }
-        return ret.toString();
+    private static CompactPatriciaTrieSnapshot load(InputStream in, double threshold) throws IOException {
+        CompactPatriciaTrie trie = new CompactPatriciaTrie();
+        trie.load(in);
+        trie.setIgnoreCase(true);
+        trie.setThreshold(threshold);
+        return trie.snapshot();
     }
 
     public List<String> decompound(String string) {
@@ -51,7 +47,7 @@ public class Decompounder {
         word = reduceToBaseForm(word);
         List<String> list = new ArrayList<>();
         String classvv = kompvvTree.classify(word + "<");
-        String classvh = kompvhTree.classify(reverse(word) + "<");
+        String classvh = kompvhTree.classifyBackward(word, "<");
         StringBuilder numStrvv = new StringBuilder();
         StringBuilder numStrvh = new StringBuilder();
         StringBuilder suffixvv = new StringBuilder();
@@ -179,7 +175,7 @@ public class Decompounder {
 
     public String reduceToBaseForm(String word) {
         String result = word;
-        String baseForm = grfTree.classify(reverse(word));
+        String baseForm = grfTree.classifyBackward(word);
         if (!"undecided".equals(baseForm)) {
             StringTokenizer st = new StringTokenizer(baseForm, ",");
             baseForm = st.nextToken();
@@ -10,7 +10,7 @@ class Node {
 
     private String content;
 
-    private int pos;
+    private int size;
 
     private List<String> classes;
 
@@ -36,12 +36,12 @@ class Node {
         return content;
     }
 
-    public void setPos(int pos) {
-        this.pos = pos;
+    public void setSize(int size) {
+        this.size = size;
     }
 
-    public int getPos() {
-        return pos;
+    public int getSize() {
+        return size;
     }
 
     public Node classes(List<String> classes) {
@@ -0,0 +1,192 @@
+package org.xbib.elasticsearch.index.analysis.decompound;
+
+import java.util.AbstractMap;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * Walks the {@code (key, classes)} entries of a trie lazily in depth first order, either over the object tree or
+ * over the compact string tree. Pending subtrees are kept on a stack, so {@link #trySplit()} can hand the
+ * subtrees that come next to another spliterator without changing the encounter order.
+ */
+final class TrieEntrySpliterator implements Spliterator<Map.Entry<String, List<String>>> {
+
+    private final byte[] stringtree;
+
+    private final char attentionNode;
+
+    private final char attentionNumber;
+
+    private final int startchar;
+
+    private final int basis;
+
+    private final int offset;
+
+    private final Deque<Frame> stack;
+
+    TrieEntrySpliterator(Node root) {
+        this(null, (char) 0, (char) 0, 0, 0, 0, new ArrayDeque<>());
+        stack.push(new Frame(root.getContent(), root, -1));
+    }
+
+    TrieEntrySpliterator(byte[] stringtree, char attentionNode, char attentionNumber,
+                         int startchar, int basis, int offset) {
+        this(stringtree, attentionNode, attentionNumber, startchar, basis, offset, new ArrayDeque<>());
+        StringBuilder label = new StringBuilder();
+        int i = 0;
+        while (charAt(i) != attentionNode) {
+            label.append(charAt(i));
+            i++;
+        }
+        stack.push(new Frame(label.toString(), null, i));
+    }
+
+    private TrieEntrySpliterator(byte[] stringtree, char attentionNode, char attentionNumber,
+                                 int startchar, int basis, int offset, Deque<Frame> stack) {
+        this.stringtree = stringtree;
+        this.attentionNode = attentionNode;
+        this.attentionNumber = attentionNumber;
+        this.startchar = startchar;
+        this.basis = basis;
+        this.offset = offset;
+        this.stack = stack;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super Map.Entry<String, List<String>>> action) {
+        Frame frame = stack.poll();
+        if (frame == null) {
+            return false;
+        }
+        if (!frame.expanded) {
+            List<Frame> children = children(frame);
+            for (int i = children.size() - 1; i >= 0; i--) {
+                stack.push(children.get(i));
+            }
+        }
+        action.accept(new AbstractMap.SimpleImmutableEntry<>(frame.key, classes(frame)));
+        return true;
+    }
+
+    @Override
+    public Spliterator<Map.Entry<String, List<String>>> trySplit() {
+        if (stack.size() == 1 && !stack.peek().expanded) {
+            Frame frame = stack.pop();
+            List<Frame> children = children(frame);
+            for (int i = children.size() - 1; i >= 0; i--) {
+                stack.push(children.get(i));
+            }
+            stack.push(new Frame(frame.key, frame.node, frame.pos, true));
+        }
+        int n = stack.size() / 2;
+        if (n == 0) {
+            return null;
+        }
+        Deque<Frame> prefix = new ArrayDeque<>();
+        for (int i = 0; i < n; i++) {
+            prefix.addLast(stack.pollFirst());
+        }
+        return new TrieEntrySpliterator(stringtree, attentionNode, attentionNumber, startchar, basis, offset, prefix);
+    }
+
+    @Override
+    public long estimateSize() {
+        return stack.isEmpty() ? 0L : Long.MAX_VALUE;
+    }
+
+    @Override
+    public int characteristics() {
+        return ORDERED | DISTINCT | NONNULL;
+    }
+
+    private List<String> classes(Frame frame) {
+        if (frame.node != null) {
+            return Collections.unmodifiableList(frame.node.classes());
+        }
+        List<String> classes = new ArrayList<>();
+        int i = frame.pos + 2;
+        while (charAt(i) != ']') {
+            StringBuilder sb = new StringBuilder();
+            while (charAt(i) != ';' && charAt(i) != ']') {
+                sb.append(charAt(i));
+                i++;
+            }
+            if (charAt(i) != ']') {
+                i++;
+            }
+            classes.add(sb.toString());
+        }
+        return classes;
+    }
+
+    private List<Frame> children(Frame frame) {
+        List<Frame> children = new ArrayList<>();
+        if (frame.node != null) {
+            for (Node child : frame.node.children()) {
+                children.add(new Frame(frame.key + child.getContent(), child, -1));
+            }
+            return children;
+        }
+        int i = frame.pos + 2;
+        while (charAt(i) != ']') {
+            i++;
+        }
+        i++;
+        if (i >= stringtree.length) {
+            return children;
+        }
+        while (charAt(i) != attentionNode) {
+            StringBuilder label = new StringBuilder(frame.key);
+            while (charAt(i) != attentionNumber) {
+                label.append(charAt(i));
+                i++;
+            }
+            i++;
+            children.add(new Frame(label.toString(), null, string2int(i)));
+            i += offset;
+        }
+        return children;
+    }
+
+    private int string2int(int pos) {
+        int ret = 0;
+        for (int i = 0; i < offset; i++) {
+            int k = charAt(pos + i) - startchar;
+            ret += k * ((int) Math.exp((offset - i - 1) * Math.log(basis)));
+        }
+        return ret;
+    }
+
+    private char charAt(int i) {
+        return (char) (stringtree[i] & 0xFF);
+    }
+
+    private static final class Frame {
+
+        private final String key;
+
+        private final Node node;
+
+        private final int pos;
+
+        private final boolean expanded;
+
+        Frame(String key, Node node, int pos) {
+            this(key, node, pos, false);
+        }
+
+        Frame(String key, Node node, int pos, boolean expanded) {
+            this.key = key;
+            this.node = node;
+            this.pos = pos;
+            this.expanded = expanded;
+        }
+    }
+}
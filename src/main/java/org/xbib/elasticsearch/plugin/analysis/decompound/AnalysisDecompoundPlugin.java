@@ -4,53 +4,100 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.elasticsearch.cluster.metadata.IndexNameExpressionResolver;
+import org.elasticsearch.cluster.node.DiscoveryNodes;
 import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.settings.ClusterSettings;
+import org.elasticsearch.common.settings.IndexScopedSettings;
 import org.elasticsearch.common.settings.Setting;
 import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.settings.SettingsFilter;
 import org.elasticsearch.index.analysis.TokenFilterFactory;
 import org.elasticsearch.indices.analysis.AnalysisModule.AnalysisProvider;
+import org.elasticsearch.plugins.ActionPlugin;
 import org.elasticsearch.plugins.AnalysisPlugin;
 import org.elasticsearch.plugins.Plugin;
 import org.elasticsearch.plugins.SearchPlugin;
+import org.elasticsearch.rest.RestController;
+import org.elasticsearch.rest.RestHandler;
 import org.xbib.elasticsearch.index.analysis.decompound.DecompoundTokenFilterAnalysisProvider;
+import org.xbib.elasticsearch.index.analysis.decompound.DecompoundTreeLoader;
+import org.xbib.elasticsearch.rest.action.decompound.RestDecompoundStatsAction;
 import de.pansoft.elasticsearch.index.query.exact.ExactPhraseQueryBuilder;
 import de.pansoft.elasticsearch.index.query.string.GeniosQueryStringQueryBuilder;
 
 import de.pansoft.elasticsearch.index.query.frequency.MinFrequencyPrefixQueryBuilder;
 import de.pansoft.elasticsearch.index.query.frequency.MinFrequencyTermQueryBuilder;
+import de.pansoft.lucene.index.query.term.ExactTermDocSetCache;
 
 /**
  *
  */
-public class AnalysisDecompoundPlugin extends Plugin implements AnalysisPlugin, SearchPlugin {
+public class AnalysisDecompoundPlugin extends Plugin implements AnalysisPlugin, SearchPlugin, ActionPlugin {
 
 	private static final Logger LOG = LogManager.getLogger(AnalysisDecompoundPlugin.class);
 	
 	public static final Setting<Long> SETTING_MAX_CACHE_SIZE = 
 			Setting.longSetting("decompound_max_cache_size", 8388608, 131072, Setting.Property.NodeScope);
 
+	public static final Setting<Long> SETTING_EXACT_TERM_CACHE_MAX_BYTES =
+			Setting.longSetting("exact_term_cache_max_bytes", ExactTermDocSetCache.DEFAULT_MAX_RAM_BYTES, 0,
+					Setting.Property.NodeScope);
+
+	public static final Setting<Integer> SETTING_EXACT_TERM_CACHE_MIN_DOC_FREQ =
+			Setting.intSetting("exact_term_cache_min_doc_freq", ExactTermDocSetCache.DEFAULT_MIN_DOC_FREQ, 1,
+					Setting.Property.NodeScope);
+
+	public static final Setting<Integer> SETTING_EXACT_TERM_CACHE_MIN_USAGE =
+			Setting.intSetting("exact_term_cache_min_usage", ExactTermDocSetCache.DEFAULT_MIN_USAGE, 1,
+					Setting.Property.NodeScope);
+
 	private final long maxCacheSize;
+
+	private final DecompoundTreeLoader loader;
+
+	private final ExactTermDocSetCache exactTermDocSetCache;
 	
     @Inject
     public AnalysisDecompoundPlugin(Settings settings) {
     		this.maxCacheSize = SETTING_MAX_CACHE_SIZE.get(settings);
     		LOG.info("Maximum Cache Size AnalysisDecompoundPlugin: " + this.maxCacheSize);
-    		
+    		this.exactTermDocSetCache = new ExactTermDocSetCache(SETTING_EXACT_TERM_CACHE_MAX_BYTES.get(settings),
+    				SETTING_EXACT_TERM_CACHE_MIN_DOC_FREQ.get(settings),
+    				SETTING_EXACT_TERM_CACHE_MIN_USAGE.get(settings));
+    		this.loader = new DecompoundTreeLoader();
+    		this.loader.start();
     }
 
     @Override
     public Map<String, AnalysisProvider<TokenFilterFactory>> getTokenFilters() {
-    		return Collections.singletonMap("decompound", new DecompoundTokenFilterAnalysisProvider(this.maxCacheSize));
+    		return Collections.singletonMap("decompound",
+    				new DecompoundTokenFilterAnalysisProvider(this.maxCacheSize, this.loader));
+    }
+
+    @Override
+    public List<RestHandler> getRestHandlers(Settings settings, RestController restController,
+    		ClusterSettings clusterSettings, IndexScopedSettings indexScopedSettings, SettingsFilter settingsFilter,
+    		IndexNameExpressionResolver indexNameExpressionResolver, Supplier<DiscoveryNodes> nodesInCluster) {
+    		return Collections.singletonList(new RestDecompoundStatsAction(this.loader, this.exactTermDocSetCache));
+    }
+
+    @Override
+    public void close() {
+    		this.loader.close();
+    		this.exactTermDocSetCache.close();
     }
 
     @Override
 	public List<Setting<?>> getSettings() {
-		return Stream.of(SETTING_MAX_CACHE_SIZE).collect(Collectors.toList());
+		return Stream.of(SETTING_MAX_CACHE_SIZE, SETTING_EXACT_TERM_CACHE_MAX_BYTES,
+				SETTING_EXACT_TERM_CACHE_MIN_DOC_FREQ, SETTING_EXACT_TERM_CACHE_MIN_USAGE).collect(Collectors.toList());
 	}
     
     @Override
@@ -58,8 +105,9 @@ public class AnalysisDecompoundPlugin extends Plugin implements AnalysisPlugin,
     	return Arrays.asList(
         		new QuerySpec<>(
         				ExactPhraseQueryBuilder.NAME,
-        				ExactPhraseQueryBuilder::new,
-        				ExactPhraseQueryBuilder::fromXContent),
+        				in -> new ExactPhraseQueryBuilder(in).exactTermDocSetCache(this.exactTermDocSetCache),
+        				parser -> ExactPhraseQueryBuilder.fromXContent(parser)
+        						.exactTermDocSetCache(this.exactTermDocSetCache)),
         		new QuerySpec<>(
 						GeniosQueryStringQueryBuilder.NAME,
 						GeniosQueryStringQueryBuilder::new,
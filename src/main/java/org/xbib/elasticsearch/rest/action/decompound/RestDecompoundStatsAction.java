@@ -0,0 +1,61 @@
+package org.xbib.elasticsearch.rest.action.decompound;
+
+import static org.elasticsearch.rest.RestRequest.Method.GET;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.elasticsearch.client.node.NodeClient;
+import org.elasticsearch.rest.BaseRestHandler;
+import org.elasticsearch.rest.BytesRestResponse;
+import org.elasticsearch.rest.RestRequest;
+import org.elasticsearch.rest.RestStatus;
+import org.elasticsearch.xcontent.XContentBuilder;
+import org.xbib.elasticsearch.index.analysis.decompound.DecompoundTreeLoader;
+
+import de.pansoft.lucene.index.query.term.ExactTermDocSetCache;
+
+/**
+ * Reports tree loading statistics and readiness of the local node, and the statistics of the exact term cache.
+ */
+public class RestDecompoundStatsAction extends BaseRestHandler {
+
+    private final DecompoundTreeLoader loader;
+
+    private final ExactTermDocSetCache exactTermDocSetCache;
+
+    public RestDecompoundStatsAction(DecompoundTreeLoader loader, ExactTermDocSetCache exactTermDocSetCache) {
+        this.loader = loader;
+        this.exactTermDocSetCache = exactTermDocSetCache;
+    }
+
+    @Override
+    public String getName() {
+        return "decompound_stats_action";
+    }
+
+    @Override
+    public List<Route> routes() {
+        return Collections.singletonList(new Route(GET, "/_decompound/stats"));
+    }
+
+    @Override
+    protected RestChannelConsumer prepareRequest(RestRequest request, NodeClient client) {
+        return channel -> {
+            XContentBuilder builder = channel.newBuilder();
+            builder.startObject();
+            loader.toXContent(builder, request);
+            builder.startObject("exact_term_cache");
+            builder.field("size", exactTermDocSetCache.getCacheSize());
+            builder.field("ram_bytes_used", exactTermDocSetCache.getRamBytesUsed());
+            builder.field("max_ram_bytes", exactTermDocSetCache.getMaxRamBytes());
+            builder.field("hit_count", exactTermDocSetCache.getHitCount());
+            builder.field("miss_count", exactTermDocSetCache.getMissCount());
+            builder.field("eviction_count", exactTermDocSetCache.getEvictionCount());
+            builder.endObject();
+            builder.endObject();
+            channel.sendResponse(new BytesRestResponse(loader.isReady() ? RestStatus.OK : RestStatus.SERVICE_UNAVAILABLE,
+                    builder));
+        };
+    }
+}
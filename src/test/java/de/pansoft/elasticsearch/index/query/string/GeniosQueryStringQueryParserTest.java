@@ -0,0 +1,88 @@
+package de.pansoft.elasticsearch.index.query.string;
+
+import java.util.Collection;
+import java.util.Collections;
+
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.PhraseQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.spans.SpanTermQuery;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.index.IndexService;
+import org.elasticsearch.index.query.SearchExecutionContext;
+import org.elasticsearch.plugins.Plugin;
+import org.elasticsearch.test.ESSingleNodeTestCase;
+import org.junit.Before;
+import org.xbib.elasticsearch.plugin.analysis.decompound.AnalysisDecompoundPlugin;
+
+import de.pansoft.lucene.index.query.frequency.MinFrequencyPhraseQuery;
+import de.pansoft.lucene.index.query.frequency.MinFrequencyPrefixQuery;
+import de.pansoft.lucene.search.spans.SpanEmptyPayloadCheckQuery;
+import de.pansoft.lucene.search.spans.SpanMinFrequencyFilterQuery;
+
+import static org.hamcrest.Matchers.instanceOf;
+
+public class GeniosQueryStringQueryParserTest extends ESSingleNodeTestCase {
+
+    private SearchExecutionContext context;
+
+    @Override
+    protected Collection<Class<? extends Plugin>> getPlugins() {
+        return Collections.singletonList(AnalysisDecompoundPlugin.class);
+    }
+
+    @Before
+    public void setupContext() {
+        IndexService indexService = createIndex("test", Settings.EMPTY, "_doc", "text", "type=text");
+        context = indexService.newSearchExecutionContext(0, 0, null, () -> 0L, null, Collections.emptyMap());
+    }
+
+    public void testFrequencyTerm() throws Exception {
+        // on a tokenized field only the original tokens are counted
+        assertEquals(minFrequencyTerm("bank", 3), parse("bank#3"));
+    }
+
+    public void testFrequencyPrefix() throws Exception {
+        Query query = parse("te*#2");
+        assertThat(query, instanceOf(MinFrequencyPrefixQuery.class));
+        MinFrequencyPrefixQuery prefixQuery = (MinFrequencyPrefixQuery) query;
+        // the whole prefix is kept, not only "t"
+        assertEquals(new Term("text", "te"), prefixQuery.getPrefix());
+        assertEquals(2, prefixQuery.getMinFrequency());
+    }
+
+    public void testFrequencyPhrase() throws Exception {
+        assertEquals(new MinFrequencyPhraseQuery(new PhraseQuery("text", "deutsche", "bank"), 2),
+                parse("\"deutsche bank\"#2"));
+    }
+
+    public void testSloppyFrequencyPhrase() throws Exception {
+        Query expected = new MinFrequencyPhraseQuery(new PhraseQuery(1, "text", "deutsche", "bank"), 3);
+        assertEquals(expected, parse("\"deutsche bank\"~1#3"));
+        assertEquals(expected, parse("\"deutsche bank\"#3~1"));
+    }
+
+    public void testFrequencyPhraseOfOneTerm() throws Exception {
+        assertEquals(minFrequencyTerm("bank", 2), parse("\"bank\"#2"));
+    }
+
+    public void testFrequencyMaxExpansionsMustBePositive() throws Exception {
+        GeniosQueryStringQueryBuilder builder = new GeniosQueryStringQueryBuilder("te*#2");
+        for (int frequencyMaxExpansions : new int[] { 0, -1 }) {
+            IllegalArgumentException e = expectThrows(IllegalArgumentException.class,
+                    () -> builder.frequencyMaxExpansions(frequencyMaxExpansions));
+            assertEquals("[frequency_max_expansions] must be positive.", e.getMessage());
+        }
+        assertEquals(1, builder.frequencyMaxExpansions(1).frequencyMaxExpansions());
+    }
+
+    private static Query minFrequencyTerm(String text, int minFrequency) {
+        return new SpanMinFrequencyFilterQuery(new SpanEmptyPayloadCheckQuery(
+                new SpanTermQuery(new Term("text", text))), minFrequency);
+    }
+
+    private Query parse(String queryString) throws Exception {
+        GeniosQueryStringQueryParser parser = new GeniosQueryStringQueryParser(context, "text", false);
+        return parser.parse(queryString);
+    }
+}
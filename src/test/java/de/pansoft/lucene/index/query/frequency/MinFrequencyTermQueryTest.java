@@ -11,17 +11,28 @@ import org.apache.lucene.document.SortedDocValuesField;
 import org.apache.lucene.document.TextField;
 import org.apache.lucene.index.DirectoryReader;
 import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.index.IndexWriterConfig;
 import org.apache.lucene.index.RandomIndexWriter;
 import org.apache.lucene.index.Term;
 import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Matches;
+import org.apache.lucene.search.MatchesIterator;
+import org.apache.lucene.search.PhraseQuery;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.search.QueryUtils;
 import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.ScoreMode;
+import org.apache.lucene.search.Weight;
+import org.apache.lucene.search.spans.SpanTermQuery;
+import org.apache.lucene.search.spans.SpanWeight;
+import org.apache.lucene.search.TopScoreDocCollector;
 import org.apache.lucene.store.Directory;
 import org.apache.lucene.util.BytesRef;
 import org.apache.lucene.util.LuceneTestCase;
 import org.apache.lucene.util.TestUtil;
+
+import de.pansoft.lucene.search.spans.SpanMinFrequencyFilterQuery;
 import org.junit.AfterClass;
 import org.junit.BeforeClass;
 import org.junit.Test;
@@ -173,4 +184,268 @@ public class MinFrequencyTermQueryTest extends LuceneTestCase {
 		r.close();
 	}
 
+	@Test
+	public void testMinFrequencyTermQuerySkipsBlocks() throws IOException {
+		Directory directory = newDirectory();
+		RandomIndexWriter iw = new RandomIndexWriter(random(), directory, newIndexWriterConfig(new MockAnalyzer(random())));
+		int numDocs = atLeast(2000);
+		int expected = 0;
+		for (int i = 0; i < numDocs; i++) {
+			// only every third run of 300 documents has documents with the term more than once
+			int freq = (i / 300) % 3 == 0 ? TestUtil.nextInt(random(), 1, 6) : 1;
+			if (freq >= 3) {
+				expected++;
+			}
+			StringBuilder sb = new StringBuilder();
+			for (int j = 0; j < freq; j++) {
+				sb.append("term ");
+			}
+			sb.append("other");
+			Document d = new Document();
+			d.add(newTextField(TEXT_FIELD, sb.toString(), Field.Store.NO));
+			iw.addDocument(d);
+		}
+		IndexReader r = iw.getReader();
+		iw.close();
+		IndexSearcher s = newSearcher(r);
+		Query query = new MinFrequencyTermQuery(new Term(TEXT_FIELD, "term"), 3);
+		QueryUtils.check(random(), query, s);
+		assertEquals(expected, s.count(query));
+		TopScoreDocCollector exhaustive = TopScoreDocCollector.create(10, Integer.MAX_VALUE);
+		s.search(query, exhaustive);
+		TopScoreDocCollector pruned = TopScoreDocCollector.create(10, 1);
+		s.search(query, pruned);
+		ScoreDoc[] expectedDocs = exhaustive.topDocs().scoreDocs;
+		ScoreDoc[] actualDocs = pruned.topDocs().scoreDocs;
+		assertEquals(expectedDocs.length, actualDocs.length);
+		for (int i = 0; i < expectedDocs.length; i++) {
+			assertEquals(expectedDocs[i].doc, actualDocs[i].doc);
+			assertEquals(expectedDocs[i].score, actualDocs[i].score, 0f);
+		}
+		r.close();
+		directory.close();
+	}
+
+	@Test
+	public void testMinFrequencyPrefixQuerySumsTerms() throws IOException {
+		Directory directory = newDirectory();
+		RandomIndexWriter iw = new RandomIndexWriter(random(), directory, newIndexWriterConfig(new MockAnalyzer(random())));
+		String[] words = { "tha", "thb", "thc", "thd", "other" };
+		int numDocs = atLeast(500);
+		int expected = 0;
+		for (int i = 0; i < numDocs; i++) {
+			StringBuilder sb = new StringBuilder();
+			int freq = 0;
+			int length = TestUtil.nextInt(random(), 1, 6);
+			for (int j = 0; j < length; j++) {
+				String word = words[random().nextInt(words.length)];
+				if (word.startsWith("th")) {
+					freq++;
+				}
+				sb.append(word).append(' ');
+			}
+			if (freq >= 3) {
+				expected++;
+			}
+			Document d = new Document();
+			d.add(newTextField(TEXT_FIELD, sb.toString(), Field.Store.NO));
+			iw.addDocument(d);
+		}
+		IndexReader r = iw.getReader();
+		iw.close();
+		IndexSearcher s = newSearcher(r);
+		Query query = new MinFrequencyPrefixQuery(new Term(TEXT_FIELD, "th"), 3);
+		QueryUtils.check(random(), query, s);
+		assertEquals(expected, s.count(query));
+		assertEquals(0, s.count(new MinFrequencyPrefixQuery(new Term(TEXT_FIELD, "th"), numDocs * 6 + 1)));
+		r.close();
+		directory.close();
+	}
+
+	@Test
+	public void testMinFrequencyPrefixQueryMaxExpansions() throws IOException {
+		Directory directory = newDirectory();
+		RandomIndexWriter iw = new RandomIndexWriter(random(), directory, newIndexWriterConfig(new MockAnalyzer(random())));
+		int numDocs = atLeast(100);
+		for (int i = 0; i < numDocs; i++) {
+			// "tha" is in every document, "thb" in every second one and "thc" only in the second document
+			StringBuilder sb = new StringBuilder("tha ");
+			if (i % 2 == 0) {
+				sb.append("thb ");
+			}
+			if (i == 1) {
+				sb.append("thc thc thc ");
+			}
+			sb.append("other");
+			Document d = new Document();
+			d.add(newTextField(TEXT_FIELD, sb.toString(), Field.Store.NO));
+			iw.addDocument(d);
+		}
+		iw.forceMerge(1);
+		IndexReader r = iw.getReader();
+		iw.close();
+		IndexSearcher s = newSearcher(r);
+		Query query = new MinFrequencyPrefixQuery(new Term(TEXT_FIELD, "th"), 2, 2);
+		QueryUtils.check(random(), query, s);
+		// the rare "thc" is not expanded
+		assertEquals((numDocs + 1) / 2, s.count(query));
+		assertEquals((numDocs + 1) / 2 + 1, s.count(new MinFrequencyPrefixQuery(new Term(TEXT_FIELD, "th"), 2, 3)));
+		assertFalse(query.equals(new MinFrequencyPrefixQuery(new Term(TEXT_FIELD, "th"), 2, 3)));
+		expectThrows(IllegalArgumentException.class, () -> new MinFrequencyPrefixQuery(new Term(TEXT_FIELD, "th"), 2, 0));
+		r.close();
+		directory.close();
+	}
+
+	@Test
+	public void testMinFrequencyPhraseQueryCountsPhrases() throws IOException {
+		Directory directory = newDirectory();
+		RandomIndexWriter iw = new RandomIndexWriter(random(), directory, newIndexWriterConfig(new MockAnalyzer(random())));
+		String[] words = { "aa", "bb", "cc" };
+		int numDocs = atLeast(500);
+		int expectedAB = 0;
+		int expectedAA = 0;
+		for (int i = 0; i < numDocs; i++) {
+			int length = TestUtil.nextInt(random(), 1, 12);
+			String[] tokens = new String[length];
+			for (int j = 0; j < length; j++) {
+				tokens[j] = words[random().nextInt(words.length)];
+			}
+			int ab = 0;
+			int aa = 0;
+			for (int j = 1; j < length; j++) {
+				if (tokens[j - 1].equals("aa") && tokens[j].equals("bb")) {
+					ab++;
+				}
+				if (tokens[j - 1].equals("aa") && tokens[j].equals("aa")) {
+					aa++;
+				}
+			}
+			if (ab >= 2) {
+				expectedAB++;
+			}
+			if (aa >= 2) {
+				expectedAA++;
+			}
+			Document d = new Document();
+			d.add(newTextField(TEXT_FIELD, String.join(" ", tokens), Field.Store.NO));
+			iw.addDocument(d);
+		}
+		IndexReader r = iw.getReader();
+		iw.close();
+		IndexSearcher s = newSearcher(r);
+		Query query = new MinFrequencyPhraseQuery(new PhraseQuery(TEXT_FIELD, "aa", "bb"), 2);
+		QueryUtils.check(random(), query, s);
+		assertEquals(expectedAB, s.count(query));
+		assertEquals(expectedAB, s.search(query, numDocs).scoreDocs.length);
+		Query repeated = new MinFrequencyPhraseQuery(new PhraseQuery(TEXT_FIELD, "aa", "aa"), 2);
+		QueryUtils.check(random(), repeated, s);
+		assertEquals(expectedAA, s.count(repeated));
+		assertTrue(s.rewrite(new MinFrequencyPhraseQuery(new PhraseQuery(1, TEXT_FIELD, "aa", "bb"), 2))
+				instanceof SpanMinFrequencyFilterQuery);
+		assertTrue(s.rewrite(new MinFrequencyPhraseQuery(new PhraseQuery(TEXT_FIELD, "aa"), 2))
+				instanceof MinFrequencyTermQuery);
+		r.close();
+		directory.close();
+	}
+
+	@Test
+	public void testSloppyMinFrequencyPhraseQueryKeepsGaps() throws IOException {
+		Directory directory = newDirectory();
+		RandomIndexWriter iw = new RandomIndexWriter(random(), directory, newIndexWriterConfig(new MockAnalyzer(random())));
+		for (String text : new String[] { "aa xx bb aa xx bb", "aa bb aa bb", "aa xx yy bb aa xx yy bb" }) {
+			Document d = new Document();
+			d.add(newTextField(TEXT_FIELD, text, Field.Store.NO));
+			iw.addDocument(d);
+		}
+		IndexReader r = iw.getReader();
+		iw.close();
+		IndexSearcher s = newSearcher(r);
+		// "aa _ bb" with a removed stop word between the terms
+		PhraseQuery.Builder builder = new PhraseQuery.Builder();
+		builder.add(new Term(TEXT_FIELD, "aa"), 0);
+		builder.add(new Term(TEXT_FIELD, "bb"), 2);
+		PhraseQuery exact = builder.build();
+		assertEquals(1, s.count(new MinFrequencyPhraseQuery(exact, 2)));
+		builder.setSlop(1);
+		PhraseQuery sloppy = builder.build();
+		// the gap counts towards the slop, "aa bb" and "aa _ _ bb" are within one position of "aa _ bb"
+		assertEquals(3, s.count(new MinFrequencyPhraseQuery(sloppy, 2)));
+		builder.setSlop(0);
+		builder.add(new Term(TEXT_FIELD, "aa"), 5);
+		assertTrue(MinFrequencyPhraseQuery.toSpanQuery(builder.build(), SpanTermQuery::new).toString()
+				.contains("SpanGap"));
+		r.close();
+		directory.close();
+	}
+
+	@Test
+	public void testSpanMinFrequencyFilterQueryReturnsAllPositions() throws IOException {
+		Directory directory = newDirectory();
+		RandomIndexWriter iw = new RandomIndexWriter(random(), directory, newIndexWriterConfig(new MockAnalyzer(random())));
+		int numDocs = atLeast(200);
+		int expected = 0;
+		for (int i = 0; i < numDocs; i++) {
+			int freq = TestUtil.nextInt(random(), 0, 6);
+			if (freq >= 3) {
+				expected++;
+			}
+			StringBuilder sb = new StringBuilder("other ");
+			for (int j = 0; j < freq; j++) {
+				sb.append("term other ");
+			}
+			Document d = new Document();
+			d.add(newTextField(TEXT_FIELD, sb.toString(), Field.Store.NO));
+			iw.addDocument(d);
+		}
+		IndexReader r = iw.getReader();
+		iw.close();
+		IndexSearcher s = newSearcher(r);
+		SpanTermQuery term = new SpanTermQuery(new Term(TEXT_FIELD, "term"));
+		Query query = new SpanMinFrequencyFilterQuery(term, 3);
+		QueryUtils.check(random(), query, s);
+		assertEquals(expected, s.count(query));
+		assertEquals(s.count(new MinFrequencyTermQuery(new Term(TEXT_FIELD, "term"), 3)), s.count(query));
+		// the positions read ahead to check the frequency are returned as well
+		Weight weight = s.createWeight(s.rewrite(query), ScoreMode.COMPLETE_NO_SCORES, 1);
+		Weight termWeight = s.createWeight(s.rewrite(term), ScoreMode.COMPLETE_NO_SCORES, 1);
+		for (LeafReaderContext context : r.leaves()) {
+			for (int doc = 0; doc < context.reader().maxDoc(); doc++) {
+				Matches matches = weight.matches(context, doc);
+				if (matches == null) {
+					continue;
+				}
+				MatchesIterator it = matches.getMatches(TEXT_FIELD);
+				MatchesIterator termIt = termWeight.matches(context, doc).getMatches(TEXT_FIELD);
+				int positions = 0;
+				while (it.next()) {
+					assertTrue(termIt.next());
+					assertEquals(termIt.startPosition(), it.startPosition());
+					assertEquals(termIt.startOffset(), it.startOffset());
+					positions++;
+				}
+				assertFalse(termIt.next());
+				assertTrue(positions >= 3);
+			}
+		}
+		r.close();
+		directory.close();
+	}
+
+	@Test
+	public void testSpanMinFrequencyFilterQueryWithoutScores() throws IOException {
+		IndexReader r = DirectoryReader.open(dir);
+		IndexSearcher s = newSearcher(r);
+		SpanMinFrequencyFilterQuery query = new SpanMinFrequencyFilterQuery(
+				new SpanTermQuery(new Term(TEXT_FIELD, "text")), 2);
+		SpanWeight filter = query.createWeight(s, ScoreMode.COMPLETE_NO_SCORES, 1);
+		SpanWeight scoring = query.createWeight(s, ScoreMode.COMPLETE, 1);
+		for (LeafReaderContext context : r.leaves()) {
+			assertNull(filter.getSimScorer(context));
+			assertNotNull(scoring.getSimScorer(context));
+			assertTrue(filter.isCacheable(context));
+		}
+		assertEquals(s.count(new MinFrequencyTermQuery(new Term(TEXT_FIELD, "text"), 2)), s.count(query));
+		r.close();
+	}
+
 }
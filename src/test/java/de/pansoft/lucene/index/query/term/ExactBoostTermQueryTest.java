@@ -0,0 +1,87 @@
+package de.pansoft.lucene.index.query.term;
+
+import java.io.IOException;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.RandomIndexWriter;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.BoostQuery;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.QueryUtils;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopScoreDocCollector;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.util.LuceneTestCase;
+import org.junit.Test;
+
+import de.pansoft.lucene.search.spans.DecompoundPayloadAnalyzer;
+
+import static de.pansoft.lucene.search.spans.DecompoundPayloadAnalyzer.DECOMPOUND_SUFFIX;
+
+public class ExactBoostTermQueryTest extends LuceneTestCase {
+
+	private static final String TEXT_FIELD = "text";
+
+	@Test
+	public void testExactBoostTermQueryScoresLikeBooleanQuery() throws IOException {
+		Directory directory = newDirectory();
+		Analyzer analyzer = new DecompoundPayloadAnalyzer();
+		RandomIndexWriter iw = new RandomIndexWriter(random(), directory, newIndexWriterConfig(analyzer));
+		int numDocs = atLeast(1000);
+		for (int i = 0; i < numDocs; i++) {
+			int exact = random().nextInt(4);
+			int decompound = random().nextInt(4);
+			StringBuilder sb = new StringBuilder("other ");
+			for (int j = 0; j < Math.max(exact, decompound); j++) {
+				if (j < exact) {
+					sb.append("term ");
+				}
+				if (j < decompound) {
+					sb.append("term" + DECOMPOUND_SUFFIX + " ");
+				}
+			}
+			Document d = new Document();
+			d.add(newTextField(TEXT_FIELD, sb.toString(), Field.Store.NO));
+			iw.addDocument(d);
+		}
+		IndexReader r = iw.getReader();
+		iw.close();
+		IndexSearcher s = newSearcher(r);
+		Term term = new Term(TEXT_FIELD, "term");
+		Query query = new ExactBoostTermQuery(term, 2f);
+		QueryUtils.check(random(), query, s);
+		BooleanQuery.Builder builder = new BooleanQuery.Builder();
+		builder.add(new BoostQuery(new ExactTermQuery(term), 2f), BooleanClause.Occur.SHOULD);
+		builder.add(new TermQuery(term), BooleanClause.Occur.SHOULD);
+		Query booleanQuery = builder.build();
+		assertEquals(s.count(new TermQuery(term)), s.count(query));
+		ScoreDoc[] expectedDocs = s.search(booleanQuery, numDocs).scoreDocs;
+		ScoreDoc[] actualDocs = s.search(query, numDocs).scoreDocs;
+		assertEquals(expectedDocs.length, actualDocs.length);
+		for (int i = 0; i < expectedDocs.length; i++) {
+			assertEquals(expectedDocs[i].score, actualDocs[i].score, 1e-5f);
+			assertEquals(actualDocs[i].score, s.explain(query, actualDocs[i].doc).getValue().floatValue(), 1e-5f);
+		}
+		TopScoreDocCollector exhaustive = TopScoreDocCollector.create(10, Integer.MAX_VALUE);
+		s.search(query, exhaustive);
+		TopScoreDocCollector pruned = TopScoreDocCollector.create(10, 1);
+		s.search(query, pruned);
+		ScoreDoc[] exhaustiveDocs = exhaustive.topDocs().scoreDocs;
+		ScoreDoc[] prunedDocs = pruned.topDocs().scoreDocs;
+		assertEquals(exhaustiveDocs.length, prunedDocs.length);
+		for (int i = 0; i < exhaustiveDocs.length; i++) {
+			assertEquals(exhaustiveDocs[i].doc, prunedDocs[i].doc);
+			assertEquals(exhaustiveDocs[i].score, prunedDocs[i].score, 0f);
+		}
+		r.close();
+		directory.close();
+		analyzer.close();
+	}
+}
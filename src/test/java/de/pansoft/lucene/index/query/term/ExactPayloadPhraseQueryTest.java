@@ -0,0 +1,82 @@
+package de.pansoft.lucene.index.query.term;
+
+import java.io.IOException;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.RandomIndexWriter;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.PhraseQuery;
+import org.apache.lucene.search.QueryUtils;
+import org.apache.lucene.search.spans.SpanNearQuery;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.util.LuceneTestCase;
+import org.apache.lucene.util.TestUtil;
+import org.junit.Test;
+
+import de.pansoft.lucene.search.spans.DecompoundPayloadAnalyzer;
+import de.pansoft.lucene.search.spans.SpanMinFrequencyFilterQuery;
+
+import static de.pansoft.lucene.search.spans.DecompoundPayloadAnalyzer.DECOMPOUND_SUFFIX;
+
+public class ExactPayloadPhraseQueryTest extends LuceneTestCase {
+
+	private static final String TEXT_FIELD = "text";
+
+	@Test
+	public void testExactPayloadPhraseQueryMatchesEmptyPayloads() throws IOException {
+		Directory directory = newDirectory();
+		Analyzer analyzer = new DecompoundPayloadAnalyzer();
+		RandomIndexWriter iw = new RandomIndexWriter(random(), directory, newIndexWriterConfig(analyzer));
+		String[] words = { "aa", "bb", "cc", "aa" + DECOMPOUND_SUFFIX, "bb" + DECOMPOUND_SUFFIX };
+		int numDocs = atLeast(500);
+		for (int i = 0; i < numDocs; i++) {
+			int length = TestUtil.nextInt(random(), 1, 12);
+			StringBuilder sb = new StringBuilder();
+			for (int j = 0; j < length; j++) {
+				sb.append(words[random().nextInt(words.length)]).append(' ');
+			}
+			Document d = new Document();
+			d.add(newTextField(TEXT_FIELD, sb.toString(), Field.Store.NO));
+			iw.addDocument(d);
+		}
+		IndexReader r = iw.getReader();
+		iw.close();
+		IndexSearcher s = newSearcher(r);
+		for (PhraseQuery phrase : new PhraseQuery[] {
+				new PhraseQuery(TEXT_FIELD, "aa", "bb"),
+				new PhraseQuery(TEXT_FIELD, "aa", "aa"),
+				new PhraseQuery.Builder().add(new Term(TEXT_FIELD, "aa"), 0).add(new Term(TEXT_FIELD, "bb"), 2).build() }) {
+			ExactPayloadPhraseQuery query = new ExactPayloadPhraseQuery(phrase);
+			QueryUtils.check(random(), query, s);
+			// the same documents as the span query the phrase was rewritten to before
+			assertEquals(s.count(query.toSpanQuery()), s.count(query));
+			assertEquals(s.count(query), s.search(query, numDocs).scoreDocs.length);
+			for (int minFrequency = 2; minFrequency <= 3; minFrequency++) {
+				ExactPayloadPhraseQuery frequent = new ExactPayloadPhraseQuery(phrase, minFrequency);
+				QueryUtils.check(random(), frequent, s);
+				assertEquals(s.count(new SpanMinFrequencyFilterQuery(query.toSpanQuery(), minFrequency)),
+						s.count(frequent));
+				assertEquals(s.count(frequent), s.search(frequent, numDocs).scoreDocs.length);
+			}
+		}
+		assertTrue(s.rewrite(new ExactPayloadPhraseQuery(new PhraseQuery(1, TEXT_FIELD, "aa", "bb")))
+				instanceof SpanNearQuery);
+		assertTrue(s.rewrite(new ExactPayloadPhraseQuery(new PhraseQuery(1, TEXT_FIELD, "aa", "bb"), 2))
+				instanceof SpanMinFrequencyFilterQuery);
+		// the gap of a sloppy phrase widens the slop of the unordered span query
+		PhraseQuery sloppyGap = new PhraseQuery.Builder().add(new Term(TEXT_FIELD, "aa"), 0)
+				.add(new Term(TEXT_FIELD, "bb"), 2).setSlop(1).build();
+		assertEquals(2, ((SpanNearQuery) s.rewrite(new ExactPayloadPhraseQuery(sloppyGap))).getSlop());
+		assertTrue(s.rewrite(new ExactPayloadPhraseQuery(new PhraseQuery(TEXT_FIELD, "aa")))
+				instanceof ExactTermQuery);
+		assertEquals(new ExactTermQuery(new Term(TEXT_FIELD, "aa"), 2),
+				s.rewrite(new ExactPayloadPhraseQuery(new PhraseQuery(TEXT_FIELD, "aa"), 2)));
+		r.close();
+		directory.close();
+		analyzer.close();
+	}
+}
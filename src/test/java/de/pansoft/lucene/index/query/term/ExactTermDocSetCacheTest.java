@@ -0,0 +1,157 @@
+package de.pansoft.lucene.index.query.term;
+
+import java.io.IOException;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.RandomIndexWriter;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.QueryUtils;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.util.LuceneTestCase;
+import org.junit.Test;
+
+import de.pansoft.lucene.search.spans.DecompoundPayloadAnalyzer;
+
+import static de.pansoft.lucene.search.spans.DecompoundPayloadAnalyzer.DECOMPOUND_SUFFIX;
+
+public class ExactTermDocSetCacheTest extends LuceneTestCase {
+
+	private static final String TEXT_FIELD = "text";
+
+	private static Query conjunction(Query exact) {
+		return new BooleanQuery.Builder()
+				.add(new TermQuery(new Term(TEXT_FIELD, "rare")), BooleanClause.Occur.FILTER)
+				.add(exact, BooleanClause.Occur.FILTER)
+				.build();
+	}
+
+	@Test
+	public void testExactTermQueryCachesDocSets() throws IOException {
+		Directory directory = newDirectory();
+		Analyzer analyzer = new DecompoundPayloadAnalyzer();
+		RandomIndexWriter iw = new RandomIndexWriter(random(), directory, newIndexWriterConfig(analyzer));
+		int numDocs = atLeast(500);
+		int[] expected = new int[3];
+		for (int i = 0; i < numDocs; i++) {
+			int exact = random().nextInt(4);
+			int decompound = random().nextInt(3);
+			for (int minFrequency = 1; minFrequency < expected.length; minFrequency++) {
+				if (exact >= minFrequency) {
+					expected[minFrequency]++;
+				}
+			}
+			StringBuilder sb = new StringBuilder("other ");
+			for (int j = 0; j < Math.max(exact, decompound); j++) {
+				if (j < decompound) {
+					sb.append("term" + DECOMPOUND_SUFFIX + " ");
+				}
+				if (j < exact) {
+					sb.append("term ");
+				}
+			}
+			Document d = new Document();
+			d.add(newTextField(TEXT_FIELD, sb.toString(), Field.Store.NO));
+			iw.addDocument(d);
+		}
+		IndexReader r = iw.getReader();
+		iw.close();
+		ExactTermDocSetCache cache = new ExactTermDocSetCache(ExactTermDocSetCache.DEFAULT_MAX_RAM_BYTES, 1, 1);
+		IndexSearcher s = new IndexSearcher(r);
+		s.setQueryCache(null);
+		Term term = new Term(TEXT_FIELD, "term");
+		for (int minFrequency = 1; minFrequency < expected.length; minFrequency++) {
+			Query query = new ExactTermQuery(term, minFrequency, cache);
+			long misses = cache.getMissCount();
+			long hits = cache.getHitCount();
+			// the first count fills the cache, the second one is answered from it
+			assertEquals(expected[minFrequency], s.count(query));
+			assertTrue(cache.getMissCount() > misses);
+			assertEquals(expected[minFrequency], s.count(query));
+			assertTrue(cache.getHitCount() > hits);
+			// scoring reads the postings and must agree with the cached doc sets
+			assertEquals(expected[minFrequency], s.search(query, 1).totalHits.value);
+			QueryUtils.check(random(), query, newSearcher(r));
+			// the cache is not part of the query
+			assertEquals(new ExactTermQuery(term, minFrequency), query);
+		}
+		assertTrue(cache.getCacheSize() > 0);
+		assertTrue(cache.getRamBytesUsed() > 0);
+		r.close();
+		// closing the reader drops its entries
+		assertEquals(0, cache.getCacheSize());
+		assertEquals(0, cache.getRamBytesUsed());
+		directory.close();
+		analyzer.close();
+	}
+
+	@Test
+	public void testExactTermDocSetCacheSkipsRareLeadsAndSingleUse() throws IOException {
+		Directory directory = newDirectory();
+		Analyzer analyzer = new DecompoundPayloadAnalyzer();
+		RandomIndexWriter iw = new RandomIndexWriter(random(), directory, newIndexWriterConfig(analyzer));
+		int numDocs = atLeast(500);
+		int expected = 0;
+		int expectedRare = 0;
+		for (int i = 0; i < numDocs; i++) {
+			boolean exact = random().nextBoolean();
+			boolean rare = i % 100 == 0;
+			if (exact) {
+				expected++;
+				if (rare) {
+					expectedRare++;
+				}
+			}
+			Document d = new Document();
+			d.add(newTextField(TEXT_FIELD, (exact ? "term " : "term" + DECOMPOUND_SUFFIX + " ")
+					+ (rare ? "rare" : "other"), Field.Store.NO));
+			iw.addDocument(d);
+		}
+		iw.forceMerge(1);
+		IndexReader r = iw.getReader();
+		iw.close();
+		IndexSearcher s = new IndexSearcher(r);
+		s.setQueryCache(null);
+		Term term = new Term(TEXT_FIELD, "term");
+		ExactTermDocSetCache probed = new ExactTermDocSetCache(ExactTermDocSetCache.DEFAULT_MAX_RAM_BYTES, 1, 2);
+		Query probedConjunction = conjunction(new ExactTermQuery(term, 1, probed));
+		// the rare clause leads, the exact term is only probed and its doc set is not built
+		for (int i = 0; i < 3; i++) {
+			assertEquals(expectedRare, s.count(probedConjunction));
+			assertEquals(0, probed.getCacheSize());
+		}
+		ExactTermDocSetCache cache = new ExactTermDocSetCache(ExactTermDocSetCache.DEFAULT_MAX_RAM_BYTES, 1, 2);
+		Query exact = new ExactTermQuery(term, 1, cache);
+		// a single use is not cached, the second one is
+		assertEquals(expected, s.count(exact));
+		assertEquals(0, cache.getCacheSize());
+		assertEquals(expected, s.count(exact));
+		assertEquals(1, cache.getCacheSize());
+		// now the conjunction takes the cached doc set
+		long hits = cache.getHitCount();
+		assertEquals(expectedRare, s.count(conjunction(exact)));
+		assertTrue(cache.getHitCount() > hits);
+		// the caches are independent
+		assertEquals(0, probed.getCacheSize());
+		// a closed cache drops its doc sets and caches nothing more
+		cache.close();
+		assertEquals(0, cache.getCacheSize());
+		assertEquals(0, cache.getRamBytesUsed());
+		assertEquals(expected, s.count(exact));
+		assertEquals(expected, s.count(exact));
+		assertEquals(0, cache.getCacheSize());
+		// queries without a cache read the postings
+		assertEquals(expected, s.count(new ExactTermQuery(term)));
+		assertEquals(expectedRare, s.count(conjunction(new ExactTermQuery(term))));
+		r.close();
+		directory.close();
+		analyzer.close();
+	}
+}
@@ -0,0 +1,106 @@
+package de.pansoft.lucene.index.query.term;
+
+import java.io.IOException;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.RandomIndexWriter;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.Explanation;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.QueryUtils;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopScoreDocCollector;
+import org.apache.lucene.search.spans.SpanTermQuery;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.util.LuceneTestCase;
+import org.apache.lucene.util.TestUtil;
+import org.junit.Test;
+
+import de.pansoft.lucene.search.spans.DecompoundPayloadAnalyzer;
+import de.pansoft.lucene.search.spans.SpanEmptyPayloadCheckQuery;
+
+import static de.pansoft.lucene.search.spans.DecompoundPayloadAnalyzer.DECOMPOUND_SUFFIX;
+
+public class ExactTermQueryTest extends LuceneTestCase {
+
+	private static final String TEXT_FIELD = "text";
+
+	private static boolean explainsFreq(Explanation explanation, int freq) {
+		if (explanation.getDescription().contains("freq=" + (float) freq + ")")) {
+			return true;
+		}
+		for (Explanation detail : explanation.getDetails()) {
+			if (explainsFreq(detail, freq)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	@Test
+	public void testExactTermQueryMatchesEmptyPayloads() throws IOException {
+		Directory directory = newDirectory();
+		Analyzer analyzer = new DecompoundPayloadAnalyzer();
+		RandomIndexWriter iw = new RandomIndexWriter(random(), directory, newIndexWriterConfig(analyzer));
+		int numDocs = atLeast(2000);
+		int expected = 0;
+		int[] exactFreqs = new int[numDocs];
+		for (int i = 0; i < numDocs; i++) {
+			// the term occurs as an original token, as a decompound token, or both
+			int exact = (i / 300) % 3 == 0 ? TestUtil.nextInt(random(), 0, 5) : random().nextInt(2);
+			int decompound = TestUtil.nextInt(random(), 0, 3);
+			if (exact > 0) {
+				expected++;
+			}
+			exactFreqs[i] = exact;
+			StringBuilder sb = new StringBuilder("other ");
+			for (int j = 0; j < Math.max(exact, decompound); j++) {
+				if (j < exact) {
+					sb.append("term ");
+				}
+				if (j < decompound) {
+					sb.append("term" + DECOMPOUND_SUFFIX + " ");
+				}
+			}
+			Document d = new Document();
+			d.add(newStringField("id", Integer.toString(i), Field.Store.YES));
+			d.add(newTextField(TEXT_FIELD, sb.toString(), Field.Store.NO));
+			iw.addDocument(d);
+		}
+		IndexReader r = iw.getReader();
+		iw.close();
+		IndexSearcher s = newSearcher(r);
+		Term term = new Term(TEXT_FIELD, "term");
+		Query query = new ExactTermQuery(term);
+		QueryUtils.check(random(), query, s);
+		assertEquals(expected, s.count(query));
+		assertEquals(s.count(new SpanEmptyPayloadCheckQuery(new SpanTermQuery(term))), s.count(query));
+		// documents are scored like a term query with the number of exact occurrences
+		for (ScoreDoc scoreDoc : s.search(query, 20).scoreDocs) {
+			int exactFreq = exactFreqs[Integer.parseInt(s.doc(scoreDoc.doc).get("id"))];
+			assertTrue(explainsFreq(s.explain(query, scoreDoc.doc), exactFreq));
+		}
+		// the impacts of the term bound the scores, so skipping blocks must not change the top hits
+		TopScoreDocCollector exhaustive = TopScoreDocCollector.create(10, Integer.MAX_VALUE);
+		s.search(query, exhaustive);
+		TopScoreDocCollector pruned = TopScoreDocCollector.create(10, 1);
+		s.search(query, pruned);
+		ScoreDoc[] expectedDocs = exhaustive.topDocs().scoreDocs;
+		ScoreDoc[] actualDocs = pruned.topDocs().scoreDocs;
+		assertEquals(expectedDocs.length, actualDocs.length);
+		for (int i = 0; i < expectedDocs.length; i++) {
+			assertEquals(expectedDocs[i].doc, actualDocs[i].doc);
+			assertEquals(expectedDocs[i].score, actualDocs[i].score, 0f);
+		}
+		assertEquals(new ExactTermQuery(term), query);
+		assertFalse(query.equals(new TermQuery(term)));
+		r.close();
+		directory.close();
+		analyzer.close();
+	}
+}
@@ -0,0 +1,52 @@
+package de.pansoft.lucene.search.spans;
+
+import java.io.IOException;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.MockTokenizer;
+import org.apache.lucene.analysis.TokenFilter;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.Tokenizer;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.analysis.tokenattributes.PayloadAttribute;
+import org.apache.lucene.util.BytesRef;
+
+/**
+ * Splits on whitespace and marks tokens ending with {@link #DECOMPOUND_SUFFIX} with a decompound payload, like the
+ * decompound token filter does. The suffix is removed from the token.
+ */
+public final class DecompoundPayloadAnalyzer extends Analyzer {
+
+	public static final String DECOMPOUND_SUFFIX = "_d";
+
+	private static final class DecompoundPayloadFilter extends TokenFilter {
+
+		private final CharTermAttribute termAtt = addAttribute(CharTermAttribute.class);
+		private final PayloadAttribute payloadAtt = addAttribute(PayloadAttribute.class);
+
+		DecompoundPayloadFilter(TokenStream input) {
+			super(input);
+		}
+
+		@Override
+		public boolean incrementToken() throws IOException {
+			if (!input.incrementToken()) {
+				return false;
+			}
+			String term = termAtt.toString();
+			if (term.endsWith(DECOMPOUND_SUFFIX)) {
+				termAtt.setLength(term.length() - DECOMPOUND_SUFFIX.length());
+				payloadAtt.setPayload(new BytesRef(new byte[] { 2 }));
+			} else {
+				payloadAtt.setPayload(null);
+			}
+			return true;
+		}
+	}
+
+	@Override
+	protected TokenStreamComponents createComponents(String fieldName) {
+		Tokenizer tokenizer = new MockTokenizer(MockTokenizer.WHITESPACE, false);
+		return new TokenStreamComponents(tokenizer, new DecompoundPayloadFilter(tokenizer));
+	}
+}
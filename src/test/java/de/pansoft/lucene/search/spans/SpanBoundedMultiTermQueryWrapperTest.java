@@ -0,0 +1,65 @@
+package de.pansoft.lucene.search.spans;
+
+import java.io.IOException;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.RandomIndexWriter;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.PrefixQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.QueryUtils;
+import org.apache.lucene.search.spans.SpanMultiTermQueryWrapper;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.util.LuceneTestCase;
+import org.apache.lucene.util.TestUtil;
+import org.junit.Test;
+
+import static de.pansoft.lucene.search.spans.DecompoundPayloadAnalyzer.DECOMPOUND_SUFFIX;
+
+public class SpanBoundedMultiTermQueryWrapperTest extends LuceneTestCase {
+
+	private static final String TEXT_FIELD = "text";
+
+	@Test
+	public void testBoundedMultiTermQueryLimitsExpansions() throws IOException {
+		Directory directory = newDirectory();
+		Analyzer analyzer = new DecompoundPayloadAnalyzer();
+		RandomIndexWriter iw = new RandomIndexWriter(random(), directory, newIndexWriterConfig(analyzer));
+		int numTerms = TestUtil.nextInt(random(), 10, 50);
+		for (int i = 0; i < numTerms; i++) {
+			Document d = new Document();
+			d.add(newTextField(TEXT_FIELD, "other term" + i + " term" + i + "x" + DECOMPOUND_SUFFIX, Field.Store.NO));
+			iw.addDocument(d);
+		}
+		IndexReader r = iw.getReader();
+		iw.close();
+		IndexSearcher s = newSearcher(r);
+		PrefixQuery prefixQuery = new PrefixQuery(new Term(TEXT_FIELD, "term"));
+		// the decompound tokens expand too, but never match
+		Query unbounded = new SpanEmptyPayloadCheckQuery(new SpanMultiTermQueryWrapper<>(prefixQuery));
+		Query bounded = new SpanEmptyPayloadCheckQuery(
+				new SpanBoundedMultiTermQueryWrapper(prefixQuery, 2 * numTerms, true));
+		QueryUtils.check(bounded);
+		assertEquals(numTerms, s.count(unbounded));
+		assertEquals(numTerms, s.count(bounded));
+		assertFalse(s.rewrite(bounded).toString().contains("top_terms"));
+
+		int maxExpansions = TestUtil.nextInt(random(), 1, numTerms - 1);
+		Query limited = new SpanEmptyPayloadCheckQuery(
+				new SpanBoundedMultiTermQueryWrapper(prefixQuery, maxExpansions, false));
+		assertTrue(s.count(limited) <= maxExpansions);
+		assertTrue(s.rewrite(limited).toString().contains("max_expansions=" + maxExpansions + ", top_terms"));
+
+		Query failing = new SpanEmptyPayloadCheckQuery(
+				new SpanBoundedMultiTermQueryWrapper(prefixQuery, maxExpansions, true));
+		IllegalArgumentException e = expectThrows(IllegalArgumentException.class, () -> s.count(failing));
+		assertTrue(e.getMessage().contains("more than " + maxExpansions + " terms"));
+		r.close();
+		directory.close();
+		analyzer.close();
+	}
+}
@@ -0,0 +1,149 @@
+package de.pansoft.lucene.search.traversal;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.BoostQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.util.LuceneTestCase;
+import org.elasticsearch.index.query.SearchExecutionContext;
+import org.junit.Test;
+
+public class QueryTraverserTest extends LuceneTestCase {
+
+	private static final String FIELD = "text";
+
+	/**
+	 * Appends "_handled" to the terms and records the phase of every call.
+	 */
+	private static final class CountingTermQueryHandler implements QueryHandler {
+
+		private final List<TraversalPhase> phases = new ArrayList<>();
+
+		@Override
+		public Query handleQuery(final TraverserContext traverserContext, final SearchExecutionContext context,
+								 final Query query, final QueryTraverser queryTraverser) {
+			phases.add(traverserContext.getTraversalPhase());
+			return new TermQuery(new Term(FIELD, ((TermQuery) query).getTerm().text() + "_handled"));
+		}
+
+		@Override
+		public boolean acceptQueryClass(final Class<? extends Query> queryClass) {
+			return TermQuery.class.isAssignableFrom(queryClass);
+		}
+	}
+
+	/**
+	 * Traverses the boosted query in the rewrite phase.
+	 */
+	private static final class RewritePhaseBoostQueryHandler implements QueryHandler {
+
+		@Override
+		public Query handleQuery(final TraverserContext traverserContext, final SearchExecutionContext context,
+								 final Query query, final QueryTraverser queryTraverser) {
+			final BoostQuery boostQuery = (BoostQuery) query;
+			return new BoostQuery(queryTraverser.traverse(traverserContext.inTraversalPhase(TraversalPhase.REWRITE_PHASE),
+					context, boostQuery.getQuery()), boostQuery.getBoost());
+		}
+
+		@Override
+		public boolean acceptQueryClass(final Class<? extends Query> queryClass) {
+			return BoostQuery.class.isAssignableFrom(queryClass);
+		}
+	}
+
+	/**
+	 * Replaces boolean queries with a minimum number of should clauses by a marker term.
+	 */
+	private static final class MinShouldMatchBooleanQueryHandler implements QueryHandler {
+
+		@Override
+		public Query handleQuery(final TraverserContext traverserContext, final SearchExecutionContext context,
+								 final Query query, final QueryTraverser queryTraverser) {
+			return new TermQuery(new Term(FIELD, "min_should_match"));
+		}
+
+		@Override
+		public boolean acceptQueryClass(final Class<? extends Query> queryClass) {
+			return BooleanQuery.class.isAssignableFrom(queryClass);
+		}
+
+		@Override
+		public boolean acceptQuery(final TraverserContext traverserContext, final SearchExecutionContext context,
+								   final Query query) {
+			return ((BooleanQuery) query).getMinimumNumberShouldMatch() > 0;
+		}
+	}
+
+	private static Query term(String text) {
+		return new TermQuery(new Term(FIELD, text));
+	}
+
+	@Test
+	public void testEqualSubtreesAreHandledOnce() {
+		CountingTermQueryHandler handler = new CountingTermQueryHandler();
+		QueryTraverser traverser = QueryTraverser.withCompositeQueries(handler);
+		Query query = new BooleanQuery.Builder()
+				.add(term("a"), BooleanClause.Occur.SHOULD)
+				.add(term("b"), BooleanClause.Occur.SHOULD)
+				.add(term("a"), BooleanClause.Occur.SHOULD)
+				.build();
+		Query expected = new BooleanQuery.Builder()
+				.add(term("a_handled"), BooleanClause.Occur.SHOULD)
+				.add(term("b_handled"), BooleanClause.Occur.SHOULD)
+				.add(term("a_handled"), BooleanClause.Occur.SHOULD)
+				.build();
+		assertEquals(expected, traverser.traverse(TraverserContext.getContext(), null, query));
+		assertEquals(2, handler.phases.size());
+		// every traversal starts with its own results
+		traverser.traverse(TraverserContext.getContext(), null, query);
+		assertEquals(4, handler.phases.size());
+	}
+
+	@Test
+	public void testOtherContextBypassesResults() {
+		CountingTermQueryHandler handler = new CountingTermQueryHandler();
+		QueryTraverser traverser = QueryTraverser.withCompositeQueries(handler, new RewritePhaseBoostQueryHandler());
+		Query query = new BooleanQuery.Builder()
+				.add(term("a"), BooleanClause.Occur.SHOULD)
+				.add(new BoostQuery(term("a"), 2f), BooleanClause.Occur.SHOULD)
+				.add(new BoostQuery(term("a"), 3f), BooleanClause.Occur.SHOULD)
+				.build();
+		Query expected = new BooleanQuery.Builder()
+				.add(term("a_handled"), BooleanClause.Occur.SHOULD)
+				.add(new BoostQuery(term("a_handled"), 2f), BooleanClause.Occur.SHOULD)
+				.add(new BoostQuery(term("a_handled"), 3f), BooleanClause.Occur.SHOULD)
+				.build();
+		assertEquals(expected, traverser.traverse(TraverserContext.getContext(), null, query));
+		// the term in the build phase is not reused for the rewrite phase, and each rewrite phase context is new
+		assertEquals(3, handler.phases.size());
+		assertEquals(1, handler.phases.stream().filter(phase -> phase == TraversalPhase.BUILD_PHASE).count());
+		assertEquals(2, handler.phases.stream().filter(phase -> phase == TraversalPhase.REWRITE_PHASE).count());
+	}
+
+	@Test
+	public void testCompositeHandlerRunsAfterLeafHandler() {
+		// the composite handler is registered first, but only gets the queries the leaf handler does not accept
+		QueryTraverser traverser = new QueryTraverser(new CloneOnChangeBooleanQueryHandler(),
+				new MinShouldMatchBooleanQueryHandler(), new CountingTermQueryHandler());
+		Query minShouldMatch = new BooleanQuery.Builder()
+				.add(term("a"), BooleanClause.Occur.SHOULD)
+				.add(term("b"), BooleanClause.Occur.SHOULD)
+				.setMinimumNumberShouldMatch(1)
+				.build();
+		Query query = new BooleanQuery.Builder()
+				.add(minShouldMatch, BooleanClause.Occur.MUST)
+				.add(term("c"), BooleanClause.Occur.MUST)
+				.build();
+		Query expected = new BooleanQuery.Builder()
+				.add(term("min_should_match"), BooleanClause.Occur.MUST)
+				.add(term("c_handled"), BooleanClause.Occur.MUST)
+				.build();
+		assertEquals(expected, traverser.traverse(TraverserContext.getContext(), null, query));
+		assertEquals(term("min_should_match"), traverser.traverse(TraverserContext.getContext(), null, minShouldMatch));
+	}
+}
@@ -0,0 +1,51 @@
+package org.xbib.decompound;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.xbib.elasticsearch.index.analysis.decompound.CompactPatriciaTrie;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+
+public class CompactorTests {
+
+    private static final String GOLD = "# compound parts\n"
+            + "Rentenversicherung Renten + versicherung\n"
+            + "Kindergarten Kinder + garten\n"
+            + "Dampfschiff Dampf + schiff\n"
+            + "Waldsterben Wald + sterben\n";
+
+    @Test
+    public void readGold() throws Exception {
+        List<String[]> gold = Compactor.readGold(new StringReader(GOLD));
+        Assert.assertEquals(4, gold.size());
+        Assert.assertArrayEquals(new String[] { "Rentenversicherung", "Renten", "versicherung" }, gold.get(0));
+    }
+
+    @Test
+    public void compact() throws Exception {
+        CompactPatriciaTrie kompvh = load("/decompound/kompVHic.tree");
+        CompactPatriciaTrie grf = load("/decompound/grfExt.tree");
+        Compactor compactor = new Compactor(kompvh, kompvh, grf, Compactor.Target.REDUCE, 0.51d,
+                Compactor.readGold(new StringReader(GOLD)));
+        compactor.setRounds(1);
+        Compactor.Result original = compactor.evaluate("original", compactor.original());
+        Compactor.Result compacted = compactor.evaluate("compacted", compactor.compact(true, 5, 15));
+        Assert.assertTrue(original.getSerializedBytes() > 0);
+        Assert.assertTrue(compacted.getSerializedBytes() < original.getSerializedBytes());
+        Assert.assertTrue(compacted.getHeapBytes() < original.getHeapBytes());
+        Assert.assertTrue(original.getPrecision() >= 0.0 && original.getPrecision() <= 1.0);
+        Assert.assertTrue(original.getRecall() >= 0.0 && original.getRecall() <= 1.0);
+        // compaction works on a copy
+        Assert.assertEquals(original.getSerializedBytes(),
+                compactor.evaluate("original", compactor.original()).getSerializedBytes());
+    }
+
+    private CompactPatriciaTrie load(String name) throws IOException {
+        CompactPatriciaTrie trie = new CompactPatriciaTrie();
+        trie.load(getClass().getResourceAsStream(name));
+        trie.setIgnoreCase(true);
+        return trie;
+    }
+}
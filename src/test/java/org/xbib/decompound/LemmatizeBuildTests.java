@@ -1,6 +1,7 @@
 package org.xbib.decompound;
 
 import org.xbib.elasticsearch.index.analysis.decompound.CompactPatriciaTrie;
+import org.xbib.elasticsearch.index.analysis.decompound.CompactPatriciaTrieBuilder;
 
 import java.io.BufferedReader;
 import java.io.FileOutputStream;
@@ -8,15 +9,18 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.zip.GZIPInputStream;
 
 public class LemmatizeBuildTests {
 
     public void trainReduce() throws IOException, ClassNotFoundException {
         Trainer trainer = new Trainer();
-        CompactPatriciaTrie reduce = new CompactPatriciaTrie();
-        reduce.setIgnoreCase(true);
-        reduce.setReverse(true);
+        CompactPatriciaTrieBuilder builder = new CompactPatriciaTrieBuilder();
+        builder.setIgnoreCase(true);
+        builder.setReverse(true);
+        List<String[]> pairs = new ArrayList<>();
         InputStream in = getClass().getResourceAsStream("/morphy-mapping-20110717.latin1.gz");
         GZIPInputStream gzip = new GZIPInputStream(in);
         Reader reader = new InputStreamReader(gzip, "ISO-8859-1");
@@ -28,10 +32,15 @@ public class LemmatizeBuildTests {
             if (forms.length == 2) {
                 String wclass = trainer.createRule(forms[0], forms[1]);
                 //System.err.println("w=" + forms[0]  + " wclass="+ wclass);
-                reduce.train(forms[0], wclass);
+                pairs.add(new String[] { builder.key(forms[0]), forms[0], wclass });
             }
         }
         br.close();
+        pairs.sort((a, b) -> a[0].compareTo(b[0]));
+        for (String[] pair : pairs) {
+            builder.add(pair[1], pair[2]);
+        }
+        CompactPatriciaTrie reduce = builder.build();
         FileOutputStream f = new FileOutputStream("target/morphyLemmaForms.tree");
         reduce.save(f);
         f.close();
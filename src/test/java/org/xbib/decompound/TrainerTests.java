@@ -1,9 +1,11 @@
 package org.xbib.decompound;
 
+import org.junit.Assert;
 import org.junit.Test;
 import org.xbib.elasticsearch.index.analysis.decompound.Decompounder;
 
 import java.io.StringReader;
+import java.util.concurrent.ForkJoinPool;
 
 public class TrainerTests {
 
@@ -92,4 +94,42 @@ public class TrainerTests {
             System.err.println("input = " + w + " decompound output = " + d.decompound(w));
         }
     }
+
+    @Test
+    public void trainParallel() throws Exception {
+        StringBuilder nouns = new StringBuilder();
+        StringBuilder compounds = new StringBuilder();
+        String[] parts = { "Rente", "Versicherung", "Reich", "Kanzler", "Bund", "Wald", "Bier", "Zelt", "Kunde" };
+        for (String a : parts) {
+            nouns.append(a).append(' ').append(a).append('\n');
+            nouns.append(a).append("n ").append(a).append('\n');
+            for (String b : parts) {
+                compounds.append(a).append(b.toLowerCase()).append(' ')
+                        .append(a).append(" + ").append(b.toLowerCase()).append('\n');
+            }
+        }
+        Trainer sequential = new Trainer();
+        sequential.setShardSize(Integer.MAX_VALUE);
+        sequential.trainReduce(new StringReader(nouns.toString()), 0.51d);
+        sequential.trainCompounds(new StringReader(compounds.toString()), null, null, 0.51d);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            Trainer parallel = new Trainer(pool);
+            parallel.setShardSize(5);
+            parallel.trainReduce(new StringReader(nouns.toString()), 0.51d);
+            parallel.trainCompounds(new StringReader(compounds.toString()), null, null, 0.51d);
+            Decompounder expected = new Decompounder(sequential.getForward(), sequential.getBackward(),
+                    sequential.getReduce(), 0.51d);
+            Decompounder actual = new Decompounder(parallel.getForward(), parallel.getBackward(),
+                    parallel.getReduce(), 0.51d);
+            for (String a : parts) {
+                for (String b : parts) {
+                    String word = a + b.toLowerCase();
+                    Assert.assertEquals(word, expected.decompound(word), actual.decompound(word));
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
 }
@@ -0,0 +1,109 @@
+package org.xbib.elasticsearch.index.analysis.decompound;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class CompactPatriciaTrieBuilderTest extends Assert {
+
+    @Test
+    public void testEmpty() {
+        CompactPatriciaTrie trie = new CompactPatriciaTrieBuilder().build();
+        assertEquals(new CompactPatriciaTrie().getAllEntriesString(), trie.getAllEntriesString());
+        assertEquals("undecided", trie.classify("Haus"));
+    }
+
+    @Test
+    public void testSameAsTrained() throws IOException {
+        for (boolean reverse : new boolean[] { false, true }) {
+            CompactPatriciaTrieBuilder builder = new CompactPatriciaTrieBuilder();
+            builder.setIgnoreCase(true);
+            builder.setReverse(reverse);
+            List<String[]> pairs = pairs(builder, new Random(reverse ? 1 : 2), 5000);
+            CompactPatriciaTrie trained = new CompactPatriciaTrie();
+            trained.setIgnoreCase(true);
+            trained.setReverse(reverse);
+            for (String[] pair : pairs) {
+                builder.add(pair[0], pair[1]);
+                trained.train(pair[0], pair[1]);
+            }
+            CompactPatriciaTrie built = builder.build();
+            assertEquals(entries(trained), entries(built));
+            // compare with the compact form of the trained tree, the object tree resolves unknown words differently
+            CompactPatriciaTrieSnapshot expected = trained.snapshot();
+            Random random = new Random(3);
+            for (String[] pair : pairs) {
+                String word = pair[0];
+                String probe = word.substring(0, 1 + random.nextInt(word.length()));
+                assertEquals(word, expected.classify(word), built.classify(word));
+                assertEquals(probe, expected.classify(probe), built.classify(probe));
+            }
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            built.save(out);
+            CompactPatriciaTrie copy = new CompactPatriciaTrie();
+            copy.load(new ByteArrayInputStream(out.toByteArray()));
+            assertEquals(built.getAllEntriesString(), copy.getAllEntriesString());
+            assertEquals(reverse, copy.getReverse());
+        }
+    }
+
+    @Test
+    public void testClassOrder() {
+        CompactPatriciaTrieBuilder builder = new CompactPatriciaTrieBuilder();
+        CompactPatriciaTrie trained = new CompactPatriciaTrie();
+        for (String cl : new String[] { "2+n", "1", "0+er", "1", "2+n" }) {
+            builder.add("haus", cl);
+            trained.train("haus", cl);
+        }
+        List<String> expected = Arrays.asList("0+er=1", "1=2", "2+n=2");
+        assertEquals(expected, entries(builder.build()).get("haus" + (char) 4));
+        assertEquals(expected, entries(trained).get("haus" + (char) 4));
+        // tied classes are voted in class order
+        assertEquals("1;2+n", trained.classify("haus"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnsortedInput() {
+        CompactPatriciaTrieBuilder builder = new CompactPatriciaTrieBuilder();
+        builder.add("b", "1");
+        builder.add("a", "1");
+    }
+
+    private List<String[]> pairs(CompactPatriciaTrieBuilder builder, Random random, int n) {
+        String[] classes = { "1", "2", "3", "0+er", "2+n" };
+        List<String[]> pairs = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            StringBuilder sb = new StringBuilder();
+            int length = 1 + random.nextInt(8);
+            for (int j = 0; j < length; j++) {
+                sb.append("aeinrstuäöüß".charAt(random.nextInt(12)));
+            }
+            if (random.nextInt(4) == 0) {
+                sb.setCharAt(0, Character.toUpperCase(sb.charAt(0)));
+            }
+            pairs.add(new String[] { sb.toString(), classes[random.nextInt(classes.length)] });
+        }
+        pairs.sort((a, b) -> builder.key(a[0]).compareTo(builder.key(b[0])));
+        return pairs;
+    }
+
+    private Map<String, List<String>> entries(CompactPatriciaTrie trie) {
+        Map<String, List<String>> map = new HashMap<>();
+        Iterator<Map.Entry<String, List<String>>> it = trie.entryIterator();
+        while (it.hasNext()) {
+            Map.Entry<String, List<String>> entry = it.next();
+            assertNull(entry.getKey(), map.put(entry.getKey(), new ArrayList<>(entry.getValue())));
+        }
+        return map;
+    }
+}
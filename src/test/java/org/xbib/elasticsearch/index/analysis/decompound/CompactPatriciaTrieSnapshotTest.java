@@ -0,0 +1,141 @@
+package org.xbib.elasticsearch.index.analysis.decompound;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class CompactPatriciaTrieSnapshotTest extends Assert {
+
+    private static final String[] WORDS = {
+        "Jahresfeier",
+        "Kinderernährung",
+        "Donaudampfschiff",
+        "Ökosteuer",
+        "Rechtsanwaltskanzleien",
+        "Versicherungsgesellschaften",
+        "Rentenversicherungsträger",
+        "gekostet",
+        "tomaten",
+        "Straße€",
+        ""
+    };
+
+    private static final int THREADS = 8;
+
+    private static final int ROUNDS = 200;
+
+    @Test
+    public void testSnapshotMatchesTrie() throws IOException {
+        CompactPatriciaTrie trie = load("/decompound/kompVHic.tree");
+        CompactPatriciaTrieSnapshot snapshot = trie.snapshot();
+        for (String word : WORDS) {
+            assertEquals(word, trie.classify(word), snapshot.classify(word));
+            assertEquals(word, trie.classifyBackward(word, "<"), snapshot.classifyBackward(word, "<"));
+        }
+    }
+
+    @Test
+    public void testWithThresholdLeavesSnapshotUntouched() throws IOException {
+        CompactPatriciaTrie trie = load("/decompound/grfExt.tree");
+        trie.setThreshold(0.51);
+        CompactPatriciaTrieSnapshot snapshot = trie.snapshot();
+        CompactPatriciaTrieSnapshot other = snapshot.withThreshold(0.9);
+        trie.setThreshold(0.2);
+        assertEquals(0.51, snapshot.getThreshold(), 0.0);
+        assertEquals(0.9, other.getThreshold(), 0.0);
+    }
+
+    @Test
+    public void testSnapshotOfTrainedTree() {
+        CompactPatriciaTrie trie = new CompactPatriciaTrie();
+        trie.train("Versicherungen", "2");
+        trie.train("Renten", "1");
+        CompactPatriciaTrieSnapshot snapshot = trie.snapshot();
+        assertEquals("2", snapshot.classify("Versicherungen"));
+        assertEquals("1", snapshot.classify("Renten"));
+    }
+
+    @Test
+    public void testConcurrentClassify() throws Exception {
+        CompactPatriciaTrie grf = load("/decompound/grfExt.tree");
+        CompactPatriciaTrie kompvh = load("/decompound/kompVHic.tree");
+        final CompactPatriciaTrieSnapshot grfSnapshot = grf.snapshot();
+        final CompactPatriciaTrieSnapshot kompvhSnapshot = kompvh.snapshot();
+        final Decompounder decompounder = new Decompounder(kompvhSnapshot, kompvhSnapshot, grfSnapshot);
+        final List<String> expected = new ArrayList<>();
+        for (String word : WORDS) {
+            expected.add(grfSnapshot.classify(word));
+            expected.add(kompvhSnapshot.classifyBackward(word, "<"));
+            expected.add(decompounder.decompound(word).toString());
+        }
+        final List<List<String>> expectedWithThreshold = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            CompactPatriciaTrieSnapshot withThreshold = grfSnapshot.withThreshold(threshold(t));
+            List<String> classes = new ArrayList<>();
+            for (String word : WORDS) {
+                classes.add(withThreshold.classify(word));
+            }
+            expectedWithThreshold.add(classes);
+        }
+        final CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<List<List<String>>>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                final double threshold = threshold(t);
+                futures.add(executor.submit(new Callable<List<List<String>>>() {
+                    @Override
+                    public List<List<String>> call() throws Exception {
+                        start.await();
+                        List<List<String>> rounds = new ArrayList<>();
+                        for (int round = 0; round < ROUNDS; round++) {
+                            CompactPatriciaTrieSnapshot withThreshold = grfSnapshot.withThreshold(threshold);
+                            List<String> classes = new ArrayList<>();
+                            List<String> results = new ArrayList<>();
+                            for (String word : WORDS) {
+                                classes.add(withThreshold.classify(word));
+                                results.add(grfSnapshot.classify(word));
+                                results.add(kompvhSnapshot.classifyBackward(word, "<"));
+                                results.add(decompounder.decompound(word).toString());
+                            }
+                            rounds.add(classes);
+                            rounds.add(results);
+                        }
+                        return rounds;
+                    }
+                }));
+            }
+            start.countDown();
+            for (int t = 0; t < THREADS; t++) {
+                List<List<String>> rounds = futures.get(t).get(60, TimeUnit.SECONDS);
+                assertEquals(2 * ROUNDS, rounds.size());
+                for (int round = 0; round < ROUNDS; round++) {
+                    assertEquals("thread " + t + ", round " + round, expectedWithThreshold.get(t), rounds.get(2 * round));
+                    assertEquals("thread " + t + ", round " + round, expected, rounds.get(2 * round + 1));
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static double threshold(int thread) {
+        return 0.1 * (thread + 1);
+    }
+
+    private CompactPatriciaTrie load(String name) throws IOException {
+        CompactPatriciaTrie trie = new CompactPatriciaTrie();
+        trie.load(getClass().getResourceAsStream(name));
+        trie.setIgnoreCase(true);
+        return trie;
+    }
+}
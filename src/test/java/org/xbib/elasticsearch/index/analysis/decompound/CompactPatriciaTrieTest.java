@@ -0,0 +1,263 @@
+package org.xbib.elasticsearch.index.analysis.decompound;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class CompactPatriciaTrieTest extends Assert {
+
+    private static final String[] WORDS = {
+        "Jahresfeier",
+        "Kinderernährung",
+        "Donaudampfschiff",
+        "Ökosteuer",
+        "Rechtsanwaltskanzleien",
+        "gekostet",
+        "tomaten",
+        ""
+    };
+
+    @Test
+    public void testSaveLoadRoundTrip() throws IOException {
+        byte[] original = readResource("/decompound/grfExt.tree");
+        CompactPatriciaTrie trie = new CompactPatriciaTrie();
+        trie.load(new ByteArrayInputStream(original));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        trie.save(out);
+        assertArrayEquals(readTree(original), readTree(out.toByteArray()));
+    }
+
+    @Test
+    public void testClassifyAfterRoundTrip() throws IOException {
+        CompactPatriciaTrie trie = new CompactPatriciaTrie();
+        trie.load(getClass().getResourceAsStream("/decompound/grfExt.tree"));
+        trie.setIgnoreCase(true);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        trie.save(out);
+        CompactPatriciaTrie copy = new CompactPatriciaTrie();
+        copy.load(new ByteArrayInputStream(out.toByteArray()));
+        copy.setIgnoreCase(true);
+        for (String word : WORDS) {
+            assertEquals(word, trie.classify(word), copy.classify(word));
+        }
+    }
+
+    @Test
+    public void testSymbolsOutsideAlphabet() throws IOException {
+        CompactPatriciaTrie trie = new CompactPatriciaTrie();
+        trie.load(getClass().getResourceAsStream("/decompound/grfExt.tree"));
+        assertEquals(trie.classify(""), trie.classify("€"));
+        assertNotNull(trie.classify("Straße€"));
+    }
+
+    @Test
+    public void testClassifyBackward() throws IOException {
+        for (boolean reverse : new boolean[] { false, true }) {
+            CompactPatriciaTrie trie = new CompactPatriciaTrie();
+            trie.load(getClass().getResourceAsStream("/decompound/kompVHic.tree"));
+            trie.setIgnoreCase(true);
+            trie.setReverse(reverse);
+            trie.setThreshold(0.51);
+            for (String word : WORDS) {
+                String reversed = new StringBuilder(word).reverse().toString();
+                assertEquals(word, trie.classify(reversed), trie.classifyBackward(word));
+                assertEquals(word, trie.classify(reversed + "<"), trie.classifyBackward(word, "<"));
+            }
+        }
+    }
+
+    @Test
+    public void testTrainedTree() throws IOException {
+        CompactPatriciaTrie trie = new CompactPatriciaTrie();
+        trie.train("Versicherungen", "2");
+        trie.train("Renten", "1");
+        trie.train("Kinder", "2");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        trie.save(out);
+        CompactPatriciaTrie copy = new CompactPatriciaTrie();
+        copy.load(new ByteArrayInputStream(out.toByteArray()));
+        for (String word : new String[] { "Versicherungen", "Renten", "Kinder", "Kind" }) {
+            assertEquals(word, trie.classify(word), copy.classify(word));
+            String reversed = new StringBuilder(word).reverse().toString();
+            assertEquals(word, trie.classify(reversed + "<"), trie.classifyBackward(word, "<"));
+        }
+    }
+
+    @Test
+    public void testLatin1RoundTrip() throws IOException {
+        CompactPatriciaTrie trie = new CompactPatriciaTrie();
+        trie.train("Ökosteuer", "2");
+        trie.train("Straße", "1");
+        trie.train("ÿþý", "ÿ");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        trie.save(out);
+        CompactPatriciaTrie copy = new CompactPatriciaTrie();
+        copy.load(new ByteArrayInputStream(out.toByteArray()));
+        for (String word : new String[] { "Ökosteuer", "Straße", "ÿþý" }) {
+            assertEquals(word, trie.classify(word), copy.classify(word));
+        }
+        assertEquals("ÿ", copy.classify("ÿþý"));
+    }
+
+    @Test
+    public void testRejectNonLatin1() throws IOException {
+        CompactPatriciaTrie trie = new CompactPatriciaTrie();
+        trie.train("Versicherungen", "2");
+        try {
+            trie.train("Ŝtono", "1");
+            fail("word outside of ISO-8859-1 must be rejected");
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("ISO-8859-1"));
+        }
+        try {
+            trie.train("Stono", "Ŝ");
+            fail("class outside of ISO-8859-1 must be rejected");
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("ISO-8859-1"));
+        }
+        // the rejected input leaves the tree intact, it still saves and loads
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        trie.save(out);
+        CompactPatriciaTrie copy = new CompactPatriciaTrie();
+        copy.load(new ByteArrayInputStream(out.toByteArray()));
+        assertEquals(trie.getAllEntriesString(), copy.getAllEntriesString());
+        assertEquals(trie.classify("Versicherungen"), copy.classify("Versicherungen"));
+    }
+
+    @Test
+    public void testEntries() throws IOException {
+        CompactPatriciaTrie trie = new CompactPatriciaTrie();
+        trie.load(getClass().getResourceAsStream("/decompound/grfExt.tree"));
+        List<String> lines = new ArrayList<>();
+        Iterator<Map.Entry<String, List<String>>> it = trie.entryIterator();
+        while (it.hasNext()) {
+            Map.Entry<String, List<String>> entry = it.next();
+            lines.add(entry.getKey() + "\t[" + String.join(";", entry.getValue()) + "]");
+        }
+        String all = trie.getAllEntriesString();
+        assertEquals(all, String.join("\n", lines) + "\n");
+        List<String> parallel = StreamSupport.stream(trie.entrySpliterator(), true)
+                .map(entry -> entry.getKey() + "\t[" + String.join(";", entry.getValue()) + "]")
+                .collect(Collectors.toList());
+        assertEquals(lines, parallel);
+    }
+
+    @Test
+    public void testSaveTrainedTree() throws IOException {
+        CompactPatriciaTrie trie = new CompactPatriciaTrie();
+        for (String word : WORDS) {
+            trie.train(word, String.valueOf(word.length() % 3));
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        trie.save(out);
+        CompactPatriciaTrie copy = new CompactPatriciaTrie();
+        copy.load(new ByteArrayInputStream(out.toByteArray()));
+        // the object tree yields the same entries as the compact tree
+        assertEquals(trie.getAllEntriesString(), copy.getAllEntriesString());
+        ByteArrayOutputStream again = new ByteArrayOutputStream();
+        copy.save(again);
+        assertArrayEquals(readTree(out.toByteArray()), readTree(again.toByteArray()));
+    }
+
+    @Test
+    public void testMerge() {
+        Random random = new Random(5);
+        CompactPatriciaTrie all = new CompactPatriciaTrie();
+        CompactPatriciaTrie left = new CompactPatriciaTrie();
+        CompactPatriciaTrie right = new CompactPatriciaTrie();
+        for (int i = 0; i < 2000; i++) {
+            StringBuilder sb = new StringBuilder();
+            int length = 1 + random.nextInt(6);
+            for (int j = 0; j < length; j++) {
+                sb.append("abcde".charAt(random.nextInt(5)));
+            }
+            String cl = Integer.toString(random.nextInt(3));
+            all.train(sb.toString(), cl);
+            (i % 3 == 0 ? left : right).train(sb.toString(), cl);
+        }
+        left.merge(right);
+        assertEquals(entries(all), entries(left));
+    }
+
+    @Test
+    public void testDropClasses() {
+        CompactPatriciaTrie trie = new CompactPatriciaTrie();
+        trie.train("haus", "1");
+        trie.train("haus", "1");
+        trie.train("haus", "2");
+        trie.train("hose", "3");
+        trie.dropClasses(2);
+        Map<String, List<String>> entries = entries(trie);
+        assertEquals(Collections.singletonList("1=2"), entries.get("haus" + (char) 4));
+        assertFalse(entries.containsKey("hose" + (char) 4));
+        assertEquals("1", trie.snapshot().classify("haus"));
+    }
+
+    @Test
+    public void testQuantize() {
+        CompactPatriciaTrie trie = new CompactPatriciaTrie();
+        for (int i = 0; i < 1000; i++) {
+            trie.train("haus", "1");
+        }
+        for (int i = 0; i < 300; i++) {
+            trie.train("haus", "2");
+        }
+        trie.train("haus", "3");
+        trie.train("hose", "2");
+        trie.quantize(15);
+        Map<String, List<String>> entries = entries(trie);
+        assertEquals(Arrays.asList("1=15", "2=5", "3=1"), entries.get("haus" + (char) 4));
+        assertEquals(Collections.singletonList("2=1"), entries.get("hose" + (char) 4));
+        assertEquals("1", trie.snapshot().classify("haus"));
+    }
+
+    private Map<String, List<String>> entries(CompactPatriciaTrie trie) {
+        Map<String, List<String>> map = new HashMap<>();
+        Iterator<Map.Entry<String, List<String>>> it = trie.entryIterator();
+        while (it.hasNext()) {
+            Map.Entry<String, List<String>> entry = it.next();
+            List<String> classes = new ArrayList<>(entry.getValue());
+            Collections.sort(classes);
+            map.put(entry.getKey(), classes);
+        }
+        return map;
+    }
+
+    private char[] readTree(byte[] bytes) throws IOException {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+            for (int i = 0; i < 10; i++) {
+                in.readObject();
+            }
+            return (char[]) in.readObject();
+        } catch (ClassNotFoundException e) {
+            throw new IOException(e);
+        }
+    }
+
+    private byte[] readResource(String name) throws IOException {
+        try (InputStream in = getClass().getResourceAsStream(name)) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int n;
+            while ((n = in.read(buffer)) != -1) {
+                out.write(buffer, 0, n);
+            }
+            return out.toByteArray();
+        }
+    }
+}
@@ -2,16 +2,20 @@ package org.xbib.elasticsearch.index.analysis.decompound;
 
 import de.pansoft.elasticsearch.index.query.exact.ExactPhraseQueryBuilder;
 import de.pansoft.elasticsearch.index.query.string.GeniosQueryStringQueryBuilder;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.join.ScoreMode;
 import org.elasticsearch.action.admin.cluster.node.info.NodeInfo;
 import org.elasticsearch.action.admin.cluster.node.info.NodesInfoResponse;
 import org.elasticsearch.action.admin.cluster.node.info.PluginsAndModules;
 import org.elasticsearch.action.index.IndexRequestBuilder;
+import org.elasticsearch.action.search.SearchPhaseExecutionException;
 import org.elasticsearch.action.search.SearchResponse;
 import org.elasticsearch.common.xcontent.*;
 import org.elasticsearch.index.query.AbstractQueryBuilder;
 import org.elasticsearch.index.query.QueryBuilder;
 import org.elasticsearch.index.query.QueryBuilders;
 import org.elasticsearch.index.query.QueryStringQueryBuilder;
+import org.elasticsearch.index.query.functionscore.ScoreFunctionBuilders;
 import org.elasticsearch.plugins.Plugin;
 import org.elasticsearch.plugins.PluginDescriptor;
 import org.elasticsearch.search.SearchHit;
@@ -149,6 +153,13 @@ public class DecompoundQueryIntegTest extends ESIntegTestCase {
         }
     }
 
+    public void testMaxExpansionsLimitedByMaxClauseCount() {
+        ExactPhraseQueryBuilder exactPhraseQueryBuilder = new ExactPhraseQueryBuilder(QueryBuilders.queryStringQuery("text:ban*"), true);
+        exactPhraseQueryBuilder.maxExpansions(BooleanQuery.getMaxClauseCount());
+        expectThrows(IllegalArgumentException.class,
+                () -> exactPhraseQueryBuilder.maxExpansions(BooleanQuery.getMaxClauseCount() + 1));
+    }
+
     public void testMinFrequencyExactQuery() throws Exception {
         List<IndexRequestBuilder> reqs = new ArrayList<>();
         reqs.add(client().prepareIndex("test", "_doc", "1").setSource("text", "deutsche Spielbankgesellschaft als Bank"));
@@ -197,6 +208,130 @@ public class DecompoundQueryIntegTest extends ESIntegTestCase {
 
     }
 
+    public void testExactPrefixQuery() throws Exception {
+        String indexBody = StreamsUtils.copyToStringFromClasspath("/decompound_prefix_query.json");
+        prepareCreate("prefixed").setSource(indexBody, XContentType.JSON).get();
+        ensureGreen("prefixed");
+        List<IndexRequestBuilder> reqs = new ArrayList<>();
+        reqs.add(client().prepareIndex("prefixed", "_doc", "1").setSource("text", "deutsche Spielbankgesellschaft"));
+        reqs.add(client().prepareIndex("prefixed", "_doc", "2").setSource("text", "deutsche Bank"));
+        indexRandom(true, false, reqs);
+
+        {
+            QueryStringQueryBuilder queryStringQueryBuilder = QueryBuilders.queryStringQuery("text:bank");
+            SearchResponse resp = client().prepareSearch("prefixed").setQuery(queryStringQueryBuilder).get();
+            assertHits(resp.getHits(), "1", "2");
+        }
+        {
+            QueryStringQueryBuilder queryStringQueryBuilder = QueryBuilders.queryStringQuery("text:bank");
+            ExactPhraseQueryBuilder exactPhraseQueryBuilder = new ExactPhraseQueryBuilder(queryStringQueryBuilder, false, null, "=");
+            SearchResponse resp = client().prepareSearch("prefixed").setQuery(exactPhraseQueryBuilder).get();
+            assertHits(resp.getHits(), "2");
+        }
+        {
+            QueryStringQueryBuilder queryStringQueryBuilder = QueryBuilders.queryStringQuery("text:\"deutsche bank\"");
+            ExactPhraseQueryBuilder exactPhraseQueryBuilder = new ExactPhraseQueryBuilder(queryStringQueryBuilder, false, null, "=");
+            SearchResponse resp = client().prepareSearch("prefixed").setQuery(exactPhraseQueryBuilder).get();
+            assertHits(resp.getHits(), "2");
+        }
+        {
+            QueryStringQueryBuilder queryStringQueryBuilder = QueryBuilders.queryStringQuery("text:spielbank*");
+            ExactPhraseQueryBuilder exactPhraseQueryBuilder = new ExactPhraseQueryBuilder(queryStringQueryBuilder, true, null, "=");
+            SearchResponse resp = client().prepareSearch("prefixed").setQuery(exactPhraseQueryBuilder).get();
+            assertHits(resp.getHits(), "1");
+        }
+        {
+            QueryStringQueryBuilder queryStringQueryBuilder = QueryBuilders.queryStringQuery("text:ban*");
+            ExactPhraseQueryBuilder exactPhraseQueryBuilder = new ExactPhraseQueryBuilder(queryStringQueryBuilder, true, null, "=");
+            SearchResponse resp = client().prepareSearch("prefixed").setQuery(exactPhraseQueryBuilder).get();
+            assertHits(resp.getHits(), "2");
+        }
+    }
+
+    private void indexNested() throws Exception {
+        String indexBody = StreamsUtils.copyToStringFromClasspath("/decompound_nested_query.json");
+        prepareCreate("nested").setSource(indexBody, XContentType.JSON).get();
+        ensureGreen("nested");
+        List<IndexRequestBuilder> reqs = new ArrayList<>();
+        reqs.add(client().prepareIndex("nested", "_doc", "1").setSource("{\"text\": \"deutsche Spielbankgesellschaft\", "
+                + "\"date\": \"2020-05-01\", \"comments\": [{\"text\": \"deutsche Spielbankgesellschaft\"}]}", XContentType.JSON));
+        reqs.add(client().prepareIndex("nested", "_doc", "2").setSource("{\"text\": \"deutsche Bank\", "
+                + "\"date\": \"2020-07-01\", \"comments\": [{\"text\": \"deutsche Bank\"}]}", XContentType.JSON));
+        indexRandom(true, false, reqs);
+    }
+
+    public void testExactNestedQuery() throws Exception {
+        indexNested();
+        QueryBuilder nestedQueryBuilder = QueryBuilders.nestedQuery("comments",
+                QueryBuilders.queryStringQuery("comments.text:\"deutsche bank\""), ScoreMode.Avg);
+        {
+            SearchResponse resp = client().prepareSearch("nested").setQuery(nestedQueryBuilder).get();
+            assertHits(resp.getHits(), "1", "2");
+        }
+        {
+            // the phrase inside the nested query is made exact, the decompounded comment does not match
+            ExactPhraseQueryBuilder exactPhraseQueryBuilder = new ExactPhraseQueryBuilder(nestedQueryBuilder, false);
+            SearchResponse resp = client().prepareSearch("nested").setQuery(exactPhraseQueryBuilder).get();
+            assertHits(resp.getHits(), "2");
+        }
+    }
+
+    public void testExactFunctionScoreQuery() throws Exception {
+        indexNested();
+        QueryStringQueryBuilder queryStringQueryBuilder = QueryBuilders.queryStringQuery("text:\"deutsche bank\"");
+        {
+            // exact_phrase inside function_score
+            QueryBuilder functionScoreQueryBuilder = QueryBuilders.functionScoreQuery(
+                    new ExactPhraseQueryBuilder(queryStringQueryBuilder, false), ScoreFunctionBuilders.weightFactorFunction(2f));
+            SearchResponse resp = client().prepareSearch("nested").setQuery(functionScoreQueryBuilder).get();
+            assertHits(resp.getHits(), "2");
+        }
+        {
+            // exact_phrase around function_score is pushed into it
+            QueryBuilder functionScoreQueryBuilder = QueryBuilders.functionScoreQuery(queryStringQueryBuilder,
+                    ScoreFunctionBuilders.weightFactorFunction(2f));
+            ExactPhraseQueryBuilder exactPhraseQueryBuilder = new ExactPhraseQueryBuilder(functionScoreQueryBuilder, false);
+            SearchResponse resp = client().prepareSearch("nested").setQuery(exactPhraseQueryBuilder).get();
+            assertHits(resp.getHits(), "2");
+        }
+        {
+            // a function_score further down can't be rebuilt and is rejected
+            QueryBuilder boolQueryBuilder = QueryBuilders.boolQuery().must(QueryBuilders.functionScoreQuery(
+                    queryStringQueryBuilder, ScoreFunctionBuilders.weightFactorFunction(2f)));
+            ExactPhraseQueryBuilder exactPhraseQueryBuilder = new ExactPhraseQueryBuilder(boolQueryBuilder, false);
+            expectThrows(SearchPhaseExecutionException.class,
+                    () -> client().prepareSearch("nested").setQuery(exactPhraseQueryBuilder).get());
+        }
+    }
+
+    public void testExactSpanQueries() throws Exception {
+        indexNested();
+        QueryBuilder spanNearQueryBuilder = QueryBuilders.spanNearQuery(QueryBuilders.spanTermQuery("text", "deutsche"), 0)
+                .addClause(QueryBuilders.spanTermQuery("text", "bank"))
+                .inOrder(true);
+        QueryBuilder spanOrQueryBuilder = QueryBuilders.spanOrQuery(QueryBuilders.spanTermQuery("text", "bank"))
+                .addClause(QueryBuilders.spanTermQuery("text", "gesellschaft"));
+        for (QueryBuilder spanQueryBuilder : Arrays.asList(spanNearQueryBuilder, spanOrQueryBuilder)) {
+            SearchResponse resp = client().prepareSearch("nested").setQuery(spanQueryBuilder).get();
+            assertHits(resp.getHits(), "1", "2");
+            ExactPhraseQueryBuilder exactPhraseQueryBuilder = new ExactPhraseQueryBuilder(spanQueryBuilder, false);
+            SearchResponse exactResp = client().prepareSearch("nested").setQuery(exactPhraseQueryBuilder).get();
+            assertHits(exactResp.getHits(), "2");
+        }
+    }
+
+    public void testExactQueryWithoutHandledQuery() throws Exception {
+        indexNested();
+        QueryBuilder queryBuilder = QueryBuilders.boolQuery()
+                .must(QueryBuilders.rangeQuery("date").gte("2020-06-01"))
+                .filter(QueryBuilders.existsQuery("text"));
+        for (boolean allQueryTypes : new boolean[] { false, true }) {
+            ExactPhraseQueryBuilder exactPhraseQueryBuilder = new ExactPhraseQueryBuilder(queryBuilder, allQueryTypes);
+            SearchResponse resp = client().prepareSearch("nested").setQuery(exactPhraseQueryBuilder).get();
+            assertHits(resp.getHits(), "2");
+        }
+    }
+
     private SearchSourceBuilder getFromSource(String resource, Object... arguments) throws IOException {
         String rawResourceString = StreamsUtils.copyToStringFromClasspath(resource);
         String resourceString = rawResourceString;
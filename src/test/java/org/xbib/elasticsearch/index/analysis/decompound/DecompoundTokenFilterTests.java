@@ -137,6 +137,49 @@ public class DecompoundTokenFilterTests extends ESTestCase {
         assertSimpleTSOutput(analyzer.tokenStream("test-field", source), expected);
     }
 
+    @Test
+    public void testWithExactPrefix() throws IOException {
+        String source = "Das ist ein Schlüsselwort, ein Bindestrichwort";
+        String[] expected = {
+                "Das",
+                "=Das",
+                "Da",
+                "ist",
+                "=ist",
+                "ein",
+                "=ein",
+                "Schlüsselwort",
+                "=Schlüsselwort",
+                "Schlüssel",
+                "wort",
+                "ein",
+                "=ein",
+                "Bindestrichwort",
+                "=Bindestrichwort",
+                "Bindestrich",
+                "wort"
+        };
+        String resource = "keywords_analysis.json";
+        Settings settings = Settings.builder()
+                .put(IndexMetadata.SETTING_VERSION_CREATED, Version.CURRENT)
+                .put("path.home", System.getProperty("path.home", "/tmp"))
+                .loadFromStream(resource, ClassLoader.getSystemClassLoader().getResourceAsStream(resource), false)
+                .build();
+        IndexMetadata indexMetaData = IndexMetadata.builder("test")
+                .settings(settings)
+                .numberOfShards(1)
+                .numberOfReplicas(1)
+                .build();
+        Settings nodeSettings = Settings.builder()
+                .put(AnalysisDecompoundPlugin.SETTING_MAX_CACHE_SIZE.getKey(), 131072)
+                .put("path.home", System.getProperty("path.home", "/tmp"))
+                .build();
+        TestAnalysis analysis = createTestAnalysis(new IndexSettings(indexMetaData, nodeSettings), nodeSettings, new AnalysisDecompoundPlugin(nodeSettings));
+        NamedAnalyzer analyzer = analysis.indexAnalyzers.get("with_exact_prefix");
+        assertNotNull(analyzer);
+        assertSimpleTSOutput(analyzer.tokenStream("test-field", source), expected);
+    }
+
     private void assertSimpleTSOutput(TokenStream stream, String[] expected) throws IOException {
         stream.reset();
         CharTermAttribute termAttr = stream.getAttribute(CharTermAttribute.class);
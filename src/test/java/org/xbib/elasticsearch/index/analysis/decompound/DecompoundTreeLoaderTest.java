@@ -0,0 +1,98 @@
+package org.xbib.elasticsearch.index.analysis.decompound;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.elasticsearch.ElasticsearchException;
+import org.elasticsearch.common.Strings;
+import org.elasticsearch.xcontent.ToXContent;
+import org.elasticsearch.xcontent.XContentBuilder;
+import org.elasticsearch.xcontent.XContentFactory;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class DecompoundTreeLoaderTest extends Assert {
+
+    private static final String BACKWARD = DecompoundTreeLoader.DEFAULT_BACKWARD;
+
+    private static final String REDUCE = DecompoundTreeLoader.DEFAULT_REDUCE;
+
+    @Test
+    public void testHandleMatchesDecompounder() throws IOException {
+        try (DecompoundTreeLoader loader = new DecompoundTreeLoader()) {
+            DecompoundTreeLoader.Handle handle = loader.decompounder(BACKWARD, BACKWARD, REDUCE, 0.51);
+            Decompounder expected = new Decompounder(getClass().getResourceAsStream(BACKWARD),
+                    getClass().getResourceAsStream(BACKWARD),
+                    getClass().getResourceAsStream(REDUCE), 0.51);
+            Decompounder decompounder = handle.get();
+            assertSame(decompounder, handle.get());
+            for (String word : Arrays.asList("Jahresfeier", "Donaudampfschiff", "Rechtsanwaltskanzleien")) {
+                assertEquals(word, expected.decompound(word), decompounder.decompound(word));
+            }
+        }
+    }
+
+    @Test
+    public void testTreesAreShared() {
+        try (DecompoundTreeLoader loader = new DecompoundTreeLoader()) {
+            Decompounder first = loader.decompounder(BACKWARD, BACKWARD, REDUCE, 0.51).get();
+            Decompounder second = loader.decompounder(BACKWARD, BACKWARD, REDUCE, 0.3).get();
+            assertNotSame(first, second);
+            assertTrue(Strings.toString(stats(loader)).contains("\"loaded\":2"));
+        }
+    }
+
+    @Test
+    public void testMissingTree() {
+        try (DecompoundTreeLoader loader = new DecompoundTreeLoader()) {
+            loader.start();
+            DecompoundTreeLoader.Handle handle = loader.decompounder("/decompound/missing.tree", BACKWARD, REDUCE, 0.51);
+            try {
+                handle.get();
+                fail();
+            } catch (ElasticsearchException e) {
+                assertTrue(e.getCause().getMessage().contains("missing.tree"));
+            }
+            assertFalse(loader.isReady());
+        }
+    }
+
+    @Test(timeout = 30000L)
+    public void testCloseFailsPendingHandles() {
+        DecompoundTreeLoader.Handle handle;
+        try (DecompoundTreeLoader loader = new DecompoundTreeLoader()) {
+            loader.start();
+            // the trees are still queued or loading on the single loader thread when it is closed
+            handle = loader.decompounder(DecompoundTreeLoader.DEFAULT_FORWARD, BACKWARD, REDUCE, 0.51);
+        }
+        try {
+            handle.get();
+            fail();
+        } catch (ElasticsearchException e) {
+            assertTrue(e.getCause().getMessage().contains("closed"));
+        }
+    }
+
+    @Test
+    public void testDecompounderAfterClose() {
+        DecompoundTreeLoader loader = new DecompoundTreeLoader();
+        loader.close();
+        try {
+            loader.decompounder(BACKWARD, BACKWARD, REDUCE, 0.51).get();
+            fail();
+        } catch (ElasticsearchException e) {
+            assertTrue(e.getCause().getMessage().contains("closed"));
+        }
+    }
+
+    private XContentBuilder stats(DecompoundTreeLoader loader) {
+        try {
+            XContentBuilder builder = XContentFactory.jsonBuilder();
+            builder.startObject();
+            loader.toXContent(builder, ToXContent.EMPTY_PARAMS);
+            return builder.endObject();
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        }
+    }
+}